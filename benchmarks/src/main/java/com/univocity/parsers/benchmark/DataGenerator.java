@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.benchmark;
+
+import java.util.*;
+
+/**
+ * Generates synthetic rows for benchmarks. The first column of every row holds a key drawn from a configurable
+ * number of distinct values, which controls how many rows share the same key when joining or linking.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public final class DataGenerator {
+
+	private DataGenerator() {
+	}
+
+	/**
+	 * Generates headers named {@code key}, {@code col1}, {@code col2}, etc.
+	 *
+	 * @param columns the number of columns, including the key column.
+	 *
+	 * @return the generated headers
+	 */
+	public static String[] headers(int columns) {
+		String[] out = new String[columns];
+		out[0] = "key";
+		for (int i = 1; i < columns; i++) {
+			out[i] = "col" + i;
+		}
+		return out;
+	}
+
+	/**
+	 * Generates rows with random keys and values.
+	 *
+	 * @param rowCount       the number of rows to generate
+	 * @param columns        the number of columns of each row, including the key column.
+	 * @param keyCardinality the number of distinct keys.
+	 * @param seed           the seed of the random generator, so runs are reproducible.
+	 *
+	 * @return the generated rows
+	 */
+	public static List<String[]> rows(int rowCount, int columns, int keyCardinality, long seed) {
+		Random random = new Random(seed);
+		List<String[]> out = new ArrayList<String[]>(rowCount);
+		for (int i = 0; i < rowCount; i++) {
+			String[] row = new String[columns];
+			row[0] = key(random.nextInt(keyCardinality));
+			for (int c = 1; c < columns; c++) {
+				row[c] = Long.toString(random.nextLong() & 0xFFFFFFFFL, 36);
+			}
+			out.add(row);
+		}
+		return out;
+	}
+
+	/**
+	 * Generates rows whose keys are unique and sequential, to act as the master side of a join.
+	 *
+	 * @param keyCardinality the number of rows (and distinct keys) to generate.
+	 * @param columns        the number of columns of each row, including the key column.
+	 *
+	 * @return the generated rows
+	 */
+	public static List<String[]> masterRows(int keyCardinality, int columns) {
+		List<String[]> out = new ArrayList<String[]>(keyCardinality);
+		for (int i = 0; i < keyCardinality; i++) {
+			String[] row = new String[columns];
+			row[0] = key(i);
+			for (int c = 1; c < columns; c++) {
+				row[c] = "m" + i + "_" + c;
+			}
+			out.add(row);
+		}
+		return out;
+	}
+
+	/**
+	 * Generates entity names with random casing and surrounding spaces, to exercise key normalization.
+	 *
+	 * @param count the number of distinct entity names.
+	 * @param seed  the seed of the random generator.
+	 *
+	 * @return the names, with the canonical name at even positions and a variant at odd positions.
+	 */
+	public static String[] entityNames(int count, long seed) {
+		Random random = new Random(seed);
+		String[] out = new String[count * 2];
+		for (int i = 0; i < count; i++) {
+			String name = "entity_" + i;
+			StringBuilder variant = new StringBuilder(" ");
+			for (int c = 0; c < name.length(); c++) {
+				char ch = name.charAt(c);
+				variant.append(random.nextBoolean() ? Character.toUpperCase(ch) : ch);
+			}
+			variant.append(' ');
+			out[i * 2] = name;
+			out[i * 2 + 1] = variant.toString();
+		}
+		return out;
+	}
+
+	private static String key(int value) {
+		return "k" + value;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.benchmark;
+
+import com.univocity.parsers.common.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Measures the {@link HashJoin} used by {@code Result.join} and {@code Result.link}, in memory and spilling to disk.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JoinBenchmark {
+
+	@Param({"10000", "1000000"})
+	public int rows;
+
+	@Param({"100", "10000"})
+	public int cardinality;
+
+	@Param({"5"})
+	public int columns;
+
+	private String[] headers;
+	private List<String[]> masterRows;
+	private List<String[]> linkedRows;
+	private File spillDirectory;
+
+	@Setup
+	public void setup() {
+		headers = DataGenerator.headers(columns);
+		masterRows = DataGenerator.masterRows(cardinality, columns);
+		linkedRows = DataGenerator.rows(rows, columns, cardinality, 42L);
+		spillDirectory = new File(System.getProperty("java.io.tmpdir"), "join-benchmark");
+		spillDirectory.mkdirs();
+	}
+
+	private HashJoin newJoin() {
+		return new HashJoin("master", headers, "linked", headers, "key");
+	}
+
+	@Benchmark
+	public void join(Blackhole blackhole) {
+		blackhole.consume(newJoin().join(masterRows, linkedRows));
+	}
+
+	@Benchmark
+	public void link(Blackhole blackhole) {
+		blackhole.consume(newJoin().link(masterRows, linkedRows));
+	}
+
+	@Benchmark
+	public void joinSpillingToDisk(Blackhole blackhole) {
+		for (String[] row : newJoin().join(masterRows, linkedRows, rows / 4, spillDirectory)) {
+			blackhole.consume(row);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.benchmark;
+
+import com.univocity.parsers.common.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Measures the traversal of linked rows through a {@link LinkIndex}, which backs
+ * {@code Result.getLinkedEntityData(int)}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkedEntityBenchmark {
+
+	@Param({"100000", "1000000"})
+	public int rows;
+
+	@Param({"1000", "100000"})
+	public int cardinality;
+
+	private LinkIndex index;
+	private List<String[]> linkedRows;
+	private int[] buffer;
+
+	@Setup
+	public void setup() {
+		String[] headers = DataGenerator.headers(3);
+		List<String[]> masterRows = DataGenerator.masterRows(cardinality, 3);
+		linkedRows = DataGenerator.rows(rows, 3, cardinality, 7L);
+		index = new HashJoin("master", headers, "linked", headers, "key").link(masterRows, linkedRows);
+		int max = 0;
+		for (int i = 0; i < index.getParentRowCount(); i++) {
+			max = Math.max(max, index.getLinkedRowCount(i));
+		}
+		buffer = new int[max];
+	}
+
+	@Benchmark
+	public void linkedRowsByPosition(Blackhole blackhole) {
+		for (int parent = 0; parent < index.getParentRowCount(); parent++) {
+			int count = index.getLinkedRowCount(parent);
+			for (int i = 0; i < count; i++) {
+				blackhole.consume(linkedRows.get(index.getLinkedRow(parent, i)));
+			}
+		}
+	}
+
+	@Benchmark
+	public void linkedRowsCopied(Blackhole blackhole) {
+		for (int parent = 0; parent < index.getParentRowCount(); parent++) {
+			int count = index.copyLinkedRows(parent, buffer, 0);
+			for (int i = 0; i < count; i++) {
+				blackhole.consume(linkedRows.get(buffer[i]));
+			}
+		}
+	}
+}
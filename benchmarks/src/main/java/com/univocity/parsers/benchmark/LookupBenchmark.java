@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.benchmark;
+
+import com.univocity.parsers.common.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Measures name-based lookups performed on every record: {@link Results#get(Object)} and
+ * {@link EntityList#getEntity(String)} with key normalization, and settings resolved through the inheritance chain
+ * of {@link EntitySettings} (entity, parent entity, then global parser settings).
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+	@Param({"10", "1000"})
+	public int entities;
+
+	@Param({"1", "8"})
+	public int inheritanceDepth;
+
+	private String[] names;
+	private Results<Result> results;
+	private BenchmarkEntityList entityList;
+	private BenchmarkEntitySettings deepestEntity;
+	private int position;
+
+	@Setup
+	public void setup() {
+		names = DataGenerator.entityNames(entities, 3L);
+		results = new Results<Result>();
+		BenchmarkParserSettings parserSettings = new BenchmarkParserSettings();
+		parserSettings.setStreamingBufferSize(5000);
+		parserSettings.setNullValue("N/A");
+		entityList = new BenchmarkEntityList(parserSettings);
+
+		for (int i = 0; i < names.length; i += 2) {
+			results.put(names[i], (Object) null);
+			entityList.configureEntity(names[i]);
+		}
+
+		BenchmarkEntitySettings parent = null;
+		for (int i = 0; i < inheritanceDepth; i++) {
+			parent = entityList.configureEntity("child_" + i, parent);
+		}
+		deepestEntity = parent;
+	}
+
+	private String nextName() {
+		position = (position + 1) % names.length;
+		return names[position];
+	}
+
+	@Benchmark
+	public void resultsGet(Blackhole blackhole) {
+		blackhole.consume(results.get(nextName()));
+	}
+
+	@Benchmark
+	public void entityListGetEntity(Blackhole blackhole) {
+		blackhole.consume(entityList.getEntity(nextName()));
+	}
+
+	@Benchmark
+	public int inheritedStreamingBufferSize() {
+		return deepestEntity.getStreamingBufferSize();
+	}
+
+	@Benchmark
+	public String inheritedNullValue() {
+		return deepestEntity.getNullValue();
+	}
+
+	static final class BenchmarkParserSettings extends EntityParserSettings<CommonParserSettings, BenchmarkEntityList, Context> {
+		@Override
+		protected CommonParserSettings createGlobalSettings() {
+			return createEmptyGlobalSettings();
+		}
+	}
+
+	static final class BenchmarkEntitySettings extends EntitySettings<Context, CommonParserSettings, BenchmarkParserSettings> {
+		BenchmarkEntitySettings(String name, BenchmarkEntitySettings parentEntity) {
+			super(name, createEmptyParserSettings(), parentEntity);
+		}
+	}
+
+	static final class BenchmarkEntityList extends EntityList<BenchmarkEntitySettings> {
+		BenchmarkEntityList(EntityParserSettings settings) {
+			super(settings);
+		}
+
+		@Override
+		protected BenchmarkEntitySettings newEntity(String entityName, BenchmarkEntitySettings parentEntity) {
+			return new BenchmarkEntitySettings(entityName, parentEntity);
+		}
+
+		@Override
+		protected BenchmarkEntitySettings configureEntity(String entityName, BenchmarkEntitySettings parentEntity) {
+			return super.configureEntity(entityName, parentEntity);
+		}
+
+		@Override
+		protected EntityList newInstance() {
+			return new BenchmarkEntityList(getParserSettings());
+		}
+	}
+}
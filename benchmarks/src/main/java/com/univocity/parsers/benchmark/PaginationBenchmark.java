@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.benchmark;
+
+import com.univocity.parsers.remote.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Measures the time to walk through all pages of a {@link PaginationServer}, downloading one page at a time or
+ * prefetching the following pages with a {@link PagePrefetcher}, with and without a {@link HostRateLimiter}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaginationBenchmark {
+
+	@Param({"50"})
+	public int pages;
+
+	@Param({"5", "20"})
+	public long latency;
+
+	@Param({"0", "2", "8"})
+	public int prefetchDepth;
+
+	@Param({"false", "true"})
+	public boolean rateLimited;
+
+	private PaginationServer server;
+	private ExecutorService executor;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		server = new PaginationServer(pages, 50, latency);
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		executor.shutdownNow();
+		server.close();
+	}
+
+	@Benchmark
+	public void paginate(Blackhole blackhole) throws InterruptedException {
+		final HostRateLimiter limiter = rateLimited ? new HostRateLimiter(10000.0, 100) : null;
+		PagePrefetcher<String> prefetcher = prefetchDepth > 0 ? new PagePrefetcher<String>(executor, prefetchDepth, pages) : null;
+		try {
+			for (int page = 0; page < pages; page++) {
+				String content = null;
+				if (prefetcher != null) {
+					for (int next = page; next < pages && prefetcher.canSchedule(); next++) {
+						prefetcher.schedule(server.getPageUrl(next), newDownload(server.getPageUrl(next), limiter));
+					}
+					content = prefetcher.take(server.getPageUrl(page));
+				}
+				if (content == null) {
+					content = download(server.getPageUrl(page), limiter);
+				}
+				blackhole.consume(content);
+			}
+		} finally {
+			if (prefetcher != null) {
+				prefetcher.cancel();
+			}
+		}
+	}
+
+	private static Callable<String> newDownload(final String url, final HostRateLimiter limiter) {
+		return new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				return download(url, limiter);
+			}
+		};
+	}
+
+	private static String download(String url, HostRateLimiter limiter) throws InterruptedException {
+		if (limiter != null) {
+			limiter.acquire(url);
+		}
+		String out = PaginationServer.download(url);
+		if (limiter != null) {
+			limiter.onResponse(url, 200);
+		}
+		return out;
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.benchmark;
+
+import com.sun.net.httpserver.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+
+/**
+ * A local HTTP server that stands in for a remote, paginated website. Each page is a small HTML table with a
+ * link to the next page, and is served after a configurable delay to simulate network latency.
+ *
+ * Pages are available at {@code http://localhost:<port>/page/<n>}, for {@code n} from {@code 0} to
+ * {@code pageCount - 1}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public final class PaginationServer implements Closeable {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final int pageCount;
+	private final int rowsPerPage;
+	private final long latency;
+
+	/**
+	 * Starts a server on an ephemeral port of the loopback interface.
+	 *
+	 * @param pageCount   the number of pages available
+	 * @param rowsPerPage the number of table rows in each page
+	 * @param latency     the delay, in milliseconds, before each page is served.
+	 */
+	public PaginationServer(int pageCount, int rowsPerPage, long latency) {
+		this.pageCount = pageCount;
+		this.rowsPerPage = rowsPerPage;
+		this.latency = latency;
+		try {
+			server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to start pagination server", e);
+		}
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.createContext("/page/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				servePage(exchange);
+			}
+		});
+		server.start();
+	}
+
+	/**
+	 * Returns the URL of a page.
+	 *
+	 * @param page the page number, starting from {@code 0}.
+	 *
+	 * @return the URL of the given page
+	 */
+	public String getPageUrl(int page) {
+		return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/page/" + page;
+	}
+
+	/**
+	 * Returns the number of pages served.
+	 *
+	 * @return the page count
+	 */
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	/**
+	 * Downloads a page with a plain {@link HttpURLConnection}.
+	 *
+	 * @param url the URL of the page
+	 *
+	 * @return the content of the page
+	 */
+	public static String download(String url) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+			InputStream in = connection.getInputStream();
+			try {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+				}
+				return new String(out.toByteArray(), UTF_8);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to download " + url, e);
+		}
+	}
+
+	private void servePage(HttpExchange exchange) throws IOException {
+		try {
+			String path = exchange.getRequestURI().getPath();
+			int page;
+			try {
+				page = Integer.parseInt(path.substring(path.lastIndexOf('/') + 1));
+			} catch (NumberFormatException e) {
+				page = -1;
+			}
+			if (page < 0 || page >= pageCount) {
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+			if (latency > 0) {
+				try {
+					Thread.sleep(latency);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					exchange.sendResponseHeaders(503, -1);
+					return;
+				}
+			}
+			byte[] body = renderPage(page).getBytes(UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+			exchange.sendResponseHeaders(200, body.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(body);
+			out.close();
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private String renderPage(int page) {
+		StringBuilder out = new StringBuilder("<html><body><table>");
+		for (int i = 0; i < rowsPerPage; i++) {
+			out.append("<tr><td>").append(page).append('_').append(i).append("</td><td>value ").append(i).append("</td></tr>");
+		}
+		out.append("</table>");
+		if (page + 1 < pageCount) {
+			out.append("<a class=\"next\" href=\"/page/").append(page + 1).append("\">next</a>");
+		}
+		return out.append("</body></html>").toString();
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+/**
+ * Callback that receives the {@link Results} of each input parsed by a {@link BatchParser}. Methods of this
+ * interface are invoked from the thread that started the batch, following the order of the inputs, so
+ * implementations don't need to be thread-safe.
+ *
+ * @param <I> the type of input parsed by the {@link BatchParser}
+ * @param <T> the type of {@link Result} produced by the parser.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see BatchParser
+ */
+public interface BatchListener<I, T extends Result> {
+
+	/**
+	 * Invoked when an input of the batch has been parsed successfully.
+	 *
+	 * @param input   the input that has been parsed
+	 * @param results the {@link Results} produced by parsing the given input
+	 */
+	void inputParsed(I input, Results<T> results);
+
+	/**
+	 * Invoked when parsing an input of the batch failed. Implementations can rethrow the given error to abort the
+	 * batch, or return normally to continue with the next input.
+	 *
+	 * @param input the input whose parsing failed
+	 * @param error the error that occurred while parsing the given input
+	 */
+	void inputFailed(I input, RuntimeException error);
+}
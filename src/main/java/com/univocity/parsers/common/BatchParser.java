@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+import com.univocity.api.io.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Parses a batch of inputs in parallel, using multiple instances of an {@link EntityParserInterface} implementation.
+ *
+ * Parsers are created through the given {@link EntityParserProvider} and kept in a pool, so each parser is reused to
+ * parse many inputs. The {@link Results} of each input are delivered to a {@link BatchListener} in the order of the
+ * inputs, from the thread that started the batch. At most twice as many inputs as the configured parallelism are
+ * parsed ahead of the listener, which prevents the {@link Results} of a large batch from accumulating in memory
+ * when the listener is slower than the parsers.
+ *
+ * A parser returns to the pool only after the listener has received the {@link Results} it produced, so it is never
+ * reused while these are being processed by {@link BatchListener#inputParsed(Object, Results)}. If
+ * {@link EntityParserSettings#isStreamingEnabled()} evaluates to {@code true}, the listener must consume the rows of
+ * each {@link Result} before returning, as the parser will then be used to parse another input. As parsers are held
+ * until their results are delivered, up to twice as many parsers as the configured parallelism may be created.
+ *
+ * @param <R> the type of {@link ResultRecord} produced by the parser.
+ * @param <C> the type of {@link Context} used by the parser.
+ * @param <T> the type of {@link Result} produced by the parser.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see EntityParserInterface
+ * @see EntityParserProvider
+ * @see BatchListener
+ * @see OrderedBatchExecutor
+ */
+public final class BatchParser<R extends ResultRecord<C>, C extends Context, T extends Result<R, C>> {
+
+	private final EntityParserProvider<R, C, T> parserProvider;
+	private final OrderedBatchExecutor executor;
+	private final Queue<EntityParserInterface<R, C, T>> idleParsers = new ConcurrentLinkedQueue<EntityParserInterface<R, C, T>>();
+
+	/**
+	 * Creates a new {@code BatchParser} that uses one thread per available processor.
+	 *
+	 * @param parserProvider the provider of parser instances.
+	 */
+	public BatchParser(EntityParserProvider<R, C, T> parserProvider) {
+		this(parserProvider, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a new {@code BatchParser}, which starts a new pool of threads for each batch.
+	 *
+	 * @param parserProvider the provider of parser instances.
+	 * @param parallelism    the number of threads to use for parsing the inputs of a batch.
+	 */
+	public BatchParser(EntityParserProvider<R, C, T> parserProvider, int parallelism) {
+		this(parserProvider, parallelism, null);
+	}
+
+	/**
+	 * Creates a new {@code BatchParser} that runs on a given {@link ExecutorService}.
+	 *
+	 * Avoid providing a fixed-size thread pool that is also used to extract entities concurrently (see
+	 * {@link EntityParserSettings#getEntityExtractionExecutor()}), as each parsing task waits for the extraction of
+	 * all entities of its input to complete and the pool could run out of threads.
+	 *
+	 * @param parserProvider the provider of parser instances.
+	 * @param parallelism    the maximum number of inputs of a batch to parse at the same time.
+	 * @param executor       the executor that runs the parsing of each input. It is not shut down by this
+	 *                       {@code BatchParser}. If {@code null}, a new pool of {@code parallelism} threads is started
+	 *                       for each batch and shut down once the batch completes.
+	 */
+	public BatchParser(EntityParserProvider<R, C, T> parserProvider, int parallelism, ExecutorService executor) {
+		Args.notNull(parserProvider, "Parser provider");
+		this.parserProvider = parserProvider;
+		this.executor = new OrderedBatchExecutor(parallelism, executor);
+	}
+
+	/**
+	 * Returns the maximum number of inputs of a batch parsed at the same time.
+	 *
+	 * @return the degree of parallelism of this {@code BatchParser}
+	 */
+	public int getParallelism() {
+		return executor.getParallelism();
+	}
+
+	/**
+	 * Defines the {@link ParserMetrics} that receives the number of inputs submitted for parsing whose
+	 * {@link Results} were not delivered yet, under the queue name {@code "batch"}.
+	 *
+	 * @param metrics the metrics collector. If {@code null}, queue depths will not be reported.
+	 */
+	public void setMetrics(ParserMetrics metrics) {
+		setMetrics(metrics, "batch");
+	}
+
+	/**
+	 * Defines the {@link ParserMetrics} that receives the number of inputs submitted for parsing whose
+	 * {@link Results} were not delivered yet.
+	 *
+	 * @param metrics   the metrics collector. If {@code null}, queue depths will not be reported.
+	 * @param queueName the name of the queue reported to {@link ParserMetrics#queueDepth(String, int)}
+	 */
+	public void setMetrics(ParserMetrics metrics, String queueName) {
+		executor.setMetrics(metrics, queueName);
+	}
+
+	/**
+	 * Parses all given files in parallel, submitting the {@link Results} of each to the given listener.
+	 *
+	 * @param inputs   the files to be parsed
+	 * @param listener the callback that receives the {@link Results} of each file, in the order of the inputs.
+	 */
+	public void parseFiles(Collection<FileProvider> inputs, BatchListener<FileProvider, T> listener) {
+		parse(inputs, new InputParser<FileProvider, R, C, T>() {
+			@Override
+			public Results<T> parse(EntityParserInterface<R, C, T> parser, FileProvider input) {
+				return parser.parse(input);
+			}
+		}, listener);
+	}
+
+	/**
+	 * Parses all given inputs in parallel, submitting the {@link Results} of each to the given listener.
+	 *
+	 * @param inputs   the providers of inputs to be parsed
+	 * @param listener the callback that receives the {@link Results} of each input, in the order of the inputs.
+	 */
+	public void parseReaders(Collection<ReaderProvider> inputs, BatchListener<ReaderProvider, T> listener) {
+		parse(inputs, new InputParser<ReaderProvider, R, C, T>() {
+			@Override
+			public Results<T> parse(EntityParserInterface<R, C, T> parser, ReaderProvider input) {
+				return parser.parse(input);
+			}
+		}, listener);
+	}
+
+	/**
+	 * Parses inputs of any type in parallel, submitting the {@link Results} of each to the given listener.
+	 *
+	 * @param inputs      the inputs to be parsed
+	 * @param inputParser the function that parses each input using a parser from the pool. Invoked concurrently
+	 *                    from multiple threads.
+	 * @param listener    the callback that receives the {@link Results} of each input, in the order of the inputs.
+	 * @param <I>         the type of input
+	 */
+	public <I> void parse(Collection<I> inputs, final InputParser<I, R, C, T> inputParser, final BatchListener<I, T> listener) {
+		Args.notNull(inputs, "Inputs to parse");
+		Args.notNull(inputParser, "Input parser");
+		Args.notNull(listener, "Batch listener");
+
+		executor.execute(inputs, new OrderedBatchExecutor.Task<I, Parsed>() {
+			@Override
+			public Parsed run(I input) {
+				EntityParserInterface<R, C, T> parser = idleParsers.poll();
+				if (parser == null) {
+					parser = parserProvider.newParser();
+				}
+				boolean parsed = false;
+				try {
+					Parsed out = new Parsed(parser, inputParser.parse(parser, input));
+					parsed = true;
+					return out;
+				} finally {
+					if (!parsed) {
+						idleParsers.offer(parser);
+					}
+				}
+			}
+		}, new OrderedBatchExecutor.Delivery<I, Parsed>() {
+			@Override
+			public void delivered(I input, Parsed parsed) {
+				try {
+					listener.inputParsed(input, parsed.results);
+				} finally {
+					idleParsers.offer(parsed.parser);
+				}
+			}
+
+			@Override
+			public void failed(I input, RuntimeException error) {
+				listener.inputFailed(input, error);
+			}
+		});
+	}
+
+	/**
+	 * Parses one input of a batch processed by {@link BatchParser#parse(Collection, InputParser, BatchListener)}.
+	 *
+	 * @param <I> the type of input
+	 * @param <R> the type of {@link ResultRecord} produced by the parser.
+	 * @param <C> the type of {@link Context} used by the parser.
+	 * @param <T> the type of {@link Result} produced by the parser.
+	 */
+	public interface InputParser<I, R extends ResultRecord<C>, C extends Context, T extends Result<R, C>> {
+
+		/**
+		 * Parses the given input.
+		 *
+		 * @param parser a parser taken from the pool of the {@link BatchParser}, which is not used by any other
+		 *               thread until the {@link Results} returned are delivered to the {@link BatchListener}.
+		 * @param input  the input to parse
+		 *
+		 * @return the {@link Results} of parsing the given input.
+		 */
+		Results<T> parse(EntityParserInterface<R, C, T> parser, I input);
+	}
+
+	private final class Parsed {
+		final EntityParserInterface<R, C, T> parser;
+		final Results<T> results;
+
+		Parsed(EntityParserInterface<R, C, T> parser, Results<T> results) {
+			this.parser = parser;
+			this.results = results;
+		}
+	}
+}
@@ -0,0 +1,1111 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+import com.univocity.parsers.annotations.*;
+
+import java.lang.annotation.*;
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import java.math.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * A mapper of rows to instances of a bean class, compiled once for each class the first time it is requested with
+ * {@link #of(Class)}, so that {@link Result#getBeans(Class)} and {@link Result#iterateBeans(Class)} don't need to
+ * inspect annotations and use reflection for every row.
+ *
+ * When a mapper is compiled, the bean constructor is resolved into a {@link MethodHandle} and the setter of each
+ * attribute is bound to a {@link BiConsumer}. Public setter methods of public classes are bound with
+ * {@link LambdaMetafactory}, so that the JIT compiler can inline them, while fields and other setters are invoked
+ * through their {@link MethodHandle}. The conversion of each attribute annotated with {@link Parsed} is selected based on the
+ * attribute type. A mapper is then bound to the headers of a {@link Result} with {@link #bind(String[])}, which
+ * resolves the position of each attribute in the rows once, leaving only conversions and assignments to be
+ * performed for each row.
+ *
+ * Attributes annotated with {@link Linked}, and optionally {@link Group}, receive the data of a linked entity. Their
+ * element type, key type and container types are resolved once, when the mapper is compiled, and are available from
+ * {@link #getLinkedAttributes()}. The linked values of each bean are then assigned with
+ * {@link #setLinked(Object, LinkedAttribute, Collection)} or {@link #setGrouped(Object, LinkedAttribute, Map)}, which
+ * create the declared container and check the type of every value. Other attributes can be assigned through
+ * {@link #set(Object, int, Object)} after resolving their position with {@link #indexOfAttribute(String)}.
+ *
+ * Generated mappers support attributes of type {@code String}, primitive types and their wrappers,
+ * {@link BigDecimal}, {@link BigInteger} and enumerations, including the {@code defaultNullRead} value of
+ * {@link Parsed}. Beans with attributes that require other conversions, such as the ones defined with
+ * {@link Convert} or {@link Format}, are not supported: {@link #isSupported()} evaluates to {@code false} and
+ * callers should map them through the regular annotation processing of
+ * <a href="http://www.univocity.com/pages/about-parsers">univocity-parsers</a>.
+ *
+ * Instances are thread-safe.
+ *
+ * @param <T> the type of bean produced by this mapper.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public final class BeanMapper<T> {
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+	private static final MethodType CONSUMER_TYPE = MethodType.methodType(BiConsumer.class);
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+	private static final ClassValue<BeanMapper<?>> MAPPERS = new ClassValue<BeanMapper<?>>() {
+		@Override
+		protected BeanMapper<?> computeValue(Class<?> type) {
+			return new BeanMapper(type);
+		}
+	};
+
+	private final Class<T> beanType;
+	private final MethodHandle constructor;
+	private final String[] attributeNames;
+	private final BiConsumer<Object, Object>[] setters;
+	private final Map<String, Integer> attributeIndexes = new HashMap<String, Integer>();
+	private final List<ParsedAttribute> parsedAttributes = new ArrayList<ParsedAttribute>();
+	private final List<LinkedAttribute> linkedAttributes = new ArrayList<LinkedAttribute>();
+	private String unsupportedReason;
+
+	/**
+	 * Returns the mapper of a given bean class, compiling it on first use.
+	 *
+	 * @param beanType the class of the beans to produce
+	 * @param <T>      the type of bean produced by the mapper.
+	 *
+	 * @return the mapper of the given class.
+	 */
+	public static <T> BeanMapper<T> of(Class<T> beanType) {
+		Args.notNull(beanType, "Bean type");
+		return (BeanMapper<T>) MAPPERS.get(beanType);
+	}
+
+	private BeanMapper(Class<T> beanType) {
+		this.beanType = beanType;
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+		MethodHandle constructor = null;
+		try {
+			Constructor<T> c = beanType.getDeclaredConstructor();
+			c.setAccessible(true);
+			constructor = lookup.unreflectConstructor(c).asType(CONSTRUCTOR_TYPE);
+		} catch (NoSuchMethodException e) {
+			unsupported("class " + beanType.getName() + " has no constructor without arguments");
+		} catch (Exception e) {
+			unsupported("constructor of class " + beanType.getName() + " is not accessible: " + e.getMessage());
+		}
+		this.constructor = constructor;
+
+		List<String> names = new ArrayList<String>();
+		List<BiConsumer<Object, Object>> handles = new ArrayList<BiConsumer<Object, Object>>();
+		for (Class<?> type = beanType; type != null && type != Object.class; type = type.getSuperclass()) {
+			for (Method method : type.getDeclaredMethods()) {
+				if (method.isBridge() || method.isSynthetic() || method.getParameterTypes().length != 1 || Modifier.isStatic(method.getModifiers()) || !hasParserAnnotation(method.getAnnotations())) {
+					continue;
+				}
+				Parsed parsed = method.getAnnotation(Parsed.class);
+				String name = getAttributeName(method);
+				if (attributeIndexes.containsKey(name)) {
+					continue;
+				}
+				BiConsumer<Object, Object> setter;
+				try {
+					method.setAccessible(true);
+					setter = bindSetter(lookup, method, name);
+				} catch (Exception e) {
+					unsupported("method " + method.getName() + " of class " + beanType.getName() + " is not accessible: " + e.getMessage());
+					continue;
+				}
+				addAttribute(name, setter, method.getParameterTypes()[0], method.getGenericParameterTypes()[0], parsed, method.getAnnotations(), names, handles);
+			}
+			for (Field field : type.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers()) || field.isSynthetic() || attributeIndexes.containsKey(field.getName())) {
+					continue;
+				}
+				BiConsumer<Object, Object> setter;
+				try {
+					field.setAccessible(true);
+					setter = new SetterHandle(lookup.unreflectSetter(field).asType(SETTER_TYPE), field.getName(), beanType);
+				} catch (Exception e) {
+					continue;
+				}
+				addAttribute(field.getName(), setter, field.getType(), field.getGenericType(), field.getAnnotation(Parsed.class), field.getAnnotations(), names, handles);
+			}
+		}
+		this.attributeNames = names.toArray(new String[0]);
+		this.setters = handles.toArray(new BiConsumer[0]);
+	}
+
+	/**
+	 * Binds a setter method to a {@link BiConsumer} generated by {@link LambdaMetafactory}, which the JIT compiler can
+	 * inline like a direct call. The generated class is defined in the class loader of {@code BeanMapper} with its
+	 * access rights, so the method, its class and its parameter type must be public and visible from there.
+	 * Otherwise the setter is invoked through its {@link MethodHandle}.
+	 */
+	private BiConsumer<Object, Object> bindSetter(MethodHandles.Lookup lookup, Method method, String name) throws Exception {
+		MethodHandle handle = lookup.unreflect(method);
+		Class<?> declaringClass = method.getDeclaringClass();
+		Class<?> parameterType = method.getParameterTypes()[0];
+		if (method.getReturnType() == void.class && Modifier.isPublic(method.getModifiers()) && isAccessible(declaringClass) && isAccessible(parameterType)) {
+			CallSite site = LambdaMetafactory.metafactory(lookup, "accept", CONSUMER_TYPE, SETTER_TYPE, handle, MethodType.methodType(void.class, declaringClass, wrap(parameterType)));
+			try {
+				return (BiConsumer<Object, Object>) site.getTarget().invoke();
+			} catch (Exception e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException("Unable to bind setter " + method.getName() + " of " + beanType.getName(), e);
+			}
+		}
+		return new SetterHandle(handle.asType(SETTER_TYPE), name, beanType);
+	}
+
+	private static boolean isAccessible(Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		if (type.isPrimitive()) {
+			return true;
+		}
+		for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+			if (!Modifier.isPublic(c.getModifiers())) {
+				return false;
+			}
+		}
+		try {
+			return Class.forName(type.getName(), false, BeanMapper.class.getClassLoader()) == type;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	private static boolean hasParserAnnotation(Annotation[] annotations) {
+		for (Annotation annotation : annotations) {
+			if (annotation.annotationType().getPackage() == Parsed.class.getPackage()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String getAttributeName(Method method) {
+		String name = method.getName();
+		if (name.length() > 3 && name.startsWith("set")) {
+			return Character.toLowerCase(name.charAt(3)) + name.substring(4);
+		}
+		return name;
+	}
+
+	private void addAttribute(String name, BiConsumer<Object, Object> setter, Class<?> type, Type genericType, Parsed parsed, Annotation[] annotations, List<String> names, List<BiConsumer<Object, Object>> handles) {
+		int index = names.size();
+		names.add(name);
+		handles.add(setter);
+		attributeIndexes.put(name, index);
+		attributeIndexes.put(name.toLowerCase(), index);
+
+		Linked linked = null;
+		Group group = null;
+		for (Annotation annotation : annotations) {
+			if (annotation instanceof Linked) {
+				linked = (Linked) annotation;
+			} else if (annotation instanceof Group) {
+				group = (Group) annotation;
+			}
+		}
+		// annotations such as @Nested or @Convert require the annotation processing of univocity-parsers, with or
+		// without @Parsed. Ignoring them would silently leave attributes unpopulated.
+		for (Annotation annotation : annotations) {
+			Class<? extends Annotation> annotationType = annotation.annotationType();
+			if (annotationType != Parsed.class && annotationType != Linked.class && annotationType != Group.class && annotationType.getPackage() == Parsed.class.getPackage()) {
+				unsupported("attribute '" + name + "' of class " + beanType.getName() + " is annotated with @" + annotationType.getSimpleName());
+			}
+		}
+
+		if (group != null && linked == null) {
+			unsupported("attribute '" + name + "' of class " + beanType.getName() + " is annotated with @Group but not with @Linked");
+		} else if (linked != null) {
+			addLinkedAttribute(index, name, type, genericType, linked, group);
+		}
+
+		if (parsed == null) {
+			return;
+		}
+		Converter converter = Converter.forType(type);
+		if (converter == null || (!parsed.applyDefaultConversion() && type != String.class)) {
+			unsupported("attribute '" + name + "' of class " + beanType.getName() + " has unsupported type " + type.getName());
+			return;
+		}
+		String defaultNullRead = "null".equals(parsed.defaultNullRead()) ? null : parsed.defaultNullRead();
+		String[] fieldNames = parsed.field().length == 0 ? new String[]{name} : parsed.field();
+		parsedAttributes.add(new ParsedAttribute(index, name, fieldNames, parsed.index(), type.isPrimitive(), converter, defaultNullRead));
+	}
+
+	private void addLinkedAttribute(int index, String name, Class<?> type, Type genericType, Linked linked, Group group) {
+		String description = "linked attribute '" + name + "' of class " + beanType.getName();
+		String entityName = linked.entity().trim().isEmpty() ? name : linked.entity().trim();
+
+		Class<?> keyType = null;
+		Class<?> mapType = null;
+		boolean defaultMapType = false;
+		Class<?> containerType = null;
+		Class<?> elementType = linked.type();
+		Type elementGenericType;
+
+		if (group != null) {
+			if (!Map.class.isAssignableFrom(type)) {
+				unsupported(description + " is annotated with @Group but its type " + type.getName() + " is not a Map");
+				return;
+			}
+			keyType = group.key();
+			if (keyType == Object.class) {
+				keyType = rawType(typeArgument(genericType, 0));
+			}
+			mapType = group.container() == Map.class ? type : group.container();
+			if (isAbstract(mapType)) {
+				if (!mapType.isAssignableFrom(HashMap.class)) {
+					unsupported(description + " requires a concrete Map type. Use @Group(container = ...) to define one");
+					return;
+				}
+				mapType = HashMap.class;
+				defaultMapType = true;
+			}
+			if (!type.isAssignableFrom(mapType)) {
+				unsupported("container " + mapType.getName() + " of " + description + " can't be assigned to type " + type.getName());
+				return;
+			}
+
+			Type valueType = typeArgument(genericType, 1);
+			containerType = linked.container() == Object.class ? rawType(valueType) : linked.container();
+			if (Collection.class.isAssignableFrom(containerType)) {
+				elementGenericType = typeArgument(valueType, 0);
+			} else {
+				containerType = null;
+				elementGenericType = valueType;
+			}
+		} else if (type.isArray()) {
+			elementGenericType = type.getComponentType();
+		} else if (Collection.class.isAssignableFrom(type)) {
+			containerType = linked.container() == Object.class ? type : linked.container();
+			elementGenericType = typeArgument(genericType, 0);
+		} else {
+			elementGenericType = type;
+		}
+
+		if (containerType != null) {
+			if (isAbstract(containerType)) {
+				if (containerType == Set.class || containerType == Collection.class) {
+					containerType = HashSet.class;
+				} else if (containerType == List.class) {
+					containerType = ArrayList.class;
+				} else {
+					unsupported(description + " requires a concrete collection type. Use @Linked(container = ...) to define one");
+					return;
+				}
+			}
+			if (!Collection.class.isAssignableFrom(containerType)) {
+				unsupported("container " + containerType.getName() + " of " + description + " is not a Collection");
+				return;
+			}
+			if (group == null && !type.isAssignableFrom(containerType)) {
+				unsupported("container " + containerType.getName() + " of " + description + " can't be assigned to type " + type.getName());
+				return;
+			}
+		}
+
+		if (elementType == Object.class) {
+			elementType = rawType(elementGenericType);
+		}
+		if (type.isArray() && !wrap(type.getComponentType()).isAssignableFrom(wrap(elementType))) {
+			unsupported("type " + elementType.getName() + " of " + description + " can't be stored in an array of " + type.getComponentType().getName());
+			return;
+		}
+		if (group == null && containerType == null && !type.isArray() && !wrap(type).isAssignableFrom(wrap(elementType))) {
+			unsupported("type " + elementType.getName() + " of " + description + " can't be assigned to type " + type.getName());
+			return;
+		}
+
+		MethodHandle containerConstructor;
+		MethodHandle mapConstructor;
+		try {
+			containerConstructor = containerType == null ? null : constructorOf(containerType);
+			mapConstructor = mapType == null ? null : constructorOf(mapType);
+		} catch (Exception e) {
+			unsupported("container of " + description + " has no accessible constructor without arguments: " + e.getMessage());
+			return;
+		}
+
+		linkedAttributes.add(new LinkedAttribute(this, index, name, entityName, type, elementType, containerType, containerConstructor, keyType, mapType, defaultMapType, mapConstructor));
+	}
+
+	private static MethodHandle constructorOf(Class<?> type) throws ReflectiveOperationException {
+		Constructor<?> c = type.getDeclaredConstructor();
+		c.setAccessible(true);
+		return MethodHandles.lookup().unreflectConstructor(c).asType(CONSTRUCTOR_TYPE);
+	}
+
+	private static boolean isAbstract(Class<?> type) {
+		return type.isInterface() || Modifier.isAbstract(type.getModifiers());
+	}
+
+	private static Type typeArgument(Type type, int index) {
+		if (type instanceof ParameterizedType) {
+			Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+			if (index < arguments.length) {
+				return arguments[index];
+			}
+		}
+		return Object.class;
+	}
+
+	private static Class<?> rawType(Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		} else if (type instanceof ParameterizedType) {
+			return rawType(((ParameterizedType) type).getRawType());
+		} else if (type instanceof GenericArrayType) {
+			return Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+		} else if (type instanceof WildcardType) {
+			return rawType(((WildcardType) type).getUpperBounds()[0]);
+		} else if (type instanceof TypeVariable) {
+			return rawType(((TypeVariable<?>) type).getBounds()[0]);
+		}
+		return Object.class;
+	}
+
+	private static Class<?> wrap(Class<?> type) {
+		if (!type.isPrimitive()) {
+			return type;
+		} else if (type == int.class) {
+			return Integer.class;
+		} else if (type == long.class) {
+			return Long.class;
+		} else if (type == double.class) {
+			return Double.class;
+		} else if (type == float.class) {
+			return Float.class;
+		} else if (type == short.class) {
+			return Short.class;
+		} else if (type == byte.class) {
+			return Byte.class;
+		} else if (type == boolean.class) {
+			return Boolean.class;
+		} else if (type == char.class) {
+			return Character.class;
+		}
+		return Void.class;
+	}
+
+	private void unsupported(String reason) {
+		if (unsupportedReason == null) {
+			unsupportedReason = reason;
+		}
+	}
+
+	/**
+	 * Returns the class of the beans produced by this mapper.
+	 *
+	 * @return the bean type
+	 */
+	public Class<T> getBeanType() {
+		return beanType;
+	}
+
+	/**
+	 * Indicates whether beans of the given class can be produced by this mapper.
+	 *
+	 * @return {@code true} if all attributes of the bean are supported, otherwise {@code false}
+	 */
+	public boolean isSupported() {
+		return unsupportedReason == null;
+	}
+
+	/**
+	 * Returns why beans of the given class can't be produced by this mapper.
+	 *
+	 * @return a description of the first unsupported element of the bean class, or {@code null} if the bean is
+	 * supported.
+	 */
+	public String getUnsupportedReason() {
+		return unsupportedReason;
+	}
+
+	/**
+	 * Returns the names of all attributes that can be assigned with {@link #set(Object, int, Object)}, in the order
+	 * of their positions.
+	 *
+	 * @return a copy of the attribute names
+	 */
+	public String[] getAttributeNames() {
+		return attributeNames.clone();
+	}
+
+	/**
+	 * Returns the position of an attribute of the bean, for assignment with {@link #set(Object, int, Object)}.
+	 *
+	 * @param attributeName the name of the field, or of the property of a setter method annotated with
+	 *                      {@link Parsed}. Matched ignoring case if there's no exact match.
+	 *
+	 * @return the position of the attribute, or {@code -1} if the bean has no such attribute.
+	 */
+	public int indexOfAttribute(String attributeName) {
+		if (attributeName == null) {
+			return -1;
+		}
+		Integer out = attributeIndexes.get(attributeName);
+		if (out == null) {
+			out = attributeIndexes.get(attributeName.toLowerCase());
+		}
+		return out == null ? -1 : out;
+	}
+
+	/**
+	 * Creates a new instance of the bean, with no attributes assigned.
+	 *
+	 * @return the new bean
+	 */
+	public T newInstance() {
+		ensureSupported();
+		try {
+			return (T) (Object) constructor.invokeExact();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Unable to create instance of " + beanType.getName(), e);
+		}
+	}
+
+	/**
+	 * Assigns a value to an attribute of a bean, without any conversion.
+	 *
+	 * @param bean           the bean to modify
+	 * @param attributeIndex the position of the attribute, as returned by {@link #indexOfAttribute(String)}
+	 * @param value          the value to assign, which must be compatible with the type of the attribute.
+	 */
+	public void set(T bean, int attributeIndex, Object value) {
+		try {
+			setters[attributeIndex].accept(bean, value);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Unable to set attribute '" + attributeNames[attributeIndex] + "' of " + beanType.getName(), e);
+		}
+	}
+
+	/**
+	 * Returns the attributes of the bean annotated with {@link Linked}, in the order of their positions.
+	 *
+	 * @return an unmodifiable list of linked attributes. Empty if the bean has no linked attributes.
+	 */
+	public List<LinkedAttribute> getLinkedAttributes() {
+		return Collections.unmodifiableList(linkedAttributes);
+	}
+
+	/**
+	 * Returns a linked attribute of the bean
+	 *
+	 * @param attributeName the name of the attribute annotated with {@link Linked}. Matched ignoring case if
+	 *                      there's no exact match.
+	 *
+	 * @return the linked attribute, or {@code null} if the bean has no linked attribute with the given name.
+	 */
+	public LinkedAttribute getLinkedAttribute(String attributeName) {
+		int index = indexOfAttribute(attributeName);
+		for (int i = 0; index != -1 && i < linkedAttributes.size(); i++) {
+			if (linkedAttributes.get(i).attributeIndex == index) {
+				return linkedAttributes.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Assigns the values of a linked entity to a linked attribute of a bean. If the attribute is an array or a
+	 * collection, a new array or container of the type resolved for the attribute is created with the given values.
+	 * Otherwise the attribute receives the only value given.
+	 *
+	 * @param bean      the bean to modify
+	 * @param attribute a linked attribute of this mapper, not annotated with {@link Group}
+	 * @param values    the values linked to the bean, each one an instance of {@link LinkedAttribute#getElementType()}.
+	 */
+	public void setLinked(T bean, LinkedAttribute attribute, Collection<?> values) {
+		checkLinkedAttribute(attribute, false);
+		Args.notNull(values, "Linked values");
+		Object value;
+		if (attribute.attributeType.isArray()) {
+			value = Array.newInstance(attribute.attributeType.getComponentType(), values.size());
+			int i = 0;
+			for (Object element : values) {
+				Array.set(value, i++, attribute.checkElement(element));
+			}
+		} else if (attribute.containerType != null) {
+			Collection<Object> container = attribute.newContainer(values.size());
+			for (Object element : values) {
+				container.add(attribute.checkElement(element));
+			}
+			value = container;
+		} else if (values.size() > 1) {
+			throw new IllegalArgumentException("Can't assign " + values.size() + " values to " + attribute);
+		} else if (values.isEmpty()) {
+			if (attribute.attributeType.isPrimitive()) {
+				return;
+			}
+			value = null;
+		} else {
+			value = attribute.checkElement(values.iterator().next());
+		}
+		set(bean, attribute.attributeIndex, value);
+	}
+
+	/**
+	 * Assigns the values of a linked entity, grouped by key, to a linked attribute of a bean annotated with
+	 * {@link Group}. A new map of {@link LinkedAttribute#getMapType()} is created with the given groups. If the values
+	 * of the map are collections, each group is copied into a new container of
+	 * {@link LinkedAttribute#getContainerType()}, otherwise each key must have at most one value.
+	 *
+	 * @param bean      the bean to modify
+	 * @param attribute a linked attribute of this mapper annotated with {@link Group}
+	 * @param groups    the values linked to the bean, grouped by keys of {@link LinkedAttribute#getKeyType()}.
+	 */
+	public void setGrouped(T bean, LinkedAttribute attribute, Map<?, ? extends Collection<?>> groups) {
+		checkLinkedAttribute(attribute, true);
+		Args.notNull(groups, "Linked groups");
+		Map<Object, Object> map = attribute.newMap(groups.size());
+		for (Map.Entry<?, ? extends Collection<?>> e : groups.entrySet()) {
+			Object key = attribute.checkKey(e.getKey());
+			Collection<?> group = e.getValue();
+			if (attribute.containerType != null) {
+				Collection<Object> container = attribute.newContainer(group.size());
+				for (Object element : group) {
+					container.add(attribute.checkElement(element));
+				}
+				map.put(key, container);
+			} else if (group.size() > 1) {
+				throw new IllegalArgumentException("Can't assign " + group.size() + " values to key '" + key + "' of " + attribute);
+			} else if (!group.isEmpty()) {
+				map.put(key, attribute.checkElement(group.iterator().next()));
+			}
+		}
+		set(bean, attribute.attributeIndex, map);
+	}
+
+	private void checkLinkedAttribute(LinkedAttribute attribute, boolean grouped) {
+		Args.notNull(attribute, "Linked attribute");
+		if (attribute.mapper != this) {
+			throw new IllegalArgumentException(attribute + " does not belong to the mapper of " + beanType.getName());
+		}
+		if (attribute.isGrouped() != grouped) {
+			throw new IllegalArgumentException(attribute + (grouped ? " is not" : " is") + " annotated with @Group");
+		}
+	}
+
+	/**
+	 * Binds this mapper to the headers of the rows to be mapped, resolving the position of the value of each
+	 * attribute annotated with {@link Parsed}. Headers are matched ignoring case and surrounding spaces.
+	 *
+	 * @param headers the headers of the rows to map, or {@code null} if attributes are only mapped by
+	 *                {@link Parsed#index()}.
+	 *
+	 * @return a mapper of rows with the given headers.
+	 */
+	public RowMapper<T> bind(String[] headers) {
+		ensureSupported();
+		Map<String, Integer> headerIndexes = new HashMap<String, Integer>();
+		if (headers != null) {
+			for (int i = 0; i < headers.length; i++) {
+				if (headers[i] != null) {
+					String key = headers[i].trim().toLowerCase();
+					if (!headerIndexes.containsKey(key)) {
+						headerIndexes.put(key, i);
+					}
+				}
+			}
+		}
+		List<ParsedAttribute> bound = new ArrayList<ParsedAttribute>();
+		List<Integer> columns = new ArrayList<Integer>();
+		for (ParsedAttribute attribute : parsedAttributes) {
+			int column = attribute.column;
+			for (int i = 0; column < 0 && i < attribute.fieldNames.length; i++) {
+				Integer index = headerIndexes.get(attribute.fieldNames[i].trim().toLowerCase());
+				if (index != null) {
+					column = index;
+				}
+			}
+			if (column >= 0) {
+				bound.add(attribute);
+				columns.add(column);
+			}
+		}
+		int[] positions = new int[columns.size()];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = columns.get(i);
+		}
+		return new RowMapper<T>(this, bound.toArray(new ParsedAttribute[0]), positions);
+	}
+
+	private void ensureSupported() {
+		if (unsupportedReason != null) {
+			throw new IllegalStateException("Can't generate mapper of " + beanType.getName() + ": " + unsupportedReason);
+		}
+	}
+
+	/**
+	 * A {@link BeanMapper} bound to the headers of the rows of a {@link Result}.
+	 *
+	 * @param <T> the type of bean produced by this mapper.
+	 */
+	public static final class RowMapper<T> {
+
+		private final BeanMapper<T> mapper;
+		private final ParsedAttribute[] attributes;
+		private final BiConsumer<Object, Object>[] setters;
+		private final int[] positions;
+
+		private RowMapper(BeanMapper<T> mapper, ParsedAttribute[] attributes, int[] positions) {
+			this.mapper = mapper;
+			this.attributes = attributes;
+			this.positions = positions;
+			this.setters = new BiConsumer[attributes.length];
+			for (int i = 0; i < attributes.length; i++) {
+				setters[i] = mapper.setters[attributes[i].attributeIndex];
+			}
+		}
+
+		/**
+		 * Returns the {@link BeanMapper} this mapper is bound from.
+		 *
+		 * @return the bean mapper
+		 */
+		public BeanMapper<T> getBeanMapper() {
+			return mapper;
+		}
+
+		/**
+		 * Creates a bean with the values of a row.
+		 *
+		 * @param row the values of the row
+		 *
+		 * @return a new bean populated with the given row.
+		 */
+		public T map(String[] row) {
+			T bean = mapper.newInstance();
+			populate(bean, row);
+			return bean;
+		}
+
+		/**
+		 * Assigns the values of a row to an existing bean.
+		 *
+		 * @param bean the bean to populate
+		 * @param row  the values of the row
+		 */
+		public void populate(T bean, String[] row) {
+			for (int i = 0; i < setters.length; i++) {
+				ParsedAttribute attribute = attributes[i];
+				int position = positions[i];
+				String value = position < row.length ? row[position] : null;
+				if (value == null) {
+					value = attribute.defaultNullRead;
+				}
+				Object converted;
+				try {
+					converted = value == null ? null : attribute.converter.convert(value);
+				} catch (RuntimeException e) {
+					throw new IllegalArgumentException("Unable to convert value '" + value + "' of attribute '" + attribute.name + "' of " + mapper.beanType.getName(), e);
+				}
+				if (converted == null && attribute.primitive) {
+					continue;
+				}
+				try {
+					setters[i].accept(bean, converted);
+				} catch (RuntimeException e) {
+					throw e;
+				} catch (Error e) {
+					throw e;
+				} catch (Throwable e) {
+					throw new IllegalStateException("Unable to set attribute '" + attribute.name + "' of " + mapper.beanType.getName(), e);
+				}
+			}
+		}
+
+		/**
+		 * Creates a bean for each given row.
+		 *
+		 * @param rows the rows to map
+		 *
+		 * @return a list with one bean per row, in the same order.
+		 */
+		public List<T> mapAll(Collection<String[]> rows) {
+			List<T> out = new ArrayList<T>(rows.size());
+			for (String[] row : rows) {
+				out.add(map(row));
+			}
+			return out;
+		}
+	}
+
+	/**
+	 * An attribute of a bean annotated with {@link Linked}, and optionally {@link Group}, with the types of its
+	 * elements, keys and containers resolved when the {@link BeanMapper} of the bean is compiled.
+	 */
+	public static final class LinkedAttribute {
+
+		private final BeanMapper<?> mapper;
+		private final int attributeIndex;
+		private final String name;
+		private final String entityName;
+		private final Class<?> attributeType;
+		private final Class<?> elementType;
+		private final Class<?> containerType;
+		private final MethodHandle containerConstructor;
+		private final Class<?> keyType;
+		private final Class<?> mapType;
+		private final boolean defaultMapType;
+		private final MethodHandle mapConstructor;
+
+		private LinkedAttribute(BeanMapper<?> mapper, int attributeIndex, String name, String entityName, Class<?> attributeType, Class<?> elementType, Class<?> containerType, MethodHandle containerConstructor, Class<?> keyType, Class<?> mapType, boolean defaultMapType, MethodHandle mapConstructor) {
+			this.mapper = mapper;
+			this.attributeIndex = attributeIndex;
+			this.name = name;
+			this.entityName = entityName;
+			this.attributeType = attributeType;
+			this.elementType = elementType;
+			this.containerType = containerType;
+			this.containerConstructor = containerConstructor;
+			this.keyType = keyType;
+			this.mapType = mapType;
+			this.defaultMapType = defaultMapType;
+			this.mapConstructor = mapConstructor;
+		}
+
+		/**
+		 * Returns the position of this attribute, for assignment with {@link BeanMapper#set(Object, int, Object)}.
+		 *
+		 * @return the attribute index
+		 */
+		public int getAttributeIndex() {
+			return attributeIndex;
+		}
+
+		/**
+		 * Returns the name of this attribute.
+		 *
+		 * @return the attribute name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the name of the entity whose rows are linked to this attribute, as defined by {@link Linked#entity()}.
+		 *
+		 * @return the linked entity name, or the attribute name if no entity name was given.
+		 */
+		public String getEntityName() {
+			return entityName;
+		}
+
+		/**
+		 * Returns the declared type of this attribute.
+		 *
+		 * @return the attribute type
+		 */
+		public Class<?> getAttributeType() {
+			return attributeType;
+		}
+
+		/**
+		 * Returns the type of each value linked to this attribute, as defined by {@link Linked#type()}, or resolved from
+		 * the declared type of the attribute.
+		 *
+		 * @return the type of the linked values.
+		 */
+		public Class<?> getElementType() {
+			return elementType;
+		}
+
+		/**
+		 * Returns the concrete collection that holds the linked values, as defined by {@link Linked#container()}, or
+		 * resolved from the declared type of the attribute. For attributes annotated with {@link Group}, this is the
+		 * collection of values of each key of the map.
+		 *
+		 * @return the collection type to instantiate, or {@code null} if the attribute holds a single value, an array,
+		 * or a map with a single value per key.
+		 */
+		public Class<?> getContainerType() {
+			return containerType;
+		}
+
+		/**
+		 * Indicates whether this attribute is a map annotated with {@link Group}.
+		 *
+		 * @return {@code true} if the linked values are grouped by key, otherwise {@code false}
+		 */
+		public boolean isGrouped() {
+			return mapType != null;
+		}
+
+		/**
+		 * Returns the type of the keys of the map of an attribute annotated with {@link Group}, as defined by
+		 * {@link Group#key()}, or resolved from the declared type of the attribute.
+		 *
+		 * @return the key type, or {@code null} if the attribute is not grouped.
+		 */
+		public Class<?> getKeyType() {
+			return keyType;
+		}
+
+		/**
+		 * Returns the concrete map of an attribute annotated with {@link Group}, as defined by {@link Group#container()},
+		 * or resolved from the declared type of the attribute.
+		 *
+		 * @return the map type to instantiate, or {@code null} if the attribute is not grouped.
+		 */
+		public Class<?> getMapType() {
+			return mapType;
+		}
+
+		/**
+		 * Indicates whether the map of this attribute is a {@link HashMap} only because neither {@link Group#container()}
+		 * nor the declared type of the attribute define a concrete map, in which case any other {@link Map}
+		 * implementation can be assigned to the attribute.
+		 */
+		boolean hasDefaultMapType() {
+			return defaultMapType;
+		}
+
+		Collection<Object> newContainer(int size) {
+			if (containerType == ArrayList.class) {
+				return new ArrayList<Object>(size);
+			} else if (containerType == HashSet.class) {
+				return new HashSet<Object>(hashCapacity(size));
+			} else if (containerType == LinkedHashSet.class) {
+				return new LinkedHashSet<Object>(hashCapacity(size));
+			}
+			return (Collection<Object>) newInstance(containerConstructor, containerType);
+		}
+
+		Map<Object, Object> newMap(int size) {
+			if (mapType == HashMap.class) {
+				return new HashMap<Object, Object>(hashCapacity(size));
+			} else if (mapType == LinkedHashMap.class) {
+				return new LinkedHashMap<Object, Object>(hashCapacity(size));
+			}
+			return (Map<Object, Object>) newInstance(mapConstructor, mapType);
+		}
+
+		private static int hashCapacity(int size) {
+			return size * 4 / 3 + 1;
+		}
+
+		private static Object newInstance(MethodHandle constructor, Class<?> type) {
+			try {
+				return (Object) constructor.invokeExact();
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException("Unable to create instance of " + type.getName(), e);
+			}
+		}
+
+		Object checkElement(Object element) {
+			if (element != null && !wrap(elementType).isInstance(element)) {
+				throw new IllegalArgumentException("Value of type " + element.getClass().getName() + " can't be assigned to " + this + ". Expected " + elementType.getName());
+			}
+			return element;
+		}
+
+		Object checkKey(Object key) {
+			if (key != null && !wrap(keyType).isInstance(key)) {
+				throw new IllegalArgumentException("Key of type " + key.getClass().getName() + " can't be assigned to " + this + ". Expected " + keyType.getName());
+			}
+			return key;
+		}
+
+		@Override
+		public String toString() {
+			return "linked attribute '" + name + "' of " + mapper.beanType.getName();
+		}
+	}
+
+	/**
+	 * Invokes the {@link MethodHandle} of a setter that can't be bound with {@link LambdaMetafactory}, such as a
+	 * field or a method that is not public.
+	 */
+	private static final class SetterHandle implements BiConsumer<Object, Object> {
+		private final MethodHandle setter;
+		private final String name;
+		private final Class<?> beanType;
+
+		SetterHandle(MethodHandle setter, String name, Class<?> beanType) {
+			this.setter = setter;
+			this.name = name;
+			this.beanType = beanType;
+		}
+
+		@Override
+		public void accept(Object bean, Object value) {
+			try {
+				setter.invokeExact(bean, value);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException("Unable to set attribute '" + name + "' of " + beanType.getName(), e);
+			}
+		}
+	}
+
+	private static final class ParsedAttribute {
+		final int attributeIndex;
+		final String name;
+		final String[] fieldNames;
+		final int column;
+		final boolean primitive;
+		final Converter converter;
+		final String defaultNullRead;
+
+		ParsedAttribute(int attributeIndex, String name, String[] fieldNames, int column, boolean primitive, Converter converter, String defaultNullRead) {
+			this.attributeIndex = attributeIndex;
+			this.name = name;
+			this.fieldNames = fieldNames;
+			this.column = column;
+			this.primitive = primitive;
+			this.converter = converter;
+			this.defaultNullRead = defaultNullRead;
+		}
+	}
+
+	private abstract static class Converter {
+
+		abstract Object convert(String value);
+
+		static Converter forType(final Class<?> type) {
+			if (type == String.class || type == Object.class || type == CharSequence.class) {
+				return new Converter() {
+					Object convert(String value) {
+						return value;
+					}
+				};
+			}
+			if (type == int.class || type == Integer.class) {
+				return new NumericConverter() {
+					Object parse(String value) {
+						return Integer.valueOf(value);
+					}
+				};
+			}
+			if (type == long.class || type == Long.class) {
+				return new NumericConverter() {
+					Object parse(String value) {
+						return Long.valueOf(value);
+					}
+				};
+			}
+			if (type == double.class || type == Double.class) {
+				return new NumericConverter() {
+					Object parse(String value) {
+						return Double.valueOf(value);
+					}
+				};
+			}
+			if (type == float.class || type == Float.class) {
+				return new NumericConverter() {
+					Object parse(String value) {
+						return Float.valueOf(value);
+					}
+				};
+			}
+			if (type == short.class || type == Short.class) {
+				return new NumericConverter() {
+					Object parse(String value) {
+						return Short.valueOf(value);
+					}
+				};
+			}
+			if (type == byte.class || type == Byte.class) {
+				return new NumericConverter() {
+					Object parse(String value) {
+						return Byte.valueOf(value);
+					}
+				};
+			}
+			if (type == BigDecimal.class) {
+				return new NumericConverter() {
+					Object parse(String value) {
+						return new BigDecimal(value);
+					}
+				};
+			}
+			if (type == BigInteger.class) {
+				return new NumericConverter() {
+					Object parse(String value) {
+						return new BigInteger(value);
+					}
+				};
+			}
+			if (type == boolean.class || type == Boolean.class) {
+				return new Converter() {
+					Object convert(String value) {
+						value = value.trim();
+						return value.isEmpty() ? null : toBoolean(value);
+					}
+				};
+			}
+			if (type == char.class || type == Character.class) {
+				return new Converter() {
+					Object convert(String value) {
+						return value.isEmpty() ? null : value.charAt(0);
+					}
+				};
+			}
+			if (type.isEnum()) {
+				return new Converter() {
+					Object convert(String value) {
+						value = value.trim();
+						return value.isEmpty() ? null : Enum.valueOf((Class<Enum>) type, value);
+					}
+				};
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Converts {@code "true"} or {@code "false"}, in any case, to a {@link Boolean}. Unlike
+	 * {@link Boolean#valueOf(String)}, any other value is rejected instead of becoming {@code false}.
+	 *
+	 * @param value the value to convert, without surrounding spaces.
+	 *
+	 * @return the boolean value of the given {@code String}
+	 */
+	static Boolean toBoolean(String value) {
+		if ("true".equalsIgnoreCase(value)) {
+			return Boolean.TRUE;
+		} else if ("false".equalsIgnoreCase(value)) {
+			return Boolean.FALSE;
+		}
+		throw new IllegalArgumentException("Not a boolean: '" + value + "'");
+	}
+
+	private abstract static class NumericConverter extends Converter {
+		abstract Object parse(String value);
+
+		@Override
+		final Object convert(String value) {
+			value = value.trim();
+			return value.isEmpty() ? null : parse(value);
+		}
+	}
+}
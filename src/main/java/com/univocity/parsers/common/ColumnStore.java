@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.util.*;
+
+/**
+ * A columnar storage of rows, to be used by {@link Result} implementations when
+ * {@link EntityParserSettings#isColumnarStorageEnabled()} evaluates to {@code true}.
+ *
+ * Values are kept in one array per field, in the order given by {@link Result#getHeaders()}. Columns start out
+ * dictionary-encoded: each distinct value is stored once and rows hold an {@code int} code that points to it. Once a
+ * column accumulates more distinct values than the limit given by
+ * {@link EntityParserSettings#getDictionaryEncodingLimit()}, it is converted to a plain array of values.
+ *
+ * Rows are rebuilt as {@code String[]} only when requested through {@link #getRow(int)} or {@link #iterator()}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see Result
+ * @see EntityParserSettings#setColumnarStorageEnabled(boolean)
+ */
+public final class ColumnStore implements Iterable<String[]> {
+
+	private final String[] headers;
+	private final Column[] columns;
+	private int rowCount;
+
+	/**
+	 * Creates a new, empty {@code ColumnStore}
+	 *
+	 * @param headers         the headers of each field, in the order they appear in each row.
+	 * @param dictionaryLimit the maximum number of distinct values a column can have before it stops being
+	 *                        dictionary-encoded. Values {@code <= 0} disable dictionary encoding.
+	 */
+	public ColumnStore(String[] headers, int dictionaryLimit) {
+		Args.notNull(headers, "Headers");
+		this.headers = headers.clone();
+		this.columns = new Column[headers.length];
+		for (int i = 0; i < columns.length; i++) {
+			columns[i] = new Column(dictionaryLimit);
+		}
+	}
+
+	/**
+	 * Returns the headers of each field stored in this {@code ColumnStore}
+	 *
+	 * @return a copy of the headers of each field
+	 */
+	public String[] getHeaders() {
+		return headers.clone();
+	}
+
+	/**
+	 * Returns the number of rows stored so far.
+	 *
+	 * @return the current row count
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Adds a row to this store. Rows with less values than the number of headers will have their remaining fields
+	 * set to {@code null}. Values beyond the number of headers are discarded.
+	 *
+	 * @param row the row to be added.
+	 */
+	public void addRow(String[] row) {
+		for (int i = 0; i < columns.length; i++) {
+			columns[i].add(i < row.length ? row[i] : null);
+		}
+		rowCount++;
+	}
+
+	/**
+	 * Returns the value of a field at a given row.
+	 *
+	 * @param rowIndex    the index of the row
+	 * @param columnIndex the index of the field, as given by {@link #getHeaders()}
+	 *
+	 * @return the value stored at the given position.
+	 */
+	public String getValue(int rowIndex, int columnIndex) {
+		validateRowIndex(rowIndex);
+		return columns[columnIndex].get(rowIndex);
+	}
+
+	/**
+	 * Rebuilds the row at a given index.
+	 *
+	 * @param rowIndex the index of the row
+	 *
+	 * @return a new {@code String[]} with the values of the given row.
+	 */
+	public String[] getRow(int rowIndex) {
+		validateRowIndex(rowIndex);
+		String[] out = new String[columns.length];
+		for (int i = 0; i < out.length; i++) {
+			out[i] = columns[i].get(rowIndex);
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the position of a field in each row.
+	 *
+	 * @param header the name of the field
+	 *
+	 * @return the index of the field.
+	 *
+	 * @throws IllegalArgumentException if no field with the given name exists.
+	 */
+	public int indexOf(String header) {
+		for (int i = 0; i < headers.length; i++) {
+			if (headers[i] != null && headers[i].equalsIgnoreCase(header)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Field '" + header + "' not found. Available fields: " + Arrays.toString(headers));
+	}
+
+	/**
+	 * Iterates over the values of a single field, without rebuilding rows. Useful for scanning filter or join keys.
+	 *
+	 * @param header the name of the field whose values will be iterated over.
+	 *
+	 * @return an {@link Iterable} over the values of the given field, from the first row to the last.
+	 */
+	public Iterable<String> iterateColumn(String header) {
+		return iterateColumn(indexOf(header));
+	}
+
+	/**
+	 * Iterates over the values of a single field, without rebuilding rows. Useful for scanning filter or join keys.
+	 *
+	 * @param columnIndex the index of the field whose values will be iterated over.
+	 *
+	 * @return an {@link Iterable} over the values of the given field, from the first row to the last.
+	 */
+	public Iterable<String> iterateColumn(final int columnIndex) {
+		final Column column = columns[columnIndex];
+		return new Iterable<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new Iterator<String>() {
+					final int rows = rowCount;
+					int row = 0;
+
+					@Override
+					public boolean hasNext() {
+						return row < rows;
+					}
+
+					@Override
+					public String next() {
+						if (row >= rows) {
+							throw new NoSuchElementException();
+						}
+						return column.get(row++);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException("Can't remove values from a column store");
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Tests whether the values of a given field are currently dictionary-encoded
+	 *
+	 * @param columnIndex the index of the field
+	 *
+	 * @return {@code true} if the values of the field are dictionary-encoded, otherwise {@code false}
+	 */
+	public boolean isDictionaryEncoded(int columnIndex) {
+		return columns[columnIndex].dictionary != null;
+	}
+
+	/**
+	 * Returns the number of distinct values of a dictionary-encoded field.
+	 *
+	 * @param columnIndex the index of the field
+	 *
+	 * @return the number of distinct values of the field, or {@code -1} if the field is not dictionary-encoded.
+	 */
+	public int getDistinctValueCount(int columnIndex) {
+		Column column = columns[columnIndex];
+		return column.dictionary == null ? -1 : column.dictionary.size();
+	}
+
+	/**
+	 * Releases any unused capacity allocated for each column. Should be invoked once no more rows are to be added.
+	 */
+	public void trimToSize() {
+		for (Column column : columns) {
+			column.trimToSize(rowCount);
+		}
+	}
+
+	/**
+	 * Iterates over each row, rebuilding a new {@code String[]} for each.
+	 *
+	 * @return an {@link Iterator} over the rows of this store.
+	 */
+	@Override
+	public Iterator<String[]> iterator() {
+		return new Iterator<String[]>() {
+			final int rows = rowCount;
+			int row = 0;
+
+			@Override
+			public boolean hasNext() {
+				return row < rows;
+			}
+
+			@Override
+			public String[] next() {
+				if (row >= rows) {
+					throw new NoSuchElementException();
+				}
+				return getRow(row++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("Can't remove rows from a column store");
+			}
+		};
+	}
+
+	private void validateRowIndex(int rowIndex) {
+		if (rowIndex < 0 || rowIndex >= rowCount) {
+			throw new IndexOutOfBoundsException("Row index " + rowIndex + " out of bounds. Row count: " + rowCount);
+		}
+	}
+
+	private static final class Column {
+		private final int dictionaryLimit;
+
+		private Map<String, Integer> dictionary;
+		private String[] dictionaryValues;
+		private int[] codes;
+
+		private String[] values;
+		private int size;
+
+		Column(int dictionaryLimit) {
+			this.dictionaryLimit = dictionaryLimit;
+			if (dictionaryLimit > 0) {
+				dictionary = new HashMap<String, Integer>();
+				dictionaryValues = new String[Math.min(dictionaryLimit, 16)];
+				codes = new int[16];
+			} else {
+				values = new String[16];
+			}
+		}
+
+		void add(String value) {
+			if (dictionary != null) {
+				Integer code = dictionary.get(value);
+				if (code == null) {
+					if (dictionary.size() >= dictionaryLimit) {
+						decode();
+						add(value);
+						return;
+					}
+					code = dictionary.size();
+					dictionary.put(value, code);
+					if (code == dictionaryValues.length) {
+						dictionaryValues = Arrays.copyOf(dictionaryValues, Math.min(dictionaryLimit, code * 2));
+					}
+					dictionaryValues[code] = value;
+				}
+				if (size == codes.length) {
+					codes = Arrays.copyOf(codes, size * 2);
+				}
+				codes[size++] = code;
+			} else {
+				if (size == values.length) {
+					values = Arrays.copyOf(values, size * 2);
+				}
+				values[size++] = value;
+			}
+		}
+
+		String get(int row) {
+			if (dictionary != null) {
+				return dictionaryValues[codes[row]];
+			}
+			return values[row];
+		}
+
+		private void decode() {
+			values = new String[codes.length];
+			for (int i = 0; i < size; i++) {
+				values[i] = dictionaryValues[codes[i]];
+			}
+			dictionary = null;
+			dictionaryValues = null;
+			codes = null;
+		}
+
+		void trimToSize(int rowCount) {
+			int length = Math.max(rowCount, 1);
+			if (dictionary != null) {
+				if (codes.length > length) {
+					codes = Arrays.copyOf(codes, length);
+				}
+				if (dictionaryValues.length > dictionary.size()) {
+					dictionaryValues = Arrays.copyOf(dictionaryValues, Math.max(dictionary.size(), 1));
+				}
+			} else if (values.length > length) {
+				values = Arrays.copyOf(values, length);
+			}
+		}
+	}
+}
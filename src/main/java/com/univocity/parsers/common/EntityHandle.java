@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+/**
+ * A reference to an entity name of an {@link EntityList}, resolved once with {@link EntityList#getHandle(String)}
+ * and then used to access {@link Results}, {@link EntityList} and the entity selection of
+ * {@link EntityParserSettings} by array index, without normalizing and hashing the entity name on every access.
+ *
+ * Entity names are matched ignoring case and surrounding spaces, so {@code list.getHandle("Item")} and
+ * {@code list.getHandle(" ITEM ")} return the same instance. Each distinct entity name receives a dense integer
+ * {@link #getId()}, starting from {@code 0}, which is only meaningful in the {@link EntityList} that created the
+ * handle. Handles of other lists are still accepted everywhere, but are resolved by name.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see EntityList#getHandle(String)
+ * @see Results#get(EntityHandle)
+ * @see EntityList#getEntity(EntityHandle)
+ * @see EntityParserSettings#shouldSkip(EntityHandle)
+ */
+public final class EntityHandle {
+
+	private final EntityList<?> scope;
+	private final String name;
+	private final String normalizedName;
+	private final int id;
+
+	EntityHandle(EntityList<?> scope, String name, String normalizedName, int id) {
+		this.scope = scope;
+		this.name = name;
+		this.normalizedName = normalizedName;
+		this.id = id;
+	}
+
+	/**
+	 * Returns the {@link EntityList} that created this handle, and in which its {@link #getId()} is unique.
+	 *
+	 * @return the entity list of this handle
+	 */
+	public EntityList<?> getScope() {
+		return scope;
+	}
+
+	/**
+	 * Returns the entity name, as given when this handle was first created, without surrounding spaces.
+	 *
+	 * @return the entity name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the entity name in lower case, without surrounding spaces.
+	 *
+	 * @return the normalized entity name
+	 */
+	public String getNormalizedName() {
+		return normalizedName;
+	}
+
+	/**
+	 * Returns the dense integer identifier of this handle in its {@link #getScope()}.
+	 *
+	 * @return the identifier of the entity name, from {@code 0} to the number of handles created by the
+	 * {@link EntityList} of this handle{@code - 1}.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
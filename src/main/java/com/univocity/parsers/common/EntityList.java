@@ -26,8 +26,15 @@ import java.util.*;
  */
 public abstract class EntityList<E extends EntitySettings> implements Iterable<E> {
 
+	/**
+	 * The entity configurations of this list, by normalized entity name. Subclasses that replace or remove entries
+	 * of this map directly must call {@link #entitiesChanged()} afterwards, so that lookups by {@link EntityHandle}
+	 * don't return the previous configurations.
+	 */
 	protected Map<String, E> entities = new TreeMap<String, E>();
 	protected Map<String, String> originalEntityNames = new TreeMap<String, String>();
+	private final Map<String, EntityHandle> handles = new HashMap<String, EntityHandle>();
+	private volatile Object[] entitiesByHandle = new Object[0];
 	private EntityParserSettings globalSettings;
 
 	/**
@@ -74,6 +81,8 @@ public abstract class EntityList<E extends EntitySettings> implements Iterable<E
 			newEntity.setParents(this, parentEntity);
 			entities.put(normalizedEntityName, newEntity);
 			originalEntityNames.put(entityName, normalizedEntityName);
+			getHandle(entityName);
+			entitiesChanged();
 		}
 		E entitySettings = entities.get(normalizedEntityName);
 		entitySettings.setParents(this, parentEntity);
@@ -124,6 +133,76 @@ public abstract class EntityList<E extends EntitySettings> implements Iterable<E
 		return entities.get(entityName.trim().toLowerCase());
 	}
 
+	/**
+	 * Returns the handle of an entity name in this list, creating it on first use. The entity doesn't need to be
+	 * configured in this list. Handles are meant to be resolved once and then used to access the configuration of
+	 * the entity, its {@link Results} and its selection in {@link EntityParserSettings} by array index.
+	 *
+	 * @param entityName the name of the entity
+	 *
+	 * @return the unique handle of the given entity name in this list.
+	 */
+	public final EntityHandle getHandle(String entityName) {
+		Args.notBlank(entityName, "Entity name");
+		String name = entityName.trim();
+		String normalizedName = name.toLowerCase();
+		synchronized (handles) {
+			EntityHandle out = handles.get(normalizedName);
+			if (out == null) {
+				out = new EntityHandle(this, name, normalizedName, handles.size());
+				handles.put(normalizedName, out);
+			}
+			return out;
+		}
+	}
+
+	final int getHandleCount() {
+		synchronized (handles) {
+			return handles.size();
+		}
+	}
+
+	/**
+	 * Returns the configuration of a an existing entity or {@code null} if there's no entity with the given name.
+	 * Configurations of entities added through this list are found by the id of handles created by this list,
+	 * without normalizing or hashing the entity name.
+	 *
+	 * @param entity handle of the name of the entity whose configuration will be returned
+	 *
+	 * @return an instance of {@link EntitySettings} which manages the configuration of the given entity,
+	 * or {@code null} if no such entity exist.
+	 */
+	public final E getEntity(EntityHandle entity) {
+		Args.notNull(entity, "Entity handle");
+		if (entity.getScope() != this) {
+			return entities.get(entity.getNormalizedName());
+		}
+		Object[] cache = entitiesByHandle;
+		int id = entity.getId();
+		if (id < cache.length && cache[id] != null) {
+			return (E) cache[id];
+		}
+		return entities.get(entity.getNormalizedName());
+	}
+
+	/**
+	 * Rebuilds the lookup of entity configurations by {@link EntityHandle} from {@link #entities}. Invoked whenever
+	 * this list adds or removes entities, and to be invoked by subclasses that modify {@link #entities} directly.
+	 * The lookup is replaced as a whole, so it can be read by parsers running in other threads.
+	 */
+	protected final void entitiesChanged() {
+		synchronized (handles) {
+			Object[] out = new Object[handles.size()];
+			for (Map.Entry<String, E> e : entities.entrySet()) {
+				EntityHandle handle = handles.get(e.getKey());
+				if (handle != null) {
+					out[handle.getId()] = e.getValue();
+				}
+			}
+			entitiesByHandle = out;
+		}
+	}
+
 	/**
 	 * Removes an entity from this {@code EntityList}. A removed entity will not be used by the parser and any
 	 * fields/configuration made for the removed entity configuration will be lost.
@@ -135,6 +214,7 @@ public abstract class EntityList<E extends EntitySettings> implements Iterable<E
 		entityName = entityName.trim().toLowerCase();
 		entities.remove(entityName);
 		originalEntityNames.remove(entityName);
+		entitiesChanged();
 	}
 
 	/**
@@ -155,7 +235,24 @@ public abstract class EntityList<E extends EntitySettings> implements Iterable<E
 	 */
 	@Override
 	public final Iterator<E> iterator() {
-		return entities.values().iterator();
+		final Iterator<E> iterator = entities.values().iterator();
+		return new Iterator<E>() {
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public E next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				entitiesChanged();
+			}
+		};
 	}
 
 
@@ -177,6 +274,7 @@ public abstract class EntityList<E extends EntitySettings> implements Iterable<E
 
 		E config = (E) settings.clone();
 		this.entities.put(normalizedEntityName, config);
+		entitiesChanged();
 		config.setParents(this, settings);
 
 		return config;
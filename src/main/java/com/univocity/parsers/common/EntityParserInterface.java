@@ -22,6 +22,8 @@ import java.nio.charset.*;
  *
  * Concrete parser implementations may provide additional operations.
  *
+ * To parse many inputs in parallel, use a {@link BatchParser}, which manages a pool of parser instances.
+ *
  * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
  * @see EntityList
  * @see EntityParserSettings
@@ -29,6 +31,7 @@ import java.nio.charset.*;
  * @see ReaderProvider
  * @see FileProvider
  * @see Record
+ * @see BatchParser
  */
 public interface EntityParserInterface<R extends ResultRecord<C>, C extends Context, T extends Result<R, C>> {
 
@@ -166,4 +169,22 @@ public interface EntityParserInterface<R extends ResultRecord<C>, C extends Cont
 	 */
 	Results<T> parse(File file, String encoding);
 
+	/**
+	 * Given a {@link java.io.File}, parses all records of all entities
+	 * defined in the {@link EntityList} of this parser, reading the file through a {@link MappedFileReader}.
+	 * The file is memory-mapped and its content decoded directly from the mapped buffer, which avoids copying
+	 * the input into intermediate buffers. Best suited for large files, or for replaying large batches of files
+	 * downloaded previously.
+	 *
+	 * Parsers that don't support memory-mapped input parse the file with {@link #parse(File, Charset)} instead.
+	 *
+	 * @param file     the input with content to be parsed
+	 * @param encoding the encoding to be used when reading text from the given input.
+	 *
+	 * @return the {@link Results} of parsing the given input
+	 */
+	default Results<T> parseMapped(File file, Charset encoding) {
+		return parse(file, encoding);
+	}
+
 }
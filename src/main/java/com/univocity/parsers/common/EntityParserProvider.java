@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+/**
+ * Creates new instances of an {@link EntityParserInterface} implementation. Used by {@link BatchParser} to create
+ * the parsers of its pool, each of which is then reused to parse many inputs.
+ *
+ * @param <R> the type of {@link ResultRecord} produced by the parser.
+ * @param <C> the type of {@link Context} used by the parser.
+ * @param <T> the type of {@link Result} produced by the parser.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see BatchParser
+ */
+public interface EntityParserProvider<R extends ResultRecord<C>, C extends Context, T extends Result<R, C>> {
+
+	/**
+	 * Creates a new parser, configured to parse the inputs of a batch.
+	 *
+	 * @return a new {@link EntityParserInterface} implementation
+	 */
+	EntityParserInterface<R, C, T> newParser();
+}
@@ -7,8 +7,12 @@
 package com.univocity.parsers.common;
 
 import com.univocity.api.*;
+import com.univocity.api.common.*;
+import com.univocity.api.io.*;
 
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Base configuration class of a parser that produces records for multiple entities. The settings available in
@@ -26,10 +30,45 @@ import java.util.*;
  */
 public abstract class EntityParserSettings<S extends CommonParserSettings, L extends EntityList, C extends Context> implements Cloneable {
 
+	/**
+	 * Names of the entities to read. Subclasses that modify this set directly must call {@link #selectionChanged()}
+	 * afterwards.
+	 */
 	protected Set<String> entitiesToRead = new TreeSet<String>();
+	/**
+	 * Names of the entities to skip. Subclasses that modify this set directly must call {@link #selectionChanged()}
+	 * afterwards.
+	 */
 	protected Set<String> entitiesToSkip = new TreeSet<String>();
+	private volatile Selection selection = new Selection(entitiesToRead, entitiesToSkip);
+
+	/**
+	 * The default maximum number of rows of each entity held in memory while streaming.
+	 */
+	public static final int DEFAULT_STREAMING_BUFFER_SIZE = 1000;
+
+	private static final byte COMPUTED = 1;
+	private static final byte SKIP = 2;
+	private static final byte READ = 4;
+
 	protected S globalSettings = createGlobalSettings();
 
+	private boolean streamingEnabled = false;
+	private int streamingBufferSize = DEFAULT_STREAMING_BUFFER_SIZE;
+	private boolean lazyExtractionEnabled = false;
+	private boolean lazyLinkedBeansEnabled = false;
+
+	private boolean columnarStorageEnabled = false;
+	private int dictionaryEncodingLimit = 1024;
+
+	private int joinMemoryLimit = -1;
+	private FileProvider spillDirectory;
+
+	private boolean parallelEntityExtractionEnabled = false;
+	private ExecutorService entityExtractionExecutor;
+
+	private ParserMetrics metrics = ParserMetrics.NONE;
+
 	/**
 	 * Creates a new configuration object for an implementation of {@link EntityParserInterface}, which will process
 	 * an input to produce records for entities defined by an {@link EntityList}
@@ -82,6 +121,7 @@ public abstract class EntityParserSettings<S extends CommonParserSettings, L ext
 			ArgumentUtils.noNulls("Name of entity to be read", entity);
 			this.entitiesToRead.add(entity);
 		}
+		selectionChanged();
 	}
 
 	/**
@@ -160,6 +200,7 @@ public abstract class EntityParserSettings<S extends CommonParserSettings, L ext
 			ArgumentUtils.noNulls("Name of entity to be skipped", entity);
 			this.entitiesToSkip.add(entity);
 		}
+		selectionChanged();
 	}
 
 	/**
@@ -175,29 +216,132 @@ public abstract class EntityParserSettings<S extends CommonParserSettings, L ext
 	/**
 	 * Tests whether a given entity should be skipped, so the parser can ignore/not process its records.
 	 *
-	 * Entities to be skipped are those that are either added to the internal set of  {@link #entitiesToSkip} or
-	 * not in the set of {@link #entitiesToRead}, if it is not empty
+	 * Entities to be skipped are those that are either added to the set of {@link #getEntitiesToSkip()} or
+	 * not in the set of {@link #getEntitiesToRead()}, if it is not empty. Entity names are matched ignoring case and
+	 * surrounding spaces, in the same way as {@link EntityList#getEntity(String)}.
 	 *
 	 * @param entityName name of the entity
 	 *
 	 * @return {@code true} if the entity should be skipped, otherwise {@code false}
 	 */
 	public final boolean shouldSkip(String entityName) {
-		return entitiesToSkip.contains(entityName) || (!entitiesToRead.isEmpty() && !entitiesToRead.contains(entityName));
+		return (selection.select(normalize(entityName)) & SKIP) != 0;
 	}
 
 	/**
 	 * Tests whether a given entity should be processed (i.e. whether or not the parser should generate records for it)
 	 *
-	 * Entities to be read are those that were not added to the internal set of {@link #entitiesToSkip} or
-	 * are in the set of {@link #entitiesToRead}, if it is not empty
+	 * Entities to be read are those that were not added to the set of {@link #getEntitiesToSkip()} or
+	 * are in the set of {@link #getEntitiesToRead()}, if it is not empty. Entity names are matched ignoring case and
+	 * surrounding spaces, in the same way as {@link EntityList#getEntity(String)}.
 	 *
 	 * @param entityName name of entity
 	 *
 	 * @return {@code true} if the entity should be read, otherwise {@code false}
 	 */
 	public final boolean shouldRead(String entityName) {
-		return !entitiesToRead.isEmpty() && entitiesToRead.contains(entityName);
+		return (selection.select(normalize(entityName)) & READ) != 0;
+	}
+
+	/**
+	 * Tests whether the entity referenced by a given handle should be skipped, so the parser can ignore/not process
+	 * its records. Entity names are matched as in {@link #shouldSkip(String)}. The outcome is computed once per
+	 * handle and then looked up by the handle id, as long as handles of the same {@link EntityList} are used.
+	 *
+	 * @param entity handle of the name of the entity
+	 *
+	 * @return {@code true} if the entity should be skipped, otherwise {@code false}
+	 */
+	public final boolean shouldSkip(EntityHandle entity) {
+		return (getSelection(entity) & SKIP) != 0;
+	}
+
+	/**
+	 * Tests whether the entity referenced by a given handle should be processed (i.e. whether or not the parser
+	 * should generate records for it). Entity names are matched as in {@link #shouldRead(String)}. The outcome is
+	 * computed once per handle and then looked up by the handle id, as long as handles of the same
+	 * {@link EntityList} are used.
+	 *
+	 * @param entity handle of the name of the entity
+	 *
+	 * @return {@code true} if the entity should be read, otherwise {@code false}
+	 */
+	public final boolean shouldRead(EntityHandle entity) {
+		return (getSelection(entity) & READ) != 0;
+	}
+
+	/**
+	 * Rebuilds the selection used by {@link #shouldRead(String)}, {@link #shouldSkip(String)} and their
+	 * {@link EntityHandle} counterparts from {@link #entitiesToRead} and {@link #entitiesToSkip}. Invoked whenever
+	 * these settings change the selection, and to be invoked by subclasses that modify these sets directly.
+	 * The selection is replaced as a whole, so it can be read by parsers running in other threads.
+	 */
+	protected final void selectionChanged() {
+		selection = new Selection(entitiesToRead, entitiesToSkip);
+	}
+
+	private static String normalize(String entityName) {
+		// trim() and toLowerCase() return the same instance if the name is already normalized
+		return entityName == null ? null : entityName.trim().toLowerCase();
+	}
+
+	private byte getSelection(EntityHandle entity) {
+		Args.notNull(entity, "Entity handle");
+		Selection selection = this.selection;
+		HandleSelection cache = selection.handles;
+		int id = entity.getId();
+		boolean sameScope = cache != null && cache.scope == entity.getScope();
+		if (sameScope && id < cache.outcomes.length && cache.outcomes[id] != 0) {
+			return cache.outcomes[id];
+		}
+
+		byte out = selection.select(entity.getNormalizedName());
+
+		// published arrays are never modified, so that other threads always see complete outcomes
+		int length = Math.max(id + 1, entity.getScope().getHandleCount());
+		byte[] outcomes = sameScope ? Arrays.copyOf(cache.outcomes, Math.max(length, cache.outcomes.length)) : new byte[length];
+		outcomes[id] = out;
+		selection.handles = new HandleSelection(entity.getScope(), outcomes);
+		return out;
+	}
+
+	/**
+	 * Immutable snapshot of the entities to read and to skip, by normalized name, with the outcomes already
+	 * computed for the handles of an {@link EntityList}.
+	 */
+	private static final class Selection {
+		private final Set<String> read;
+		private final Set<String> skip;
+		private volatile HandleSelection handles;
+
+		Selection(Set<String> entitiesToRead, Set<String> entitiesToSkip) {
+			this.read = normalize(entitiesToRead);
+			this.skip = normalize(entitiesToSkip);
+		}
+
+		private static Set<String> normalize(Set<String> entityNames) {
+			Set<String> out = new HashSet<String>();
+			for (String entityName : entityNames) {
+				out.add(EntityParserSettings.normalize(entityName));
+			}
+			return out;
+		}
+
+		byte select(String normalizedName) {
+			boolean read = this.read.contains(normalizedName);
+			boolean skip = this.skip.contains(normalizedName) || (!this.read.isEmpty() && !read);
+			return (byte) (COMPUTED | (skip ? SKIP : 0) | (read ? READ : 0));
+		}
+	}
+
+	private static final class HandleSelection {
+		private final EntityList<?> scope;
+		private final byte[] outcomes;
+
+		HandleSelection(EntityList<?> scope, byte[] outcomes) {
+			this.scope = scope;
+			this.outcomes = outcomes;
+		}
 	}
 
 	/**
@@ -331,6 +475,342 @@ public abstract class EntityParserSettings<S extends CommonParserSettings, L ext
 		globalSettings.setNullValue(nullValue);
 	}
 
+	/**
+	 * Indicates whether the parser should stream the rows of each entity instead of accumulating them in memory.
+	 *
+	 * When enabled, the parsing thread publishes the rows it produces into a bounded queue for each entity and blocks
+	 * while that queue is full. Rows are consumed from the queue through {@link Result#iterateRows()},
+	 * {@link Result#iterateRecords()} or {@link Result#iterateBeans(Class)}, which means each {@link Result} can
+	 * only be iterated once. Methods that return all rows at once, such as {@link Result#getRows()} and
+	 * {@link Result#getRecords()}, will throw an {@link IllegalStateException}.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @return flag indicating whether the rows of each entity will be streamed to the consumer as they are parsed.
+	 */
+	public final boolean isStreamingEnabled() {
+		return streamingEnabled;
+	}
+
+	/**
+	 * Configures the parser to stream the rows of each entity instead of accumulating them in memory.
+	 *
+	 * When enabled, the parsing thread publishes the rows it produces into a bounded queue for each entity and blocks
+	 * while that queue is full. Rows are consumed from the queue through {@link Result#iterateRows()},
+	 * {@link Result#iterateRecords()} or {@link Result#iterateBeans(Class)}, which means each {@link Result} can
+	 * only be iterated once. Methods that return all rows at once, such as {@link Result#getRows()} and
+	 * {@link Result#getRecords()}, will throw an {@link IllegalStateException}.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @param streamingEnabled flag indicating whether the rows of each entity should be streamed to the consumer as
+	 *                         they are parsed.
+	 */
+	@UI
+	public final void setStreamingEnabled(boolean streamingEnabled) {
+		this.streamingEnabled = streamingEnabled;
+	}
+
+	/**
+	 * Returns the maximum number of rows of each entity held in memory while streaming.
+	 *
+	 * <i>Defaults to {@code 1000}</i>
+	 *
+	 * @return the maximum number of rows per entity to hold in memory while streaming.
+	 */
+	public final int getStreamingBufferSize() {
+		return streamingBufferSize;
+	}
+
+	/**
+	 * Defines the maximum number of rows of each entity that can be held in memory, waiting to be consumed, when
+	 * {@link #isStreamingEnabled()} evaluates to {@code true}. The parser will wait for the consumer to read rows of
+	 * an entity whose queue is full before producing more rows. Individual entities can override this limit with
+	 * {@link EntitySettings#setStreamingBufferSize(int)}.
+	 *
+	 * <i>Defaults to {@code 1000}</i>
+	 *
+	 * @param streamingBufferSize the maximum number of rows per entity to hold in memory while streaming.
+	 */
+	@Range(min = 1, max = 1000000)
+	public final void setStreamingBufferSize(int streamingBufferSize) {
+		Args.positive(streamingBufferSize, "Streaming buffer size");
+		this.streamingBufferSize = streamingBufferSize;
+	}
+
+	/**
+	 * Indicates whether the values of each row are only extracted from the input when a consumer reads them.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @return flag indicating whether field values are extracted only when read.
+	 */
+	public final boolean isLazyExtractionEnabled() {
+		return lazyExtractionEnabled;
+	}
+
+	/**
+	 * Configures the parser to only extract the values of each row from the input when a consumer reads them,
+	 * e.g. through a {@link ResultRecord} or when populating a bean. Rows keep a reference into the input and
+	 * extract each field at most once (see {@link LazyRow}), and the number of reads of each field is available
+	 * from {@link Result#getFieldAccessCounter()}. Individual entities can override this setting with
+	 * {@link EntitySettings#setLazyExtractionEnabled(boolean)}.
+	 *
+	 * This reduces the work done to process entities with many fields when only a few of them are read, at the
+	 * cost of keeping the input in memory until the rows that reference it are discarded.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @param lazyExtractionEnabled flag indicating whether field values should be extracted only when read.
+	 */
+	@UI
+	public final void setLazyExtractionEnabled(boolean lazyExtractionEnabled) {
+		this.lazyExtractionEnabled = lazyExtractionEnabled;
+	}
+
+	/**
+	 * Indicates whether list and collection attributes of beans that receive the beans of a linked entity should be
+	 * populated with a {@link LazyLinkedList}, whose elements are only created from the rows of the linked entity
+	 * when the list is first read. Parents whose linked beans are never read don't create them at all, which reduces
+	 * mapping time and memory usage when only a few parents are navigated into.
+	 *
+	 * The rows of the linked {@link Result} are kept in memory until all lazy lists referencing them are discarded.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @return flag indicating whether linked beans are created only when read.
+	 */
+	public final boolean isLazyLinkedBeansEnabled() {
+		return lazyLinkedBeansEnabled;
+	}
+
+	/**
+	 * Configures the parser to populate list and collection attributes of beans that receive the beans of a linked
+	 * entity with a {@link LazyLinkedList}, whose elements are only created from the rows of the linked entity
+	 * when the list is first read. Parents whose linked beans are never read don't create them at all, which reduces
+	 * mapping time and memory usage when only a few parents are navigated into.
+	 *
+	 * The rows of the linked {@link Result} are kept in memory until all lazy lists referencing them are discarded.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @param lazyLinkedBeansEnabled flag indicating whether linked beans should be created only when read.
+	 */
+	@UI
+	public final void setLazyLinkedBeansEnabled(boolean lazyLinkedBeansEnabled) {
+		this.lazyLinkedBeansEnabled = lazyLinkedBeansEnabled;
+	}
+
+	/**
+	 * Indicates whether the rows of each {@link Result} should be stored by column (using a {@link ColumnStore})
+	 * instead of one {@code String[]} per row. Columns with a small number of distinct values are dictionary-encoded,
+	 * which considerably reduces memory usage when the same values are repeated across many rows. Rows are rebuilt
+	 * on demand when iterated over.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @return flag indicating whether the rows of each entity are stored by column.
+	 */
+	public final boolean isColumnarStorageEnabled() {
+		return columnarStorageEnabled;
+	}
+
+	/**
+	 * Configures the parser to store the rows of each {@link Result} by column (using a {@link ColumnStore})
+	 * instead of one {@code String[]} per row. Columns with a small number of distinct values are dictionary-encoded,
+	 * which considerably reduces memory usage when the same values are repeated across many rows. Rows are rebuilt
+	 * on demand when iterated over.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @param columnarStorageEnabled flag indicating whether the rows of each entity should be stored by column.
+	 */
+	@UI
+	public final void setColumnarStorageEnabled(boolean columnarStorageEnabled) {
+		this.columnarStorageEnabled = columnarStorageEnabled;
+	}
+
+	/**
+	 * Returns the maximum number of distinct values a column can have and still be dictionary-encoded when
+	 * {@link #isColumnarStorageEnabled()} evaluates to {@code true}. Columns that exceed this limit are stored as
+	 * plain values.
+	 *
+	 * <i>Defaults to {@code 1024}</i>
+	 *
+	 * @return the maximum number of distinct values of a dictionary-encoded column.
+	 */
+	public final int getDictionaryEncodingLimit() {
+		return dictionaryEncodingLimit;
+	}
+
+	/**
+	 * Defines the maximum number of distinct values a column can have and still be dictionary-encoded when
+	 * {@link #isColumnarStorageEnabled()} evaluates to {@code true}. Columns that exceed this limit are stored as
+	 * plain values. Use {@code 0} to disable dictionary encoding.
+	 *
+	 * <i>Defaults to {@code 1024}</i>
+	 *
+	 * @param dictionaryEncodingLimit the maximum number of distinct values of a dictionary-encoded column.
+	 */
+	@Range(min = 0, max = 65536)
+	public final void setDictionaryEncodingLimit(int dictionaryEncodingLimit) {
+		Args.positiveOrZero(dictionaryEncodingLimit, "Dictionary encoding limit");
+		this.dictionaryEncodingLimit = dictionaryEncodingLimit;
+	}
+
+	/**
+	 * Returns the maximum number of rows that can be held in memory while joining two {@link Result}s with
+	 * {@link Result#join(Result, String...)}. If the rows of both results exceed this limit, they are partitioned
+	 * into temporary files under {@link #getSpillDirectory()} and joined one partition at a time (see
+	 * {@link HashJoin#join(Iterable, Iterable, int, File)}).
+	 *
+	 * <i>Defaults to {@code -1} (no limit)</i>
+	 *
+	 * @return the maximum number of rows to hold in memory while joining results.
+	 */
+	public final int getJoinMemoryLimit() {
+		return joinMemoryLimit;
+	}
+
+	/**
+	 * Defines the maximum number of rows that can be held in memory while joining two {@link Result}s with
+	 * {@link Result#join(Result, String...)}. If the rows of both results exceed this limit, they are partitioned
+	 * into temporary files under {@link #getSpillDirectory()} and joined one partition at a time (see
+	 * {@link HashJoin#join(Iterable, Iterable, int, File)}).
+	 *
+	 * <i>Defaults to {@code -1} (no limit)</i>
+	 *
+	 * @param joinMemoryLimit the maximum number of rows to hold in memory while joining results. Use {@code -1} to
+	 *                        disable the limit.
+	 */
+	@Range(min = -1, max = Integer.MAX_VALUE)
+	public final void setJoinMemoryLimit(int joinMemoryLimit) {
+		if (joinMemoryLimit < -1 || joinMemoryLimit == 0) {
+			throw new IllegalArgumentException("Join memory limit must be a positive number of rows, or -1 to disable the limit. Got " + joinMemoryLimit);
+		}
+		this.joinMemoryLimit = joinMemoryLimit;
+	}
+
+	/**
+	 * Returns the directory where temporary files should be created when the rows being processed don't fit in the
+	 * memory limits configured for the parser, such as {@link #getJoinMemoryLimit()}.
+	 *
+	 * <i>Defaults to {@code null}, in which case the system's temporary directory will be used.</i>
+	 *
+	 * @return a {@link FileProvider} pointing to the directory to store temporary files, or {@code null} if undefined.
+	 */
+	public FileProvider getSpillDirectory() {
+		return spillDirectory;
+	}
+
+	/**
+	 * Defines the directory where temporary files should be created when the rows being processed don't fit in the
+	 * memory limits configured for the parser, such as {@link #getJoinMemoryLimit()}.
+	 *
+	 * @param path the path to the directory. It can contain system variables enclosed within { and }
+	 *             (e.g. {@code {user.home}/tmp"}). Subdirectories that don't exist will be created if required.
+	 */
+	public final void setSpillDirectory(String path) {
+		spillDirectory = path == null ? null : new FileProvider(path);
+	}
+
+	/**
+	 * Defines the directory where temporary files should be created when the rows being processed don't fit in the
+	 * memory limits configured for the parser, such as {@link #getJoinMemoryLimit()}.
+	 *
+	 * @param directory the directory to store temporary files. Subdirectories that don't exist will be created if required.
+	 */
+	public final void setSpillDirectory(File directory) {
+		spillDirectory = directory == null ? null : new FileProvider(directory);
+	}
+
+	/**
+	 * Indicates whether the parser should extract the records of each entity concurrently, once the input has been
+	 * read. Each entity has its {@link Result} filled in a separate task submitted to
+	 * {@link #getEntityExtractionExecutor()}, and the {@link Results} are assembled once all tasks complete.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @return flag indicating whether entities are extracted concurrently.
+	 */
+	public final boolean isParallelEntityExtractionEnabled() {
+		return parallelEntityExtractionEnabled;
+	}
+
+	/**
+	 * Configures the parser to extract the records of each entity concurrently, once the input has been
+	 * read. Each entity has its {@link Result} filled in a separate task submitted to
+	 * {@link #getEntityExtractionExecutor()}, and the {@link Results} are assembled once all tasks complete.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @param parallelEntityExtractionEnabled flag indicating whether entities should be extracted concurrently.
+	 */
+	@UI
+	public final void setParallelEntityExtractionEnabled(boolean parallelEntityExtractionEnabled) {
+		this.parallelEntityExtractionEnabled = parallelEntityExtractionEnabled;
+	}
+
+	/**
+	 * Returns the {@link ExecutorService} used to extract the records of each entity concurrently when
+	 * {@link #isParallelEntityExtractionEnabled()} evaluates to {@code true}.
+	 *
+	 * <em>Defaults to:</em> {@link ForkJoinPool#commonPool()}
+	 *
+	 * @return the executor service used to extract entities concurrently.
+	 */
+	public final ExecutorService getEntityExtractionExecutor() {
+		return entityExtractionExecutor == null ? ForkJoinPool.commonPool() : entityExtractionExecutor;
+	}
+
+	/**
+	 * Defines the {@link ExecutorService} used to extract the records of each entity concurrently when
+	 * {@link #isParallelEntityExtractionEnabled()} evaluates to {@code true}.
+	 *
+	 * Avoid providing a fixed-size thread pool whose threads also run the parser itself, as the parsing thread
+	 * waits for the extraction of all entities to complete and the pool could run out of threads.
+	 *
+	 * <em>Defaults to:</em> {@link ForkJoinPool#commonPool()}
+	 *
+	 * @param entityExtractionExecutor the executor service to be used to extract entities concurrently.
+	 */
+	public final void setEntityExtractionExecutor(ExecutorService entityExtractionExecutor) {
+		this.entityExtractionExecutor = entityExtractionExecutor;
+	}
+
+	/**
+	 * Returns the {@link ParserMetrics} that receives measurements of parsing, downloads and followers.
+	 *
+	 * <i>Defaults to {@link ParserMetrics#NONE}, which ignores all measurements.</i>
+	 *
+	 * @return the metrics collector in use.
+	 */
+	public final ParserMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Defines the {@link ParserMetrics} that receives measurements of parsing, downloads and followers, such as an
+	 * {@link InMemoryMetrics}. Copies of these settings share the same instance.
+	 *
+	 * <i>Defaults to {@link ParserMetrics#NONE}, which ignores all measurements.</i>
+	 *
+	 * @param metrics the metrics collector to use. If {@code null}, measurements will be ignored.
+	 */
+	public final void setMetrics(ParserMetrics metrics) {
+		this.metrics = metrics == null ? ParserMetrics.NONE : metrics;
+		metricsChanged(this.metrics);
+	}
+
+	/**
+	 * Notifies that a new {@link ParserMetrics} was defined with {@link #setMetrics(ParserMetrics)}, so that
+	 * subclasses can hand it to the components they created that report measurements.
+	 *
+	 * @param metrics the metrics collector now in use. Never {@code null}.
+	 */
+	protected void metricsChanged(ParserMetrics metrics) {
+	}
+
 	@Override
 	protected EntityParserSettings<S, L, C> clone() {
 		try {
@@ -338,6 +818,7 @@ public abstract class EntityParserSettings<S extends CommonParserSettings, L ext
 
 			out.entitiesToRead = new TreeSet<String>();
 			out.entitiesToSkip = new TreeSet<String>();
+			out.selectionChanged();
 			out.globalSettings = (S) globalSettings.clone(true);
 
 			return out;
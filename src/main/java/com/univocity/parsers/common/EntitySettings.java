@@ -6,6 +6,8 @@
 
 package com.univocity.parsers.common;
 
+import com.univocity.api.*;
+import com.univocity.api.common.*;
 import com.univocity.parsers.annotations.*;
 import com.univocity.parsers.common.fields.*;
 import com.univocity.parsers.common.processor.*;
@@ -40,6 +42,12 @@ public abstract class EntitySettings<C extends Context, S extends CommonSettings
 	private boolean localErrorContentLength;
 	private boolean localTrimLeading;
 	private boolean localTrimTrailing;
+	private boolean localStreamingBufferSize;
+	private int streamingBufferSize;
+	private boolean localLazyExtraction;
+	private boolean localFieldPredicates;
+	private boolean lazyExtractionEnabled;
+	private List<FieldPredicate> fieldPredicates = new ArrayList<FieldPredicate>(1);
 
 	protected final String name;
 	protected Processor<C> processor;
@@ -522,6 +530,143 @@ public abstract class EntitySettings<C extends Context, S extends CommonSettings
 		internalSettings.trimValues(trim);
 	}
 
+	/**
+	 * Returns the maximum number of rows of this entity held in memory while streaming.
+	 *
+	 * <i>Defaults to the value of {@link EntityParserSettings#getStreamingBufferSize()}</i>
+	 *
+	 * @return the maximum number of rows of this entity to hold in memory while streaming.
+	 */
+	public final int getStreamingBufferSize() {
+		if (localStreamingBufferSize || (parserSettings == null && parentEntity == null)) {
+			return streamingBufferSize <= 0 ? EntityParserSettings.DEFAULT_STREAMING_BUFFER_SIZE : streamingBufferSize;
+		} else if (parentEntity != null) {
+			return parentEntity.getStreamingBufferSize();
+		}
+		return parserSettings.getStreamingBufferSize();
+	}
+
+	/**
+	 * Defines the maximum number of rows of this entity that can be held in memory, waiting to be consumed, when
+	 * {@link EntityParserSettings#isStreamingEnabled()} evaluates to {@code true}. The parser will wait for the
+	 * consumer to read rows of this entity before producing more rows once this limit is reached.
+	 *
+	 * <i>Defaults to the value of {@link EntityParserSettings#getStreamingBufferSize()}</i>
+	 *
+	 * @param streamingBufferSize the maximum number of rows of this entity to hold in memory while streaming.
+	 */
+	@Range(min = 1, max = 1000000)
+	@UI
+	public final void setStreamingBufferSize(int streamingBufferSize) {
+		Args.positive(streamingBufferSize, "Streaming buffer size");
+		localStreamingBufferSize = true;
+		this.streamingBufferSize = streamingBufferSize;
+	}
+
+	/**
+	 * Indicates whether the values of each row of this entity are only extracted from the input when a consumer
+	 * reads them.
+	 *
+	 * <i>Defaults to the value of {@link EntityParserSettings#isLazyExtractionEnabled()}</i>
+	 *
+	 * @return flag indicating whether field values of this entity are extracted only when read.
+	 */
+	public final boolean isLazyExtractionEnabled() {
+		if (localLazyExtraction || (parserSettings == null && parentEntity == null)) {
+			return lazyExtractionEnabled;
+		} else if (parentEntity != null) {
+			return parentEntity.isLazyExtractionEnabled();
+		}
+		return parserSettings.isLazyExtractionEnabled();
+	}
+
+	/**
+	 * Configures the parser to only extract the values of each row of this entity from the input when a consumer
+	 * reads them. The number of reads of each field is available from {@link Result#getFieldAccessCounter()}.
+	 *
+	 * <i>Defaults to the value of {@link EntityParserSettings#isLazyExtractionEnabled()}</i>
+	 *
+	 * @param lazyExtractionEnabled flag indicating whether field values of this entity should be extracted only
+	 *                              when read.
+	 */
+	public final void setLazyExtractionEnabled(boolean lazyExtractionEnabled) {
+		localLazyExtraction = true;
+		this.lazyExtractionEnabled = lazyExtractionEnabled;
+	}
+
+	/**
+	 * Adds a condition on the value of a field of this entity. Predicates are evaluated as soon as the value of their
+	 * field is extracted, and a row is discarded as soon as any predicate rejects it: the remaining fields of the row
+	 * are not extracted and no link following occurs for it. Fields referenced by predicates are extracted before
+	 * other fields when possible.
+	 *
+	 * Predicates run before any {@link RecordFilter}, which still receive the rows accepted by all predicates.
+	 *
+	 * Once a predicate is added to this entity, the predicates of the parent entity are no longer applied to it.
+	 *
+	 * @param predicate the condition on a field value that rows of this entity must satisfy.
+	 */
+	public final void addFieldPredicate(FieldPredicate predicate) {
+		Args.notNull(predicate, "Field predicate");
+		localFieldPredicates = true;
+		fieldPredicates.add(predicate);
+	}
+
+	/**
+	 * Returns the conditions on field values that rows of this entity must satisfy, in the order they were added.
+	 *
+	 * <i>Defaults to the predicates of the parent entity, if any</i>
+	 *
+	 * @return an unmodifiable list of field predicates. Empty if no predicates were added.
+	 */
+	public final List<FieldPredicate> getFieldPredicates() {
+		return Collections.unmodifiableList(resolveFieldPredicates());
+	}
+
+	/**
+	 * Removes all conditions on field values of this entity. The predicates of the parent entity are not applied to
+	 * it afterwards.
+	 */
+	public final void clearFieldPredicates() {
+		localFieldPredicates = true;
+		fieldPredicates.clear();
+	}
+
+	private List<FieldPredicate> resolveFieldPredicates() {
+		if (localFieldPredicates || parentEntity == null) {
+			return fieldPredicates;
+		}
+		return parentEntity.resolveFieldPredicates();
+	}
+
+	/**
+	 * Tests a value extracted for a field of this entity against all predicates added for that field. Field names
+	 * are matched ignoring case and surrounding spaces.
+	 *
+	 * Implementations that process many rows should instead resolve the position of the field of each predicate once
+	 * per input and call {@link FieldPredicate#accept(String)} directly.
+	 *
+	 * @param fieldName the name of the field
+	 * @param value     the value extracted for the field
+	 *
+	 * @return {@code true} if no predicate on the given field rejects the value, otherwise {@code false}
+	 */
+	public final boolean acceptsValue(String fieldName, String value) {
+		Args.notBlank(fieldName, "Field name");
+		List<FieldPredicate> predicates = resolveFieldPredicates();
+		if (predicates.isEmpty()) {
+			return true;
+		}
+		String normalizedFieldName = fieldName.trim().toLowerCase();
+		for (int i = 0; i < predicates.size(); i++) {
+			FieldPredicate predicate = predicates.get(i);
+			if (predicate.normalizedFieldName.equals(normalizedFieldName) && !predicate.accept(value)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Returns the entity list that "owns" this entity.
 	 *
@@ -541,6 +686,7 @@ public abstract class EntitySettings<C extends Context, S extends CommonSettings
 				out.parserSettings = (G) parserSettings.clone();
 			}
 			out.processor = null;
+			out.fieldPredicates = new ArrayList<FieldPredicate>(fieldPredicates);
 
 			return out;
 		} catch (CloneNotSupportedException e) {
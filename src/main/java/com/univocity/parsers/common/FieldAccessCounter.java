@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Counts how many times each field of an entity was read by consumers of a {@link Result} produced with lazy field
+ * extraction enabled (see {@link EntitySettings#setLazyExtractionEnabled(boolean)}). Fields that are never read
+ * are never extracted, and {@link #getUnusedFields()} reveals fields that could be removed from the configuration
+ * of the entity altogether.
+ *
+ * Counters can be updated by multiple threads concurrently. Each field is counted by its own {@link LongAdder},
+ * so threads reading the same fields of different rows don't contend on a shared counter. Counts are only
+ * aggregated when they are read.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see LazyRow
+ * @see Result#getFieldAccessCounter()
+ */
+public final class FieldAccessCounter {
+
+	private final String entityName;
+	private final String[] fieldNames;
+	private final Map<String, Integer> fieldIndexes = new HashMap<String, Integer>();
+	private final LongAdder[] accessCounts;
+	private final LongAdder[] extractionCounts;
+
+	/**
+	 * Creates a new {@code FieldAccessCounter}
+	 *
+	 * @param entityName the name of the entity whose fields are counted
+	 * @param fieldNames the names of the fields of the entity, in the order of the values of each row.
+	 */
+	public FieldAccessCounter(String entityName, String[] fieldNames) {
+		Args.notNull(fieldNames, "Field names");
+		this.entityName = entityName;
+		this.fieldNames = fieldNames.clone();
+		for (int i = 0; i < fieldNames.length; i++) {
+			if (fieldNames[i] != null) {
+				String key = fieldNames[i].trim().toLowerCase();
+				if (!fieldIndexes.containsKey(key)) {
+					fieldIndexes.put(key, i);
+				}
+			}
+		}
+		this.accessCounts = newCounters(fieldNames.length);
+		this.extractionCounts = newCounters(fieldNames.length);
+	}
+
+	private static LongAdder[] newCounters(int length) {
+		LongAdder[] out = new LongAdder[length];
+		for (int i = 0; i < length; i++) {
+			out[i] = new LongAdder();
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the name of the entity whose fields are counted.
+	 *
+	 * @return the entity name
+	 */
+	public String getEntityName() {
+		return entityName;
+	}
+
+	/**
+	 * Returns the names of the fields of the entity
+	 *
+	 * @return a copy of the field names
+	 */
+	public String[] getFieldNames() {
+		return fieldNames.clone();
+	}
+
+	/**
+	 * Returns the position of a field in the rows of the entity, ignoring case and surrounding spaces.
+	 *
+	 * @param fieldName the name of the field
+	 *
+	 * @return the index of the field, or {@code -1} if the entity has no field with the given name.
+	 */
+	public int indexOf(String fieldName) {
+		if (fieldName == null) {
+			return -1;
+		}
+		Integer out = fieldIndexes.get(fieldName.trim().toLowerCase());
+		return out == null ? -1 : out;
+	}
+
+	/**
+	 * Registers a read of the value of a field.
+	 *
+	 * @param fieldIndex the position of the field in the rows of the entity
+	 */
+	public void accessed(int fieldIndex) {
+		if (fieldIndex >= 0 && fieldIndex < fieldNames.length) {
+			accessCounts[fieldIndex].increment();
+		}
+	}
+
+	/**
+	 * Registers the extraction of the value of a field from the source.
+	 *
+	 * @param fieldIndex the position of the field in the rows of the entity
+	 */
+	public void extracted(int fieldIndex) {
+		if (fieldIndex >= 0 && fieldIndex < fieldNames.length) {
+			extractionCounts[fieldIndex].increment();
+		}
+	}
+
+	/**
+	 * Returns how many times the value of a field was read.
+	 *
+	 * @param fieldName the name of the field
+	 *
+	 * @return the number of reads of the given field, or {@code 0} if the entity has no such field.
+	 */
+	public long getAccessCount(String fieldName) {
+		int index = indexOf(fieldName);
+		return index == -1 ? 0L : accessCounts[index].sum();
+	}
+
+	/**
+	 * Returns how many times the value of a field was extracted from the source, which is at most once per row.
+	 *
+	 * @param fieldName the name of the field
+	 *
+	 * @return the number of extractions of the given field, or {@code 0} if the entity has no such field.
+	 */
+	public long getExtractionCount(String fieldName) {
+		int index = indexOf(fieldName);
+		return index == -1 ? 0L : extractionCounts[index].sum();
+	}
+
+	/**
+	 * Returns the number of reads of each field.
+	 *
+	 * @return a map of field names to the number of times each was read, in the order of the fields.
+	 */
+	public Map<String, Long> getAccessCounts() {
+		Map<String, Long> out = new LinkedHashMap<String, Long>();
+		for (int i = 0; i < fieldNames.length; i++) {
+			out.put(fieldNames[i], accessCounts[i].sum());
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the fields whose values were never read.
+	 *
+	 * @return the names of the fields not read, in the order of the fields.
+	 */
+	public Set<String> getUnusedFields() {
+		Set<String> out = new LinkedHashSet<String>();
+		for (int i = 0; i < fieldNames.length; i++) {
+			if (accessCounts[i].sum() == 0) {
+				out.add(fieldNames[i]);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Discards all counts.
+	 */
+	public void reset() {
+		for (int i = 0; i < fieldNames.length; i++) {
+			accessCounts[i].reset();
+			extractionCounts[i].reset();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Field access of entity '" + entityName + "': " + getAccessCounts();
+	}
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * A condition on the value of a single field of an entity, added to an entity with
+ * {@link EntitySettings#addFieldPredicate(FieldPredicate)}. Unlike a {@link RecordFilter}, which receives a fully
+ * built record, a {@code FieldPredicate} is evaluated as soon as the value of its field is extracted: rows rejected by
+ * any predicate are discarded before their remaining fields are extracted and before any link following occurs.
+ *
+ * Predicates for the most common conditions are created with the static methods of this class. Other conditions can
+ * be implemented by extending this class.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see EntitySettings#addFieldPredicate(FieldPredicate)
+ */
+public abstract class FieldPredicate {
+
+	private final String fieldName;
+	final String normalizedFieldName;
+
+	/**
+	 * Creates a predicate on the value of a field
+	 *
+	 * @param fieldName the name of the field whose value will be tested.
+	 */
+	protected FieldPredicate(String fieldName) {
+		Args.notBlank(fieldName, "Field name");
+		this.fieldName = fieldName;
+		this.normalizedFieldName = fieldName.trim().toLowerCase();
+	}
+
+	/**
+	 * Returns the name of the field whose value is tested by this predicate.
+	 *
+	 * @return the field name
+	 */
+	public final String getFieldName() {
+		return fieldName;
+	}
+
+	/**
+	 * Tests the value extracted for the field of this predicate.
+	 *
+	 * @param value the value of the field, which may be {@code null}.
+	 *
+	 * @return {@code true} if the row can be accepted, or {@code false} if it must be discarded.
+	 */
+	public abstract boolean accept(String value);
+
+	/**
+	 * Returns a predicate that accepts the values rejected by this predicate, and vice versa.
+	 *
+	 * @return the negation of this predicate
+	 */
+	public FieldPredicate negate() {
+		final FieldPredicate predicate = this;
+		return new FieldPredicate(fieldName) {
+			@Override
+			public boolean accept(String value) {
+				return !predicate.accept(value);
+			}
+
+			@Override
+			public FieldPredicate negate() {
+				return predicate;
+			}
+
+			@Override
+			public String toString() {
+				return "not(" + predicate + ")";
+			}
+		};
+	}
+
+	/**
+	 * Creates a predicate that accepts values equal to the given value.
+	 *
+	 * @param fieldName the name of the field to test
+	 * @param value     the expected value. If {@code null}, only {@code null} values are accepted.
+	 *
+	 * @return the new predicate
+	 */
+	public static FieldPredicate equalTo(String fieldName, final String value) {
+		if (value == null) {
+			return isNull(fieldName);
+		}
+		return new FieldPredicate(fieldName) {
+			@Override
+			public boolean accept(String v) {
+				return value.equals(v);
+			}
+
+			@Override
+			public String toString() {
+				return getFieldName() + " = '" + value + "'";
+			}
+		};
+	}
+
+	/**
+	 * Creates a predicate that accepts values equal to the given value, ignoring case.
+	 *
+	 * @param fieldName the name of the field to test
+	 * @param value     the expected value.
+	 *
+	 * @return the new predicate
+	 */
+	public static FieldPredicate equalToIgnoreCase(String fieldName, final String value) {
+		Args.notNull(value, "Value");
+		return new FieldPredicate(fieldName) {
+			@Override
+			public boolean accept(String v) {
+				return value.equalsIgnoreCase(v);
+			}
+
+			@Override
+			public String toString() {
+				return getFieldName() + " = '" + value + "' (ignoring case)";
+			}
+		};
+	}
+
+	/**
+	 * Creates a predicate that accepts values equal to any of the given values.
+	 *
+	 * @param fieldName the name of the field to test
+	 * @param values    the values to accept. A {@code null} element allows {@code null} values to be accepted.
+	 *
+	 * @return the new predicate
+	 */
+	public static FieldPredicate in(String fieldName, String... values) {
+		Args.notNull(values, "Values");
+		return in(fieldName, Arrays.asList(values));
+	}
+
+	/**
+	 * Creates a predicate that accepts values equal to any of the given values.
+	 *
+	 * @param fieldName the name of the field to test
+	 * @param values    the values to accept. A {@code null} element allows {@code null} values to be accepted.
+	 *
+	 * @return the new predicate
+	 */
+	public static FieldPredicate in(String fieldName, Collection<String> values) {
+		Args.notNull(values, "Values");
+		final Set<String> set = new HashSet<String>(values);
+		return new FieldPredicate(fieldName) {
+			@Override
+			public boolean accept(String value) {
+				return set.contains(value);
+			}
+
+			@Override
+			public String toString() {
+				return getFieldName() + " in " + set;
+			}
+		};
+	}
+
+	/**
+	 * Creates a predicate that accepts non-null values matched entirely by the given regular expression.
+	 *
+	 * @param fieldName the name of the field to test
+	 * @param regex     the regular expression
+	 *
+	 * @return the new predicate
+	 */
+	public static FieldPredicate matches(String fieldName, String regex) {
+		Args.notNull(regex, "Regular expression");
+		return matches(fieldName, Pattern.compile(regex));
+	}
+
+	/**
+	 * Creates a predicate that accepts non-null values matched entirely by the given pattern.
+	 *
+	 * @param fieldName the name of the field to test
+	 * @param pattern   the compiled regular expression
+	 *
+	 * @return the new predicate
+	 */
+	public static FieldPredicate matches(String fieldName, final Pattern pattern) {
+		Args.notNull(pattern, "Pattern");
+		return new FieldPredicate(fieldName) {
+			@Override
+			public boolean accept(String value) {
+				return value != null && pattern.matcher(value).matches();
+			}
+
+			@Override
+			public String toString() {
+				return getFieldName() + " matches '" + pattern.pattern() + "'";
+			}
+		};
+	}
+
+	/**
+	 * Creates a predicate that accepts non-null values between the given bounds, inclusive, comparing them
+	 * lexicographically.
+	 *
+	 * @param fieldName the name of the field to test
+	 * @param min       the smallest value accepted, or {@code null} for no lower bound
+	 * @param max       the largest value accepted, or {@code null} for no upper bound
+	 *
+	 * @return the new predicate
+	 */
+	public static FieldPredicate between(String fieldName, final String min, final String max) {
+		return new FieldPredicate(fieldName) {
+			@Override
+			public boolean accept(String value) {
+				return value != null && (min == null || value.compareTo(min) >= 0) && (max == null || value.compareTo(max) <= 0);
+			}
+
+			@Override
+			public String toString() {
+				return getFieldName() + " between '" + min + "' and '" + max + "'";
+			}
+		};
+	}
+
+	/**
+	 * Creates a predicate that accepts numeric values between the given bounds, inclusive. Values that are
+	 * {@code null} or not numbers are rejected.
+	 *
+	 * @param fieldName the name of the field to test
+	 * @param min       the smallest value accepted, or {@link Double#NEGATIVE_INFINITY} for no lower bound
+	 * @param max       the largest value accepted, or {@link Double#POSITIVE_INFINITY} for no upper bound
+	 *
+	 * @return the new predicate
+	 */
+	public static FieldPredicate between(String fieldName, final double min, final double max) {
+		if (min > max) {
+			throw new IllegalArgumentException("Minimum value " + min + " can't be greater than maximum value " + max);
+		}
+		return new FieldPredicate(fieldName) {
+			@Override
+			public boolean accept(String value) {
+				if (value == null) {
+					return false;
+				}
+				double number;
+				try {
+					number = Double.parseDouble(value.trim());
+				} catch (NumberFormatException e) {
+					return false;
+				}
+				return number >= min && number <= max;
+			}
+
+			@Override
+			public String toString() {
+				return getFieldName() + " between " + min + " and " + max;
+			}
+		};
+	}
+
+	/**
+	 * Creates a predicate that accepts {@code null} values only.
+	 *
+	 * @param fieldName the name of the field to test
+	 *
+	 * @return the new predicate
+	 */
+	public static FieldPredicate isNull(String fieldName) {
+		return new FieldPredicate(fieldName) {
+			@Override
+			public boolean accept(String value) {
+				return value == null;
+			}
+
+			@Override
+			public String toString() {
+				return getFieldName() + " is null";
+			}
+		};
+	}
+
+	/**
+	 * Creates a predicate that rejects {@code null} values.
+	 *
+	 * @param fieldName the name of the field to test
+	 *
+	 * @return the new predicate
+	 */
+	public static FieldPredicate notNull(String fieldName) {
+		return isNull(fieldName).negate();
+	}
+}
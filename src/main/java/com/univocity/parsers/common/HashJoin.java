@@ -0,0 +1,741 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Hash join of the rows of two {@link Result}s, used to implement {@link Result#join(Result, String...)} and
+ * {@link Result#link(Result, String...)}.
+ *
+ * The rows of the smaller side are indexed in a hash table keyed by the values of the join fields (the "build" side),
+ * and the rows of the larger side are used to look up matches (the "probe" side). Multiple join fields produce a
+ * composite key. Rows with a {@code null} value in any of the join fields never match.
+ *
+ * Each output row has all values of the master row followed by the values of the matching linked row, except
+ * the join fields. If the master row matches multiple linked rows, one output row is produced for each match. Master
+ * rows without matches are kept, with {@code null} in place of the values of the linked entity. Output rows follow
+ * the order of the master rows, regardless of which side is used to build the hash table.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see Result#join(Result, String...)
+ * @see JoinStatistics
+ */
+public final class HashJoin {
+
+	private final String masterEntity;
+	private final String linkedEntity;
+	private final String[] headers;
+	private final String[] joinFields;
+	private final int[] masterKeys;
+	private final int[] linkedKeys;
+	private final int[] linkedValues;
+	private final int masterLength;
+
+	private JoinStatistics statistics;
+
+	/**
+	 * The rows produced by {@link HashJoin#join(Iterable, Iterable, int, File)}. If the join spilled rows to disk,
+	 * temporary files are held until the output is fully consumed or closed, whichever happens first. Consumers
+	 * that may stop iterating early must close the output.
+	 */
+	public interface Output extends Iterable<String[]>, Closeable {
+
+		/**
+		 * Deletes any temporary files still held by this output. Rows not consumed yet are discarded.
+		 */
+		@Override
+		void close();
+	}
+
+	/**
+	 * Prepares a join between the rows of a master entity and the rows of a linked entity.
+	 *
+	 * @param masterEntity  name of the entity whose rows will receive the values of the linked entity
+	 * @param masterHeaders headers of the master entity
+	 * @param linkedEntity  name of the entity whose rows will be joined to the master rows
+	 * @param linkedHeaders headers of the linked entity
+	 * @param fieldNames    fields common to both entities, whose values will be used to identify which rows should be
+	 *                      associated. If none provided the fields that are common to both entities will be used.
+	 */
+	public HashJoin(String masterEntity, String[] masterHeaders, String linkedEntity, String[] linkedHeaders, String... fieldNames) {
+		Args.notNull(masterHeaders, "Headers of master entity");
+		Args.notNull(linkedHeaders, "Headers of linked entity");
+		this.masterEntity = masterEntity;
+		this.linkedEntity = linkedEntity;
+
+		if (fieldNames == null || fieldNames.length == 0) {
+			List<String> common = new ArrayList<String>();
+			for (String header : masterHeaders) {
+				if (indexOf(linkedHeaders, header) != -1) {
+					common.add(header);
+				}
+			}
+			fieldNames = common.toArray(new String[0]);
+			if (fieldNames.length == 0) {
+				throw new IllegalArgumentException("No fields in common between '" + masterEntity + "' " + Arrays.toString(masterHeaders) + " and '" + linkedEntity + "' " + Arrays.toString(linkedHeaders));
+			}
+		}
+
+		this.joinFields = fieldNames.clone();
+		this.masterKeys = new int[fieldNames.length];
+		this.linkedKeys = new int[fieldNames.length];
+		for (int i = 0; i < fieldNames.length; i++) {
+			masterKeys[i] = indexOf(masterHeaders, fieldNames[i]);
+			if (masterKeys[i] == -1) {
+				throw new IllegalArgumentException("Join field '" + fieldNames[i] + "' not found in entity '" + masterEntity + "'. Available fields: " + Arrays.toString(masterHeaders));
+			}
+			linkedKeys[i] = indexOf(linkedHeaders, fieldNames[i]);
+			if (linkedKeys[i] == -1) {
+				throw new IllegalArgumentException("Join field '" + fieldNames[i] + "' not found in entity '" + linkedEntity + "'. Available fields: " + Arrays.toString(linkedHeaders));
+			}
+		}
+
+		this.masterLength = masterHeaders.length;
+		this.linkedValues = new int[linkedHeaders.length - countDistinct(linkedKeys)];
+		int v = 0;
+		for (int i = 0; i < linkedHeaders.length; i++) {
+			if (!contains(linkedKeys, i)) {
+				linkedValues[v++] = i;
+			}
+		}
+
+		headers = Arrays.copyOf(masterHeaders, masterLength + linkedValues.length);
+		for (int i = 0; i < linkedValues.length; i++) {
+			headers[masterLength + i] = linkedHeaders[linkedValues[i]];
+		}
+	}
+
+	private static int indexOf(String[] headers, String fieldName) {
+		if (fieldName == null) {
+			return -1;
+		}
+		fieldName = fieldName.trim();
+		for (int i = 0; i < headers.length; i++) {
+			if (headers[i] != null && headers[i].trim().equalsIgnoreCase(fieldName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean contains(int[] indexes, int index) {
+		for (int i : indexes) {
+			if (i == index) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int countDistinct(int[] indexes) {
+		int count = 0;
+		for (int i = 0; i < indexes.length; i++) {
+			boolean repeated = false;
+			for (int j = 0; j < i; j++) {
+				if (indexes[j] == indexes[i]) {
+					repeated = true;
+					break;
+				}
+			}
+			if (!repeated) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the headers of the rows produced by this join: all headers of the master entity followed by the
+	 * headers of the linked entity that are not join fields.
+	 *
+	 * @return the headers of the joined rows.
+	 */
+	public String[] getHeaders() {
+		return headers.clone();
+	}
+
+	/**
+	 * Returns the names of the fields used to match rows of both entities.
+	 *
+	 * @return the join fields.
+	 */
+	public String[] getJoinFields() {
+		return joinFields.clone();
+	}
+
+	/**
+	 * Returns the statistics collected during the last join or link operation performed by this {@code HashJoin}.
+	 *
+	 * @return the statistics of the last join, or {@code null} if no join has been executed.
+	 */
+	public JoinStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Joins the given rows.
+	 *
+	 * @param masterRows the rows of the master entity
+	 * @param linkedRows the rows of the linked entity
+	 *
+	 * @return the joined rows, in the order of the master rows.
+	 */
+	public List<String[]> join(List<String[]> masterRows, List<String[]> linkedRows) {
+		List<String[]> out = new ArrayList<String[]>(masterRows.size());
+		statistics = joinInMemory(masterRows, linkedRows, out);
+		return out;
+	}
+
+	private JoinStatistics joinInMemory(List<String[]> masterRows, List<String[]> linkedRows, List<String[]> out) {
+		long start = System.currentTimeMillis();
+		LinkIndex index = index(masterRows, linkedRows);
+
+		for (int m = 0; m < masterRows.size(); m++) {
+			String[] master = masterRows.get(m);
+			int count = index.getLinkedRowCount(m);
+			if (count == 0) {
+				out.add(joinRow(master, null));
+			} else {
+				for (int i = 0; i < count; i++) {
+					out.add(joinRow(master, linkedRows.get(index.getLinkedRow(m, i))));
+				}
+			}
+		}
+
+		JoinStatistics stats = index.statistics;
+		return new JoinStatistics(stats.getBuildEntity(), stats.getProbeEntity(), joinFields, stats.getBuildSize(), stats.getProbeCount(), stats.getCollisions(), stats.getMatchCount(), System.currentTimeMillis() - start, 0);
+	}
+
+	/**
+	 * Links the given rows, producing a {@link LinkIndex} which associates each master row with the indexes of the
+	 * linked rows whose join fields match. Used to implement {@link Result#link(Result, String...)}.
+	 *
+	 * @param masterRows the rows of the master entity
+	 * @param linkedRows the rows of the linked entity
+	 *
+	 * @return the index of linked rows of each master row.
+	 */
+	public LinkIndex link(List<String[]> masterRows, List<String[]> linkedRows) {
+		LinkIndex out = index(masterRows, linkedRows);
+		statistics = out.statistics;
+		return out;
+	}
+
+	private LinkIndex index(List<String[]> masterRows, List<String[]> linkedRows) {
+		long start = System.currentTimeMillis();
+
+		boolean buildMaster = masterRows.size() < linkedRows.size();
+		List<String[]> build = buildMaster ? masterRows : linkedRows;
+		List<String[]> probe = buildMaster ? linkedRows : masterRows;
+		int[] buildKeys = buildMaster ? masterKeys : linkedKeys;
+		int[] probeKeys = buildMaster ? linkedKeys : masterKeys;
+
+		Table table = new Table(build, buildKeys);
+
+		int[] offsets = new int[masterRows.size() + 1];
+		int[] linked;
+		if (buildMaster) {
+			// collects (master, linked) pairs as linked rows probe the table, then groups them by master row
+			int[] pairMaster = new int[Math.max(16, probe.size())];
+			int[] pairLinked = new int[pairMaster.length];
+			int pairCount = 0;
+
+			for (int l = 0; l < probe.size(); l++) {
+				String[] row = probe.get(l);
+				for (int m = table.first(row, probeKeys); m != -1; m = table.next(m, row, probeKeys)) {
+					if (pairCount == pairMaster.length) {
+						pairMaster = Arrays.copyOf(pairMaster, pairCount * 2);
+						pairLinked = Arrays.copyOf(pairLinked, pairCount * 2);
+					}
+					pairMaster[pairCount] = m;
+					pairLinked[pairCount] = l;
+					pairCount++;
+					offsets[m + 1]++;
+				}
+			}
+
+			for (int m = 0; m < masterRows.size(); m++) {
+				offsets[m + 1] += offsets[m];
+			}
+			linked = new int[pairCount];
+			int[] position = Arrays.copyOf(offsets, masterRows.size());
+			for (int p = 0; p < pairCount; p++) {
+				linked[position[pairMaster[p]]++] = pairLinked[p];
+			}
+		} else {
+			linked = new int[Math.max(16, probe.size())];
+			int count = 0;
+			for (int m = 0; m < probe.size(); m++) {
+				String[] row = probe.get(m);
+				for (int l = table.first(row, probeKeys); l != -1; l = table.next(l, row, probeKeys)) {
+					if (count == linked.length) {
+						linked = Arrays.copyOf(linked, count * 2);
+					}
+					linked[count++] = l;
+				}
+				offsets[m + 1] = count;
+			}
+			linked = Arrays.copyOf(linked, count);
+		}
+
+		String buildEntity = buildMaster ? masterEntity : linkedEntity;
+		String probeEntity = buildMaster ? linkedEntity : masterEntity;
+		LinkIndex out = new LinkIndex(offsets, linked);
+		out.statistics = new JoinStatistics(buildEntity, probeEntity, joinFields, build.size(), probe.size(), table.collisions, linked.length, System.currentTimeMillis() - start, 0);
+		return out;
+	}
+
+	/**
+	 * Joins the given rows, spilling them to disk if they don't fit in memory.
+	 *
+	 * If the combined number of master and linked rows does not exceed the given {@code memoryLimit}, the join is
+	 * performed in memory and its output follows the order of the master rows. Otherwise both sides are partitioned
+	 * by the hash of their join keys into temporary files under the given {@code spillDirectory}, and the partitions
+	 * are joined one at a time as the returned {@link Iterable} is consumed. Partitions that still exceed the memory
+	 * limit are partitioned again. Output rows of a spilled join are grouped by partition and don't follow the order
+	 * of the master rows. Temporary files are deleted once the output is fully consumed or closed, and are also
+	 * deleted when the JVM exits if neither happens.
+	 *
+	 * The {@link #getStatistics()} of a spilled join are available only after the output is fully consumed.
+	 *
+	 * @param masterRows     the rows of the master entity
+	 * @param linkedRows     the rows of the linked entity
+	 * @param memoryLimit    the maximum number of rows to hold in memory. Values {@code <= 0} disable spilling.
+	 * @param spillDirectory the directory where temporary files will be created. If {@code null} the system's
+	 *                       temporary directory will be used.
+	 *
+	 * @return the joined rows. The output can be iterated only once if rows were spilled to disk.
+	 */
+	public Output join(Iterable<String[]> masterRows, Iterable<String[]> linkedRows, int memoryLimit, File spillDirectory) {
+		List<String[]> master = new ArrayList<String[]>();
+		List<String[]> linked = new ArrayList<String[]>();
+		Iterator<String[]> masterIterator = masterRows.iterator();
+		Iterator<String[]> linkedIterator = linkedRows.iterator();
+
+		while (masterIterator.hasNext() && (memoryLimit <= 0 || master.size() < memoryLimit)) {
+			master.add(masterIterator.next());
+		}
+		while (linkedIterator.hasNext() && (memoryLimit <= 0 || master.size() + linked.size() < memoryLimit)) {
+			linked.add(linkedIterator.next());
+		}
+
+		if (!masterIterator.hasNext() && !linkedIterator.hasNext()) {
+			final List<String[]> out = join(master, linked);
+			return new Output() {
+				@Override
+				public Iterator<String[]> iterator() {
+					return out.iterator();
+				}
+
+				@Override
+				public void close() {
+				}
+			};
+		}
+
+		statistics = null;
+		final SpilledJoin spilledJoin = new SpilledJoin(memoryLimit, spillDirectory);
+		boolean partitioned = false;
+		try {
+			spilledJoin.partition(master.iterator(), masterIterator, linked.iterator(), linkedIterator);
+			partitioned = true;
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to spill rows of join between '" + masterEntity + "' and '" + linkedEntity + "' to " + spilledJoin.directory, e);
+		} finally {
+			if (!partitioned) {
+				spilledJoin.close();
+			}
+		}
+		return new Output() {
+			@Override
+			public Iterator<String[]> iterator() {
+				return spilledJoin;
+			}
+
+			@Override
+			public void close() {
+				spilledJoin.close();
+			}
+		};
+	}
+
+	private String[] joinRow(String[] master, String[] linked) {
+		String[] out = new String[headers.length];
+		System.arraycopy(master, 0, out, 0, Math.min(master.length, masterLength));
+		if (linked != null) {
+			for (int i = 0; i < linkedValues.length; i++) {
+				int index = linkedValues[i];
+				if (index < linked.length) {
+					out[masterLength + i] = linked[index];
+				}
+			}
+		}
+		return out;
+	}
+
+	private static int hash(String[] row, int[] keys) {
+		int hash = 1;
+		for (int key : keys) {
+			if (key >= row.length || row[key] == null) {
+				return 0;
+			}
+			hash = 31 * hash + row[key].hashCode();
+		}
+		hash ^= (hash >>> 16);
+		return hash == 0 ? 1 : hash;
+	}
+
+	private static int partitionOf(int hash, int level, int partitionCount) {
+		int mixed = Integer.rotateLeft(hash * 0x9E3779B9, level * 7 + 5);
+		return (mixed >>> 1) % partitionCount;
+	}
+
+	/**
+	 * Grace hash join over rows partitioned into temporary files. Iterates over the output of each partition in turn.
+	 */
+	private final class SpilledJoin implements Iterator<String[]>, Closeable {
+		private static final int PARTITIONS = 32;
+		private static final int MAX_LEVEL = 3;
+
+		private final int memoryLimit;
+		private final File directory;
+		private final LinkedList<Partition> pending = new LinkedList<Partition>();
+		private int fileCount;
+
+		private Iterator<String[]> current = Collections.<String[]>emptyList().iterator();
+		private boolean closed;
+
+		private int buildSize;
+		private int probeCount;
+		private long collisions;
+		private long matches;
+		private int partitionCount;
+		private int masterBuilds;
+		private long elapsedTime;
+
+		SpilledJoin(int memoryLimit, File spillDirectory) {
+			this.memoryLimit = memoryLimit;
+			File parent = spillDirectory == null ? new File(System.getProperty("java.io.tmpdir")) : spillDirectory;
+			this.directory = new File(parent, "join_" + UUID.randomUUID().toString());
+		}
+
+		void partition(Iterator<String[]> bufferedMaster, Iterator<String[]> master, Iterator<String[]> bufferedLinked, Iterator<String[]> linked) throws IOException {
+			long start = System.currentTimeMillis();
+			if (!directory.mkdirs() && !directory.isDirectory()) {
+				throw new IOException("Unable to create directory " + directory);
+			}
+			RowFile.deleteOnExit(directory);
+			Partition[] partitions = newPartitions(0);
+			try {
+				for (Iterator<String[]> it : Arrays.asList(bufferedMaster, master)) {
+					while (it.hasNext()) {
+						String[] row = it.next();
+						partitions[partitionOf(hash(row, masterKeys), 0, PARTITIONS)].writeMaster(row);
+					}
+				}
+				for (Iterator<String[]> it : Arrays.asList(bufferedLinked, linked)) {
+					while (it.hasNext()) {
+						String[] row = it.next();
+						int hash = hash(row, linkedKeys);
+						if (hash != 0) {
+							partitions[partitionOf(hash, 0, PARTITIONS)].writeLinked(row);
+						}
+					}
+				}
+			} finally {
+				closeAll(partitions);
+			}
+			pending.addAll(Arrays.asList(partitions));
+			elapsedTime += System.currentTimeMillis() - start;
+		}
+
+		private Partition[] newPartitions(int level) throws IOException {
+			Partition[] out = new Partition[PARTITIONS];
+			for (int i = 0; i < out.length; i++) {
+				out[i] = new Partition(level);
+			}
+			return out;
+		}
+
+		private void closeAll(Partition[] partitions) throws IOException {
+			IOException error = null;
+			for (Partition partition : partitions) {
+				try {
+					partition.closeOutput();
+				} catch (IOException e) {
+					error = e;
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!current.hasNext()) {
+				if (pending.isEmpty()) {
+					close();
+					return false;
+				}
+				try {
+					current = joinNext().iterator();
+				} catch (IOException e) {
+					close();
+					throw new IllegalStateException("Unable to read spilled rows of join between '" + masterEntity + "' and '" + linkedEntity + "' from " + directory, e);
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public String[] next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return current.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException("Can't remove rows from the output of a join");
+		}
+
+		private List<String[]> joinNext() throws IOException {
+			long start = System.currentTimeMillis();
+			Partition partition = pending.removeFirst();
+			try {
+				if (partition.masterCount == 0) {
+					return Collections.emptyList();
+				}
+				if (partition.masterCount + partition.linkedCount > memoryLimit && partition.linkedCount > 0 && partition.level < MAX_LEVEL) {
+					repartition(partition);
+					return Collections.emptyList();
+				}
+
+				List<String[]> master = partition.readMaster();
+				List<String[]> linked = partition.readLinked();
+				List<String[]> out = new ArrayList<String[]>(master.size());
+				JoinStatistics stats = joinInMemory(master, linked, out);
+
+				buildSize += stats.getBuildSize();
+				probeCount += stats.getProbeCount();
+				collisions += stats.getCollisions();
+				matches += stats.getMatchCount();
+				partitionCount++;
+				if (masterEntity == null ? stats.getBuildEntity() == null : masterEntity.equals(stats.getBuildEntity())) {
+					masterBuilds++;
+				}
+				return out;
+			} finally {
+				partition.delete();
+				elapsedTime += System.currentTimeMillis() - start;
+			}
+		}
+
+		private void repartition(Partition partition) throws IOException {
+			int level = partition.level + 1;
+			Partition[] partitions = newPartitions(level);
+			DataInputStream in = null;
+			try {
+				in = RowFile.openInput(partition.masterFile);
+				String[] row;
+				while ((row = RowFile.readRow(in)) != null) {
+					partitions[partitionOf(hash(row, masterKeys), level, PARTITIONS)].writeMaster(row);
+				}
+				in.close();
+
+				in = RowFile.openInput(partition.linkedFile);
+				while ((row = RowFile.readRow(in)) != null) {
+					partitions[partitionOf(hash(row, linkedKeys), level, PARTITIONS)].writeLinked(row);
+				}
+			} finally {
+				if (in != null) {
+					in.close();
+				}
+				closeAll(partitions);
+			}
+			pending.addAll(0, Arrays.asList(partitions));
+		}
+
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			current = Collections.<String[]>emptyList().iterator();
+			for (Partition partition : pending) {
+				try {
+					partition.closeOutput();
+				} catch (IOException e) {
+					//ignore and proceed with the deletion of temporary files.
+				}
+			}
+			pending.clear();
+			RowFile.delete(directory);
+			RowFile.cancelDeleteOnExit(directory);
+
+			boolean buildMaster = masterBuilds * 2 > partitionCount;
+			String buildEntity = buildMaster ? masterEntity : linkedEntity;
+			String probeEntity = buildMaster ? linkedEntity : masterEntity;
+			statistics = new JoinStatistics(buildEntity, probeEntity, joinFields, buildSize, probeCount, collisions, matches, elapsedTime, partitionCount);
+		}
+
+		private final class Partition {
+			final int level;
+			final File masterFile;
+			final File linkedFile;
+			DataOutputStream masterOutput;
+			DataOutputStream linkedOutput;
+			int masterCount;
+			int linkedCount;
+
+			Partition(int level) {
+				this.level = level;
+				this.masterFile = new File(directory, "m" + fileCount + ".bin");
+				this.linkedFile = new File(directory, "l" + fileCount + ".bin");
+				fileCount++;
+			}
+
+			void writeMaster(String[] row) throws IOException {
+				if (masterOutput == null) {
+					masterOutput = RowFile.openOutput(masterFile);
+				}
+				RowFile.writeRow(masterOutput, row);
+				masterCount++;
+			}
+
+			void writeLinked(String[] row) throws IOException {
+				if (linkedOutput == null) {
+					linkedOutput = RowFile.openOutput(linkedFile);
+				}
+				RowFile.writeRow(linkedOutput, row);
+				linkedCount++;
+			}
+
+			void closeOutput() throws IOException {
+				try {
+					if (masterOutput != null) {
+						masterOutput.close();
+					}
+				} finally {
+					masterOutput = null;
+					if (linkedOutput != null) {
+						linkedOutput.close();
+					}
+					linkedOutput = null;
+				}
+			}
+
+			List<String[]> readMaster() throws IOException {
+				return read(masterFile, masterCount);
+			}
+
+			List<String[]> readLinked() throws IOException {
+				return read(linkedFile, linkedCount);
+			}
+
+			private List<String[]> read(File file, int count) throws IOException {
+				List<String[]> out = new ArrayList<String[]>(count);
+				if (count == 0) {
+					return out;
+				}
+				DataInputStream in = RowFile.openInput(file);
+				try {
+					String[] row;
+					while ((row = RowFile.readRow(in)) != null) {
+						out.add(row);
+					}
+				} finally {
+					in.close();
+				}
+				return out;
+			}
+
+			void delete() {
+				masterFile.delete();
+				linkedFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Chained hash table over row indexes, stored in plain {@code int} arrays.
+	 */
+	private static final class Table {
+		private final List<String[]> rows;
+		private final int[] keys;
+		private final int[] buckets;
+		private final int[] next;
+		private final int[] hashes;
+		private final int mask;
+
+		long collisions;
+
+		Table(List<String[]> rows, int[] keys) {
+			this.rows = rows;
+			this.keys = keys;
+
+			int capacity = Integer.highestOneBit(Math.max(rows.size(), 8) * 2 - 1) << 1;
+			this.buckets = new int[capacity];
+			this.mask = capacity - 1;
+			Arrays.fill(buckets, -1);
+			this.next = new int[rows.size()];
+			this.hashes = new int[rows.size()];
+
+			// inserts in reverse so that each chain lists rows in their original order
+			for (int i = rows.size() - 1; i >= 0; i--) {
+				int hash = hash(rows.get(i), keys);
+				hashes[i] = hash;
+				if (hash == 0) {
+					next[i] = -1;
+					continue;
+				}
+				int bucket = hash & mask;
+				next[i] = buckets[bucket];
+				buckets[bucket] = i;
+			}
+		}
+
+		int first(String[] row, int[] rowKeys) {
+			int hash = hash(row, rowKeys);
+			if (hash == 0) {
+				return -1;
+			}
+			return find(buckets[hash & mask], hash, row, rowKeys);
+		}
+
+		int next(int previous, String[] row, int[] rowKeys) {
+			return find(next[previous], hashes[previous], row, rowKeys);
+		}
+
+		private int find(int entry, int hash, String[] row, int[] rowKeys) {
+			while (entry != -1) {
+				if (hashes[entry] == hash && matches(rows.get(entry), row, rowKeys)) {
+					return entry;
+				}
+				collisions++;
+				entry = next[entry];
+			}
+			return -1;
+		}
+
+		private boolean matches(String[] entry, String[] row, int[] rowKeys) {
+			for (int i = 0; i < keys.length; i++) {
+				if (!entry[keys[i]].equals(row[rowKeys[i]])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A {@link ParserMetrics} that accumulates counters and {@link LatencyHistogram}s in memory, for inspection
+ * while or after parsing. Entity names are matched ignoring case and surrounding spaces, in the same way as
+ * {@link Results#get(Object)}.
+ *
+ * Histograms of times hold nanoseconds.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see EntityParserSettings#setMetrics(ParserMetrics)
+ */
+public class InMemoryMetrics implements ParserMetrics {
+
+	private final int significantDigits;
+
+	private final ConcurrentMap<String, AtomicLong> rows = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicLong bytesDownloaded = new AtomicLong();
+	private final ConcurrentMap<String, LatencyHistogram> parseTimes = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, LatencyHistogram> joinTimes = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, LatencyHistogram> linkJoinTimes = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final LatencyHistogram downloadTimes;
+	private final LatencyHistogram downloadSizes;
+	private final ConcurrentMap<String, LatencyHistogram> pages = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, LatencyHistogram> fanOut = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, LatencyHistogram> rateLimiterWaits = new ConcurrentHashMap<String, LatencyHistogram>();
+	private final ConcurrentMap<String, LatencyHistogram> queueDepths = new ConcurrentHashMap<String, LatencyHistogram>();
+
+	/**
+	 * Creates a new {@code InMemoryMetrics} whose histograms report values with 2 significant decimal digits.
+	 */
+	public InMemoryMetrics() {
+		this(2);
+	}
+
+	/**
+	 * Creates a new {@code InMemoryMetrics}
+	 *
+	 * @param significantDigits the number of significant decimal digits of the values reported by each histogram,
+	 *                          from {@code 1} to {@code 4}.
+	 */
+	public InMemoryMetrics(int significantDigits) {
+		this.significantDigits = significantDigits;
+		this.downloadTimes = new LatencyHistogram(significantDigits);
+		this.downloadSizes = new LatencyHistogram(significantDigits);
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return true;
+	}
+
+	@Override
+	public void rowsParsed(String entityName, long rowCount) {
+		String key = normalize(entityName);
+		AtomicLong counter = rows.get(key);
+		if (counter == null) {
+			counter = new AtomicLong();
+			AtomicLong previous = rows.putIfAbsent(key, counter);
+			if (previous != null) {
+				counter = previous;
+			}
+		}
+		counter.addAndGet(rowCount);
+	}
+
+	@Override
+	public void parseTime(String entityName, long time) {
+		histogram(parseTimes, entityName).record(time);
+	}
+
+	@Override
+	public void joinTime(String masterEntity, String linkedEntity, long time) {
+		histogram(joinTimes, masterEntity).record(time);
+		histogram(linkJoinTimes, linkKey(masterEntity, linkedEntity)).record(time);
+	}
+
+	private static String linkKey(String masterEntity, String linkedEntity) {
+		return normalize(masterEntity) + " -> " + normalize(linkedEntity);
+	}
+
+	@Override
+	public void downloaded(String url, long byteCount, long time) {
+		bytesDownloaded.addAndGet(byteCount);
+		downloadSizes.record(byteCount);
+		downloadTimes.record(time);
+	}
+
+	@Override
+	public void pagesVisited(String entityName, int pageCount) {
+		histogram(pages, entityName).record(pageCount);
+	}
+
+	@Override
+	public void followersTriggered(String entityName, String followerEntity, int requestCount) {
+		histogram(fanOut, followerEntity).record(requestCount);
+	}
+
+	@Override
+	public void rateLimiterWait(String host, long time) {
+		histogram(rateLimiterWaits, host).record(time);
+	}
+
+	@Override
+	public void queueDepth(String queueName, int depth) {
+		histogram(queueDepths, queueName).record(depth);
+	}
+
+	private LatencyHistogram histogram(ConcurrentMap<String, LatencyHistogram> histograms, String name) {
+		String key = normalize(name);
+		LatencyHistogram out = histograms.get(key);
+		if (out == null) {
+			out = new LatencyHistogram(significantDigits);
+			LatencyHistogram previous = histograms.putIfAbsent(key, out);
+			if (previous != null) {
+				out = previous;
+			}
+		}
+		return out;
+	}
+
+	private static String normalize(String name) {
+		return name == null ? "" : name.trim().toLowerCase();
+	}
+
+	private static LatencyHistogram get(Map<String, LatencyHistogram> histograms, String name) {
+		return histograms.get(normalize(name));
+	}
+
+	/**
+	 * Returns the number of rows parsed for an entity.
+	 *
+	 * @param entityName the name of the entity
+	 *
+	 * @return the number of rows parsed for the given entity.
+	 */
+	public long getRowCount(String entityName) {
+		AtomicLong out = rows.get(normalize(entityName));
+		return out == null ? 0L : out.get();
+	}
+
+	/**
+	 * Returns the total number of bytes downloaded.
+	 *
+	 * @return the number of bytes downloaded from all URLs.
+	 */
+	public long getBytesDownloaded() {
+		return bytesDownloaded.get();
+	}
+
+	/**
+	 * Returns the times taken to extract the records of an entity from each input.
+	 *
+	 * @param entityName the name of the entity
+	 *
+	 * @return the histogram of parse times of the given entity, or {@code null} if none were recorded.
+	 */
+	public LatencyHistogram getParseTimes(String entityName) {
+		return get(parseTimes, entityName);
+	}
+
+	/**
+	 * Returns the times taken to join or link any other entity to the results of an entity.
+	 *
+	 * @param masterEntity the name of the entity that received the joined or linked rows.
+	 *
+	 * @return the histogram of join times of the given entity, or {@code null} if none were recorded.
+	 */
+	public LatencyHistogram getJoinTimes(String masterEntity) {
+		return get(joinTimes, masterEntity);
+	}
+
+	/**
+	 * Returns the times taken to join or link the rows of a given entity to the results of another.
+	 *
+	 * @param masterEntity the name of the entity that received the joined or linked rows.
+	 * @param linkedEntity the name of the entity whose rows were joined or linked.
+	 *
+	 * @return the histogram of join times of the given link, or {@code null} if none were recorded.
+	 */
+	public LatencyHistogram getJoinTimes(String masterEntity, String linkedEntity) {
+		return linkJoinTimes.get(linkKey(masterEntity, linkedEntity));
+	}
+
+	/**
+	 * Returns the times taken by each download.
+	 *
+	 * @return the histogram of download times.
+	 */
+	public LatencyHistogram getDownloadTimes() {
+		return downloadTimes;
+	}
+
+	/**
+	 * Returns the number of bytes of each download.
+	 *
+	 * @return the histogram of download sizes.
+	 */
+	public LatencyHistogram getDownloadSizes() {
+		return downloadSizes;
+	}
+
+	/**
+	 * Returns the number of pages visited in each pagination of an entity.
+	 *
+	 * @param entityName the name of the paginated entity
+	 *
+	 * @return the histogram of pages per pagination, or {@code null} if the entity was not paginated.
+	 */
+	public LatencyHistogram getPagesVisited(String entityName) {
+		return get(pages, entityName);
+	}
+
+	/**
+	 * Returns the number of requests made by a follower for each record of its parent entity.
+	 *
+	 * @param followerEntity the name of the follower entity
+	 *
+	 * @return the histogram of the fan-out of the given follower, or {@code null} if none was recorded.
+	 */
+	public LatencyHistogram getFollowerFanOut(String followerEntity) {
+		return get(fanOut, followerEntity);
+	}
+
+	/**
+	 * Returns the times threads waited for permission to send requests to a host.
+	 *
+	 * @param host the host accessed
+	 *
+	 * @return the histogram of waits for the given host, or {@code null} if none was recorded.
+	 */
+	public LatencyHistogram getRateLimiterWaits(String host) {
+		return get(rateLimiterWaits, host);
+	}
+
+	/**
+	 * Returns the depths observed in a queue of incomplete results.
+	 *
+	 * @param queueName the name of the queue
+	 *
+	 * @return the histogram of queue depths, or {@code null} if none was recorded.
+	 */
+	public LatencyHistogram getQueueDepths(String queueName) {
+		return get(queueDepths, queueName);
+	}
+
+	/**
+	 * Discards all measurements collected so far.
+	 */
+	public void reset() {
+		rows.clear();
+		bytesDownloaded.set(0);
+		parseTimes.clear();
+		joinTimes.clear();
+		linkJoinTimes.clear();
+		downloadTimes.reset();
+		downloadSizes.reset();
+		pages.clear();
+		fanOut.clear();
+		rateLimiterWaits.clear();
+		queueDepths.clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder out = new StringBuilder();
+		for (Map.Entry<String, AtomicLong> e : new TreeMap<String, AtomicLong>(rows).entrySet()) {
+			out.append("rows[").append(e.getKey()).append("]: ").append(e.getValue().get()).append('\n');
+		}
+		out.append("bytes downloaded: ").append(bytesDownloaded.get()).append('\n');
+		out.append("download time: ").append(downloadTimes).append('\n');
+		out.append("download size: ").append(downloadSizes).append('\n');
+		append(out, "parse time", parseTimes);
+		append(out, "join time", joinTimes);
+		append(out, "join time", linkJoinTimes);
+		append(out, "pages visited", pages);
+		append(out, "follower fan-out", fanOut);
+		append(out, "rate limiter wait", rateLimiterWaits);
+		append(out, "queue depth", queueDepths);
+		return out.toString();
+	}
+
+	private static void append(StringBuilder out, String description, Map<String, LatencyHistogram> histograms) {
+		for (Map.Entry<String, LatencyHistogram> e : new TreeMap<String, LatencyHistogram>(histograms).entrySet()) {
+			out.append(description).append('[').append(e.getKey()).append("]: ").append(e.getValue()).append('\n');
+		}
+	}
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+
+/**
+ * Keeps the content fingerprint of every page parsed, along with the rows produced for each entity of the page, so
+ * that pages whose content didn't change since a previous parsing process don't need to be parsed again.
+ *
+ * Pages are identified by a key that doesn't change between parsing processes (usually the URL of the page), and
+ * their content by a SHA-256 fingerprint. When the fingerprint of a page matches the one recorded previously,
+ * {@link #getUnchangedRows(String, String)} returns the rows parsed from that page before. Otherwise the page must
+ * be parsed and its rows recorded with {@link #record(String, String, Map)}.
+ *
+ * Rows are stored in a compact binary format, in one file per page key and fingerprint. Rows are never shared
+ * between pages with identical content but different keys, as the rows of a page may depend on its URL (e.g.
+ * values of the request or links resolved against it). The fingerprint of each page is appended to a log as soon as
+ * its rows are recorded, so the index survives processes that stop without closing it. Records written after the
+ * last complete one (e.g. if the process was killed while writing) and temporary files of rows being written are
+ * discarded when the index is opened. {@link #close()} compacts the log and deletes the rows no longer referenced by
+ * any page. If the configuration of the entities changes, the index directory should be
+ * deleted as the rows it holds were produced with the old configuration.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+public final class IncrementalParsingIndex implements Closeable {
+
+	private static final String INDEX_FILE = "fingerprints.log";
+	private static final String ROWS_EXTENSION = ".rows";
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File directory;
+	private final Map<String, String> fingerprints = new HashMap<String, String>();
+	private int skippedPages;
+	private int parsedPages;
+	private int logRecords;
+	private DataOutputStream log;
+
+	/**
+	 * Opens an {@code IncrementalParsingIndex} in the given directory, loading the fingerprints recorded by
+	 * previous parsing processes.
+	 *
+	 * @param directory the directory of the index. Will be created if it doesn't exist.
+	 */
+	public IncrementalParsingIndex(File directory) {
+		Args.notNull(directory, "Index directory");
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalStateException("Unable to create incremental parsing index directory " + directory.getAbsolutePath());
+		}
+		this.directory = directory;
+		deleteTemporaryFiles();
+
+		File file = new File(directory, INDEX_FILE);
+		try {
+			loadLog(file);
+			log = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to load incremental parsing index from " + file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Deletes the files left behind by a process that stopped while writing rows or compacting the log.
+	 */
+	private void deleteTemporaryFiles() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.getName().endsWith(TEMPORARY_EXTENSION)) {
+					file.delete();
+				}
+			}
+		}
+	}
+
+	private void loadLog(File file) throws IOException {
+		if (!file.isFile()) {
+			return;
+		}
+		long validLength = 0L;
+		DataInputStream in = RowFile.openInput(file);
+		try {
+			while (validLength < file.length()) {
+				String[] record = RowFile.readRow(in);
+				if (record == null || record.length != 2 || record[0] == null || record[1] == null) {
+					break;
+				}
+				fingerprints.put(record[0], record[1]);
+				logRecords++;
+				validLength += 4 + 4 + record[0].getBytes(UTF_8).length + 4 + record[1].getBytes(UTF_8).length;
+			}
+		} catch (EOFException e) {
+			//incomplete record at the end of the log, discarded below.
+		} finally {
+			in.close();
+		}
+		if (validLength < file.length()) {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(validLength);
+			} finally {
+				raf.close();
+			}
+		}
+	}
+
+	/**
+	 * Returns the directory of this index.
+	 *
+	 * @return the index directory.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Computes the fingerprint of the content of a page.
+	 *
+	 * @param page the file with the content of the page
+	 *
+	 * @return the fingerprint of the page content.
+	 */
+	public static String fingerprint(File page) {
+		Args.notNull(page, "Page file");
+		try {
+			InputStream in = new FileInputStream(page);
+			try {
+				return fingerprint(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to compute fingerprint of " + page.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Computes the fingerprint of the content of a page.
+	 *
+	 * @param page the content of the page. Will be fully consumed, but not closed.
+	 *
+	 * @return the fingerprint of the page content.
+	 *
+	 * @throws IOException if an error occurs reading the given content
+	 */
+	public static String fingerprint(InputStream page) throws IOException {
+		MessageDigest digest = newDigest();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = page.read(buffer)) != -1) {
+			digest.update(buffer, 0, read);
+		}
+		return toHex(digest.digest());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Unable to compute page fingerprint", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder out = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			out.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Returns the rows parsed previously from a page, if its content didn't change. Each call that returns rows
+	 * counts the page as skipped.
+	 *
+	 * @param pageKey     the key that identifies the page across parsing processes, usually its URL.
+	 * @param fingerprint the fingerprint of the current content of the page, obtained with
+	 *                    {@link #fingerprint(File)}.
+	 *
+	 * @return the rows of each entity parsed previously from the page, or {@code null} if the page must be parsed.
+	 */
+	public synchronized Map<String, List<String[]>> getUnchangedRows(String pageKey, String fingerprint) {
+		Args.notNull(pageKey, "Page key");
+		Args.notNull(fingerprint, "Page fingerprint");
+		if (!fingerprint.equals(fingerprints.get(pageKey))) {
+			return null;
+		}
+		File file = getRowsFile(pageKey, fingerprint);
+		if (!file.isFile()) {
+			return null;
+		}
+		Map<String, List<String[]>> out = new LinkedHashMap<String, List<String[]>>();
+		try {
+			DataInputStream in = RowFile.openInput(file);
+			try {
+				int entityCount = in.readInt();
+				for (int i = 0; i < entityCount; i++) {
+					String entityName = in.readUTF();
+					int rowCount = in.readInt();
+					List<String[]> rows = new ArrayList<String[]>(rowCount);
+					for (int j = 0; j < rowCount; j++) {
+						rows.add(RowFile.readRow(in));
+					}
+					out.put(entityName, rows);
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		skippedPages++;
+		return out;
+	}
+
+	/**
+	 * Records the rows parsed from a page, to be reused by subsequent parsing processes if the page content doesn't
+	 * change. The rows and the fingerprint of the page are written to disk before this method returns.
+	 *
+	 * @param pageKey       the key that identifies the page across parsing processes, usually its URL.
+	 * @param fingerprint   the fingerprint of the content of the page, obtained with {@link #fingerprint(File)}.
+	 * @param rowsPerEntity the rows parsed for each entity of the page.
+	 */
+	public synchronized void record(String pageKey, String fingerprint, Map<String, List<String[]>> rowsPerEntity) {
+		Args.notNull(pageKey, "Page key");
+		Args.notNull(fingerprint, "Page fingerprint");
+		Args.notNull(rowsPerEntity, "Rows of page");
+		if (log == null) {
+			throw new IllegalStateException("Incremental parsing index in " + directory.getAbsolutePath() + " has been closed");
+		}
+		parsedPages++;
+
+		File file = getRowsFile(pageKey, fingerprint);
+		if (!file.isFile()) {
+			File tmp = new File(file.getParentFile(), file.getName() + TEMPORARY_EXTENSION);
+			try {
+				DataOutputStream out = RowFile.openOutput(tmp);
+				try {
+					out.writeInt(rowsPerEntity.size());
+					for (Map.Entry<String, List<String[]>> e : rowsPerEntity.entrySet()) {
+						out.writeUTF(e.getKey());
+						out.writeInt(e.getValue().size());
+						for (String[] row : e.getValue()) {
+							RowFile.writeRow(out, row);
+						}
+					}
+				} finally {
+					out.close();
+				}
+			} catch (IOException e) {
+				tmp.delete();
+				throw new IllegalStateException("Unable to store rows of page " + pageKey, e);
+			}
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+				throw new IllegalStateException("Unable to store rows of page " + pageKey + " in " + file.getAbsolutePath());
+			}
+		}
+		if (!fingerprint.equals(fingerprints.get(pageKey))) {
+			try {
+				RowFile.writeRow(log, new String[]{pageKey, fingerprint});
+				log.flush();
+			} catch (IOException e) {
+				throw new IllegalStateException("Unable to record fingerprint of page " + pageKey + " in " + directory.getAbsolutePath(), e);
+			}
+			fingerprints.put(pageKey, fingerprint);
+			logRecords++;
+		}
+	}
+
+	/**
+	 * Returns the number of pages whose previously parsed rows have been reused.
+	 *
+	 * @return the number of pages that didn't need to be parsed.
+	 */
+	public synchronized int getSkippedPageCount() {
+		return skippedPages;
+	}
+
+	/**
+	 * Returns the number of pages parsed and recorded in this index.
+	 *
+	 * @return the number of pages that had to be parsed.
+	 */
+	public synchronized int getParsedPageCount() {
+		return parsedPages;
+	}
+
+	/**
+	 * Closes the log of this index, rewriting it with the latest fingerprint of each page if pages were recorded
+	 * more than once, and deletes the rows of pages no longer referenced. Pages can't be recorded after the index is
+	 * closed.
+	 */
+	@Override
+	public synchronized void close() {
+		if (log == null) {
+			return;
+		}
+		File file = new File(directory, INDEX_FILE);
+		try {
+			log.close();
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to write incremental parsing index to " + file.getAbsolutePath(), e);
+		} finally {
+			log = null;
+		}
+		if (logRecords == fingerprints.size()) {
+			return;
+		}
+
+		File tmp = new File(directory, INDEX_FILE + TEMPORARY_EXTENSION);
+		try {
+			DataOutputStream out = RowFile.openOutput(tmp);
+			try {
+				for (Map.Entry<String, String> e : fingerprints.entrySet()) {
+					RowFile.writeRow(out, new String[]{e.getKey(), e.getValue()});
+				}
+			} finally {
+				out.close();
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			tmp.delete();
+			throw new IllegalStateException("Unable to compact incremental parsing index in " + file.getAbsolutePath(), e);
+		}
+		logRecords = fingerprints.size();
+
+		Set<String> referenced = new HashSet<String>(fingerprints.size());
+		for (Map.Entry<String, String> e : fingerprints.entrySet()) {
+			referenced.add(getRowsFile(e.getKey(), e.getValue()).getName());
+		}
+		File[] rowFiles = directory.listFiles();
+		if (rowFiles != null) {
+			for (File rowFile : rowFiles) {
+				String name = rowFile.getName();
+				if (name.endsWith(ROWS_EXTENSION) && !referenced.contains(name)) {
+					rowFile.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the file with the rows of a page, named after the hash of the page key and the fingerprint of its
+	 * content so that keys of any length produce valid file names.
+	 */
+	private File getRowsFile(String pageKey, String fingerprint) {
+		MessageDigest digest = newDigest();
+		digest.update(pageKey.getBytes(UTF_8));
+		digest.update((byte) 0);
+		digest.update(fingerprint.getBytes(UTF_8));
+		return new File(directory, toHex(digest.digest()) + ROWS_EXTENSION);
+	}
+}
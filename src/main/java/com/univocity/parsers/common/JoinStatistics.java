@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import java.util.*;
+
+/**
+ * Statistics collected while joining the rows of two {@link Result}s with {@link Result#join(Result, String...)}.
+ * Useful to identify why a given join is slow: a large build side requires more memory, and a high number of
+ * collisions indicates many distinct join keys ended up sharing the same hash bucket.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see HashJoin
+ * @see Result#getJoinStatistics()
+ */
+public final class JoinStatistics {
+
+	private final String buildEntity;
+	private final String probeEntity;
+	private final String[] joinFields;
+	private final int buildSize;
+	private final int probeCount;
+	private final long collisions;
+	private final long matchCount;
+	private final long elapsedTime;
+	private final int spilledPartitions;
+
+	JoinStatistics(String buildEntity, String probeEntity, String[] joinFields, int buildSize, int probeCount, long collisions, long matchCount, long elapsedTime, int spilledPartitions) {
+		this.buildEntity = buildEntity;
+		this.probeEntity = probeEntity;
+		this.joinFields = joinFields;
+		this.buildSize = buildSize;
+		this.probeCount = probeCount;
+		this.collisions = collisions;
+		this.matchCount = matchCount;
+		this.elapsedTime = elapsedTime;
+		this.spilledPartitions = spilledPartitions;
+	}
+
+	/**
+	 * Returns the name of the entity whose rows were indexed in the hash table (i.e. the smaller side of the join).
+	 *
+	 * @return the entity name of the build side.
+	 */
+	public String getBuildEntity() {
+		return buildEntity;
+	}
+
+	/**
+	 * Returns the name of the entity whose rows were used to look up matches in the hash table.
+	 *
+	 * @return the entity name of the probe side.
+	 */
+	public String getProbeEntity() {
+		return probeEntity;
+	}
+
+	/**
+	 * Returns the names of the fields whose values form the key used to match rows.
+	 *
+	 * @return the join fields.
+	 */
+	public String[] getJoinFields() {
+		return joinFields.clone();
+	}
+
+	/**
+	 * Returns the number of rows indexed in the hash table.
+	 *
+	 * @return the number of rows of the build side.
+	 */
+	public int getBuildSize() {
+		return buildSize;
+	}
+
+	/**
+	 * Returns the number of rows used to look up matches in the hash table.
+	 *
+	 * @return the number of rows of the probe side.
+	 */
+	public int getProbeCount() {
+		return probeCount;
+	}
+
+	/**
+	 * Returns the number of times a lookup visited a row of the build side whose key was different from the key
+	 * being searched, due to both keys sharing the same hash bucket.
+	 *
+	 * @return the number of hash collisions found while probing.
+	 */
+	public long getCollisions() {
+		return collisions;
+	}
+
+	/**
+	 * Returns the number of pairs of rows whose keys matched.
+	 *
+	 * @return the number of matches found.
+	 */
+	public long getMatchCount() {
+		return matchCount;
+	}
+
+	/**
+	 * Returns the time taken to build the hash table and probe it.
+	 *
+	 * @return the time elapsed, in milliseconds.
+	 */
+	public long getElapsedTime() {
+		return elapsedTime;
+	}
+
+	/**
+	 * Returns the number of partitions joined after spilling the rows of both sides to disk, which happens when
+	 * the rows to join exceed {@link EntityParserSettings#getJoinMemoryLimit()}.
+	 *
+	 * @return the number of partitions spilled to disk, or {@code 0} if the join was performed in memory.
+	 */
+	public int getSpilledPartitions() {
+		return spilledPartitions;
+	}
+
+	@Override
+	public String toString() {
+		return "Join on " + Arrays.toString(joinFields) +
+				": build entity = '" + buildEntity + "'" +
+				", probe entity = '" + probeEntity + "'" +
+				", build size = " + buildSize +
+				", probe count = " + probeCount +
+				", collisions = " + collisions +
+				", matches = " + matchCount +
+				", spilled partitions = " + spilledPartitions +
+				", elapsed time = " + elapsedTime + " ms";
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * A histogram of non-negative {@code long} values with a fixed relative precision, recorded in constant time and
+ * memory, in the same fashion as HdrHistogram. Values are counted in buckets whose width doubles at each power of
+ * two, and each bucket is split into equally sized sub-buckets, so any value is reported with a relative error no
+ * larger than the configured precision, regardless of its magnitude.
+ *
+ * Recording is lock-free and instances can be updated by multiple threads concurrently. Statistics read while
+ * values are recorded may not reflect the most recent values.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see InMemoryMetrics
+ */
+public final class LatencyHistogram {
+
+	private final int subBucketBits;
+	private final int subBucketHalfCount;
+	private final long subBucketMask;
+	private final AtomicLongArray counts;
+
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	/**
+	 * Creates a histogram that reports values with 2 significant decimal digits.
+	 */
+	public LatencyHistogram() {
+		this(2);
+	}
+
+	/**
+	 * Creates a histogram
+	 *
+	 * @param significantDigits the number of significant decimal digits of the values reported, from {@code 1} to
+	 *                          {@code 4}. Each additional digit increases the memory used by the histogram
+	 *                          approximately tenfold.
+	 */
+	public LatencyHistogram(int significantDigits) {
+		if (significantDigits < 1 || significantDigits > 4) {
+			throw new IllegalArgumentException("Number of significant digits must be between 1 and 4. Got " + significantDigits);
+		}
+		long largestSingleUnit = 2;
+		for (int i = 0; i < significantDigits; i++) {
+			largestSingleUnit *= 10;
+		}
+		int bits = 64 - Long.numberOfLeadingZeros(largestSingleUnit - 1);
+		this.subBucketBits = bits;
+		this.subBucketHalfCount = 1 << (bits - 1);
+		this.subBucketMask = (1L << bits) - 1;
+		int bucketCount = 64 - bits;
+		this.counts = new AtomicLongArray((bucketCount + 1) * subBucketHalfCount);
+	}
+
+	/**
+	 * Records a value
+	 *
+	 * @param value the value to record. Must not be negative.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Value to record must not be negative. Got " + value);
+		}
+		counts.incrementAndGet(indexOf(value));
+		totalCount.incrementAndGet();
+		sum.addAndGet(value);
+
+		long current = min.get();
+		while (value < current && !min.compareAndSet(current, value)) {
+			current = min.get();
+		}
+		current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	private int indexOf(long value) {
+		int bucket = 63 - Long.numberOfLeadingZeros(value | subBucketMask) - subBucketBits + 1;
+		int subBucket = (int) (value >>> bucket);
+		return bucket * subBucketHalfCount + subBucket;
+	}
+
+	private long highestEquivalentValue(int index) {
+		int bucket = index < (subBucketHalfCount << 1) ? 0 : (index / subBucketHalfCount) - 1;
+		long subBucket = index - (long) bucket * subBucketHalfCount;
+		return ((subBucket + 1) << bucket) - 1;
+	}
+
+	/**
+	 * Returns the number of values recorded.
+	 *
+	 * @return the count of values
+	 */
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	/**
+	 * Returns the sum of all values recorded.
+	 *
+	 * @return the total of all values
+	 */
+	public long getSum() {
+		return sum.get();
+	}
+
+	/**
+	 * Returns the smallest value recorded.
+	 *
+	 * @return the minimum value, or {@code 0} if no values were recorded.
+	 */
+	public long getMin() {
+		long out = min.get();
+		return out == Long.MAX_VALUE ? 0 : out;
+	}
+
+	/**
+	 * Returns the largest value recorded.
+	 *
+	 * @return the maximum value, or {@code 0} if no values were recorded.
+	 */
+	public long getMax() {
+		long out = max.get();
+		return out == Long.MIN_VALUE ? 0 : out;
+	}
+
+	/**
+	 * Returns the average of all values recorded.
+	 *
+	 * @return the mean value, or {@code 0} if no values were recorded.
+	 */
+	public double getMean() {
+		long count = totalCount.get();
+		return count == 0 ? 0.0 : (double) sum.get() / count;
+	}
+
+	/**
+	 * Returns the value below which a given percentage of the recorded values fall, e.g. the median for
+	 * {@code 50.0}, within the precision of this histogram.
+	 *
+	 * @param percentile the percentile to compute, from {@code 0.0} to {@code 100.0}
+	 *
+	 * @return the value at the given percentile, or {@code 0} if no values were recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (percentile < 0.0 || percentile > 100.0) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100. Got " + percentile);
+		}
+		long count = totalCount.get();
+		if (count == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile * count / 100.0));
+		long accumulated = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			accumulated += counts.get(i);
+			if (accumulated >= target) {
+				return Math.min(highestEquivalentValue(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Discards all values recorded.
+	 */
+	public void reset() {
+		for (int i = 0; i < counts.length(); i++) {
+			counts.set(i, 0);
+		}
+		totalCount.set(0);
+		sum.set(0);
+		min.set(Long.MAX_VALUE);
+		max.set(Long.MIN_VALUE);
+	}
+
+	@Override
+	public String toString() {
+		return "count=" + getCount() + ", min=" + getMin() + ", mean=" + String.format("%.1f", getMean()) + ", p50=" + getValueAtPercentile(50.0) + ", p90=" + getValueAtPercentile(90.0) + ", p99=" + getValueAtPercentile(99.0) + ", max=" + getMax();
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.util.*;
+
+/**
+ * A list of the elements linked to a parent row, resolved from a {@link LinkIndex} only when accessed. Used to
+ * populate the linked attributes of beans when {@link EntityParserSettings#isLazyLinkedBeansEnabled()} evaluates
+ * to {@code true}, so that the elements of parents that are never navigated into are never created.
+ *
+ * The size of the list is known without resolving any element. Each element is produced by a
+ * {@link LinkedElementLoader} the first time it is read, and kept afterwards. Modifying the list resolves all
+ * remaining elements into a regular {@link ArrayList}, which then backs the list.
+ *
+ * Instances are not thread-safe.
+ *
+ * @param <E> the type of elements in the list
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see LinkedContainers#lazy(LinkIndex, BeanMapper.LinkedAttribute, LinkedElementLoader)
+ */
+public final class LazyLinkedList<E> extends AbstractList<E> implements RandomAccess {
+
+	private static final Object NOT_LOADED = new Object();
+
+	private final LinkIndex index;
+	private final int parentRow;
+	private final LinkedElementLoader<? extends E> loader;
+	private Object[] elements;
+	private ArrayList<E> materialized;
+
+	/**
+	 * Creates a list of the elements linked to a parent row
+	 *
+	 * @param index     the index of rows linked to each parent row
+	 * @param parentRow the index of the parent row
+	 * @param loader    the loader that produces the element of each linked row on first access.
+	 */
+	public LazyLinkedList(LinkIndex index, int parentRow, LinkedElementLoader<? extends E> loader) {
+		Args.notNull(index, "Link index");
+		Args.notNull(loader, "Linked element loader");
+		if (parentRow < 0 || parentRow >= index.getParentRowCount()) {
+			throw new IndexOutOfBoundsException("Parent row " + parentRow + " out of bounds. Index has " + index.getParentRowCount() + " parent rows");
+		}
+		this.index = index;
+		this.parentRow = parentRow;
+		this.loader = loader;
+	}
+
+	/**
+	 * Indicates whether any element of this list has been resolved.
+	 *
+	 * @return {@code true} if the list has been accessed, otherwise {@code false}
+	 */
+	public boolean isResolved() {
+		return elements != null || materialized != null;
+	}
+
+	@Override
+	public int size() {
+		return materialized != null ? materialized.size() : index.getLinkedRowCount(parentRow);
+	}
+
+	@Override
+	public E get(int position) {
+		if (materialized != null) {
+			return materialized.get(position);
+		}
+		if (elements == null) {
+			int size = index.getLinkedRowCount(parentRow);
+			if (position < 0 || position >= size) {
+				throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size);
+			}
+			elements = new Object[size];
+			Arrays.fill(elements, NOT_LOADED);
+		}
+		Object out = elements[position];
+		if (out == NOT_LOADED) {
+			out = loader.load(index.getLinkedRow(parentRow, position));
+			elements[position] = out;
+		}
+		return (E) out;
+	}
+
+	private ArrayList<E> materialize() {
+		if (materialized == null) {
+			int size = size();
+			ArrayList<E> out = new ArrayList<E>(size);
+			for (int i = 0; i < size; i++) {
+				out.add(get(i));
+			}
+			materialized = out;
+			elements = null;
+		}
+		return materialized;
+	}
+
+	@Override
+	public E set(int position, E element) {
+		return materialize().set(position, element);
+	}
+
+	@Override
+	public void add(int position, E element) {
+		materialize().add(position, element);
+		modCount++;
+	}
+
+	@Override
+	public E remove(int position) {
+		E out = materialize().remove(position);
+		modCount++;
+		return out;
+	}
+
+	@Override
+	public void clear() {
+		materialized = new ArrayList<E>();
+		elements = null;
+		modCount++;
+	}
+}
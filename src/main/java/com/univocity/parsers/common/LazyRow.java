@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+/**
+ * A row whose values are extracted from the source only when first read, used by {@link EntityParserInterface}
+ * implementations when {@link EntitySettings#isLazyExtractionEnabled()} evaluates to {@code true}. Implementations
+ * hold a reference into the source (e.g. the position of the row in a parsed document) and extract the value of
+ * a single field in {@link #extract(int)}.
+ *
+ * Extracted values are kept, so each field is extracted at most once. Every read and extraction is registered in
+ * the {@link FieldAccessCounter} of the row, if any.
+ *
+ * Instances are not thread-safe.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see FieldAccessCounter
+ */
+public abstract class LazyRow {
+
+	private static final String NOT_EXTRACTED = new String("");
+
+	private final String[] values;
+	private final FieldAccessCounter counter;
+
+	/**
+	 * Creates a row with no value extracted yet.
+	 *
+	 * @param fieldCount the number of fields of the row
+	 * @param counter    the counter of reads and extractions of each field, shared by all rows of an entity.
+	 *                   Can be {@code null}.
+	 */
+	protected LazyRow(int fieldCount, FieldAccessCounter counter) {
+		Args.positiveOrZero(fieldCount, "Field count");
+		this.values = new String[fieldCount];
+		for (int i = 0; i < fieldCount; i++) {
+			values[i] = NOT_EXTRACTED;
+		}
+		this.counter = counter;
+	}
+
+	/**
+	 * Extracts the value of a field from the source. Invoked at most once for each field.
+	 *
+	 * @param fieldIndex the position of the field
+	 *
+	 * @return the value of the field.
+	 */
+	protected abstract String extract(int fieldIndex);
+
+	/**
+	 * Returns the number of fields of this row.
+	 *
+	 * @return the field count
+	 */
+	public final int getFieldCount() {
+		return values.length;
+	}
+
+	/**
+	 * Returns the value of a field, extracting it from the source if it has not been read before.
+	 *
+	 * @param fieldIndex the position of the field
+	 *
+	 * @return the value of the field.
+	 */
+	public final String getValue(int fieldIndex) {
+		if (counter != null) {
+			counter.accessed(fieldIndex);
+		}
+		return getExtractedValue(fieldIndex);
+	}
+
+	/**
+	 * Returns the value of a field, extracting it from the source if it has not been read before.
+	 *
+	 * @param fieldName the name of the field, as known by the {@link FieldAccessCounter} of this row.
+	 *
+	 * @return the value of the field.
+	 */
+	public final String getValue(String fieldName) {
+		if (counter == null) {
+			throw new IllegalStateException("Can't read values by field name from a row without field names");
+		}
+		int index = counter.indexOf(fieldName);
+		if (index == -1) {
+			throw new IllegalArgumentException("Field '" + fieldName + "' not found in entity '" + counter.getEntityName() + "'");
+		}
+		return getValue(index);
+	}
+
+	/**
+	 * Tests whether the value of a field has been extracted from the source.
+	 *
+	 * @param fieldIndex the position of the field
+	 *
+	 * @return {@code true} if the value has been extracted, otherwise {@code false}
+	 */
+	public final boolean isExtracted(int fieldIndex) {
+		return values[fieldIndex] != NOT_EXTRACTED;
+	}
+
+	/**
+	 * Extracts all values of this row that have not been extracted yet. Values extracted this way are not counted as
+	 * reads, as the caller requested the entire row rather than specific fields.
+	 *
+	 * @return a copy of all values of the row.
+	 */
+	public final String[] toArray() {
+		String[] out = new String[values.length];
+		for (int i = 0; i < values.length; i++) {
+			out[i] = getExtractedValue(i);
+		}
+		return out;
+	}
+
+	private String getExtractedValue(int fieldIndex) {
+		String value = values[fieldIndex];
+		if (value == NOT_EXTRACTED) {
+			value = extract(fieldIndex);
+			values[fieldIndex] = value;
+			if (counter != null) {
+				counter.extracted(fieldIndex);
+			}
+		}
+		return value;
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+/**
+ * An index of the rows of a linked entity associated with each row of a parent {@link Result}, built once by
+ * {@link Result#link(Result, String...)}.
+ *
+ * The index is stored in two {@code int} arrays: the indexes of all linked rows, grouped by parent row, and the
+ * offset where the group of each parent row starts. Looking up the linked rows of a parent row takes constant time
+ * and allocates no objects, which allows {@link Result#getLinkedEntityData(int)} to return lightweight views over
+ * the linked {@link Result} instead of copying its rows.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see Result#link(Result, String...)
+ * @see Result#getLinkIndex(String)
+ * @see HashJoin#link(java.util.List, java.util.List)
+ */
+public final class LinkIndex {
+
+	private final int[] offsets;
+	private final int[] linkedRows;
+
+	JoinStatistics statistics;
+
+	/**
+	 * Creates a new {@code LinkIndex}.
+	 *
+	 * @param offsets    the position in {@code linkedRows} where the linked rows of each parent row start. Must have
+	 *                   one element more than the number of parent rows, with the last element holding the total
+	 *                   number of linked rows.
+	 * @param linkedRows the indexes of the linked rows, grouped by parent row.
+	 */
+	public LinkIndex(int[] offsets, int[] linkedRows) {
+		Args.notNull(offsets, "Offsets of linked rows");
+		Args.notNull(linkedRows, "Linked rows");
+		if (offsets.length == 0 || offsets[offsets.length - 1] != linkedRows.length) {
+			throw new IllegalArgumentException("Last offset must match the number of linked rows (" + linkedRows.length + ")");
+		}
+		this.offsets = offsets;
+		this.linkedRows = linkedRows;
+	}
+
+	/**
+	 * Returns the number of parent rows covered by this index
+	 *
+	 * @return the number of parent rows.
+	 */
+	public int getParentRowCount() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Returns the total number of links between parent rows and linked rows.
+	 *
+	 * @return the number of links in this index.
+	 */
+	public int getLinkCount() {
+		return linkedRows.length;
+	}
+
+	/**
+	 * Returns the number of rows linked to a given parent row.
+	 *
+	 * @param parentRow the index of the parent row
+	 *
+	 * @return the number of rows linked to the parent row.
+	 */
+	public int getLinkedRowCount(int parentRow) {
+		return offsets[parentRow + 1] - offsets[parentRow];
+	}
+
+	/**
+	 * Tests whether a given parent row has any linked rows.
+	 *
+	 * @param parentRow the index of the parent row
+	 *
+	 * @return {@code true} if at least one row is linked to the parent row, otherwise {@code false}
+	 */
+	public boolean hasLinkedRows(int parentRow) {
+		return offsets[parentRow + 1] != offsets[parentRow];
+	}
+
+	/**
+	 * Returns the index of a row linked to a given parent row, in the linked {@link Result}.
+	 *
+	 * @param parentRow the index of the parent row
+	 * @param position  the position of the linked row among all rows linked to the parent row, from {@code 0} to
+	 *                  {@code getLinkedRowCount(parentRow) - 1}
+	 *
+	 * @return the index of the linked row.
+	 */
+	public int getLinkedRow(int parentRow, int position) {
+		int start = offsets[parentRow];
+		if (position < 0 || start + position >= offsets[parentRow + 1]) {
+			throw new IndexOutOfBoundsException("Position " + position + " out of bounds. Parent row " + parentRow + " has " + getLinkedRowCount(parentRow) + " linked rows");
+		}
+		return linkedRows[start + position];
+	}
+
+	/**
+	 * Copies the indexes of all rows linked to a given parent row into an array.
+	 *
+	 * @param parentRow the index of the parent row
+	 * @param target    the array to receive the indexes of the linked rows. Must be able to hold at least
+	 *                  {@code getLinkedRowCount(parentRow)} elements.
+	 * @param offset    the position in {@code target} where the first index will be copied to.
+	 *
+	 * @return the number of indexes copied.
+	 */
+	public int copyLinkedRows(int parentRow, int[] target, int offset) {
+		int start = offsets[parentRow];
+		int count = offsets[parentRow + 1] - start;
+		System.arraycopy(linkedRows, start, target, offset, count);
+		return count;
+	}
+
+	int[] getOffsets() {
+		return offsets;
+	}
+
+	int[] getLinkedRows() {
+		return linkedRows;
+	}
+}
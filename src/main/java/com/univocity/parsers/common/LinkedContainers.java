@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.lang.reflect.*;
+import java.math.*;
+import java.util.*;
+
+/**
+ * Builds the values of the {@link com.univocity.parsers.annotations.Linked} attributes of every parent bean at once,
+ * from the {@link LinkIndex} produced by {@link Result#link(Result, String...)}, instead of looking up
+ * {@link Result#getLinkedEntityData(int)} and growing a container for each parent row.
+ *
+ * The containers, element types and key types are the ones resolved by the {@link BeanMapper} of the parent beans
+ * for each {@link BeanMapper.LinkedAttribute}. Each container is created with the exact number of elements linked to
+ * its parent row, and all containers are filled in a single pass over the index, so populating the attributes of all
+ * parent beans takes time proportional to the number of linked rows. Attributes annotated with
+ * {@link com.univocity.parsers.annotations.Group} receive maps of the declared type, where the elements of each key
+ * are first counted so that the container of each group is also created with its exact size. When the declared type
+ * of the map is not concrete, keys of integral types ({@link Integer}, {@link Long}, {@link Short} and {@link Byte})
+ * are stored as primitive values.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see LinkIndex
+ * @see BeanMapper
+ */
+public final class LinkedContainers {
+
+	private LinkedContainers() {
+	}
+
+	/**
+	 * Creates, for each parent row of a {@link LinkIndex}, the value of a linked attribute with the elements linked to
+	 * that row: a container or an array of the type resolved for the attribute, or the only element linked to the
+	 * row if the attribute holds a single value.
+	 *
+	 * @param index     the index of elements linked to each parent row
+	 * @param elements  the elements of the linked entity, e.g. the beans created from its rows, in the order of the
+	 *                  rows of the linked entity.
+	 * @param attribute the linked attribute that will receive the values, not annotated with
+	 *                  {@link com.univocity.parsers.annotations.Group}.
+	 *
+	 * @return a list with one value per parent row, in the order of the parent rows. Parent rows without linked
+	 * elements receive an empty container or array, or {@code null} if the attribute holds a single value.
+	 */
+	public static List<Object> collect(LinkIndex index, List<?> elements, BeanMapper.LinkedAttribute attribute) {
+		Args.notNull(index, "Link index");
+		Args.notNull(elements, "Linked elements");
+		Args.notNull(attribute, "Linked attribute");
+		if (attribute.isGrouped()) {
+			throw new IllegalArgumentException("Elements of " + attribute + " must be grouped by key");
+		}
+
+		int[] offsets = index.getOffsets();
+		int[] linkedRows = index.getLinkedRows();
+		int parentCount = index.getParentRowCount();
+		Class<?> attributeType = attribute.getAttributeType();
+
+		List<Object> out = new ArrayList<Object>(parentCount);
+		for (int parent = 0; parent < parentCount; parent++) {
+			int start = offsets[parent];
+			int end = offsets[parent + 1];
+			if (attributeType.isArray()) {
+				Object array = Array.newInstance(attributeType.getComponentType(), end - start);
+				for (int i = start; i < end; i++) {
+					Array.set(array, i - start, attribute.checkElement(elements.get(linkedRows[i])));
+				}
+				out.add(array);
+			} else if (attribute.getContainerType() != null) {
+				Collection<Object> container = attribute.newContainer(end - start);
+				for (int i = start; i < end; i++) {
+					container.add(attribute.checkElement(elements.get(linkedRows[i])));
+				}
+				out.add(container);
+			} else if (end - start > 1) {
+				throw new IllegalArgumentException("Can't assign " + (end - start) + " elements linked to parent row " + parent + " to " + attribute);
+			} else {
+				out.add(start == end ? null : attribute.checkElement(elements.get(linkedRows[start])));
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Creates, for each parent row of a {@link LinkIndex}, the map of a linked attribute annotated with
+	 * {@link com.univocity.parsers.annotations.Group}, with the elements linked to that row grouped by key. Maps are
+	 * created with the type resolved for the attribute. The elements of each key are stored in a container of the type
+	 * resolved for the values of the map, or directly as the value of the key if the map holds a single value per key.
+	 *
+	 * @param index     the index of elements linked to each parent row
+	 * @param elements  the elements of the linked entity, in the order of the rows of the linked entity.
+	 * @param keys      the group key of each element, usually the value of a field of each row of the linked
+	 *                  entity, in the same order as {@code elements}.
+	 * @param attribute the linked attribute that will receive the maps. Keys are converted from {@code String} to its
+	 *                  {@link BeanMapper.LinkedAttribute#getKeyType()}, which can be {@link String},
+	 *                  {@link Integer}, {@link Long}, {@link Short}, {@link Byte}, {@link Double}, {@link Float},
+	 *                  {@link BigDecimal}, {@link BigInteger}, {@link Boolean} or an enumeration. Keys of all types
+	 *                  that are {@code null} or contain only whitespace are kept as a {@code null} key. Other
+	 *                  {@code String} keys are kept as given, and keys of other types are trimmed before conversion.
+	 *
+	 * @return a list with one map per parent row, in the order of the parent rows. Parent rows without linked
+	 * elements receive a new empty map of the same type as the other rows.
+	 */
+	public static List<Map<Object, Object>> group(LinkIndex index, List<?> elements, String[] keys, BeanMapper.LinkedAttribute attribute) {
+		Args.notNull(index, "Link index");
+		Args.notNull(elements, "Linked elements");
+		Args.notNull(keys, "Group keys");
+		Args.notNull(attribute, "Linked attribute");
+		if (!attribute.isGrouped()) {
+			throw new IllegalArgumentException("Elements of " + attribute + " can't be grouped by key");
+		}
+		if (keys.length < elements.size()) {
+			throw new IllegalArgumentException("Expected one group key per linked element. Got " + keys.length + " keys for " + elements.size() + " elements");
+		}
+
+		int[] offsets = index.getOffsets();
+		int[] linkedRows = index.getLinkedRows();
+		int parentCount = index.getParentRowCount();
+		Class<?> keyType = attribute.getKeyType();
+		boolean primitiveKeys = LongKeyMap.supports(keyType);
+		boolean primitiveMap = primitiveKeys && attribute.hasDefaultMapType();
+
+		Object[] convertedKeys = primitiveKeys ? null : new Object[keys.length];
+		long[] longKeys = primitiveKeys ? new long[keys.length] : null;
+		boolean[] nullKeys = new boolean[keys.length];
+		boolean[] converted = new boolean[keys.length];
+
+		List<Map<Object, Object>> out = new ArrayList<Map<Object, Object>>(parentCount);
+		for (int parent = 0; parent < parentCount; parent++) {
+			int start = offsets[parent];
+			int end = offsets[parent + 1];
+			if (start == end) {
+				out.add(primitiveMap ? new LongKeyMap<Object>(keyType, 0) : attribute.newMap(0));
+				continue;
+			}
+
+			// counts the elements of each key first, so that each group is created with its exact size
+			LongKeyMap<GroupSize> longSizes = primitiveKeys ? new LongKeyMap<GroupSize>(keyType, end - start) : null;
+			Map<Object, GroupSize> sizes = primitiveKeys ? null : new HashMap<Object, GroupSize>((end - start) * 4 / 3 + 1);
+			for (int i = start; i < end; i++) {
+				int row = linkedRows[i];
+				if (!converted[row]) {
+					if (primitiveKeys) {
+						String key = keys[row] == null ? null : keys[row].trim();
+						nullKeys[row] = key == null || key.isEmpty();
+						if (!nullKeys[row]) {
+							longKeys[row] = parseLong(key, keyType);
+						}
+					} else {
+						convertedKeys[row] = convertKey(keys[row], keyType);
+					}
+					converted[row] = true;
+				}
+				GroupSize size;
+				if (primitiveKeys) {
+					size = nullKeys[row] ? longSizes.get(null) : longSizes.get(longKeys[row]);
+				} else {
+					size = sizes.get(convertedKeys[row]);
+				}
+				if (size == null) {
+					size = new GroupSize();
+					if (!primitiveKeys) {
+						sizes.put(convertedKeys[row], size);
+					} else if (nullKeys[row]) {
+						longSizes.put(null, size);
+					} else {
+						longSizes.put(longKeys[row], size);
+					}
+				}
+				size.count++;
+			}
+
+			int groupCount = primitiveKeys ? longSizes.size() : sizes.size();
+			LongKeyMap<Object> longMap = primitiveMap ? new LongKeyMap<Object>(keyType, groupCount) : null;
+			Map<Object, Object> map = primitiveMap ? longMap : attribute.newMap(groupCount);
+			for (int i = start; i < end; i++) {
+				int row = linkedRows[i];
+				GroupSize size;
+				if (primitiveKeys) {
+					size = nullKeys[row] ? longSizes.get(null) : longSizes.get(longKeys[row]);
+				} else {
+					size = sizes.get(convertedKeys[row]);
+				}
+				Object element = attribute.checkElement(elements.get(row));
+				Object value;
+				if (attribute.getContainerType() == null) {
+					if (size.count > 1) {
+						Object key = primitiveKeys ? (nullKeys[row] ? null : LongKeyMap.box(longKeys[row], keyType)) : convertedKeys[row];
+						throw new IllegalArgumentException("Can't assign " + size.count + " elements with key '" + key + "' linked to parent row " + parent + " to " + attribute);
+					}
+					value = element;
+				} else if (size.group == null) {
+					size.group = attribute.newContainer(size.count);
+					size.group.add(element);
+					value = size.group;
+				} else {
+					size.group.add(element);
+					continue;
+				}
+				if (!primitiveKeys) {
+					map.put(convertedKeys[row], value);
+				} else if (nullKeys[row]) {
+					map.put(null, value);
+				} else if (primitiveMap) {
+					longMap.put(longKeys[row], value);
+				} else {
+					map.put(LongKeyMap.box(longKeys[row], keyType), value);
+				}
+			}
+			out.add(map);
+		}
+		return out;
+	}
+
+	private static final class GroupSize {
+		int count;
+		Collection<Object> group;
+	}
+
+	private static long parseLong(String key, Class<?> keyType) {
+		try {
+			if (keyType == Integer.class || keyType == int.class) {
+				return Integer.parseInt(key);
+			} else if (keyType == Short.class || keyType == short.class) {
+				return Short.parseShort(key);
+			} else if (keyType == Byte.class || keyType == byte.class) {
+				return Byte.parseByte(key);
+			}
+			return Long.parseLong(key);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Unable to convert group key '" + key + "' to " + keyType.getSimpleName(), e);
+		}
+	}
+
+	/**
+	 * Creates, for each parent row of a {@link LinkIndex}, a {@link LazyLinkedList} whose elements are only produced
+	 * when read. Creating the lists takes time proportional to the number of parent rows, regardless of the number of
+	 * linked rows. Each element is checked against the element type of the attribute when it is loaded.
+	 *
+	 * @param index     the index of elements linked to each parent row
+	 * @param attribute the linked attribute that will receive the lists. It must not be annotated with
+	 *                  {@link com.univocity.parsers.annotations.Group}, and its declared type must accept a
+	 *                  {@link List}, e.g. {@code List} or {@code Collection}.
+	 * @param loader    the loader that produces the element of each linked row on first access.
+	 * @param <E>       the type of elements
+	 *
+	 * @return a list with one lazy list per parent row, in the order of the parent rows.
+	 *
+	 * @throws IllegalArgumentException if the attribute is grouped, or declared as a {@link Set}, an array, a concrete
+	 *                                  collection or a single value, none of which can hold a {@link LazyLinkedList}.
+	 */
+	public static <E> List<List<E>> lazy(LinkIndex index, final BeanMapper.LinkedAttribute attribute, final LinkedElementLoader<? extends E> loader) {
+		Args.notNull(index, "Link index");
+		Args.notNull(attribute, "Linked attribute");
+		Args.notNull(loader, "Linked element loader");
+		if (attribute.isGrouped()) {
+			throw new IllegalArgumentException("Elements of " + attribute + " must be grouped by key and can't be loaded lazily");
+		}
+		if (!attribute.getAttributeType().isAssignableFrom(LazyLinkedList.class)) {
+			throw new IllegalArgumentException("Elements of " + attribute + " can't be loaded lazily into a list. Attribute type " + attribute.getAttributeType().getName() + " must be a supertype of java.util.List");
+		}
+		LinkedElementLoader<E> checkedLoader = new LinkedElementLoader<E>() {
+			@Override
+			public E load(int linkedRow) {
+				return (E) attribute.checkElement(loader.load(linkedRow));
+			}
+		};
+		int parentCount = index.getParentRowCount();
+		List<List<E>> out = new ArrayList<List<E>>(parentCount);
+		for (int parent = 0; parent < parentCount; parent++) {
+			out.add(new LazyLinkedList<E>(index, parent, checkedLoader));
+		}
+		return out;
+	}
+
+	/**
+	 * Assigns the values of a linked attribute built by {@link #collect(LinkIndex, List, BeanMapper.LinkedAttribute)} or
+	 * {@link #group(LinkIndex, List, String[], BeanMapper.LinkedAttribute)} to an attribute of each parent bean.
+	 *
+	 * @param parents       the parent beans, in the order of the parent rows of the index used to build the containers.
+	 * @param mapper        the mapper of the parent beans
+	 * @param attributeName the name of the attribute that receives the container of each parent
+	 * @param containers    the containers built for each parent row, including lists created with
+	 *                      {@link #lazy(LinkIndex, BeanMapper.LinkedAttribute, LinkedElementLoader)}.
+	 * @param <P>           the type of parent beans
+	 */
+	public static <P> void assign(List<P> parents, BeanMapper<P> mapper, String attributeName, List<?> containers) {
+		Args.notNull(parents, "Parent beans");
+		Args.notNull(mapper, "Bean mapper");
+		Args.notNull(containers, "Containers");
+		int attribute = mapper.indexOfAttribute(attributeName);
+		if (attribute == -1) {
+			throw new IllegalArgumentException("Attribute '" + attributeName + "' not found in " + mapper.getBeanType().getName());
+		}
+		if (parents.size() != containers.size()) {
+			throw new IllegalArgumentException("Expected one container per parent bean. Got " + containers.size() + " containers for " + parents.size() + " beans");
+		}
+		for (int i = 0; i < parents.size(); i++) {
+			mapper.set(parents.get(i), attribute, containers.get(i));
+		}
+	}
+
+	private static Object convertKey(String key, Class<?> keyType) {
+		if (key == null) {
+			return null;
+		}
+		String trimmed = key.trim();
+		if (trimmed.isEmpty()) {
+			return null;
+		}
+		if (keyType == String.class || keyType == Object.class) {
+			return key;
+		}
+		key = trimmed;
+		try {
+			if (keyType == Double.class || keyType == double.class) {
+				return Double.valueOf(key);
+			} else if (keyType == Float.class || keyType == float.class) {
+				return Float.valueOf(key);
+			} else if (keyType == BigDecimal.class) {
+				return new BigDecimal(key);
+			} else if (keyType == BigInteger.class) {
+				return new BigInteger(key);
+			} else if (keyType == Boolean.class || keyType == boolean.class) {
+				return BeanMapper.toBoolean(key);
+			} else if (keyType.isEnum()) {
+				return Enum.valueOf((Class<Enum>) keyType, key);
+			}
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Unable to convert group key '" + key + "' to " + keyType.getSimpleName(), e);
+		}
+		throw new IllegalArgumentException("Unsupported group key type " + keyType.getName());
+	}
+}
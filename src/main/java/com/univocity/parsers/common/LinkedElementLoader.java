@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+/**
+ * Produces the element associated with a row of a linked entity, such as a bean mapped from the row, when a
+ * {@link LazyLinkedList} is first accessed.
+ *
+ * @param <E> the type of element produced
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see LazyLinkedList
+ * @see LinkedContainers#lazy(LinkIndex, BeanMapper.LinkedAttribute, LinkedElementLoader)
+ */
+public interface LinkedElementLoader<E> {
+
+	/**
+	 * Produces the element of a row of the linked entity.
+	 *
+	 * @param linkedRow the index of the row in the linked entity, as stored in the {@link LinkIndex}.
+	 *
+	 * @return the element of the given row.
+	 */
+	E load(int linkedRow);
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import java.util.*;
+
+/**
+ * A {@link Map} whose keys are integral numbers, stored as primitive {@code long} values in an open-addressing hash
+ * table, so that no key objects are kept in memory. Keys are boxed into the declared wrapper type (e.g.
+ * {@link Integer}) only when the map is iterated over. As with any other {@link Map}, keys are only found when given
+ * as instances of that wrapper type, e.g. {@code get(1L)} returns {@code null} if the keys are {@link Integer}s. Used
+ * by {@link LinkedContainers} to group linked rows by numeric keys.
+ *
+ * @param <V> the type of the values in the map.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+final class LongKeyMap<V> extends AbstractMap<Object, V> {
+
+	private final Class<?> keyType;
+	private final Class<?> boxedKeyType;
+	private long[] keys;
+	private Object[] values;
+	private boolean[] used;
+	private int size;
+
+	private boolean hasNullKey;
+	private V nullValue;
+
+	LongKeyMap(Class<?> keyType, int expectedSize) {
+		this.keyType = keyType;
+		this.boxedKeyType = box(0L, keyType).getClass();
+		int capacity = 8;
+		while (capacity * 3 < expectedSize * 4) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	static boolean supports(Class<?> keyType) {
+		return keyType == Long.class || keyType == Integer.class || keyType == Short.class || keyType == Byte.class
+				|| keyType == long.class || keyType == int.class || keyType == short.class || keyType == byte.class;
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		used = new boolean[capacity];
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private int slotOf(long key) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (used[slot] && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	static Object box(long key, Class<?> keyType) {
+		if (keyType == Integer.class || keyType == int.class) {
+			return (int) key;
+		} else if (keyType == Short.class || keyType == short.class) {
+			return (short) key;
+		} else if (keyType == Byte.class || keyType == byte.class) {
+			return (byte) key;
+		}
+		return key;
+	}
+
+	private boolean isKey(Object key) {
+		return key.getClass() == boxedKeyType;
+	}
+
+	V get(long key) {
+		int slot = slotOf(key);
+		return used[slot] ? (V) values[slot] : null;
+	}
+
+	V put(long key, V value) {
+		int slot = slotOf(key);
+		if (used[slot]) {
+			V previous = (V) values[slot];
+			values[slot] = value;
+			return previous;
+		}
+		used[slot] = true;
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size * 4 > keys.length * 3) {
+			rehash();
+		}
+		return null;
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(keys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				int slot = slotOf(oldKeys[i]);
+				used[slot] = true;
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private V removeSlot(int slot) {
+		V out = (V) values[slot];
+		int mask = keys.length - 1;
+		used[slot] = false;
+		values[slot] = null;
+		size--;
+		int next = (slot + 1) & mask;
+		while (used[next]) {
+			int home = hash(keys[next]) & mask;
+			boolean move = slot <= next ? (home <= slot || home > next) : (home <= slot && home > next);
+			if (move) {
+				keys[slot] = keys[next];
+				values[slot] = values[next];
+				used[slot] = true;
+				used[next] = false;
+				values[next] = null;
+				slot = next;
+			}
+			next = (next + 1) & mask;
+		}
+		return out;
+	}
+
+	@Override
+	public V get(Object key) {
+		if (key == null) {
+			return nullValue;
+		}
+		return isKey(key) ? get(((Number) key).longValue()) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if (key == null) {
+			return hasNullKey;
+		}
+		return isKey(key) && used[slotOf(((Number) key).longValue())];
+	}
+
+	@Override
+	public V put(Object key, V value) {
+		if (key == null) {
+			V previous = nullValue;
+			if (!hasNullKey) {
+				hasNullKey = true;
+				size++;
+			}
+			nullValue = value;
+			return previous;
+		}
+		if (!isKey(key)) {
+			throw new IllegalArgumentException("Key '" + key + "' of type " + key.getClass().getName() + " is not a " + boxedKeyType.getSimpleName());
+		}
+		return put(((Number) key).longValue(), value);
+	}
+
+	@Override
+	public V remove(Object key) {
+		if (key == null) {
+			V previous = nullValue;
+			if (hasNullKey) {
+				hasNullKey = false;
+				nullValue = null;
+				size--;
+			}
+			return previous;
+		}
+		if (!isKey(key)) {
+			return null;
+		}
+		int slot = slotOf(((Number) key).longValue());
+		return used[slot] ? removeSlot(slot) : null;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(used, false);
+		Arrays.fill(values, null);
+		hasNullKey = false;
+		nullValue = null;
+		size = 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<Entry<Object, V>> entrySet() {
+		return new AbstractSet<Entry<Object, V>>() {
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public void clear() {
+				LongKeyMap.this.clear();
+			}
+
+			@Override
+			public Iterator<Entry<Object, V>> iterator() {
+				return new EntryIterator();
+			}
+		};
+	}
+
+	/**
+	 * Iterates over the keys present when the iteration started, so that entries removed through the iterator, which
+	 * shifts other keys to different slots, don't cause keys to be skipped or visited twice.
+	 */
+	private final class EntryIterator implements Iterator<Entry<Object, V>> {
+		private boolean nullPending = hasNullKey;
+		private final long[] pendingKeys = new long[size - (hasNullKey ? 1 : 0)];
+		private int next;
+		private Entry<Object, V> current;
+
+		EntryIterator() {
+			int i = 0;
+			for (int slot = 0; slot < used.length; slot++) {
+				if (used[slot]) {
+					pendingKeys[i++] = keys[slot];
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nullPending || next < pendingKeys.length;
+		}
+
+		@Override
+		public Entry<Object, V> next() {
+			if (nullPending) {
+				nullPending = false;
+				current = new LiveEntry(true, 0L);
+			} else if (next < pendingKeys.length) {
+				current = new LiveEntry(false, pendingKeys[next++]);
+			} else {
+				throw new NoSuchElementException();
+			}
+			return current;
+		}
+
+		@Override
+		public void remove() {
+			if (current == null) {
+				throw new IllegalStateException();
+			}
+			LongKeyMap.this.remove(current.getKey());
+			current = null;
+		}
+	}
+
+	/**
+	 * An entry that reads and writes its value through the map.
+	 */
+	private final class LiveEntry implements Entry<Object, V> {
+		private final boolean nullKey;
+		private final long key;
+
+		LiveEntry(boolean nullKey, long key) {
+			this.nullKey = nullKey;
+			this.key = key;
+		}
+
+		@Override
+		public Object getKey() {
+			return nullKey ? null : box(key, keyType);
+		}
+
+		@Override
+		public V getValue() {
+			return nullKey ? nullValue : get(key);
+		}
+
+		@Override
+		public V setValue(V value) {
+			if (nullKey ? !hasNullKey : !used[slotOf(key)]) {
+				throw new IllegalStateException("Entry with key '" + getKey() + "' has been removed from the map");
+			}
+			return nullKey ? put(null, value) : put(key, value);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Entry)) {
+				return false;
+			}
+			Entry<?, ?> e = (Entry<?, ?>) o;
+			Object value = getValue();
+			return (nullKey ? e.getKey() == null : getKey().equals(e.getKey())) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode() {
+			Object value = getValue();
+			return (nullKey ? 0 : getKey().hashCode()) ^ (value == null ? 0 : value.hashCode());
+		}
+
+		@Override
+		public String toString() {
+			return getKey() + "=" + getValue();
+		}
+	}
+}
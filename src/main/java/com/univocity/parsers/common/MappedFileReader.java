@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+/**
+ * A {@link Reader} that memory-maps a file and decodes its characters directly from the mapped buffer into the
+ * buffer of the caller, avoiding the intermediate byte buffers and system calls of a {@link FileInputStream}
+ * wrapped in a {@link InputStreamReader}.
+ *
+ * Files larger than a single mapping are mapped in consecutive regions, with characters split across regions
+ * decoded correctly. Malformed or unmappable input is replaced, in the same way as an {@link InputStreamReader}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see EntityParserInterface#parseMapped(File, Charset)
+ */
+public final class MappedFileReader extends Reader {
+
+	private static final long REGION_SIZE = 1L << 28;
+
+	private final File file;
+	private final long regionSize;
+	private final FileChannel channel;
+	private final long size;
+	private final CharsetDecoder decoder;
+
+	private MappedByteBuffer buffer;
+	private long regionStart;
+	private boolean finished;
+	private int pending = -1;
+
+	/**
+	 * Creates a new {@code MappedFileReader}
+	 *
+	 * @param file     the file to read
+	 * @param encoding the encoding of the text in the file.
+	 */
+	public MappedFileReader(File file, Charset encoding) {
+		this(file, encoding, REGION_SIZE);
+	}
+
+	MappedFileReader(File file, Charset encoding, long regionSize) {
+		Args.notNull(file, "File to read");
+		Args.notNull(encoding, "Encoding");
+		if (regionSize < 16) {
+			throw new IllegalArgumentException("Region size must be at least 16 bytes. Got " + regionSize);
+		}
+		this.file = file;
+		this.regionSize = regionSize;
+		this.decoder = encoding.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		try {
+			this.channel = new RandomAccessFile(file, "r").getChannel();
+			try {
+				this.size = channel.size();
+				map(0L);
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			} catch (RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to map file " + file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Creates a new {@code MappedFileReader}
+	 *
+	 * @param file     the file to read
+	 * @param encoding the name of the encoding of the text in the file.
+	 */
+	public MappedFileReader(File file, String encoding) {
+		this(file, Charset.forName(encoding));
+	}
+
+	private void map(long start) throws IOException {
+		regionStart = start;
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionSize, size - start));
+	}
+
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (buffer == null) {
+			throw new IOException("Reader of file " + file.getAbsolutePath() + " has been closed");
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (pending != -1) {
+			cbuf[off] = (char) pending;
+			pending = -1;
+			return 1;
+		}
+		if (len == 1) {
+			char[] tmp = new char[2];
+			int read = decode(tmp, 0, 2);
+			if (read == 2) {
+				pending = tmp[1];
+			}
+			if (read > 0) {
+				cbuf[off] = tmp[0];
+				return 1;
+			}
+			return read;
+		}
+		return decode(cbuf, off, len);
+	}
+
+	private int decode(char[] cbuf, int off, int len) throws IOException {
+		CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+		while (!finished) {
+			boolean lastRegion = regionStart + buffer.limit() >= size;
+			CoderResult result = decoder.decode(buffer, out, lastRegion);
+			if (result.isError()) {
+				result.throwException();
+			}
+			if (lastRegion && result.isUnderflow()) {
+				result = decoder.flush(out);
+				if (result.isUnderflow()) {
+					finished = true;
+				}
+			}
+			int read = out.position() - off;
+			if (read > 0) {
+				return read;
+			}
+			if (!lastRegion && result.isUnderflow()) {
+				map(regionStart + buffer.position());
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean ready() {
+		return pending != -1 || (buffer != null && buffer.hasRemaining());
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer = null;
+		channel.close();
+	}
+}
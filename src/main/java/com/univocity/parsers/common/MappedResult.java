@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import java.nio.*;
+import java.util.*;
+
+/**
+ * The rows of one entity loaded by {@link MappedResults}. Rows are decoded directly from the mapped file each time
+ * they are accessed, and nothing else is held in memory except the {@link LinkIndex} of linked entities.
+ *
+ * Instances are safe to use from multiple threads.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see MappedResults
+ * @see ResultsWriter
+ */
+public final class MappedResult implements Iterable<String[]> {
+
+	private final String entityName;
+	private final String[] headers;
+	private final int rowCount;
+	private final int windowSize;
+	private final ByteBuffer[] data;
+	private final ByteBuffer[] offsets;
+	private final Map<String, LinkIndex> links = new LinkedHashMap<String, LinkIndex>();
+
+	MappedResult(String entityName, String[] headers, int rowCount, int windowSize, ByteBuffer[] data, ByteBuffer[] offsets) {
+		this.entityName = entityName;
+		this.headers = headers;
+		this.rowCount = rowCount;
+		this.windowSize = windowSize;
+		this.data = data;
+		this.offsets = offsets;
+	}
+
+	void addLink(String linkedEntity, int[] offsets, int[] linkedRows) {
+		links.put(linkedEntity.trim().toLowerCase(), new LinkIndex(offsets, linkedRows));
+	}
+
+	/**
+	 * Returns the name of the entity whose rows are held by this result.
+	 *
+	 * @return the entity name
+	 */
+	public String getEntityName() {
+		return entityName;
+	}
+
+	/**
+	 * Returns the headers of the entity.
+	 *
+	 * @return a copy of the headers, or {@code null} if the result had no headers when written.
+	 */
+	public String[] getHeaders() {
+		return headers == null ? null : headers.clone();
+	}
+
+	/**
+	 * Returns the number of rows of this result.
+	 *
+	 * @return the row count
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Decodes a row from the mapped file.
+	 *
+	 * @param rowIndex the index of the row
+	 *
+	 * @return the values of the row
+	 */
+	public String[] getRow(int rowIndex) {
+		long[] cursor = new long[]{getRowPosition(rowIndex)};
+		int length = readVarInt(cursor);
+		String[] out = new String[length];
+		for (int i = 0; i < length; i++) {
+			out[i] = readValue(cursor);
+		}
+		return out;
+	}
+
+	/**
+	 * Decodes a single value of a row from the mapped file, without decoding the other values of the row.
+	 *
+	 * @param rowIndex    the index of the row
+	 * @param columnIndex the index of the value in the row
+	 *
+	 * @return the value at the given position, or {@code null} if the row has fewer values.
+	 */
+	public String getValue(int rowIndex, int columnIndex) {
+		long[] cursor = new long[]{getRowPosition(rowIndex)};
+		int length = readVarInt(cursor);
+		if (columnIndex < 0 || columnIndex >= length) {
+			return null;
+		}
+		for (int i = 0; i < columnIndex; i++) {
+			int valueLength = readVarInt(cursor);
+			if (valueLength > 0) {
+				cursor[0] += valueLength - 1;
+			}
+		}
+		return readValue(cursor);
+	}
+
+	/**
+	 * Returns all rows of this result, decoded into memory.
+	 *
+	 * @return a list with the rows of this result.
+	 */
+	public List<String[]> getRows() {
+		List<String[]> out = new ArrayList<String[]>(rowCount);
+		for (int i = 0; i < rowCount; i++) {
+			out.add(getRow(i));
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the {@link LinkIndex} of an entity linked to this result when it was written.
+	 *
+	 * @param entityName the name of the linked entity
+	 *
+	 * @return the index of rows of the given entity linked to each row of this result, or {@code null} if the
+	 * entity was not linked to this result.
+	 */
+	public LinkIndex getLinkIndex(String entityName) {
+		return entityName == null ? null : links.get(entityName.trim().toLowerCase());
+	}
+
+	@Override
+	public Iterator<String[]> iterator() {
+		return new Iterator<String[]>() {
+			private int row;
+
+			@Override
+			public boolean hasNext() {
+				return row < rowCount;
+			}
+
+			@Override
+			public String[] next() {
+				if (row >= rowCount) {
+					throw new NoSuchElementException();
+				}
+				return getRow(row++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("Can't remove rows from a mapped result");
+			}
+		};
+	}
+
+	private long getRowPosition(int rowIndex) {
+		if (rowIndex < 0 || rowIndex >= rowCount) {
+			throw new IndexOutOfBoundsException("Row index " + rowIndex + " out of bounds. Result of entity '" + entityName + "' has " + rowCount + " rows");
+		}
+		long position = rowIndex * 8L;
+		return offsets[(int) (position / windowSize)].getLong((int) (position % windowSize));
+	}
+
+	private String readValue(long[] cursor) {
+		int length = readVarInt(cursor);
+		if (length == 0) {
+			return null;
+		}
+		length--;
+		byte[] bytes = new byte[length];
+		int read = 0;
+		while (read < length) {
+			ByteBuffer view = data[(int) (cursor[0] / windowSize)].duplicate();
+			view.position((int) (cursor[0] % windowSize));
+			int chunk = Math.min(length - read, view.remaining());
+			view.get(bytes, read, chunk);
+			read += chunk;
+			cursor[0] += chunk;
+		}
+		return new String(bytes, ResultsWriter.UTF_8);
+	}
+
+	private int readVarInt(long[] cursor) {
+		long position = cursor[0];
+		int out = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data[(int) (position / windowSize)].get((int) (position % windowSize));
+			position++;
+			out |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		cursor[0] = position;
+		return out;
+	}
+}
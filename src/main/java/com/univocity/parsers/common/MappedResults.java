@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * Loads {@link Results} written by {@link ResultsWriter}, memory-mapping the file instead of reading it. Opening
+ * a file only reads its directory of entities: rows are decoded from the mapped file when accessed, so results with
+ * millions of rows are available almost immediately. Sections of the file larger than 2GB are mapped in multiple
+ * windows.
+ *
+ * The {@link MappedResult} of each entity can be obtained by name, ignoring case and surrounding spaces in the
+ * same way as {@link Results#get(Object)}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see ResultsWriter
+ * @see MappedResult
+ */
+public final class MappedResults implements Closeable {
+
+	static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE & ~7;
+
+	private final File file;
+	private final int windowSize;
+	private final FileChannel channel;
+	private final Map<String, MappedResult> normalizedKeyMap = new HashMap<String, MappedResult>();
+	private final Map<String, MappedResult> originalKeyMap = new LinkedHashMap<String, MappedResult>();
+
+	/**
+	 * Opens a file written by {@link ResultsWriter}.
+	 *
+	 * @param file the file to open
+	 */
+	public MappedResults(File file) {
+		this(file, MAX_WINDOW_SIZE);
+	}
+
+	MappedResults(File file, int windowSize) {
+		Args.notNull(file, "Results file");
+		if (windowSize <= 0 || windowSize % 8 != 0) {
+			throw new IllegalArgumentException("Window size must be a positive multiple of 8. Got " + windowSize);
+		}
+		this.file = file;
+		this.windowSize = windowSize;
+		try {
+			this.channel = new RandomAccessFile(file, "r").getChannel();
+			try {
+				load();
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			} catch (RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to load results from " + file.getAbsolutePath(), e);
+		}
+	}
+
+	private void load() throws IOException {
+		long size = channel.size();
+		if (size < 20) {
+			throw new IllegalStateException("File " + file.getAbsolutePath() + " does not contain results");
+		}
+		ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 8);
+		ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - 12, 12);
+		long footerStart = trailer.getLong(0);
+		if (header.getInt(0) != ResultsWriter.MAGIC || trailer.getInt(8) != ResultsWriter.MAGIC) {
+			throw new IllegalStateException("File " + file.getAbsolutePath() + " does not contain results");
+		}
+		if (header.getInt(4) != ResultsWriter.VERSION) {
+			throw new IllegalStateException("Unsupported version " + header.getInt(4) + " of results in file " + file.getAbsolutePath());
+		}
+
+		long footerLength = size - 12 - footerStart;
+		if (footerStart < 8 || footerLength < 4 || footerLength > Integer.MAX_VALUE) {
+			throw new IllegalStateException("File " + file.getAbsolutePath() + " does not contain results");
+		}
+
+		byte[] footer = new byte[(int) footerLength];
+		ByteBuffer footerBuffer = ByteBuffer.wrap(footer);
+		long position = footerStart;
+		while (footerBuffer.hasRemaining()) {
+			int read = channel.read(footerBuffer, position);
+			if (read == -1) {
+				throw new EOFException("Unexpected end of file " + file.getAbsolutePath() + " reading footer of results");
+			}
+			position += read;
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer));
+
+		int entityCount = in.readInt();
+		for (int i = 0; i < entityCount; i++) {
+			String entityName = in.readUTF();
+			String[] headers = null;
+			int headerCount = in.readInt();
+			if (headerCount >= 0) {
+				headers = new String[headerCount];
+				for (int h = 0; h < headerCount; h++) {
+					headers[h] = in.readBoolean() ? in.readUTF() : null;
+				}
+			}
+			long dataStart = in.readLong();
+			long dataLength = in.readLong();
+			long offsetsStart = in.readLong();
+			int rowCount = in.readInt();
+
+			checkCount(entityName, "row count", rowCount);
+			checkSection(entityName, dataStart, dataLength, footerStart);
+			checkSection(entityName, offsetsStart, (rowCount + 1) * 8L, footerStart);
+			ByteBuffer[] data = map(dataStart, dataLength);
+			ByteBuffer[] offsets = map(offsetsStart, (rowCount + 1) * 8L);
+			MappedResult result = new MappedResult(entityName, headers, rowCount, windowSize, data, offsets);
+
+			int linkCount = in.readInt();
+			for (int l = 0; l < linkCount; l++) {
+				String linkedEntity = in.readUTF();
+				int parentRowCount = in.readInt();
+				int links = in.readInt();
+				long linkOffsetsStart = in.readLong();
+				long linkedRowsStart = in.readLong();
+				checkCount(entityName, "parent row count of link to '" + linkedEntity + "'", parentRowCount);
+				checkCount(entityName, "linked row count of link to '" + linkedEntity + "'", links);
+				checkSection(entityName, linkOffsetsStart, (parentRowCount + 1) * 4L, footerStart);
+				checkSection(entityName, linkedRowsStart, links * 4L, footerStart);
+				result.addLink(linkedEntity, readInts(linkOffsetsStart, parentRowCount + 1), readInts(linkedRowsStart, links));
+			}
+
+			normalizedKeyMap.put(entityName.trim().toLowerCase(), result);
+			originalKeyMap.put(entityName, result);
+		}
+	}
+
+	private void checkCount(String entityName, String description, int count) {
+		if (count < 0) {
+			throw new IllegalStateException("Results of entity '" + entityName + "' in file " + file.getAbsolutePath() + " are corrupted. Negative " + description + ": " + count);
+		}
+	}
+
+	private void checkSection(String entityName, long start, long length, long footerStart) {
+		if (start < 8 || length < 0 || start + length > footerStart) {
+			throw new IllegalStateException("Results of entity '" + entityName + "' in file " + file.getAbsolutePath() + " are corrupted");
+		}
+	}
+
+	/**
+	 * Maps a section of the file into windows of at most {@code windowSize} bytes, as a single mapped buffer can't
+	 * be larger than 2GB.
+	 */
+	private ByteBuffer[] map(long start, long length) throws IOException {
+		ByteBuffer[] out = new ByteBuffer[(int) ((length + windowSize - 1) / windowSize)];
+		for (int i = 0; i < out.length; i++) {
+			long offset = (long) i * windowSize;
+			out[i] = channel.map(FileChannel.MapMode.READ_ONLY, start + offset, Math.min(windowSize, length - offset));
+		}
+		return out;
+	}
+
+	private int[] readInts(long position, int count) throws IOException {
+		int[] out = new int[count];
+		int read = 0;
+		for (ByteBuffer window : map(position, count * 4L)) {
+			IntBuffer values = window.asIntBuffer();
+			int length = values.remaining();
+			values.get(out, read, length);
+			read += length;
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the names of all entities in the file, in the order they were written.
+	 *
+	 * @return the entity names
+	 */
+	public Set<String> getEntityNames() {
+		return Collections.unmodifiableSet(originalKeyMap.keySet());
+	}
+
+	/**
+	 * Returns the result of a given entity.
+	 *
+	 * @param entityName the name of the entity
+	 *
+	 * @return the result of the given entity.
+	 */
+	public MappedResult get(String entityName) {
+		Args.notBlank(entityName, "Entity name");
+		MappedResult out = normalizedKeyMap.get(entityName.trim().toLowerCase());
+		if (out == null) {
+			throw new IllegalArgumentException("Entity name '" + entityName + "' not found in results. Available entities: " + originalKeyMap.keySet());
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the results of all entities in the file, in the order they were written.
+	 *
+	 * @return the results of all entities
+	 */
+	public Collection<MappedResult> getResults() {
+		return Collections.unmodifiableCollection(originalKeyMap.values());
+	}
+
+	/**
+	 * Closes the file. Results obtained from this instance remain accessible until they are garbage collected.
+	 */
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new IllegalStateException("Error closing results file " + file.getAbsolutePath(), e);
+		}
+	}
+}
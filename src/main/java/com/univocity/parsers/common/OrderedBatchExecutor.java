@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs a task for each input of a batch in parallel, delivering the output of each task in the order of the inputs,
+ * from the thread that started the batch. At most twice as many inputs as the configured parallelism are processed
+ * ahead of the delivery, which prevents the outputs of a large batch from accumulating in memory when their
+ * consumer is slower than the tasks.
+ *
+ * This is the execution model of {@link BatchParser}, and of the historical replay of remote parsers, which parse
+ * each input with parsers they create themselves.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see BatchParser
+ */
+public final class OrderedBatchExecutor {
+
+	private final int parallelism;
+	private final ExecutorService executor;
+	private ParserMetrics metrics = ParserMetrics.NONE;
+	private String queueName = "batch";
+
+	/**
+	 * Creates a new {@code OrderedBatchExecutor}
+	 *
+	 * @param parallelism the maximum number of inputs of a batch to process at the same time.
+	 * @param executor    the executor that runs the task of each input. It is not shut down by this
+	 *                    {@code OrderedBatchExecutor}. If {@code null}, a new pool of {@code parallelism} threads is
+	 *                    started for each batch and shut down once the batch completes.
+	 */
+	public OrderedBatchExecutor(int parallelism, ExecutorService executor) {
+		Args.positive(parallelism, "Parallelism");
+		this.parallelism = parallelism;
+		this.executor = executor;
+	}
+
+	/**
+	 * Returns the maximum number of inputs of a batch processed at the same time.
+	 *
+	 * @return the degree of parallelism of this {@code OrderedBatchExecutor}
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Defines the {@link ParserMetrics} that receives the number of inputs submitted whose output was not delivered
+	 * yet, each time an input is submitted and each time an output is delivered.
+	 *
+	 * @param metrics   the metrics collector. If {@code null}, queue depths will not be reported.
+	 * @param queueName the name of the queue reported to {@link ParserMetrics#queueDepth(String, int)}
+	 */
+	public void setMetrics(ParserMetrics metrics, String queueName) {
+		Args.notBlank(queueName, "Queue name");
+		this.metrics = metrics == null ? ParserMetrics.NONE : metrics;
+		this.queueName = queueName;
+	}
+
+	/**
+	 * Runs the given task for each input in parallel, submitting the output of each to the given delivery callback
+	 * in the order of the inputs. If the callback throws an exception, tasks not yet delivered are cancelled and the
+	 * exception is rethrown.
+	 *
+	 * @param inputs   the inputs to process
+	 * @param task     the function that processes each input. Invoked concurrently from multiple threads.
+	 * @param delivery the callback that receives the output of each input, in the order of the inputs.
+	 * @param <I>      the type of input
+	 * @param <O>      the type of output
+	 */
+	public <I, O> void execute(Collection<? extends I> inputs, final Task<I, O> task, Delivery<I, O> delivery) {
+		Args.notNull(inputs, "Inputs");
+		Args.notNull(task, "Task");
+		Args.notNull(delivery, "Delivery callback");
+
+		ExecutorService executor = this.executor == null ? Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory()) : this.executor;
+
+		LinkedList<I> pendingInputs = new LinkedList<I>();
+		LinkedList<Future<O>> pendingOutputs = new LinkedList<Future<O>>();
+		int window = parallelism * 2;
+		try {
+			for (final I input : inputs) {
+				if (pendingOutputs.size() >= window) {
+					deliver(pendingInputs.removeFirst(), pendingOutputs.removeFirst(), delivery);
+					metrics.queueDepth(queueName, pendingOutputs.size());
+				}
+				pendingInputs.add(input);
+				pendingOutputs.add(executor.submit(new Callable<O>() {
+					@Override
+					public O call() {
+						return task.run(input);
+					}
+				}));
+				metrics.queueDepth(queueName, pendingOutputs.size());
+			}
+			while (!pendingOutputs.isEmpty()) {
+				deliver(pendingInputs.removeFirst(), pendingOutputs.removeFirst(), delivery);
+				metrics.queueDepth(queueName, pendingOutputs.size());
+			}
+		} finally {
+			for (Future<O> future : pendingOutputs) {
+				future.cancel(true);
+			}
+			if (this.executor == null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	private static <I, O> void deliver(I input, Future<O> future, Delivery<I, O> delivery) {
+		O output;
+		try {
+			output = future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Thread interrupted while waiting for input to be processed: " + input, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			RuntimeException error = cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException("Error processing input " + input, cause);
+			delivery.failed(input, error);
+			return;
+		}
+		delivery.delivered(input, output);
+	}
+
+	/**
+	 * Processes one input of a batch run by {@link OrderedBatchExecutor#execute(Collection, Task, Delivery)}.
+	 *
+	 * @param <I> the type of input
+	 * @param <O> the type of output
+	 */
+	public interface Task<I, O> {
+
+		/**
+		 * Processes the given input.
+		 *
+		 * @param input the input to process
+		 *
+		 * @return the output of the given input.
+		 */
+		O run(I input);
+	}
+
+	/**
+	 * Receives the output of each input of a batch run by
+	 * {@link OrderedBatchExecutor#execute(Collection, Task, Delivery)}, in the order of the inputs, from the thread
+	 * that started the batch.
+	 *
+	 * @param <I> the type of input
+	 * @param <O> the type of output
+	 */
+	public interface Delivery<I, O> {
+
+		/**
+		 * Receives the output of an input.
+		 *
+		 * @param input  the input processed
+		 * @param output the output of the given input.
+		 */
+		void delivered(I input, O output);
+
+		/**
+		 * Notifies that the task of an input failed.
+		 *
+		 * @param input the input that could not be processed
+		 * @param error the error thrown by the task
+		 */
+		void failed(I input, RuntimeException error);
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Utility used by {@link EntityParserInterface} implementations to extract the {@link Result}s of multiple entities
+ * concurrently, when {@link EntityParserSettings#isParallelEntityExtractionEnabled()} evaluates to {@code true}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see EntityParserSettings#setParallelEntityExtractionEnabled(boolean)
+ * @see EntityParserSettings#getEntityExtractionExecutor()
+ */
+public final class ParallelResults {
+
+	private ParallelResults() {
+	}
+
+	/**
+	 * Runs the extraction of each entity using the given executor and waits for all of them to complete. If the
+	 * executor is {@code null}, or if there is only one entity to extract, extraction runs in the calling thread.
+	 *
+	 * If the extraction of any entity fails, the extraction of all other entities is cancelled and the error is
+	 * rethrown.
+	 *
+	 * @param executor the executor to run the extraction of each entity.
+	 * @param tasks    the extraction task of each entity, associated with the entity name. The {@link Results}
+	 *                 returned will follow the iteration order of this map.
+	 * @param <T>      the type of {@link Result} produced for each entity.
+	 *
+	 * @return the {@link Results} of all entities.
+	 */
+	public static <T extends Result> Results<T> collect(ExecutorService executor, Map<String, ? extends Callable<T>> tasks) {
+		return collect(executor, tasks, ParserMetrics.NONE);
+	}
+
+	/**
+	 * Runs the extraction of each entity using the given executor and waits for all of them to complete, reporting
+	 * the time taken to extract each entity to the given {@link ParserMetrics}. If the executor is {@code null}, or
+	 * if there is only one entity to extract, extraction runs in the calling thread.
+	 *
+	 * If the extraction of any entity fails, the extraction of all other entities is cancelled and the error is
+	 * rethrown.
+	 *
+	 * @param executor the executor to run the extraction of each entity.
+	 * @param tasks    the extraction task of each entity, associated with the entity name. The {@link Results}
+	 *                 returned will follow the iteration order of this map.
+	 * @param metrics  the metrics collector that receives the extraction time of each entity, usually the one
+	 *                 returned by {@link EntityParserSettings#getMetrics()}.
+	 * @param <T>      the type of {@link Result} produced for each entity.
+	 *
+	 * @return the {@link Results} of all entities.
+	 */
+	public static <T extends Result> Results<T> collect(ExecutorService executor, Map<String, ? extends Callable<T>> tasks, ParserMetrics metrics) {
+		Args.notNull(tasks, "Extraction tasks");
+		if (metrics != null && metrics.isEnabled()) {
+			Map<String, Callable<T>> timedTasks = new LinkedHashMap<String, Callable<T>>();
+			for (Map.Entry<String, ? extends Callable<T>> e : tasks.entrySet()) {
+				timedTasks.put(e.getKey(), timed(e.getKey(), e.getValue(), metrics));
+			}
+			tasks = timedTasks;
+		}
+		Results<T> out = new Results<T>();
+
+		if (executor == null || tasks.size() <= 1) {
+			for (Map.Entry<String, ? extends Callable<T>> e : tasks.entrySet()) {
+				out.put(e.getKey(), call(e.getKey(), e.getValue()));
+			}
+			return out;
+		}
+
+		// results are collected as tasks complete, so that a failure cancels the other tasks without waiting for
+		// the tasks submitted before it.
+		CompletionService<T> completionService = new ExecutorCompletionService<T>(executor);
+		Map<Future<T>, String> futures = new HashMap<Future<T>, String>();
+		Map<String, T> completed = new HashMap<String, T>();
+		try {
+			for (Map.Entry<String, ? extends Callable<T>> e : tasks.entrySet()) {
+				futures.put(completionService.submit(e.getValue()), e.getKey());
+			}
+			while (!futures.isEmpty()) {
+				Future<T> future = take(completionService);
+				String entityName = futures.remove(future);
+				completed.put(entityName, get(entityName, future));
+			}
+		} finally {
+			for (Future<T> future : futures.keySet()) {
+				future.cancel(true);
+			}
+		}
+		for (String entityName : tasks.keySet()) {
+			out.put(entityName, completed.get(entityName));
+		}
+		return out;
+	}
+
+	private static <T> Callable<T> timed(final String entityName, final Callable<T> task, final ParserMetrics metrics) {
+		return new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				long start = System.nanoTime();
+				try {
+					return task.call();
+				} finally {
+					metrics.parseTime(entityName, System.nanoTime() - start);
+				}
+			}
+		};
+	}
+
+	private static <T> T call(String entityName, Callable<T> task) {
+		try {
+			return task.call();
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException("Error extracting records of entity '" + entityName + "'", e);
+		}
+	}
+
+	private static <T> Future<T> take(CompletionService<T> completionService) {
+		try {
+			return completionService.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Thread interrupted while extracting records of entities", e);
+		}
+	}
+
+	private static <T> T get(String entityName, Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Thread interrupted while extracting records of entity '" + entityName + "'", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Error extracting records of entity '" + entityName + "'", cause);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+/**
+ * Receives measurements taken by {@link EntityParserInterface} implementations and by the utilities of this API while
+ * parsing, downloading and following remote content. Register an implementation with
+ * {@link EntityParserSettings#setMetrics(ParserMetrics)}.
+ *
+ * Methods of this interface are invoked from any thread that is parsing or downloading, and implementations must be
+ * thread-safe. By default {@link #NONE} is used, which ignores all measurements. Callers that need to do extra
+ * work to produce a measurement, such as reading the system clock, should check {@link #isEnabled()} first.
+ *
+ * Times are given in nanoseconds.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see InMemoryMetrics
+ * @see EntityParserSettings#setMetrics(ParserMetrics)
+ */
+public interface ParserMetrics {
+
+	/**
+	 * A {@code ParserMetrics} that ignores all measurements.
+	 */
+	ParserMetrics NONE = new ParserMetrics() {
+		@Override
+		public boolean isEnabled() {
+			return false;
+		}
+
+		@Override
+		public void rowsParsed(String entityName, long rowCount) {
+		}
+
+		@Override
+		public void parseTime(String entityName, long time) {
+		}
+
+		@Override
+		public void joinTime(String masterEntity, String linkedEntity, long time) {
+		}
+
+		@Override
+		public void downloaded(String url, long byteCount, long time) {
+		}
+
+		@Override
+		public void pagesVisited(String entityName, int pageCount) {
+		}
+
+		@Override
+		public void followersTriggered(String entityName, String followerEntity, int requestCount) {
+		}
+
+		@Override
+		public void rateLimiterWait(String host, long time) {
+		}
+
+		@Override
+		public void queueDepth(String queueName, int depth) {
+		}
+	};
+
+	/**
+	 * Indicates whether measurements are collected at all. When {@code false}, callers may skip taking measurements.
+	 *
+	 * @return {@code true} if measurements are collected, otherwise {@code false}
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Notifies that rows of an entity were parsed.
+	 *
+	 * @param entityName the name of the entity
+	 * @param rowCount   the number of rows parsed
+	 */
+	void rowsParsed(String entityName, long rowCount);
+
+	/**
+	 * Notifies the time taken to extract the records of an entity from an input.
+	 *
+	 * @param entityName the name of the entity
+	 * @param time       the elapsed time, in nanoseconds.
+	 */
+	void parseTime(String entityName, long time);
+
+	/**
+	 * Notifies the time taken to join or link the results of an entity to the results of another.
+	 *
+	 * @param masterEntity the name of the entity whose results received the linked or joined rows.
+	 * @param linkedEntity the name of the entity whose rows were linked or joined.
+	 * @param time         the elapsed time, in nanoseconds.
+	 */
+	void joinTime(String masterEntity, String linkedEntity, long time);
+
+	/**
+	 * Notifies that the content of a remote URL was downloaded.
+	 *
+	 * @param url       the URL downloaded
+	 * @param byteCount the number of bytes downloaded
+	 * @param time      the time taken by the download, in nanoseconds.
+	 */
+	void downloaded(String url, long byteCount, long time);
+
+	/**
+	 * Notifies the number of pages visited by a paginator once the pagination of an entity completes.
+	 *
+	 * @param entityName the name of the entity whose pages were visited.
+	 * @param pageCount  the number of pages visited
+	 */
+	void pagesVisited(String entityName, int pageCount);
+
+	/**
+	 * Notifies the number of requests made by a follower for a single record of its parent entity.
+	 *
+	 * @param entityName     the name of the parent entity
+	 * @param followerEntity the name of the follower entity
+	 * @param requestCount   the number of requests triggered by the record.
+	 */
+	void followersTriggered(String entityName, String followerEntity, int requestCount);
+
+	/**
+	 * Notifies the time a thread waited for permission to send a request to a host.
+	 *
+	 * @param host the host to be accessed
+	 * @param time the time waited, in nanoseconds. Can be {@code 0}.
+	 */
+	void rateLimiterWait(String host, long time);
+
+	/**
+	 * Notifies the number of incomplete {@link Results} waiting in a queue, such as the inputs being parsed by a
+	 * {@link BatchParser}.
+	 *
+	 * @param queueName the name that identifies the queue.
+	 * @param depth     the number of elements in the queue.
+	 */
+	void queueDepth(String queueName, int depth);
+}
@@ -59,12 +59,19 @@ public interface Result<R extends com.univocity.parsers.common.record.Record, C
 	 * in {@link #getHeaders()}.
 	 *
 	 * @return a {@link List} of {@code String[]} for each row of the result.
+	 *
+	 * @throws IllegalStateException if the rows of this result are being streamed
+	 *                               (i.e. {@link EntityParserSettings#isStreamingEnabled()} is {@code true}).
 	 */
 	List<String[]> getRows();
 
 	/**
 	 * Get an iterable of {@code String[]} that iterates over each row.
 	 *
+	 * If {@link EntityParserSettings#isStreamingEnabled()} is {@code true}, the iterator consumes rows from a bounded
+	 * queue filled by the parsing thread, blocking until the next row is available. Rows are discarded once consumed,
+	 * therefore the result can be iterated only once.
+	 *
 	 * @return an {@link Iterable} over each row.
 	 */
 	Iterable<String[]> iterateRows();
@@ -75,12 +82,19 @@ public interface Result<R extends com.univocity.parsers.common.record.Record, C
 	 * for further data manipulation.
 	 *
 	 * @return a list of records for each row of the result.
+	 *
+	 * @throws IllegalStateException if the rows of this result are being streamed
+	 *                               (i.e. {@link EntityParserSettings#isStreamingEnabled()} is {@code true}).
 	 */
 	List<R> getRecords();
 
 	/**
 	 * Get an iterable of records that iterates over each row.
 	 *
+	 * If {@link EntityParserSettings#isStreamingEnabled()} is {@code true}, the iterator consumes rows from a bounded
+	 * queue filled by the parsing thread, blocking until the next row is available. Rows are discarded once consumed,
+	 * therefore the result can be iterated only once.
+	 *
 	 * @return an {@link Iterable} over each row
 	 */
 	Iterable<R> iterateRecords();
@@ -113,6 +127,8 @@ public interface Result<R extends com.univocity.parsers.common.record.Record, C
 	 * The default {@link NoopProcessorErrorHandler} will be used as a {@link ProcessorErrorHandler} to not handle any
 	 * errors.
 	 *
+	 * Beans supported by {@link BeanMapper} are mapped by a mapper compiled once for the {@code beanType}.
+	 *
 	 * @param beanType the type of the bean that is created using the fields of this {@link Result}.
 	 * @param <T>      the type of the bean that is returned.
 	 *
@@ -193,6 +209,15 @@ public interface Result<R extends com.univocity.parsers.common.record.Record, C
 	 * Joins rows of a given result with the rows of the current one. Rows are joined by matching values of
 	 * a given set of field names that are common to both {@link Result} instances.
 	 *
+	 * The rows of the smaller result are indexed in a hash table keyed by the values of the given fields, and the rows
+	 * of the larger result are used to look up matches (see {@link HashJoin}). Statistics about the join are available
+	 * from {@link #getJoinStatistics()} of the returned {@link Result}.
+	 *
+	 * If the rows of both results exceed {@link EntityParserSettings#getJoinMemoryLimit()}, they are partitioned into
+	 * temporary files under {@link EntityParserSettings#getSpillDirectory()} and joined one partition at a time. The
+	 * rows of the returned {@link Result} are then produced as they are consumed through {@link #iterateRows()}, and
+	 * the temporary files are deleted once all rows are consumed or the returned {@link Result} is closed.
+	 *
 	 * @param result     the input result whose rows will be associated with the current.
 	 * @param fieldNames fields common to the given result and the current, whose values will be used to identify which
 	 *                   rows should be associated. If none provided the fields that are common to current and given
@@ -207,12 +232,50 @@ public interface Result<R extends com.univocity.parsers.common.record.Record, C
 	 * set of field names that are common to both {@link Result} instances.
 	 * The linked data is then accessible using {@link #getLinkedEntityData(int)}
 	 *
+	 * A {@link LinkIndex} is built once for the given result, so that the linked rows of each row can be looked up
+	 * in constant time afterwards (see {@link #getLinkIndex(String)}).
+	 *
 	 * @param result     the other {@link Result} whose rows will be added to this {@link Result}'s linked entity data.
 	 * @param fieldNames the common field names used to determine which fields to link. If none provided then all
 	 *                   fields that are common will be used.
 	 */
 	void link(Result<R, C> result, String... fieldNames);
 
+	/**
+	 * Returns the statistics collected while producing this result with {@link #join(Result, String...)}, such as
+	 * the number of rows indexed, the number of lookups performed and the number of hash collisions.
+	 *
+	 * @return the statistics of the join that produced this result, or {@code null} if this result was not
+	 * produced by a join.
+	 */
+	default JoinStatistics getJoinStatistics() {
+		return null;
+	}
+
+	/**
+	 * Returns the {@link LinkIndex} built when the result of a given entity was linked to this result with
+	 * {@link #link(Result, String...)}.
+	 *
+	 * @param entityName the name of the linked entity
+	 *
+	 * @return the index of rows of the given entity linked to each row of this result, or {@code null} if the
+	 * entity has not been linked to this result.
+	 */
+	default LinkIndex getLinkIndex(String entityName) {
+		return null;
+	}
+
+	/**
+	 * Returns the number of reads of each field of this result, when it has been produced with lazy field extraction
+	 * enabled (see {@link EntitySettings#setLazyExtractionEnabled(boolean)}). Fields never read by any consumer
+	 * were never extracted from the input.
+	 *
+	 * @return the counter of reads of each field, or {@code null} if lazy field extraction is disabled.
+	 */
+	default FieldAccessCounter getFieldAccessCounter() {
+		return null;
+	}
+
 	/**
 	 * Gets then result with data for additional fields linked to the record at {@code rowIndex}.
 	 *
@@ -226,6 +289,9 @@ public interface Result<R extends com.univocity.parsers.common.record.Record, C
 	 * Gets all of the {@link Result} associated with the specific {@code rowIndex}
 	 * in a {@link Results} list.
 	 *
+	 * Each {@link Result} returned is a view over the rows of the linked entity, resolved through the
+	 * {@link LinkIndex} built by {@link #link(Result, String...)}, so no rows are copied.
+	 *
 	 * @param rowIndex which row to get the linked entity data from
 	 *
 	 * @return all of the results linked to the row at {@code rowIndex}
@@ -233,7 +299,8 @@ public interface Result<R extends com.univocity.parsers.common.record.Record, C
 	Results<? extends Result<R, C>> getLinkedEntityData(int rowIndex);
 
 	/**
-	 * Closes the row processing so no more rows will be added to the {@link Result}
+	 * Closes the row processing so no more rows will be added to the {@link Result}. Resources still held by this
+	 * result are released, such as the temporary files of a join spilled to disk (see {@link HashJoin.Output#close()}).
 	 */
 	void close();
 }
@@ -19,6 +19,8 @@ public final class Results<R extends Result> implements Map<String, R> {
 
 	private final Map<String, R> normalizedKeyMap = new HashMap<String, R>();
 	private final Map<String, R> originalKeyMap = new LinkedHashMap<String, R>();
+	private EntityList<?> handleScope;
+	private Object[] resultsByHandle;
 
 	/**
 	 * Joins the results of the entity {@code entityToLink} to the results of the entity {@code masterEntity}, producing
@@ -98,22 +100,77 @@ public final class Results<R extends Result> implements Map<String, R> {
 	 */
 	public final R put(String entityName, Object result) {
 		normalizedKeyMap.put(getNormalizedKey(entityName), (R) result);
+		handleScope = null;
 		return originalKeyMap.put(entityName, (R) result);
 	}
 
 	public final R put(String entityName, R result) {
 		normalizedKeyMap.put(getNormalizedKey(entityName), result);
+		handleScope = null;
 		return originalKeyMap.put(entityName, result);
 	}
 
 	@Override
 	public final R get(Object entityName) {
-		return normalizedKeyMap.get(getValidatedKey(entityName));
+		String key = getNormalizedKey(entityName);
+		R out = normalizedKeyMap.get(key);
+		if (out == null && !normalizedKeyMap.containsKey(key)) {
+			getValidatedKey(entityName);
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the result of the entity referenced by the given handle. Results are looked up by name on first
+	 * access, and then by the id of the handle, without normalizing or hashing the entity name, until this map is
+	 * modified or handles of another {@link EntityList} are used.
+	 *
+	 * @param entity the handle of the entity name
+	 *
+	 * @return the result associated with the given entity
+	 */
+	public final R get(EntityHandle entity) {
+		Args.notNull(entity, "Entity handle");
+		int id = entity.getId();
+		if (entity.getScope() == handleScope) {
+			Object[] results = resultsByHandle;
+			if (id < results.length && results[id] != null) {
+				return (R) results[id];
+			}
+		}
+		R out = get((Object) entity.getName());
+		if (out != null) {
+			if (entity.getScope() != handleScope) {
+				resultsByHandle = new Object[Math.max(id + 1, entity.getScope().getHandleCount())];
+				handleScope = entity.getScope();
+			} else if (id >= resultsByHandle.length) {
+				resultsByHandle = Arrays.copyOf(resultsByHandle, Math.max(id + 1, entity.getScope().getHandleCount()));
+			}
+			resultsByHandle[id] = out;
+		}
+		return out;
+	}
+
+	/**
+	 * Tests whether there's a result for the entity referenced by the given handle.
+	 *
+	 * @param entity the handle of the entity name
+	 *
+	 * @return {@code true} if there's a result associated with the given entity, otherwise {@code false}
+	 */
+	public final boolean containsKey(EntityHandle entity) {
+		Args.notNull(entity, "Entity handle");
+		int id = entity.getId();
+		if (entity.getScope() == handleScope && id < resultsByHandle.length && resultsByHandle[id] != null) {
+			return true;
+		}
+		return normalizedKeyMap.containsKey(entity.getNormalizedName());
 	}
 
 	@Override
 	public final R remove(Object entityName) {
 		R out = normalizedKeyMap.remove(getValidatedKey(entityName));
+		handleScope = null;
 
 		if (out != null) {
 			Iterator<String> it = originalKeyMap.keySet().iterator();
@@ -175,6 +232,7 @@ public final class Results<R extends Result> implements Map<String, R> {
 	public void clear() {
 		normalizedKeyMap.clear();
 		originalKeyMap.clear();
+		handleScope = null;
 	}
 }
 
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.api.common.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Writes {@link Results} to a file in a compact binary format, which can be loaded back with {@link MappedResults}
+ * without parsing any text.
+ *
+ * The file stores the entity names of the {@link Results}, in their original order, and for each {@link Result}
+ * its headers, its rows and the {@link LinkIndex} of every entity linked to it with
+ * {@link Result#link(Result, String...)}. Results produced by {@link Result#join(Result, String...)} are stored as
+ * any other result. Rows are stored one after the other with the length of each value as a variable-length
+ * integer, followed by a table with the 64-bit offset of each row, which allows any row to be located in constant
+ * time.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see MappedResults
+ */
+public final class ResultsWriter {
+
+	static final int MAGIC = 0x55524553;
+	static final int VERSION = 2;
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private ResultsWriter() {
+	}
+
+	/**
+	 * Writes the given {@link Results} to a file, replacing any existing content.
+	 *
+	 * @param results the results to write
+	 * @param file    the file to write to
+	 */
+	public static void write(Results<? extends Result> results, File file) {
+		Args.notNull(results, "Results to write");
+		Args.notNull(file, "Output file");
+		try {
+			Output out = new Output(new FileOutputStream(file));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+
+				List<EntitySection> sections = new ArrayList<EntitySection>(results.size());
+				for (Map.Entry<String, ? extends Result> e : results.entrySet()) {
+					sections.add(writeEntity(out, e.getKey(), e.getValue(), results.keySet()));
+				}
+
+				long footerStart = out.position();
+				out.writeInt(sections.size());
+				for (EntitySection section : sections) {
+					section.write(out);
+				}
+				out.writeLong(footerStart);
+				out.writeInt(MAGIC);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to write results to " + file.getAbsolutePath(), e);
+		}
+	}
+
+	private static EntitySection writeEntity(Output out, String entityName, Result<?, ?> result, Set<String> entityNames) throws IOException {
+		EntitySection section = new EntitySection();
+		section.entityName = entityName;
+		section.headers = result.getHeaders();
+		section.dataStart = out.position();
+
+		long[] offsets = new long[1024];
+		int rowCount = 0;
+		for (String[] row : result.iterateRows()) {
+			if (rowCount + 1 >= offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[rowCount++] = out.position() - section.dataStart;
+			writeRow(out, row);
+		}
+		long dataLength = out.position() - section.dataStart;
+		offsets[rowCount] = dataLength;
+		section.dataLength = dataLength;
+		section.rowCount = rowCount;
+		section.offsetsStart = out.position();
+		for (int i = 0; i <= rowCount; i++) {
+			out.writeLong(offsets[i]);
+		}
+
+		for (String linkedEntity : entityNames) {
+			LinkIndex index = result.getLinkIndex(linkedEntity);
+			if (index != null) {
+				LinkSection link = new LinkSection();
+				link.entityName = linkedEntity;
+				link.parentRowCount = index.getParentRowCount();
+				link.linkCount = index.getLinkCount();
+				link.offsetsStart = out.position();
+				for (int value : index.getOffsets()) {
+					out.writeInt(value);
+				}
+				link.linkedRowsStart = out.position();
+				for (int value : index.getLinkedRows()) {
+					out.writeInt(value);
+				}
+				section.links.add(link);
+			}
+		}
+		return section;
+	}
+
+	private static void writeRow(Output out, String[] row) throws IOException {
+		writeVarInt(out, row.length);
+		for (String value : row) {
+			if (value == null) {
+				writeVarInt(out, 0);
+			} else {
+				byte[] bytes = value.getBytes(UTF_8);
+				writeVarInt(out, bytes.length + 1);
+				out.write(bytes, 0, bytes.length);
+			}
+		}
+	}
+
+	private static void writeVarInt(Output out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static final class EntitySection {
+		String entityName;
+		String[] headers;
+		long dataStart;
+		long dataLength;
+		long offsetsStart;
+		int rowCount;
+		final List<LinkSection> links = new ArrayList<LinkSection>();
+
+		void write(Output out) throws IOException {
+			out.writeUTF(entityName);
+			if (headers == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(headers.length);
+				for (String header : headers) {
+					out.writeBoolean(header != null);
+					if (header != null) {
+						out.writeUTF(header);
+					}
+				}
+			}
+			out.writeLong(dataStart);
+			out.writeLong(dataLength);
+			out.writeLong(offsetsStart);
+			out.writeInt(rowCount);
+			out.writeInt(links.size());
+			for (LinkSection link : links) {
+				out.writeUTF(link.entityName);
+				out.writeInt(link.parentRowCount);
+				out.writeInt(link.linkCount);
+				out.writeLong(link.offsetsStart);
+				out.writeLong(link.linkedRowsStart);
+			}
+		}
+	}
+
+	private static final class LinkSection {
+		String entityName;
+		int parentRowCount;
+		int linkCount;
+		long offsetsStart;
+		long linkedRowsStart;
+	}
+
+	private static final class Output extends DataOutputStream {
+		private final Counter counter;
+
+		Output(OutputStream out) {
+			this(new Counter(new BufferedOutputStream(out, 65536)));
+		}
+
+		private Output(Counter counter) {
+			super(counter);
+			this.counter = counter;
+		}
+
+		long position() {
+			return counter.count;
+		}
+	}
+
+	private static final class Counter extends FilterOutputStream {
+		long count;
+
+		Counter(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
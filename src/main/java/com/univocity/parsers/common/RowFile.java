@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Reads and writes rows to temporary files, using a simple binary format: the number of values of each row followed
+ * by the UTF-8 bytes of each value, prefixed by their length ({@code -1} for {@code null} values).
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+final class RowFile {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Set<File> pendingDeletion = new LinkedHashSet<File>();
+	private static boolean shutdownHookRegistered;
+
+	private RowFile() {
+	}
+
+	static DataOutputStream openOutput(File file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+	}
+
+	static DataInputStream openInput(File file) throws IOException {
+		return new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+	}
+
+	static void writeRow(DataOutput out, String[] row) throws IOException {
+		out.writeInt(row.length);
+		for (String value : row) {
+			if (value == null) {
+				out.writeInt(-1);
+			} else {
+				byte[] bytes = value.getBytes(UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Reads the next row from the given input.
+	 *
+	 * @param in the input to read from
+	 *
+	 * @return the next row, or {@code null} if the end of the input has been reached.
+	 *
+	 * @throws IOException if an error occurs reading from the input
+	 */
+	static String[] readRow(DataInput in) throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException e) {
+			return null;
+		}
+		String[] row = new String[length];
+		byte[] buffer = null;
+		for (int i = 0; i < length; i++) {
+			int byteCount = in.readInt();
+			if (byteCount >= 0) {
+				if (buffer == null || buffer.length < byteCount) {
+					buffer = new byte[Math.max(byteCount, 64)];
+				}
+				in.readFully(buffer, 0, byteCount);
+				row[i] = new String(buffer, 0, byteCount, UTF_8);
+			}
+		}
+		return row;
+	}
+
+	/**
+	 * Registers a temporary directory to be deleted, with all its contents, when the JVM exits. Unlike
+	 * {@link File#deleteOnExit()}, directories that are no longer in use can be unregistered, so that long running
+	 * processes don't accumulate registrations.
+	 *
+	 * @param directory the directory to delete when the JVM exits
+	 */
+	static synchronized void deleteOnExit(File directory) {
+		if (!shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					File[] directories;
+					synchronized (RowFile.class) {
+						directories = pendingDeletion.toArray(new File[0]);
+						pendingDeletion.clear();
+					}
+					for (File directory : directories) {
+						delete(directory);
+					}
+				}
+			}, "univocity-temporary-file-cleanup"));
+			shutdownHookRegistered = true;
+		}
+		pendingDeletion.add(directory);
+	}
+
+	/**
+	 * Removes a directory registered with {@link #deleteOnExit(File)}, usually after it has been deleted.
+	 *
+	 * @param directory the directory that no longer needs to be deleted when the JVM exits
+	 */
+	static synchronized void cancelDeleteOnExit(File directory) {
+		pendingDeletion.remove(directory);
+	}
+
+	static void delete(File file) {
+		if (file == null || !file.exists()) {
+			return;
+		}
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
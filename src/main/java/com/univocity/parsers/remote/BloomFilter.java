@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+/**
+ * A fixed-size Bloom filter of strings, sized for an expected number of elements and false positive probability.
+ * Used by {@link UrlDeduplicator} to track visited URLs in bounded memory.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+final class BloomFilter {
+
+	/**
+	 * Largest number of bits supported, limited by the maximum length of a {@code long[]} the JVM can allocate.
+	 */
+	static final long MAX_BITS = 64L * (Integer.MAX_VALUE - 8);
+
+	private final long[] bits;
+	private final long bitCount;
+	private final int hashCount;
+
+	BloomFilter(long expectedElements, double falsePositiveProbability) {
+		if (expectedElements <= 0) {
+			throw new IllegalArgumentException("Expected number of elements must be positive. Got " + expectedElements);
+		}
+		if (falsePositiveProbability <= 0.0 || falsePositiveProbability >= 1.0) {
+			throw new IllegalArgumentException("False positive probability must be between 0 and 1. Got " + falsePositiveProbability);
+		}
+		double ln2 = Math.log(2);
+		double requiredBits = Math.ceil(-expectedElements * Math.log(falsePositiveProbability) / (ln2 * ln2));
+		if (requiredBits > MAX_BITS) {
+			throw new IllegalArgumentException("Bloom filter for " + expectedElements + " elements with false positive probability of " + falsePositiveProbability + " requires " + (long) requiredBits + " bits, which exceeds the maximum of " + MAX_BITS + ". Expected number of elements must not exceed " + getMaxElements(falsePositiveProbability));
+		}
+		long m = Math.max(64L, (long) requiredBits);
+		this.bits = new long[(int) ((m + 63) / 64)];
+		this.bitCount = bits.length * 64L;
+		this.hashCount = Math.max(1, (int) Math.round((double) m / expectedElements * ln2));
+	}
+
+	/**
+	 * Returns the largest number of elements a filter can be sized for with the given false positive probability.
+	 *
+	 * @param falsePositiveProbability the desired false positive probability
+	 *
+	 * @return the maximum number of expected elements accepted by the constructor.
+	 */
+	static long getMaxElements(double falsePositiveProbability) {
+		double ln2 = Math.log(2);
+		return (long) Math.floor(MAX_BITS * (ln2 * ln2) / -Math.log(falsePositiveProbability));
+	}
+
+	/**
+	 * Adds an element to the filter.
+	 *
+	 * @param element the element to add
+	 *
+	 * @return {@code true} if the element was definitely not in the filter before, {@code false} if it might have
+	 * been added previously.
+	 */
+	boolean add(String element) {
+		long h1 = hash(element, 0x9E3779B97F4A7C15L);
+		long h2 = hash(element, 0xC2B2AE3D27D4EB4FL) | 1L;
+		boolean added = false;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+			int word = (int) (bit >>> 6);
+			long mask = 1L << (bit & 63);
+			if ((bits[word] & mask) == 0) {
+				bits[word] |= mask;
+				added = true;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Tests whether an element might have been added to the filter.
+	 *
+	 * @param element the element to test
+	 *
+	 * @return {@code false} if the element was definitely never added, {@code true} if it might have been.
+	 */
+	boolean mightContain(String element) {
+		long h1 = hash(element, 0x9E3779B97F4A7C15L);
+		long h2 = hash(element, 0xC2B2AE3D27D4EB4FL) | 1L;
+		for (int i = 0; i < hashCount; i++) {
+			long bit = ((h1 + i * h2) & Long.MAX_VALUE) % bitCount;
+			if ((bits[(int) (bit >>> 6)] & (1L << (bit & 63))) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long hash(String element, long seed) {
+		long h = seed ^ element.length();
+		for (int i = 0; i < element.length(); i++) {
+			h ^= element.charAt(i);
+			h *= 0x100000001B3L;
+			h ^= h >>> 29;
+		}
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.api.common.*;
+import com.univocity.parsers.common.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Bounds the number of pages downloaded but not yet parsed, so that the threads downloading remote content
+ * (see {@link RemoteParserSettings#getDownloadThreads()}) can't run far ahead of the threads parsing it
+ * (see {@link RemoteParserSettings#getExecutorService()}) and accumulate downloaded content in memory or in
+ * temporary files.
+ *
+ * A download must {@link #acquire()} a permit before it starts. The permit is held while the page waits to be
+ * parsed, and is given back with {@link #release()} once the page has been parsed, or if its download fails or the
+ * page is discarded. Downloads block while {@link #getMaxPendingPages()} pages hold a permit. Each call to
+ * {@link #release()} must match a previous acquisition.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see RemoteParserSettings#setMaxPendingPages(int)
+ */
+public final class DownloadBackpressure {
+
+	private volatile int maxPendingPages;
+	private final PendingPages permits;
+	private final AtomicInteger held = new AtomicInteger();
+	private final AtomicLong waitTime = new AtomicLong();
+	private volatile ParserMetrics metrics = ParserMetrics.NONE;
+	private volatile boolean disabled;
+
+	/**
+	 * Creates a new {@code DownloadBackpressure}
+	 *
+	 * @param maxPendingPages the maximum number of pages that can be downloaded and waiting to be parsed.
+	 */
+	public DownloadBackpressure(int maxPendingPages) {
+		Args.positive(maxPendingPages, "Maximum number of pages pending parsing");
+		this.maxPendingPages = maxPendingPages;
+		this.permits = new PendingPages(maxPendingPages);
+	}
+
+	/**
+	 * Returns the maximum number of pages that can be downloaded and waiting to be parsed.
+	 *
+	 * @return the maximum number of pending pages.
+	 */
+	public int getMaxPendingPages() {
+		return maxPendingPages;
+	}
+
+	/**
+	 * Changes the maximum number of pages that can be downloaded and waiting to be parsed. Pages pending parsing
+	 * keep their permits. If the limit is reduced, new downloads wait until enough of these pages are parsed.
+	 *
+	 * @param maxPendingPages the new maximum number of pending pages.
+	 */
+	public synchronized void setMaxPendingPages(int maxPendingPages) {
+		Args.positive(maxPendingPages, "Maximum number of pages pending parsing");
+		if (disabled) {
+			throw new IllegalStateException("Download backpressure has been disabled");
+		}
+		int delta = maxPendingPages - this.maxPendingPages;
+		this.maxPendingPages = maxPendingPages;
+		if (delta > 0) {
+			permits.release(delta);
+		} else if (delta < 0) {
+			permits.reducePermits(-delta);
+		}
+	}
+
+	/**
+	 * Returns the number of pages currently downloading or waiting to be parsed.
+	 *
+	 * @return the number of permits held, or {@code 0} if the bound has been lifted (see {@link #isDisabled()}).
+	 */
+	public synchronized int getPendingPages() {
+		if (disabled) {
+			return 0;
+		}
+		return maxPendingPages - permits.availablePermits();
+	}
+
+	/**
+	 * Waits until the download of another page can start.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void acquire() throws InterruptedException {
+		if (disabled) {
+			held.incrementAndGet();
+			return;
+		}
+		if (!permits.tryAcquire()) {
+			long start = System.nanoTime();
+			permits.acquire();
+			waitTime.addAndGet(System.nanoTime() - start);
+		}
+		held.incrementAndGet();
+		metrics.queueDepth("pending pages", getPendingPages());
+	}
+
+	/**
+	 * Waits up to the given timeout until the download of another page can start.
+	 *
+	 * @param timeout the maximum time to wait
+	 * @param unit    the unit of the {@code timeout} argument
+	 *
+	 * @return {@code true} if the download can start, or {@code false} if the timeout elapsed.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+		if (disabled) {
+			held.incrementAndGet();
+			return true;
+		}
+		boolean acquired = permits.tryAcquire();
+		if (!acquired) {
+			long start = System.nanoTime();
+			acquired = permits.tryAcquire(timeout, unit);
+			waitTime.addAndGet(System.nanoTime() - start);
+		}
+		if (acquired) {
+			held.incrementAndGet();
+			metrics.queueDepth("pending pages", getPendingPages());
+		}
+		return acquired;
+	}
+
+	/**
+	 * Releases the permit acquired for a page that has been parsed, discarded or whose download failed.
+	 *
+	 * @throws IllegalStateException if no permit is held, i.e. there are more calls to this method than successful
+	 *                               acquisitions.
+	 */
+	public void release() {
+		while (true) {
+			int current = held.get();
+			if (current == 0) {
+				throw new IllegalStateException("No pending page to release. Each release must match a previous acquisition");
+			}
+			if (held.compareAndSet(current, current - 1)) {
+				break;
+			}
+		}
+		permits.release();
+	}
+
+	/**
+	 * Lifts the bound on pending pages for good, releasing all downloads waiting for a permit. Downloads no longer
+	 * wait after this method is called. Used when the limit is disabled with
+	 * {@link RemoteParserSettings#setMaxPendingPages(int)}.
+	 */
+	synchronized void disable() {
+		if (!disabled) {
+			disabled = true;
+			permits.release(Integer.MAX_VALUE / 2);
+		}
+	}
+
+	/**
+	 * Indicates whether the bound on pending pages has been lifted, after the limit was disabled with
+	 * {@link RemoteParserSettings#setMaxPendingPages(int)}.
+	 *
+	 * @return {@code true} if downloads no longer wait for pages to be parsed.
+	 */
+	public boolean isDisabled() {
+		return disabled;
+	}
+
+	/**
+	 * Returns the total time downloads waited for pages to be parsed.
+	 *
+	 * @return the accumulated wait time, in nanoseconds.
+	 */
+	public long getTotalWaitTime() {
+		return waitTime.get();
+	}
+
+	/**
+	 * Defines the {@link ParserMetrics} that receives the number of pending pages, under the queue name
+	 * {@code "pending pages"}, each time a download starts.
+	 *
+	 * @param metrics the metrics collector. If {@code null}, the number of pending pages will not be reported.
+	 */
+	public void setMetrics(ParserMetrics metrics) {
+		this.metrics = metrics == null ? ParserMetrics.NONE : metrics;
+	}
+
+	private static final class PendingPages extends Semaphore {
+		PendingPages(int permits) {
+			super(permits);
+		}
+
+		@Override
+		protected void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.parsers.common.*;
+
+import java.util.*;
+
+/**
+ * Parses the content downloaded for one historical batch, used by {@link HistoricalReplay} to replay many batches in
+ * parallel.
+ *
+ * Implementations usually create a new {@link RemoteParserSettings} configured with
+ * {@link RemoteParserSettings#setParseDate(Date)} or {@link RemoteParserSettings#setBatchId(String)}, then create a
+ * parser with these settings to parse the original input. The files of the batch, resolved by the
+ * {@link HistoricalReplay} before parsing starts, are also given, so implementations can open them directly instead
+ * of looking them up again. Each invocation may run in a different thread, so parsers and settings must not be
+ * shared between invocations.
+ *
+ * @param <T> the type of {@link Result} produced by the parser.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see HistoricalReplay
+ */
+public interface HistoricalParser<T extends Result> {
+
+	/**
+	 * Parses the content downloaded for a given parse date or batch ID.
+	 *
+	 * @param parseDate the parse date of the batch to parse, or {@code null} if replaying by batch ID.
+	 * @param batchId   the ID of the batch to parse, or {@code null} if replaying by parse date.
+	 * @param files     the names of the downloaded files of the batch, in alphabetical order, relative to
+	 *                  {@link RemoteParserSettings#getDownloadContentDirectory()}, or the names of the files in the
+	 *                  {@link SegmentedDownloadStore} if {@link RemoteParserSettings#isSegmentedStorageEnabled()}.
+	 *                  Never empty.
+	 *
+	 * @return the {@link Results} of parsing the given batch.
+	 */
+	Results<T> parse(Date parseDate, String batchId, List<String> files);
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.api.common.*;
+import com.univocity.parsers.common.*;
+
+import java.io.*;
+import java.text.*;
+import java.util.*;
+import java.util.regex.*;
+
+/**
+ * Replays historical batches of downloaded content in parallel, either for a range of parse dates or for a list of
+ * batch IDs.
+ *
+ * All batches to replay are resolved before parsing starts. For a range of dates, each day in the range is
+ * formatted with the mask of the {@code {date}} parameter in {@link RemoteParserSettings#getFileNamePattern()}, and
+ * days that produce the same file names (e.g. with a monthly mask such as {@code {date, yyyy-MM}}) are replayed once.
+ * The downloaded files of every batch are then located in {@link RemoteParserSettings#getDownloadContentDirectory()},
+ * or in the {@link SegmentedDownloadStore} if {@link RemoteParserSettings#isSegmentedStorageEnabled()}, by matching
+ * the stored file names against the file name pattern with the {@code {date}} or {@code {batch}} value of the batch.
+ * If no file is found for any of the batches, the replay fails before any batch is parsed. Otherwise, the files found
+ * for each batch are given to the {@link HistoricalParser}. A {@link SegmentedDownloadStore} opened to locate the
+ * files is closed before parsing starts, and the settings of each batch share a single store (see
+ * {@link RemoteParserSettings#getDownloadStore()}).
+ *
+ * Batches are parsed by a {@link HistoricalParser} through an {@link OrderedBatchExecutor}, which delivers the
+ * {@link Results} of each batch to a {@link BatchListener} in the order of the batches, from the thread that started
+ * the replay.
+ * At most twice as many batches as the configured parallelism are parsed ahead of the listener.
+ *
+ * @param <T> the type of {@link Result} produced by the parser.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see HistoricalParser
+ * @see RemoteParserSettings#setParseDate(Date)
+ * @see RemoteParserSettings#setBatchId(String)
+ */
+public final class HistoricalReplay<T extends Result> {
+
+	private static final String WILDCARD = "\u0000";
+
+	private final HistoricalParser<T> parser;
+	private final RemoteParserSettings<?, ?, ?> settings;
+	private final int parallelism;
+
+	/**
+	 * Creates a new {@code HistoricalReplay}
+	 *
+	 * @param parser      the parser of each historical batch
+	 * @param settings    the settings with the {@link RemoteParserSettings#getFileNamePattern()} used to download
+	 *                    the content to be replayed.
+	 * @param parallelism the number of batches to parse at the same time.
+	 */
+	public HistoricalReplay(HistoricalParser<T> parser, RemoteParserSettings<?, ?, ?> settings, int parallelism) {
+		Args.notNull(parser, "Historical parser");
+		Args.notNull(settings, "Parser settings");
+		Args.positive(parallelism, "Parallelism");
+		this.parser = parser;
+		this.settings = settings;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Returns the number of batches parsed at the same time.
+	 *
+	 * @return the degree of parallelism of this {@code HistoricalReplay}
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Resolves the distinct parse dates in a range of days, according to the mask of the {@code {date}} parameter in
+	 * {@link RemoteParserSettings#getFileNamePattern()}.
+	 *
+	 * @param from the first day of the range
+	 * @param to   the last day of the range (inclusive)
+	 *
+	 * @return the first date of each distinct batch in the range, associated with its formatted value, in
+	 * chronological order.
+	 *
+	 * @throws IllegalStateException if the file name pattern has no {@code {date}} parameter, or if the parameter has
+	 *                               no date mask. Files named after the timestamp of their download can't be matched
+	 *                               to the days of a range.
+	 */
+	public LinkedHashMap<String, Date> resolveDates(Date from, Date to) {
+		Args.notNull(from, "Start date");
+		Args.notNull(to, "End date");
+		if (from.after(to)) {
+			throw new IllegalArgumentException("Start date " + from + " is after end date " + to);
+		}
+		ParameterizedString pattern = settings.getParameterizedFileName();
+		if (!pattern.contains("date")) {
+			throw new IllegalStateException("Unable to replay dates. File name pattern '" + settings.getFileNamePatternText() + "' has no {date} parameter");
+		}
+		String mask = pattern.getFormat("date");
+		if (mask == null) {
+			throw new IllegalStateException("Unable to replay dates. The {date} parameter of file name pattern '" + settings.getFileNamePatternText() + "' has no date mask, so file names have the timestamp of each download. Use a mask such as {date, yyyy-MM-dd}");
+		}
+		SimpleDateFormat format = new SimpleDateFormat(mask);
+
+		LinkedHashMap<String, Date> out = new LinkedHashMap<String, Date>();
+		Calendar day = Calendar.getInstance();
+		day.setTime(from);
+		while (!day.getTime().after(to)) {
+			Date date = day.getTime();
+			String key = format.format(date);
+			if (!out.containsKey(key)) {
+				out.put(key, date);
+			}
+			day.add(Calendar.DAY_OF_MONTH, 1);
+		}
+		return out;
+	}
+
+	/**
+	 * Replays all batches downloaded in a range of days.
+	 *
+	 * @param from     the first day of the range
+	 * @param to       the last day of the range (inclusive)
+	 * @param listener the callback that receives the {@link Results} of each batch, identified by its formatted
+	 *                 parse date, in chronological order.
+	 *
+	 * @throws IllegalStateException if no downloaded content is found for any of the dates in the range, or if the
+	 *                               dates can't be resolved (see {@link #resolveDates(Date, Date)}).
+	 */
+	public void replayDates(Date from, Date to, BatchListener<String, T> listener) {
+		Args.notNull(listener, "Batch listener");
+		LinkedHashMap<String, Date> dates = resolveDates(from, to);
+		List<HistoricalBatch> batches = new ArrayList<HistoricalBatch>(dates.size());
+		for (Map.Entry<String, Date> e : dates.entrySet()) {
+			batches.add(new HistoricalBatch(e.getKey(), e.getValue(), null));
+		}
+		replay(batches, listener);
+	}
+
+	/**
+	 * Replays the given batches.
+	 *
+	 * @param batchIds the IDs of the batches to replay. Duplicate IDs are replayed once.
+	 * @param listener the callback that receives the {@link Results} of each batch, identified by its ID, in the
+	 *                 order of the given IDs.
+	 *
+	 * @throws IllegalStateException if no downloaded content is found for any of the given batch IDs.
+	 */
+	public void replayBatches(Collection<String> batchIds, BatchListener<String, T> listener) {
+		Args.notNull(batchIds, "Batch IDs");
+		Args.notNull(listener, "Batch listener");
+		List<HistoricalBatch> batches = new ArrayList<HistoricalBatch>(batchIds.size());
+		for (String batchId : new LinkedHashSet<String>(batchIds)) {
+			Args.notBlank(batchId, "Batch ID");
+			batches.add(new HistoricalBatch(batchId, null, batchId));
+		}
+		replay(batches, listener);
+	}
+
+	private void replay(List<HistoricalBatch> batches, final BatchListener<String, T> listener) {
+		resolveFiles(batches);
+
+		OrderedBatchExecutor executor = new OrderedBatchExecutor(parallelism, null);
+		executor.setMetrics(settings.getMetrics(), "historical replay");
+		executor.execute(batches, new OrderedBatchExecutor.Task<HistoricalBatch, Results<T>>() {
+			@Override
+			public Results<T> run(HistoricalBatch batch) {
+				return parser.parse(batch.parseDate, batch.batchId, batch.files);
+			}
+		}, new OrderedBatchExecutor.Delivery<HistoricalBatch, Results<T>>() {
+			@Override
+			public void delivered(HistoricalBatch batch, Results<T> results) {
+				listener.inputParsed(batch.key, results);
+			}
+
+			@Override
+			public void failed(HistoricalBatch batch, RuntimeException error) {
+				listener.inputFailed(batch.key, error);
+			}
+		});
+	}
+
+	/**
+	 * Matches the names of the files downloaded against the file name pattern of each batch, collecting the files of
+	 * each batch and failing if any batch has no downloaded content.
+	 *
+	 * @param batches the batches to replay
+	 */
+	private void resolveFiles(List<HistoricalBatch> batches) {
+		List<String> names = new ArrayList<String>(getStoredNames());
+		Collections.sort(names);
+		List<String> missing = new ArrayList<String>();
+		for (HistoricalBatch batch : batches) {
+			Pattern pattern = toPattern(batch);
+			List<String> files = new ArrayList<String>();
+			for (String name : names) {
+				if (pattern.matcher(name).matches()) {
+					files.add(name);
+				}
+			}
+			if (files.isEmpty()) {
+				missing.add(batch.key);
+			} else {
+				batch.files = Collections.unmodifiableList(files);
+			}
+		}
+		if (!missing.isEmpty()) {
+			throw new IllegalStateException("No downloaded content found for batches " + missing + " matching file name pattern '" + settings.getFileNamePatternText() + "' in " + getLocation());
+		}
+	}
+
+	private String getLocation() {
+		if (settings.getDownloadContentDirectory() == null) {
+			return "undefined download content directory";
+		}
+		String directory = settings.getDownloadContentDirectory().getFile().getAbsolutePath();
+		return settings.isSegmentedStorageEnabled() ? "download store at " + directory : directory;
+	}
+
+	private Collection<String> getStoredNames() {
+		if (settings.getDownloadContentDirectory() == null) {
+			throw new IllegalStateException("Historical replay requires a download content directory. Use setDownloadContentDirectory() to define one.");
+		}
+		if (settings.isSegmentedStorageEnabled()) {
+			try {
+				return settings.getDownloadStore().getNames();
+			} finally {
+				settings.closeDownloadStore();
+			}
+		}
+		List<String> out = new ArrayList<String>();
+		listFiles(settings.getDownloadContentDirectory().getFile(), "", out);
+		return out;
+	}
+
+	private static void listFiles(File directory, String path, List<String> out) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (File file : files) {
+			if (file.getName().startsWith(".")) {
+				continue;
+			}
+			if (file.isDirectory()) {
+				listFiles(file, path + file.getName() + "/", out);
+			} else {
+				out.add(path + file.getName());
+			}
+		}
+	}
+
+	/**
+	 * Converts the file name pattern into a regular expression that matches the names of the files of a batch.
+	 * The {@code {date}} and {@code {batch}} parameters are replaced by the values of the batch, all other parameters
+	 * match any value, and any file extension is accepted.
+	 */
+	private Pattern toPattern(HistoricalBatch batch) {
+		ParameterizedString pattern = new ParameterizedString(settings.getFileNamePatternText());
+		for (String parameter : pattern.getParameters()) {
+			if ("date".equals(parameter) && batch.parseDate != null) {
+				pattern.set(parameter, batch.key);
+			} else if ("batch".equals(parameter) && batch.batchId != null) {
+				pattern.set(parameter, batch.batchId);
+			} else {
+				pattern.set(parameter, WILDCARD);
+			}
+		}
+		String text = pattern.applyParameterValues().replace('\\', '/');
+		while (text.startsWith("/")) {
+			text = text.substring(1);
+		}
+		StringBuilder regex = new StringBuilder();
+		String[] literals = text.split(WILDCARD, -1);
+		for (int i = 0; i < literals.length; i++) {
+			if (i > 0) {
+				regex.append(".*");
+			}
+			regex.append(Pattern.quote(literals[i]));
+		}
+		regex.append("(\\.[^/]*)?");
+		return Pattern.compile(regex.toString());
+	}
+
+	private static final class HistoricalBatch {
+		final String key;
+		final Date parseDate;
+		final String batchId;
+		List<String> files;
+
+		HistoricalBatch(String key, Date parseDate, String batchId) {
+			this.key = key;
+			this.parseDate = parseDate;
+			this.batchId = batchId;
+		}
+
+		@Override
+		public String toString() {
+			return key;
+		}
+	}
+}
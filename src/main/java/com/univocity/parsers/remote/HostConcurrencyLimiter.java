@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.api.common.*;
+
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Limits the number of concurrent requests made against each remote host. Used by parsers that access remote
+ * content when {@link RemoteParserSettings#isVirtualThreadsEnabled()} evaluates to {@code true}, in which case the
+ * number of threads no longer bounds how many requests are in flight.
+ *
+ * Each request must {@link #acquire(String)} a permit for the host of its URL before executing, and
+ * {@link #release(String)} it once the response has been received. The limit can be changed with
+ * {@link #setMaxRequestsPerHost(int)} while requests are in flight: permits already acquired remain valid and are
+ * released against the new limit. Each call to {@link #release(String)} must match a previous acquisition.
+ *
+ * The permits of hosts without requests in flight or waiting are discarded as new hosts are accessed, so the number
+ * of hosts tracked doesn't grow with every host ever accessed.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see RemoteParserSettings#getMaxRequestsPerHost()
+ */
+public final class HostConcurrencyLimiter {
+
+	private static final int MIN_EVICTION_THRESHOLD = 64;
+
+	private volatile int maxRequestsPerHost;
+	private int evictionThreshold = MIN_EVICTION_THRESHOLD;
+	private final ConcurrentHashMap<String, HostPermits> permits = new ConcurrentHashMap<String, HostPermits>();
+
+	/**
+	 * Creates a new {@code HostConcurrencyLimiter}
+	 *
+	 * @param maxRequestsPerHost the maximum number of concurrent requests allowed against each host.
+	 */
+	public HostConcurrencyLimiter(int maxRequestsPerHost) {
+		Args.positive(maxRequestsPerHost, "Maximum number of concurrent requests per host");
+		this.maxRequestsPerHost = maxRequestsPerHost;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent requests allowed against each host.
+	 *
+	 * @return the maximum number of requests per host.
+	 */
+	public int getMaxRequestsPerHost() {
+		return maxRequestsPerHost;
+	}
+
+	/**
+	 * Changes the maximum number of concurrent requests allowed against each host. Requests in flight keep their
+	 * permits. If the limit is reduced, new requests against a host wait until enough of them complete.
+	 *
+	 * @param maxRequestsPerHost the new maximum number of concurrent requests allowed against each host.
+	 */
+	public synchronized void setMaxRequestsPerHost(int maxRequestsPerHost) {
+		Args.positive(maxRequestsPerHost, "Maximum number of concurrent requests per host");
+		int delta = maxRequestsPerHost - this.maxRequestsPerHost;
+		this.maxRequestsPerHost = maxRequestsPerHost;
+		if (delta > 0) {
+			for (HostPermits hostPermits : permits.values()) {
+				hostPermits.release(delta);
+			}
+		} else if (delta < 0) {
+			for (HostPermits hostPermits : permits.values()) {
+				hostPermits.reducePermits(-delta);
+			}
+		}
+	}
+
+	/**
+	 * Waits until a request against the host of the given URL can be executed.
+	 *
+	 * @param url the URL to be accessed
+	 *
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void acquire(String url) throws InterruptedException {
+		HostPermits hostPermits = usePermits(url);
+		boolean acquired = false;
+		try {
+			hostPermits.acquire();
+			acquired = true;
+		} finally {
+			hostPermits.acquired(acquired);
+		}
+	}
+
+	/**
+	 * Waits up to the given timeout until a request against the host of the given URL can be executed.
+	 *
+	 * @param url     the URL to be accessed
+	 * @param timeout the maximum time to wait
+	 * @param unit    the unit of the {@code timeout} argument
+	 *
+	 * @return {@code true} if the request can be executed, or {@code false} if the timeout elapsed.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public boolean tryAcquire(String url, long timeout, TimeUnit unit) throws InterruptedException {
+		HostPermits hostPermits = usePermits(url);
+		boolean acquired = false;
+		try {
+			acquired = hostPermits.tryAcquire(timeout, unit);
+		} finally {
+			hostPermits.acquired(acquired);
+		}
+		return acquired;
+	}
+
+	/**
+	 * Releases the permit acquired for a request against the host of the given URL.
+	 *
+	 * @param url the URL that has been accessed
+	 *
+	 * @throws IllegalStateException if no permit is held for the host of the given URL.
+	 */
+	public void release(String url) {
+		String host = getHost(url);
+		HostPermits hostPermits = permits.get(host);
+		if (hostPermits == null || !hostPermits.releaseHeld()) {
+			throw new IllegalStateException("No request in flight against host '" + host + "' to release. Each release must match a previous acquisition");
+		}
+	}
+
+	/**
+	 * Returns the number of requests currently in flight against the host of the given URL.
+	 *
+	 * @param url the URL of the host
+	 *
+	 * @return the number of requests being executed against the host.
+	 */
+	public int getActiveRequests(String url) {
+		synchronized (this) {
+			HostPermits hostPermits = permits.get(getHost(url));
+			return hostPermits == null ? 0 : maxRequestsPerHost - hostPermits.availablePermits();
+		}
+	}
+
+	/**
+	 * Returns the number of hosts whose permits are currently held by this limiter.
+	 *
+	 * @return the number of hosts tracked.
+	 */
+	int getHostCount() {
+		return permits.size();
+	}
+
+	/**
+	 * Returns the permits of the host of a URL, registering the caller as a user of these permits so that they
+	 * can't be evicted until {@link HostPermits#acquired(boolean)} is called.
+	 */
+	private HostPermits usePermits(String url) {
+		String host = getHost(url);
+		while (true) {
+			HostPermits out = permits.get(host);
+			if (out == null) {
+				// synchronized with setMaxRequestsPerHost, so that new hosts can't miss a change of the limit
+				synchronized (this) {
+					out = permits.get(host);
+					if (out == null) {
+						if (permits.size() >= evictionThreshold) {
+							evictUnusedPermits();
+						}
+						out = new HostPermits(maxRequestsPerHost);
+						permits.put(host, out);
+					}
+				}
+			}
+			if (out.use()) {
+				return out;
+			}
+		}
+	}
+
+	/**
+	 * Discards the permits of hosts without requests in flight or waiting. The threshold for the next eviction
+	 * grows with the number of hosts kept, so hosts accessed continuously don't cause an eviction attempt for every
+	 * new host.
+	 */
+	private void evictUnusedPermits() {
+		Iterator<HostPermits> it = permits.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().evictIfUnused()) {
+				it.remove();
+			}
+		}
+		evictionThreshold = Math.max(MIN_EVICTION_THRESHOLD, permits.size() * 2);
+	}
+
+	/**
+	 * Returns the lower case host name of a URL, which identifies the permits and limits applicable to the URL.
+	 * URLs without a scheme, such as {@code www.example.com/path}, are read as if they started with {@code http://}.
+	 * Relative URLs, such as {@code /path/page.html}, don't identify any host and produce an empty {@code String}.
+	 *
+	 * @param url the URL
+	 *
+	 * @return the host of the URL.
+	 */
+	static String getHost(String url) {
+		Args.notNull(url, "URL");
+		url = url.trim();
+		int schemeEnd = url.indexOf("://");
+		if (schemeEnd == -1 || !isScheme(url, schemeEnd)) {
+			if (url.startsWith("//")) {
+				url = "http:" + url;
+			} else if (url.startsWith("/") || url.isEmpty()) {
+				return "";
+			} else {
+				url = "http://" + url;
+			}
+		}
+		try {
+			String host = new URI(url).getHost();
+			if (host != null) {
+				return host.toLowerCase();
+			}
+		} catch (URISyntaxException e) {
+			//not a valid URI, extract the authority manually below.
+		}
+		return extractHost(url).toLowerCase();
+	}
+
+	private static boolean isScheme(String url, int schemeEnd) {
+		if (schemeEnd == 0 || !Character.isLetter(url.charAt(0))) {
+			return false;
+		}
+		for (int i = 1; i < schemeEnd; i++) {
+			char ch = url.charAt(i);
+			if (!Character.isLetterOrDigit(ch) && ch != '+' && ch != '-' && ch != '.') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String extractHost(String url) {
+		int start = url.indexOf("://") + 3;
+		int end = start;
+		while (end < url.length() && "/?#".indexOf(url.charAt(end)) == -1) {
+			end++;
+		}
+		String authority = url.substring(start, end);
+		authority = authority.substring(authority.lastIndexOf('@') + 1);
+		if (authority.startsWith("[")) {
+			int close = authority.indexOf(']');
+			return close == -1 ? authority : authority.substring(0, close + 1);
+		}
+		int port = authority.indexOf(':');
+		return port == -1 ? authority : authority.substring(0, port);
+	}
+
+	private static final class HostPermits extends Semaphore {
+		private static final int EVICTED = -1;
+
+		// requests in flight or waiting for a permit, or EVICTED
+		private final AtomicInteger users = new AtomicInteger();
+		private final AtomicInteger held = new AtomicInteger();
+
+		HostPermits(int permits) {
+			super(permits, true);
+		}
+
+		boolean use() {
+			while (true) {
+				int current = users.get();
+				if (current == EVICTED) {
+					return false;
+				}
+				if (users.compareAndSet(current, current + 1)) {
+					return true;
+				}
+			}
+		}
+
+		void acquired(boolean acquired) {
+			if (acquired) {
+				held.incrementAndGet();
+			} else {
+				users.decrementAndGet();
+			}
+		}
+
+		boolean releaseHeld() {
+			while (true) {
+				int current = held.get();
+				if (current == 0) {
+					return false;
+				}
+				if (held.compareAndSet(current, current - 1)) {
+					release();
+					users.decrementAndGet();
+					return true;
+				}
+			}
+		}
+
+		boolean evictIfUnused() {
+			return users.compareAndSet(0, EVICTED);
+		}
+
+		@Override
+		protected void reducePermits(int reduction) {
+			super.reducePermits(reduction);
+		}
+	}
+}
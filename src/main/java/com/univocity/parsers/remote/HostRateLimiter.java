@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.api.common.*;
+import com.univocity.parsers.common.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Limits the rate of remote requests independently for each host, using a token bucket per host. Each bucket is
+ * refilled at a configured number of requests per second and can accumulate up to a given number of tokens, which
+ * allows short bursts of requests after a period of inactivity.
+ *
+ * Requests to a host are slowed down when the server responds with {@code 429 (Too Many Requests)} or
+ * {@code 503 (Service Unavailable)}: the rate for that host is halved each time, and restored gradually as
+ * successful responses are received. Requests against other hosts are not affected.
+ *
+ * Limits can be defined for specific hosts with {@link #setLimit(String, double, int)}. A host pattern starting
+ * with {@code "*."} matches all subdomains of the given domain (e.g. {@code "*.example.com"}). Hosts without
+ * a specific limit use the default limit given in the constructor. Changing a limit updates the buckets of the hosts
+ * already accessed, which keep their accumulated debt and any slow down.
+ *
+ * Buckets of hosts that are no longer accessed are discarded once they are full again, so the number of buckets
+ * doesn't grow with every host ever accessed.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see RemoteParserSettings#setHostRateLimit(double, int)
+ * @see RemoteParserSettings#setHostRateLimit(String, double, int)
+ */
+public final class HostRateLimiter {
+
+	private static final double MIN_RATE_FACTOR = 1.0 / 16.0;
+	private static final double RECOVERY_FACTOR = 1.0 / 10.0;
+	private static final int MIN_EVICTION_THRESHOLD = 64;
+
+	private static final LongSupplier SYSTEM_CLOCK = new LongSupplier() {
+		@Override
+		public long getAsLong() {
+			return System.nanoTime();
+		}
+	};
+
+	private final LongSupplier clock;
+	private double defaultRequestsPerSecond;
+	private int defaultBurstCapacity;
+	private int evictionThreshold = MIN_EVICTION_THRESHOLD;
+	private final Map<String, double[]> limits = new ConcurrentHashMap<String, double[]>();
+	private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+	private final AtomicLong waitTime = new AtomicLong();
+	private volatile ParserMetrics metrics = ParserMetrics.NONE;
+
+	/**
+	 * Creates a new {@code HostRateLimiter}
+	 *
+	 * @param requestsPerSecond the number of requests per second allowed against each host without a specific limit.
+	 * @param burstCapacity     the maximum number of requests that can be executed at once against each host after
+	 *                          a period of inactivity.
+	 */
+	public HostRateLimiter(double requestsPerSecond, int burstCapacity) {
+		this(requestsPerSecond, burstCapacity, SYSTEM_CLOCK);
+	}
+
+	/**
+	 * Creates a new {@code HostRateLimiter} that reads the time from the given clock instead of
+	 * {@link System#nanoTime()}.
+	 *
+	 * @param requestsPerSecond the number of requests per second allowed against each host without a specific limit.
+	 * @param burstCapacity     the maximum number of requests that can be executed at once against each host.
+	 * @param clock             the source of the current time, in nanoseconds.
+	 */
+	HostRateLimiter(double requestsPerSecond, int burstCapacity, LongSupplier clock) {
+		Args.notNull(clock, "Clock");
+		this.clock = clock;
+		setDefaultLimit(requestsPerSecond, burstCapacity);
+	}
+
+	/**
+	 * Defines the rate limit of hosts without a specific limit.
+	 *
+	 * @param requestsPerSecond the number of requests per second allowed against each host.
+	 * @param burstCapacity     the maximum number of requests that can be executed at once against each host after
+	 *                          a period of inactivity.
+	 */
+	public synchronized void setDefaultLimit(double requestsPerSecond, int burstCapacity) {
+		validate(requestsPerSecond, burstCapacity);
+		this.defaultRequestsPerSecond = requestsPerSecond;
+		this.defaultBurstCapacity = burstCapacity;
+		updateBuckets();
+	}
+
+	/**
+	 * Defines the rate limit of a given host.
+	 *
+	 * @param host              the host name, or a pattern such as {@code "*.example.com"} to match all subdomains of
+	 *                          a domain.
+	 * @param requestsPerSecond the number of requests per second allowed against the host.
+	 * @param burstCapacity     the maximum number of requests that can be executed at once against the host after
+	 *                          a period of inactivity.
+	 */
+	public synchronized void setLimit(String host, double requestsPerSecond, int burstCapacity) {
+		Args.notBlank(host, "Host");
+		validate(requestsPerSecond, burstCapacity);
+		limits.put(host.trim().toLowerCase(), new double[]{requestsPerSecond, burstCapacity});
+		updateBuckets();
+	}
+
+	private void updateBuckets() {
+		long now = clock.getAsLong();
+		for (Map.Entry<String, Bucket> e : buckets.entrySet()) {
+			double[] limit = getLimit(e.getKey());
+			e.getValue().update(limit[0], (int) limit[1], now);
+		}
+	}
+
+	private static void validate(double requestsPerSecond, int burstCapacity) {
+		if (requestsPerSecond <= 0.0) {
+			throw new IllegalArgumentException("Requests per second must be positive. Got " + requestsPerSecond);
+		}
+		Args.positive(burstCapacity, "Burst capacity");
+	}
+
+	/**
+	 * Waits until a request against the host of the given URL can be executed.
+	 *
+	 * @param url the URL to be accessed
+	 *
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void acquire(String url) throws InterruptedException {
+		String host = HostConcurrencyLimiter.getHost(url);
+		long wait;
+		do {
+			wait = getBucketForHost(host).reserve(clock.getAsLong());
+		} while (wait < 0L);
+		metrics.rateLimiterWait(host, wait > 0 ? wait : 0L);
+		if (wait > 0) {
+			waitTime.addAndGet(wait);
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	/**
+	 * Notifies this limiter of the HTTP status code returned for a request against the given URL. Responses with
+	 * status {@code 429} or {@code 503} halve the rate of requests against the host, while other responses
+	 * gradually restore it to its configured limit.
+	 *
+	 * @param url        the URL accessed
+	 * @param statusCode the HTTP status code of the response
+	 */
+	public void onResponse(String url, int statusCode) {
+		String host = HostConcurrencyLimiter.getHost(url);
+		if (statusCode == 429 || statusCode == 503) {
+			while (!getBucketForHost(host).slowDown(clock.getAsLong())) {
+				//bucket evicted, retry with a new one
+			}
+		} else if (statusCode < 400) {
+			while (!getBucketForHost(host).recover(clock.getAsLong())) {
+				//bucket evicted, retry with a new one
+			}
+		}
+	}
+
+	/**
+	 * Returns the current rate of requests allowed against the host of the given URL, which may be lower than
+	 * the configured limit after the server responded with {@code 429} or {@code 503}.
+	 *
+	 * @param url the URL of the host
+	 *
+	 * @return the number of requests per second currently allowed against the host.
+	 */
+	public double getCurrentRate(String url) {
+		return getBucketForHost(HostConcurrencyLimiter.getHost(url)).getRate();
+	}
+
+	/**
+	 * Returns the total time threads spent waiting for this limiter.
+	 *
+	 * @return the accumulated wait time, in nanoseconds.
+	 */
+	public long getTotalWaitTime() {
+		return waitTime.get();
+	}
+
+	/**
+	 * Defines the {@link ParserMetrics} that receives the time each thread waits for this limiter.
+	 *
+	 * @param metrics the metrics collector. If {@code null}, wait times will not be reported.
+	 */
+	public void setMetrics(ParserMetrics metrics) {
+		this.metrics = metrics == null ? ParserMetrics.NONE : metrics;
+	}
+
+	/**
+	 * Returns the number of hosts whose bucket is currently held by this limiter.
+	 *
+	 * @return the number of buckets.
+	 */
+	int getBucketCount() {
+		return buckets.size();
+	}
+
+	private Bucket getBucketForHost(String host) {
+		Bucket out = buckets.get(host);
+		if (out == null) {
+			// synchronized with changes of limits, so that new buckets can't miss a change
+			synchronized (this) {
+				out = buckets.get(host);
+				if (out == null) {
+					if (buckets.size() >= evictionThreshold) {
+						evictIdleBuckets();
+					}
+					double[] limit = getLimit(host);
+					out = new Bucket(limit[0], (int) limit[1], clock.getAsLong());
+					buckets.put(host, out);
+				}
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Discards the buckets that are full and not slowed down. A new bucket created for the same host starts in the
+	 * same state, so nothing is lost. The threshold for the next eviction grows with the number of buckets kept, so
+	 * hosts accessed continuously don't cause an eviction attempt for every new host.
+	 */
+	private void evictIdleBuckets() {
+		long now = clock.getAsLong();
+		Iterator<Bucket> it = buckets.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().evictIfIdle(now)) {
+				it.remove();
+			}
+		}
+		evictionThreshold = Math.max(MIN_EVICTION_THRESHOLD, buckets.size() * 2);
+	}
+
+	private double[] getLimit(String host) {
+		double[] limit = limits.get(host);
+		if (limit != null) {
+			return limit;
+		}
+		String domain = host;
+		int dot;
+		while ((dot = domain.indexOf('.')) != -1) {
+			domain = domain.substring(dot + 1);
+			limit = limits.get("*." + domain);
+			if (limit != null) {
+				return limit;
+			}
+		}
+		return new double[]{defaultRequestsPerSecond, defaultBurstCapacity};
+	}
+
+	private static final class Bucket {
+		private double maxRate;
+		private double capacity;
+		private double rate;
+		private double tokens;
+		private long lastRefill;
+		private boolean evicted;
+
+		Bucket(double requestsPerSecond, int burstCapacity, long now) {
+			this.maxRate = requestsPerSecond;
+			this.rate = requestsPerSecond;
+			this.capacity = burstCapacity;
+			this.tokens = burstCapacity;
+			this.lastRefill = now;
+		}
+
+		private void refill(long now) {
+			tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / 1e9);
+			lastRefill = now;
+		}
+
+		/**
+		 * Takes a token from the bucket, possibly leaving it in debt.
+		 *
+		 * @return the time to wait (in nanoseconds) until the token taken would have been available, or {@code -1}
+		 * if the bucket has been evicted and a new one must be used.
+		 */
+		synchronized long reserve(long now) {
+			if (evicted) {
+				return -1L;
+			}
+			refill(now);
+			tokens -= 1.0;
+			if (tokens >= 0.0) {
+				return 0L;
+			}
+			return (long) (-tokens / rate * 1e9);
+		}
+
+		synchronized boolean slowDown(long now) {
+			if (evicted) {
+				return false;
+			}
+			refill(now);
+			rate = Math.max(maxRate * MIN_RATE_FACTOR, rate / 2.0);
+			tokens = Math.min(tokens, 0.0);
+			return true;
+		}
+
+		synchronized boolean recover(long now) {
+			if (evicted) {
+				return false;
+			}
+			if (rate < maxRate) {
+				refill(now);
+				rate = Math.min(maxRate, rate + maxRate * RECOVERY_FACTOR);
+			}
+			return true;
+		}
+
+		/**
+		 * Applies a new limit, keeping any debt and scaling down the current rate in the same proportion as it has
+		 * been slowed down.
+		 */
+		synchronized void update(double requestsPerSecond, int burstCapacity, long now) {
+			refill(now);
+			rate = rate / maxRate * requestsPerSecond;
+			maxRate = requestsPerSecond;
+			capacity = burstCapacity;
+			tokens = Math.min(tokens, capacity);
+		}
+
+		synchronized boolean evictIfIdle(long now) {
+			refill(now);
+			evicted = tokens >= capacity && rate >= maxRate;
+			return evicted;
+		}
+
+		synchronized double getRate() {
+			return rate;
+		}
+	}
+}
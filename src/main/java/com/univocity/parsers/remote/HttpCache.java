@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.api.common.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * An on-disk cache of HTTP responses, used by parsers to avoid downloading remote content that hasn't changed
+ * since it was last downloaded.
+ *
+ * Each response is stored under a key derived from the request URL and its parameters, along with the
+ * {@code ETag} and {@code Last-Modified} headers returned by the server. When the same request is performed again,
+ * {@link #getConditionalHeaders(String)} provides the {@code If-None-Match} and {@code If-Modified-Since} headers
+ * to be sent with it. If the server responds with {@code 304 (Not Modified)}, {@link #notModified(String, String)}
+ * returns the cached content, otherwise the new content should be given to
+ * {@link #store(String, String, String, String, InputStream)}.
+ *
+ * Requests made by {@link RemoteFollower}s and {@link Paginator}s go through the cache configured with
+ * {@link RemoteParserSettings#setHttpCacheDirectory(String)}.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see RemoteParserSettings#getHttpCache()
+ * @see HttpCacheListener
+ */
+public final class HttpCache {
+
+	private static final String URL = "url";
+	private static final String ETAG = "etag";
+	private static final String LAST_MODIFIED = "lastModified";
+	private static final String LENGTH = "length";
+
+	private final File directory;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private volatile HttpCacheListener listener;
+
+	/**
+	 * Creates a new {@code HttpCache}
+	 *
+	 * @param directory the directory where cached responses are stored. Will be created if it doesn't exist.
+	 */
+	public HttpCache(File directory) {
+		Args.notNull(directory, "Cache directory");
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the directory where cached responses are stored.
+	 *
+	 * @return the cache directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Associates a listener to be notified of cache hits and misses.
+	 *
+	 * @param listener the listener of cache events. Can be {@code null}.
+	 */
+	public void setListener(HttpCacheListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Returns the listener notified of cache hits and misses.
+	 *
+	 * @return the listener of cache events, if any.
+	 */
+	public HttpCacheListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Returns the cache key of a request.
+	 *
+	 * @param url        the URL of the request
+	 * @param parameters the parameters of the request, if any. Their order is irrelevant.
+	 *
+	 * @return the key under which the response of the given request is cached.
+	 */
+	public static String getKey(String url, Map<String, ?> parameters) {
+		Args.notNull(url, "Request URL");
+		StringBuilder tmp = new StringBuilder(url);
+		if (parameters != null && !parameters.isEmpty()) {
+			for (Map.Entry<String, ?> e : new TreeMap<String, Object>(parameters).entrySet()) {
+				tmp.append('\n').append(e.getKey()).append('=').append(e.getValue());
+			}
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(tmp.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder out = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				out.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return out.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Unable to generate cache key of " + url, e);
+		}
+	}
+
+	/**
+	 * Returns the headers to be sent with a request to validate its cached response, if any.
+	 *
+	 * @param key the cache key of the request, obtained from {@link #getKey(String, Map)}
+	 *
+	 * @return a map with the {@code If-None-Match} and/or {@code If-Modified-Since} headers to send. Empty if the
+	 * response of the request isn't cached, in which case the request must not be made conditional.
+	 */
+	public Map<String, String> getConditionalHeaders(String key) {
+		Map<String, String> out = new LinkedHashMap<String, String>();
+		Properties metadata = readMetadata(key);
+		if (metadata != null && isBodyOf(metadata, getBodyFile(key))) {
+			String eTag = metadata.getProperty(ETAG);
+			if (eTag != null) {
+				out.put("If-None-Match", eTag);
+			}
+			String lastModified = metadata.getProperty(LAST_MODIFIED);
+			if (lastModified != null) {
+				out.put("If-Modified-Since", lastModified);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the cached content of a request whose response was {@code 304 (Not Modified)}.
+	 *
+	 * @param key the cache key of the request, obtained from {@link #getKey(String, Map)}
+	 * @param url the URL of the request
+	 *
+	 * @return the file with the cached content.
+	 */
+	public File notModified(String key, String url) {
+		File body = getBodyFile(key);
+		if (!body.isFile()) {
+			throw new IllegalStateException("Cached content of " + url + " not found in " + directory.getAbsolutePath());
+		}
+		long hitCount = hits.incrementAndGet();
+		if (listener != null) {
+			listener.cacheHit(url, hitCount, misses.get());
+		}
+		return body;
+	}
+
+	private static boolean isBodyOf(Properties metadata, File body) {
+		if (!body.isFile()) {
+			return false;
+		}
+		String length = metadata.getProperty(LENGTH);
+		return length == null || length.equals(String.valueOf(body.length()));
+	}
+
+	/**
+	 * Stores the content downloaded for a request, replacing any previously cached content.
+	 *
+	 * The content and its metadata are first written to temporary files in the cache directory, which then
+	 * atomically replace the cached files, metadata last. Readers never observe partially written files, and
+	 * a failure leaves the previously cached response in place. Metadata records the length of the content it
+	 * describes, so that a process interrupted between both replacements won't validate the new content with the
+	 * headers of the previous response.
+	 *
+	 * @param key          the cache key of the request, obtained from {@link #getKey(String, Map)}
+	 * @param url          the URL of the request
+	 * @param eTag         the {@code ETag} header of the response, if any.
+	 * @param lastModified the {@code Last-Modified} header of the response, if any.
+	 * @param content      the content of the response. Will be fully consumed, but not closed.
+	 *
+	 * @return the file with the cached content.
+	 */
+	public File store(String key, String url, String eTag, String lastModified, InputStream content) {
+		Args.notNull(content, "Response content");
+		File body = getBodyFile(key);
+		File dir = body.getParentFile();
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IllegalStateException("Unable to create cache directory " + dir.getAbsolutePath());
+		}
+		File tmpBody = null;
+		File tmpMeta = null;
+		try {
+			tmpBody = File.createTempFile(key, ".body.tmp", dir);
+			OutputStream out = new FileOutputStream(tmpBody);
+			try {
+				byte[] buffer = new byte[8192];
+				int length;
+				while ((length = content.read(buffer)) != -1) {
+					out.write(buffer, 0, length);
+				}
+			} finally {
+				out.close();
+			}
+
+			Properties metadata = new Properties();
+			metadata.setProperty(URL, url);
+			metadata.setProperty(LENGTH, String.valueOf(tmpBody.length()));
+			if (eTag != null) {
+				metadata.setProperty(ETAG, eTag);
+			}
+			if (lastModified != null) {
+				metadata.setProperty(LAST_MODIFIED, lastModified);
+			}
+			tmpMeta = File.createTempFile(key, ".meta.tmp", dir);
+			out = new FileOutputStream(tmpMeta);
+			try {
+				metadata.store(out, null);
+			} finally {
+				out.close();
+			}
+
+			Files.move(tmpBody.toPath(), body.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			tmpBody = null;
+			Files.move(tmpMeta.toPath(), getMetadataFile(key).toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			tmpMeta = null;
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to store content of " + url + " in cache directory " + dir.getAbsolutePath(), e);
+		} finally {
+			if (tmpBody != null) {
+				tmpBody.delete();
+			}
+			if (tmpMeta != null) {
+				tmpMeta.delete();
+			}
+		}
+
+		long missCount = misses.incrementAndGet();
+		if (listener != null) {
+			listener.cacheMiss(url, hits.get(), missCount);
+		}
+		return body;
+	}
+
+	/**
+	 * Removes the cached content of a request, if any.
+	 *
+	 * @param key the cache key of the request, obtained from {@link #getKey(String, Map)}
+	 */
+	public void invalidate(String key) {
+		getMetadataFile(key).delete();
+		getBodyFile(key).delete();
+	}
+
+	/**
+	 * Returns the number of requests served from the cache.
+	 *
+	 * @return the number of cache hits
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of requests that required a full download.
+	 *
+	 * @return the number of cache misses
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	private File getBodyFile(String key) {
+		return new File(new File(directory, key.substring(0, 2)), key + ".body");
+	}
+
+	private File getMetadataFile(String key) {
+		return new File(new File(directory, key.substring(0, 2)), key + ".meta");
+	}
+
+	private Properties readMetadata(String key) {
+		File file = getMetadataFile(key);
+		if (!file.isFile()) {
+			return null;
+		}
+		Properties out = new Properties();
+		try {
+			InputStream in = new FileInputStream(file);
+			try {
+				out.load(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		return out;
+	}
+}
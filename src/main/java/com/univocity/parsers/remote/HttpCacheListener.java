@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.api.statistics.*;
+
+/**
+ * A {@link DownloadListener} that is also notified about the use of the {@link HttpCache} configured with
+ * {@link RemoteParserSettings#setHttpCacheDirectory(String)}. If the {@link DownloadListener} given to
+ * {@link RemoteParserSettings#setDownloadListener(DownloadListener)} implements this interface, it will receive a
+ * notification for every request made through the cache.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see HttpCache
+ */
+public interface HttpCacheListener extends DownloadListener {
+
+	/**
+	 * Notifies that the content of a URL was served from the cache, as the remote server responded with
+	 * {@code 304 (Not Modified)}.
+	 *
+	 * @param url       the URL requested
+	 * @param hitCount  the total number of requests served from the cache so far
+	 * @param missCount the total number of requests that required a full download so far
+	 */
+	void cacheHit(String url, long hitCount, long missCount);
+
+	/**
+	 * Notifies that the content of a URL was not in the cache, or changed since it was cached, and had to be
+	 * downloaded.
+	 *
+	 * @param url       the URL requested
+	 * @param hitCount  the total number of requests served from the cache so far
+	 * @param missCount the total number of requests that required a full download so far
+	 */
+	void cacheMiss(String url, long hitCount, long missCount);
+}
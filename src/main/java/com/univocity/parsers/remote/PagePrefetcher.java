@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.api.common.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Downloads pages managed by a {@link Paginator} ahead of time, while the current page is still being parsed.
+ *
+ * Parsers with support for pagination schedule the download of the next pages as soon as their URLs can be
+ * predicted, e.g. from the {@link Paginator#NEXT_PAGE_NUMBER}, or from the {@link Paginator#NEXT_PAGE} field
+ * once it has been extracted from the current page. Once the {@link NextInputHandler} has prepared the call to
+ * the next page, {@link #take(String)} returns the content downloaded for its URL, if it was prefetched. Prefetched
+ * pages whose URLs turn out to be different from the actual next page are discarded.
+ *
+ * At most {@link Paginator#getPrefetchDepth()} pages are downloaded ahead of the page being parsed, and no more
+ * pages than allowed by {@link Paginator#getFollowCount()} are ever scheduled.
+ *
+ * @param <T> the type of content produced by the download of a page (e.g. the downloaded file).
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see Paginator#setPrefetchDepth(int)
+ * @see Paginator#newPagePrefetcher(ExecutorService)
+ */
+public final class PagePrefetcher<T> {
+
+	private final ExecutorService executor;
+	private final int prefetchDepth;
+	private final int followCount;
+	private final LinkedHashMap<String, Future<T>> pending = new LinkedHashMap<String, Future<T>>();
+	private int pagesTaken;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Creates a new {@code PagePrefetcher}
+	 *
+	 * @param executor      the executor used to download pages in the background
+	 * @param prefetchDepth the maximum number of pages to download ahead of the page being parsed.
+	 * @param followCount   the maximum number of pages that can be visited, or {@code -1} for no limit.
+	 */
+	public PagePrefetcher(ExecutorService executor, int prefetchDepth, int followCount) {
+		Args.notNull(executor, "Executor");
+		Args.positiveOrZero(prefetchDepth, "Prefetch depth");
+		this.executor = executor;
+		this.prefetchDepth = prefetchDepth;
+		this.followCount = followCount;
+	}
+
+	/**
+	 * Schedules the download of a page in the background, if the prefetch window has room for it and the page would
+	 * not exceed the follow count of the {@link Paginator}.
+	 *
+	 * @param url      the URL of the page to download
+	 * @param download the task that downloads the page
+	 *
+	 * @return {@code true} if the download was scheduled or the URL was already scheduled, {@code false} if the
+	 * page can't be prefetched and must be downloaded when required.
+	 */
+	public synchronized boolean schedule(String url, Callable<T> download) {
+		Args.notNull(url, "URL of page to prefetch");
+		Args.notNull(download, "Page download task");
+		if (pending.containsKey(url)) {
+			return true;
+		}
+		if (pending.size() >= prefetchDepth) {
+			return false;
+		}
+		if (followCount >= 0 && pagesTaken + pending.size() >= followCount) {
+			return false;
+		}
+		pending.put(url, executor.submit(download));
+		return true;
+	}
+
+	/**
+	 * Tests whether there's room to schedule the download of more pages.
+	 *
+	 * @return {@code true} if another page can be prefetched, otherwise {@code false}
+	 */
+	public synchronized boolean canSchedule() {
+		return pending.size() < prefetchDepth && (followCount < 0 || pagesTaken + pending.size() < followCount);
+	}
+
+	/**
+	 * Returns the prefetched content of the page with the given URL, waiting for its download to complete if
+	 * required. Pages scheduled before the given URL are considered skipped, and their downloads are cancelled.
+	 * If the given URL was not prefetched, all pending downloads are cancelled as the pages predicted don't follow
+	 * the actual pagination.
+	 *
+	 * @param url the URL of the next page to be parsed
+	 *
+	 * @return the content of the page, or {@code null} if it was not prefetched and must be downloaded by the caller.
+	 */
+	public T take(String url) {
+		Future<T> future;
+		synchronized (this) {
+			pagesTaken++;
+			future = pending.get(url);
+			if (future == null) {
+				misses++;
+				cancelPending();
+				return null;
+			}
+			hits++;
+			Iterator<Map.Entry<String, Future<T>>> it = pending.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<String, Future<T>> e = it.next();
+				it.remove();
+				if (e.getValue() == future) {
+					break;
+				}
+				e.getValue().cancel(true);
+			}
+		}
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Thread interrupted while waiting for download of page " + url, e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Error downloading page " + url, cause);
+		}
+	}
+
+	/**
+	 * Returns the number of pages obtained through {@link #take(String)} that had been prefetched.
+	 *
+	 * @return the number of pages successfully prefetched.
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of pages obtained through {@link #take(String)} that had not been prefetched.
+	 *
+	 * @return the number of pages that had to be downloaded by the caller.
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Cancels all pending downloads. Used when the pagination stops.
+	 */
+	public synchronized void cancel() {
+		cancelPending();
+	}
+
+	private void cancelPending() {
+		for (Future<T> future : pending.values()) {
+			future.cancel(true);
+		}
+		pending.clear();
+	}
+}
@@ -11,6 +11,7 @@ import com.univocity.parsers.common.*;
 
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * An abstract class that allows {@link com.univocity.parsers.common.EntityParserInterface} implementations that work
@@ -30,6 +31,7 @@ public abstract class Paginator<E extends RemoteEntitySettings, P extends Pagina
 	private int followCount = -1;
 	private NextInputHandler<P> paginationHandler;
 	private boolean urlTestingEnabled = false;
+	private int prefetchDepth = 0;
 
 	/**
 	 * Reserved field name used by the paginator to store itself as an entity
@@ -168,4 +170,50 @@ public abstract class Paginator<E extends RemoteEntitySettings, P extends Pagina
 	public void setUrlTestingEnabled(boolean urlTestingEnabled) {
 		this.urlTestingEnabled = urlTestingEnabled;
 	}
+
+	/**
+	 * Returns the number of pages that can be downloaded ahead of the page being parsed, when the URLs of the next
+	 * pages are predictable (e.g. from the {@link #NEXT_PAGE_NUMBER}, or from the {@link #NEXT_PAGE} field once it is
+	 * extracted from the current page). Prefetched pages are never more than allowed by {@link #getFollowCount()}.
+	 *
+	 * <i>Defaults to {@code 0} (pages are downloaded only after the current page has been parsed)</i>
+	 *
+	 * @return the maximum number of pages to download in advance.
+	 */
+	public final int getPrefetchDepth() {
+		return prefetchDepth;
+	}
+
+	/**
+	 * Defines the number of pages that can be downloaded ahead of the page being parsed, when the URLs of the next
+	 * pages are predictable (e.g. from the {@link #NEXT_PAGE_NUMBER}, or from the {@link #NEXT_PAGE} field once it is
+	 * extracted from the current page). Prefetched pages are never more than allowed by {@link #getFollowCount()}.
+	 *
+	 * If a {@link NextInputHandler} modifies the call to the next page, a prefetched page is only used if its URL
+	 * matches the URL of the call prepared by the handler.
+	 *
+	 * <i>Defaults to {@code 0} (pages are downloaded only after the current page has been parsed)</i>
+	 *
+	 * @param prefetchDepth the maximum number of pages to download in advance.
+	 */
+	public final void setPrefetchDepth(int prefetchDepth) {
+		Args.positiveOrZero(prefetchDepth, "Prefetch depth");
+		this.prefetchDepth = prefetchDepth;
+	}
+
+	/**
+	 * Creates a {@link PagePrefetcher} to download pages in advance from a given starting point, according to the
+	 * {@link #getPrefetchDepth()} and {@link #getFollowCount()} of this {@code Paginator}.
+	 *
+	 * @param executor the executor used to download pages in the background
+	 * @param <T>      the type of content produced by the download of a page.
+	 *
+	 * @return a new {@link PagePrefetcher}, or {@code null} if prefetching is disabled.
+	 */
+	public final <T> PagePrefetcher<T> newPagePrefetcher(ExecutorService executor) {
+		if (prefetchDepth <= 0 || followCount == 0) {
+			return null;
+		}
+		return new PagePrefetcher<T>(executor, prefetchDepth, followCount);
+	}
 }
@@ -110,4 +110,27 @@ public interface RemoteContext {
 	 * @return the active {@link RateLimiter}
 	 */
 	RateLimiter getRateLimiter();
+
+	/**
+	 * Returns the {@link HostRateLimiter} used by the parser to limit the rate of requests against each host, as
+	 * configured with {@link RemoteParserSettings#setHostRateLimit(double, int)}. When available, the parser reports
+	 * the status code of every {@link #getCurrentResponse()} to this limiter, which slows down requests against hosts
+	 * that respond with {@code 429} or {@code 503}.
+	 *
+	 * @return the active {@link HostRateLimiter}, or {@code null} if requests are limited by the {@link RateLimiter}
+	 * returned by {@link #getRateLimiter()}.
+	 */
+	default HostRateLimiter getHostRateLimiter() {
+		return null;
+	}
+
+	/**
+	 * Returns the {@link DownloadBackpressure} that bounds the number of pages downloaded but not yet parsed, as
+	 * configured with {@link RemoteParserSettings#setMaxPendingPages(int)}.
+	 *
+	 * @return the active {@link DownloadBackpressure}, or {@code null} if downloads are not bounded.
+	 */
+	default DownloadBackpressure getDownloadBackpressure() {
+		return null;
+	}
 }
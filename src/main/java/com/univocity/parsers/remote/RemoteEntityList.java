@@ -56,9 +56,22 @@ public abstract class RemoteEntityList<S extends RemoteEntitySettings> extends E
 		return super.configureEntity(entityName, parentEntity);
 	}
 
+	/**
+	 * Returns the {@link ExecutorService} used to download remote content associated with the parsed input. If
+	 * {@link RemoteParserSettings#isVirtualThreadsEnabled()} evaluates to {@code true} and the JVM supports virtual
+	 * threads, each download runs in a new virtual thread. Otherwise a fixed pool with
+	 * {@link RemoteParserSettings#getDownloadThreads()} threads is used.
+	 *
+	 * @return the executor of downloads.
+	 */
 	protected final synchronized ExecutorService getDownloadThreadPool(){
 		if(downloadThreadPool == null || downloadThreadPool.isShutdown()){
-			this.downloadThreadPool = Executors.newFixedThreadPool(getParserSettings().getDownloadThreads(), new DaemonThreadFactory());
+			RemoteParserSettings settings = getParserSettings();
+			ExecutorService executor = settings.isVirtualThreadsEnabled() ? VirtualThreads.newExecutor() : null;
+			if(executor == null){
+				executor = Executors.newFixedThreadPool(settings.getDownloadThreads(), new DaemonThreadFactory());
+			}
+			this.downloadThreadPool = executor;
 		}
 		return downloadThreadPool;
 	}
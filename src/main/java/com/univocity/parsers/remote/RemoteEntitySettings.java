@@ -202,7 +202,11 @@ public abstract class RemoteEntitySettings<C extends Context, S extends CommonPa
 	}
 
 	/**
-	 * Adds a filter to the entity to prevent unwanted rows to be processed.
+	 * Adds a filter to the entity to prevent unwanted rows to be processed. Filters receive fully built records,
+	 * after all {@link FieldPredicate}s added with {@link #addFieldPredicate(FieldPredicate)} accepted the row.
+	 * Prefer field predicates when a condition depends on the values of individual fields only, as they discard
+	 * rows before their remaining fields are extracted.
+	 *
 	 * @param filter the callback {@link RecordFilter} to filter incoming records of this entity.
 	 */
 	public final void addRecordFilter(RecordFilter<? extends com.univocity.parsers.common.record.Record, C> filter) {
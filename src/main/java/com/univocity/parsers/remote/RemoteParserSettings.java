@@ -17,6 +17,7 @@ import java.nio.charset.*;
 import java.text.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Function;
 
 /**
  * Base configuration class of a parser that can connect to a remote location, obtain data to parse and produce records
@@ -41,6 +42,14 @@ import java.util.concurrent.*;
 public abstract class RemoteParserSettings<S extends CommonParserSettings, L extends RemoteEntityList, C extends Context> extends EntityParserSettings<S, L, C> implements CommonFollowerOptions {
 
 	private static ExecutorService DEFAULT_THREAD_POOL;
+	private static ExecutorService DEFAULT_VIRTUAL_THREAD_EXECUTOR;
+
+	private static final Function<File, IncrementalParsingIndex> OPEN_INCREMENTAL_PARSING_INDEX = new Function<File, IncrementalParsingIndex>() {
+		@Override
+		public IncrementalParsingIndex apply(File directory) {
+			return new IncrementalParsingIndex(directory);
+		}
+	};
 
 	private String emptyValue;
 	protected Paginator paginator;
@@ -49,6 +58,7 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 	private FileProvider downloadContentDirectory;
 	protected Boolean downloadBeforeParsingEnabled = null;
 	private ParameterizedString fileNamePattern;
+	private String fileNamePatternText;
 	private boolean downloadOverwritingEnabled = true;
 	private Boolean downloadEnabled;
 
@@ -56,10 +66,31 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 	private boolean ignoreLinkFollowingErrors = false;
 
 	private DownloadListener downloadListener;
+	private FileProvider httpCacheDirectory;
+	private HttpCache httpCache;
+
+	private boolean segmentedStorageEnabled = false;
+	private long maxSegmentSize = 256L * 1024L * 1024L;
+	private SharedReference<SegmentedDownloadStore> downloadStore = new SharedReference<SegmentedDownloadStore>(this, "Download store");
+	private boolean memoryMappingEnabled = false;
+	private boolean incrementalParsingEnabled = false;
+	private SharedReference<IncrementalParsingIndex> incrementalParsingIndex = new SharedReference<IncrementalParsingIndex>(this, "Incremental parsing index");
+	private int skippedPagesOfClosedIndexes;
+
+	private boolean urlDeduplicationEnabled = false;
+	private long expectedUrlCount = 1000000L;
+	private int deduplicatedResultCacheSize = 10000;
 	private int downloadThreads = 4;
+	private int maxPendingPages = -1;
+	private DownloadBackpressure downloadBackpressure;
+
+	private boolean virtualThreadsEnabled = false;
+	private int maxRequestsPerHost = 4;
+	private HostConcurrencyLimiter hostConcurrencyLimiter;
 
 	private ExecutorService executorService;
 	private long remoteInterval = 15L;
+	private HostRateLimiter hostRateLimiter;
 
 	private Date parseDate;
 	private String batchId;
@@ -77,22 +108,34 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 	 * Configures the parser to store a local copy of the remote content in the filesystem.
 	 * If the downloaded content is text, it will be stored using the system default encoding
 	 *
+	 * If a {@link SegmentedDownloadStore} or an {@link IncrementalParsingIndex} was opened in the previous directory,
+	 * it is closed (see {@link #closeDownloadStore()} and {@link #closeIncrementalParsingIndex()}).
+	 *
 	 * @param path the path to the target directory. It can contain system variables enclosed within { and }
 	 *             (e.g. {@code {user.home}/Downloads"}). Subdirectories that don't exist will be created if required.
 	 */
-	public final void setDownloadContentDirectory(String path) {
-		downloadContentDirectory = new FileProvider(path);
+	public final synchronized void setDownloadContentDirectory(String path) {
+		FileProvider directory = new FileProvider(path);
+		releaseDownloadStore();
+		releaseIncrementalParsingIndex();
+		downloadContentDirectory = directory;
 	}
 
 	/**
 	 * Configures the parser to store a local copy of the remote content in the filesystem.
 	 * If the downloaded content is text, it will be stored using the system default encoding
 	 *
+	 * If a {@link SegmentedDownloadStore} or an {@link IncrementalParsingIndex} was opened in the previous directory,
+	 * it is closed (see {@link #closeDownloadStore()} and {@link #closeIncrementalParsingIndex()}).
+	 *
 	 * @param directory the target directory. Subdirectories that don't exist will be created if required.
 	 */
 	@UI(order = 1)
-	public final void setDownloadContentDirectory(File directory) {
-		downloadContentDirectory = new FileProvider(directory);
+	public final synchronized void setDownloadContentDirectory(File directory) {
+		FileProvider provider = new FileProvider(directory);
+		releaseDownloadStore();
+		releaseIncrementalParsingIndex();
+		downloadContentDirectory = provider;
 	}
 
 	/**
@@ -104,6 +147,21 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 		return downloadContentDirectory;
 	}
 
+	/**
+	 * Returns the directory where temporary files should be created when the rows being processed don't fit in the
+	 * memory limits configured for the parser, such as {@link #getJoinMemoryLimit()}.
+	 *
+	 * <i>Defaults to the directory returned by {@link #getDownloadContentDirectory()}, if any. Otherwise the system's
+	 * temporary directory will be used.</i>
+	 *
+	 * @return a {@link FileProvider} pointing to the directory to store temporary files, or {@code null} if undefined.
+	 */
+	@Override
+	public FileProvider getSpillDirectory() {
+		FileProvider out = super.getSpillDirectory();
+		return out == null ? downloadContentDirectory : out;
+	}
+
 	/**
 	 * Sets the pattern that names of downloaded files should follow. For example, setting the pattern as
 	 * "/search/file{page}" will make pages stored in the search folder with the name "file1.html", "file2.html"
@@ -191,6 +249,7 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 	@UI(order = 2)
 	public final void setFileNamePattern(String pattern) {
 		fileNamePattern = new ParameterizedString(pattern);
+		fileNamePatternText = pattern;
 		parseDate = null;
 	}
 
@@ -316,11 +375,18 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 
 	final ParameterizedString getParameterizedFileName() {
 		if (fileNamePattern == null) {
-			fileNamePattern = new ParameterizedString("file_{page}");
+			fileNamePattern = new ParameterizedString(getFileNamePatternText());
 		}
 		return fileNamePattern;
 	}
 
+	final String getFileNamePatternText() {
+		if (fileNamePatternText == null) {
+			fileNamePatternText = "file_{page}";
+		}
+		return fileNamePatternText;
+	}
+
 	/**
 	 * Sets the value of a parameter in the filename pattern defined in {@link #setFileNamePattern(String)}.
 	 *
@@ -459,11 +525,24 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 	 * Associates a {@link DataTransfer} with the parser, which will receive updates on the progress of downloads
 	 * made by the parser.
 	 *
+	 * If the listener implements {@link HttpCacheListener}, it also receives the hits and misses of the
+	 * {@link HttpCache} returned by {@link #getHttpCache()}, which is shared with the settings of
+	 * {@link RemoteFollower}s.
+	 *
 	 * @param downloadListener the listener that should receive notifications regarding the progress of downloads
 	 *                         performed by the parser.
 	 */
 	public void setDownloadListener(DownloadListener downloadListener) {
-		this.downloadListener = downloadListener;
+		synchronized (this) {
+			this.downloadListener = downloadListener;
+			if (httpCache != null) {
+				httpCache.setListener(getHttpCacheListener());
+			}
+		}
+	}
+
+	private HttpCacheListener getHttpCacheListener() {
+		return downloadListener instanceof HttpCacheListener ? (HttpCacheListener) downloadListener : null;
 	}
 
 	/**
@@ -502,6 +581,403 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 		this.downloadOverwritingEnabled = downloadOverwritingEnabled;
 	}
 
+	/**
+	 * Defines a directory to cache HTTP responses, enabling conditional requests. When a response is cached, requests
+	 * for the same URL and parameters made by {@link RemoteFollower}s and {@link Paginator}s are sent with the
+	 * {@code If-None-Match} and {@code If-Modified-Since} headers, and the cached content is used if the remote server
+	 * responds with {@code 304 (Not Modified)}. Unlike {@link #setDownloadOverwritingEnabled(boolean)}, this allows
+	 * changed content to be downloaded again.
+	 *
+	 * Cache hits and misses are reported to the {@link #getDownloadListener()} if it implements
+	 * {@link HttpCacheListener}.
+	 *
+	 * <i>Defaults to {@code null} (no caching)</i>
+	 *
+	 * @param path the path to the directory where HTTP responses will be cached.
+	 */
+	public final void setHttpCacheDirectory(String path) {
+		setHttpCacheDirectory(path == null ? null : new FileProvider(path));
+	}
+
+	/**
+	 * Defines a directory to cache HTTP responses, enabling conditional requests. When a response is cached, requests
+	 * for the same URL and parameters made by {@link RemoteFollower}s and {@link Paginator}s are sent with the
+	 * {@code If-None-Match} and {@code If-Modified-Since} headers, and the cached content is used if the remote server
+	 * responds with {@code 304 (Not Modified)}. Unlike {@link #setDownloadOverwritingEnabled(boolean)}, this allows
+	 * changed content to be downloaded again.
+	 *
+	 * Cache hits and misses are reported to the {@link #getDownloadListener()} if it implements
+	 * {@link HttpCacheListener}.
+	 *
+	 * <i>Defaults to {@code null} (no caching)</i>
+	 *
+	 * @param directory the directory where HTTP responses will be cached.
+	 */
+	public final void setHttpCacheDirectory(File directory) {
+		setHttpCacheDirectory(directory == null ? null : new FileProvider(directory));
+	}
+
+	private synchronized void setHttpCacheDirectory(FileProvider directory) {
+		this.httpCacheDirectory = directory;
+		this.httpCache = null;
+	}
+
+	/**
+	 * Returns the directory where HTTP responses are cached.
+	 *
+	 * @return the HTTP cache directory, or {@code null} if caching is disabled.
+	 */
+	public final FileProvider getHttpCacheDirectory() {
+		return httpCacheDirectory;
+	}
+
+	/**
+	 * Returns the {@link HttpCache} used by the parser to perform conditional requests, if a directory has been
+	 * defined with {@link #setHttpCacheDirectory(String)}.
+	 *
+	 * @return the HTTP cache, or {@code null} if caching is disabled.
+	 */
+	public final synchronized HttpCache getHttpCache() {
+		if (httpCacheDirectory == null) {
+			return null;
+		}
+		if (httpCache == null) {
+			httpCache = new HttpCache(httpCacheDirectory.getFile());
+			httpCache.setListener(getHttpCacheListener());
+		}
+		return httpCache;
+	}
+
+	/**
+	 * Indicates whether pages whose content didn't change since a previous parsing process should not be parsed
+	 * again. When enabled, the fingerprint of each downloaded page is compared against the fingerprint recorded in
+	 * an {@link IncrementalParsingIndex} stored in the {@code .incremental} directory inside
+	 * {@link #getDownloadContentDirectory()}. If they match, the rows parsed previously from the page are reused.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @return flag indicating whether unchanged pages are skipped.
+	 */
+	public final boolean isIncrementalParsingEnabled() {
+		return incrementalParsingEnabled;
+	}
+
+	/**
+	 * Configures the parser to skip pages whose content didn't change since a previous parsing process. When enabled,
+	 * the fingerprint of each downloaded page is compared against the fingerprint recorded for the same page in an
+	 * {@link IncrementalParsingIndex} stored in the {@code .incremental} directory inside
+	 * {@link #getDownloadContentDirectory()}. If they match, the rows parsed previously from the page are reused.
+	 *
+	 * If the configuration of the entities changes, the {@code .incremental} directory should be deleted.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @param incrementalParsingEnabled flag indicating whether unchanged pages should be skipped.
+	 */
+	@UI
+	public final void setIncrementalParsingEnabled(boolean incrementalParsingEnabled) {
+		this.incrementalParsingEnabled = incrementalParsingEnabled;
+	}
+
+	/**
+	 * Returns the {@link IncrementalParsingIndex} with the fingerprints of the pages parsed previously, if
+	 * {@link #isIncrementalParsingEnabled()} evaluates to {@code true}. The index is opened on the first call to this
+	 * method and shared by all requests of the parser, including the requests of {@link RemoteFollower}s, whose
+	 * settings are cloned from these and use the same index instance. Pages recorded in the index are persisted
+	 * immediately, and {@link #closeIncrementalParsingIndex()} releases it once parsing completes.
+	 *
+	 * @return the incremental parsing index, or {@code null} if incremental parsing is disabled.
+	 */
+	public final synchronized IncrementalParsingIndex getIncrementalParsingIndex() {
+		if (!incrementalParsingEnabled) {
+			return null;
+		}
+		if (downloadContentDirectory == null) {
+			throw new IllegalStateException("Incremental parsing requires a download content directory. Use setDownloadContentDirectory() to define one.");
+		}
+		return incrementalParsingIndex.get(new File(downloadContentDirectory.getFile(), ".incremental"), OPEN_INCREMENTAL_PARSING_INDEX);
+	}
+
+	/**
+	 * Closes the {@link IncrementalParsingIndex} opened by {@link #getIncrementalParsingIndex()}, if any, compacting
+	 * its log and deleting the rows of pages no longer referenced. Parsers call this method once the parsing process
+	 * completes, and the index is opened again if {@link #getIncrementalParsingIndex()} is invoked afterwards.
+	 *
+	 * The index is owned by the settings that opened it: settings cloned for {@link RemoteFollower}s share it but
+	 * never close it, and calling this method on them has no effect. If the download content directory of a clone
+	 * is changed, the clone stops sharing the index of the original settings and opens its own.
+	 */
+	public final synchronized void closeIncrementalParsingIndex() {
+		if (incrementalParsingIndex.owner == this) {
+			closeOwnIncrementalParsingIndex();
+		}
+	}
+
+	private void releaseIncrementalParsingIndex() {
+		if (incrementalParsingIndex.owner == this) {
+			closeOwnIncrementalParsingIndex();
+		} else {
+			incrementalParsingIndex = new SharedReference<IncrementalParsingIndex>(this, "Incremental parsing index");
+		}
+	}
+
+	private void closeOwnIncrementalParsingIndex() {
+		IncrementalParsingIndex closed = incrementalParsingIndex.close();
+		if (closed != null) {
+			skippedPagesOfClosedIndexes += closed.getSkippedPageCount();
+		}
+	}
+
+	/**
+	 * Returns the number of pages that were not parsed because their content didn't change since a previous
+	 * parsing process, when {@link #isIncrementalParsingEnabled()} evaluates to {@code true}. Pages skipped
+	 * through an index shared with the original settings of a clone are counted by both.
+	 *
+	 * @return the number of unchanged pages skipped.
+	 */
+	public final synchronized int getSkippedPageCount() {
+		IncrementalParsingIndex index = incrementalParsingIndex.get();
+		return skippedPagesOfClosedIndexes + (index == null ? 0 : index.getSkippedPageCount());
+	}
+
+	/**
+	 * Indicates whether files downloaded previously are memory-mapped when parsed without downloading them again
+	 * (i.e. when {@link #isDownloadEnabled()} evaluates to {@code false}). Mapped files are decoded with
+	 * {@link #getTextEncoding()} directly from the mapped buffer by a {@link MappedFileReader}, which makes the
+	 * replay of large batches bound by parsing rather than by reading the files.
+	 *
+	 * Content read from a {@link SegmentedDownloadStore} is compressed and is never mapped.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @return flag indicating whether downloaded files are memory-mapped when parsed.
+	 */
+	public final boolean isMemoryMappingEnabled() {
+		return memoryMappingEnabled;
+	}
+
+	/**
+	 * Configures the parser to memory-map files downloaded previously when parsing them without downloading them again
+	 * (i.e. when {@link #isDownloadEnabled()} evaluates to {@code false}). Mapped files are decoded with
+	 * {@link #getTextEncoding()} directly from the mapped buffer by a {@link MappedFileReader}, which makes the
+	 * replay of large batches bound by parsing rather than by reading the files.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @param memoryMappingEnabled flag indicating whether downloaded files should be memory-mapped when parsed.
+	 */
+	@UI
+	public final void setMemoryMappingEnabled(boolean memoryMappingEnabled) {
+		this.memoryMappingEnabled = memoryMappingEnabled;
+	}
+
+	/**
+	 * Indicates whether downloaded content is stored in compressed, append-only segment files.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @return flag indicating whether downloads are stored in segment files.
+	 */
+	public final boolean isSegmentedStorageEnabled() {
+		return segmentedStorageEnabled;
+	}
+
+	/**
+	 * Configures the parser to store downloaded content in compressed, append-only segment files inside
+	 * {@link #getDownloadContentDirectory()}, instead of one file per page named after
+	 * {@link #getFileNamePattern()}. This avoids creating millions of small files when crawling large sites.
+	 * The resolved file name of each page is used as its logical name in the index of the
+	 * {@link SegmentedDownloadStore}, so historical reprocessing with {@link #setParseDate(Date)} and
+	 * {@link #setBatchId(String)} works the same way.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * Disabling segmented storage closes the {@link SegmentedDownloadStore} opened previously, if any
+	 * (see {@link #closeDownloadStore()}).
+	 *
+	 * @param segmentedStorageEnabled flag indicating whether downloads should be stored in segment files.
+	 */
+	@UI
+	public final synchronized void setSegmentedStorageEnabled(boolean segmentedStorageEnabled) {
+		this.segmentedStorageEnabled = segmentedStorageEnabled;
+		if (!segmentedStorageEnabled) {
+			releaseDownloadStore();
+		}
+	}
+
+	/**
+	 * Returns the size after which a new segment file is started when {@link #isSegmentedStorageEnabled()}
+	 * evaluates to {@code true}.
+	 *
+	 * <i>Defaults to 256 MB</i>
+	 *
+	 * @return the maximum size of each segment file, in bytes.
+	 */
+	public final long getMaxSegmentSize() {
+		return maxSegmentSize;
+	}
+
+	/**
+	 * Defines the size after which a new segment file is started when {@link #isSegmentedStorageEnabled()}
+	 * evaluates to {@code true}. Applies to download stores opened after this method is called.
+	 *
+	 * <i>Defaults to 256 MB</i>
+	 *
+	 * @param maxSegmentSize the maximum size of each segment file, in bytes.
+	 */
+	public final void setMaxSegmentSize(long maxSegmentSize) {
+		Args.positive(maxSegmentSize, "Maximum segment size");
+		this.maxSegmentSize = maxSegmentSize;
+	}
+
+	/**
+	 * Returns the {@link SegmentedDownloadStore} where downloaded content is stored and read from, if
+	 * {@link #isSegmentedStorageEnabled()} evaluates to {@code true}. The store is opened on the first call to this
+	 * method and shared by all requests of the parser, including the requests of {@link RemoteFollower}s, whose
+	 * settings are cloned from these and use the same store instance. It remains open until
+	 * {@link #closeDownloadStore()} is called, the download content directory changes, or segmented storage is
+	 * disabled. Independent settings that use the same directory share the same store.
+	 *
+	 * @return the download store, or {@code null} if segmented storage is disabled.
+	 */
+	public final synchronized SegmentedDownloadStore getDownloadStore() {
+		if (!segmentedStorageEnabled) {
+			return null;
+		}
+		if (downloadContentDirectory == null) {
+			throw new IllegalStateException("Segmented storage requires a download content directory. Use setDownloadContentDirectory() to define one.");
+		}
+		final long maxSegmentSize = this.maxSegmentSize;
+		return downloadStore.get(downloadContentDirectory.getFile(), new Function<File, SegmentedDownloadStore>() {
+			@Override
+			public SegmentedDownloadStore apply(File directory) {
+				return SegmentedDownloadStore.open(directory, maxSegmentSize);
+			}
+		});
+	}
+
+	/**
+	 * Closes the {@link SegmentedDownloadStore} opened by {@link #getDownloadStore()}, if any. Parsers call this
+	 * method once the parsing process completes, and a new store is opened if {@link #getDownloadStore()} is
+	 * invoked again.
+	 *
+	 * The store is owned by the settings that opened it: settings cloned for {@link RemoteFollower}s share it but
+	 * never close it, and calling this method on them has no effect. If the download content directory of a clone
+	 * is changed, the clone stops sharing the store of the original settings and opens its own.
+	 */
+	public final synchronized void closeDownloadStore() {
+		if (downloadStore.owner == this) {
+			downloadStore.close();
+		}
+	}
+
+	private void releaseDownloadStore() {
+		if (downloadStore.owner == this) {
+			downloadStore.close();
+		} else {
+			downloadStore = new SharedReference<SegmentedDownloadStore>(this, "Download store");
+		}
+	}
+
+	/**
+	 * Indicates whether requests for the same URL made by remote followers are fetched and parsed only once.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @return flag indicating whether duplicate requests are avoided.
+	 */
+	public final boolean isUrlDeduplicationEnabled() {
+		return urlDeduplicationEnabled;
+	}
+
+	/**
+	 * Configures the parser to fetch and parse requests for the same URL made by any {@link RemoteFollower} only once,
+	 * sharing the result among all parent rows that reference the URL. Requests are identified by their normalized URL
+	 * and the values of parameters assigned with {@link RemoteFollower#assigning(String, Object)}.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @param urlDeduplicationEnabled flag indicating whether duplicate requests should be avoided.
+	 */
+	@UI
+	public final void setUrlDeduplicationEnabled(boolean urlDeduplicationEnabled) {
+		this.urlDeduplicationEnabled = urlDeduplicationEnabled;
+	}
+
+	/**
+	 * Returns the number of distinct URLs expected to be visited in a parsing process, used to size the Bloom filter
+	 * that tracks visited URLs when {@link #isUrlDeduplicationEnabled()} evaluates to {@code true}. The filter takes
+	 * about 10 bits per URL. Visiting more URLs than expected increases the chance of a new URL being mistaken for a
+	 * duplicate, in which case it will be fetched again instead of reusing a result.
+	 *
+	 * <i>Defaults to 1,000,000</i>
+	 *
+	 * @return the expected number of distinct URLs.
+	 */
+	public final long getExpectedUrlCount() {
+		return expectedUrlCount;
+	}
+
+	/**
+	 * Defines the number of distinct URLs expected to be visited in a parsing process, used to size the Bloom filter
+	 * that tracks visited URLs when {@link #isUrlDeduplicationEnabled()} evaluates to {@code true}. The filter takes
+	 * about 10 bits per URL, and can't be sized for more than {@link UrlDeduplicator#getMaxExpectedUrls()} URLs.
+	 *
+	 * <i>Defaults to 1,000,000</i>
+	 *
+	 * @param expectedUrlCount the expected number of distinct URLs.
+	 */
+	public final void setExpectedUrlCount(long expectedUrlCount) {
+		Args.positive(expectedUrlCount, "Expected number of URLs");
+		if (expectedUrlCount > UrlDeduplicator.getMaxExpectedUrls()) {
+			throw new IllegalArgumentException("Expected number of URLs must not exceed " + UrlDeduplicator.getMaxExpectedUrls() + ". Got " + expectedUrlCount);
+		}
+		this.expectedUrlCount = expectedUrlCount;
+	}
+
+	/**
+	 * Returns the maximum number of results of recently visited URLs kept in memory to be shared among parent rows,
+	 * when {@link #isUrlDeduplicationEnabled()} evaluates to {@code true}. URLs visited again after their result has
+	 * been evicted are fetched and parsed again.
+	 *
+	 * <i>Defaults to 10,000</i>
+	 *
+	 * @return the maximum number of cached results.
+	 */
+	public final int getDeduplicatedResultCacheSize() {
+		return deduplicatedResultCacheSize;
+	}
+
+	/**
+	 * Defines the maximum number of results of recently visited URLs kept in memory to be shared among parent rows,
+	 * when {@link #isUrlDeduplicationEnabled()} evaluates to {@code true}. URLs visited again after their result has
+	 * been evicted are fetched and parsed again.
+	 *
+	 * <i>Defaults to 10,000</i>
+	 *
+	 * @param deduplicatedResultCacheSize the maximum number of cached results.
+	 */
+	@Range(min = 0, max = 10000000)
+	public final void setDeduplicatedResultCacheSize(int deduplicatedResultCacheSize) {
+		Args.positiveOrZero(deduplicatedResultCacheSize, "Deduplicated result cache size");
+		this.deduplicatedResultCacheSize = deduplicatedResultCacheSize;
+	}
+
+	/**
+	 * Creates the {@link UrlDeduplicator} shared by all {@link RemoteFollower}s of a parsing process, if
+	 * {@link #isUrlDeduplicationEnabled()} evaluates to {@code true}.
+	 *
+	 * @param <T> the type of result shared among requests for the same URL.
+	 *
+	 * @return a new {@link UrlDeduplicator}, or {@code null} if URL deduplication is disabled.
+	 */
+	public final <T> UrlDeduplicator<T> newUrlDeduplicator() {
+		if (!urlDeduplicationEnabled) {
+			return null;
+		}
+		return new UrlDeduplicator<T>(expectedUrlCount, deduplicatedResultCacheSize);
+	}
+
 	/**
 	 * Verifies whether the parser will download the remote content before parsing it. If a directory to download
 	 * c7ontent has been set (with {@link #setDownloadContentDirectory(String)}, this method will always return {@code true}
@@ -533,7 +1009,7 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 
 	/**
 	 * Sets the number of threads that will be used to download remote content (e.g. images) that is associated with
-	 * the parsed input
+	 * the parsed input. Ignored if {@link #isVirtualThreadsEnabled()} evaluates to {@code true}.
 	 *
 	 * <i>Defaults to 4</i>
 	 *
@@ -558,6 +1034,143 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 		return downloadThreads <= 0 ? 4 : downloadThreads;
 	}
 
+	/**
+	 * Returns the maximum number of pages that can be downloaded and waiting to be parsed.
+	 *
+	 * <i>Defaults to {@code -1} (no limit)</i>
+	 *
+	 * @return the maximum number of pages pending parsing.
+	 */
+	public final int getMaxPendingPages() {
+		return maxPendingPages;
+	}
+
+	/**
+	 * Defines the maximum number of pages that can be downloaded and waiting to be parsed. Once this limit is
+	 * reached, downloads pause until the parser catches up, which prevents fast downloads from piling up in memory
+	 * or in the download directory when parsing is slower.
+	 *
+	 * <i>Defaults to {@code -1} (no limit)</i>
+	 *
+	 * @param maxPendingPages the maximum number of pages pending parsing. Use {@code -1} to disable the limit, which
+	 *                        also releases any download waiting for the previous limit. Pages already pending parsing
+	 *                        keep their permits. If the limit is reduced, new downloads wait until enough of these
+	 *                        pages are parsed.
+	 */
+	@Range(min = -1, max = 100000)
+	public final synchronized void setMaxPendingPages(int maxPendingPages) {
+		if (maxPendingPages < -1 || maxPendingPages == 0 || maxPendingPages > 100000) {
+			throw new IllegalArgumentException("Maximum number of pages pending parsing must be between 1 and 100000, or -1 to disable the limit. Got " + maxPendingPages);
+		}
+		this.maxPendingPages = maxPendingPages;
+		if (downloadBackpressure != null) {
+			if (maxPendingPages == -1) {
+				downloadBackpressure.disable();
+				downloadBackpressure = null;
+			} else {
+				downloadBackpressure.setMaxPendingPages(maxPendingPages);
+			}
+		}
+	}
+
+	/**
+	 * Returns the {@link DownloadBackpressure} shared by all downloads performed with these settings, which allows up
+	 * to {@link #getMaxPendingPages()} pages to be downloaded and waiting to be parsed. Pending pages are reported to
+	 * the {@link ParserMetrics} returned by {@link #getMetrics()}.
+	 *
+	 * The bound applies to each settings instance: the copies of these settings used by {@link RemoteFollower}s have
+	 * their own {@code DownloadBackpressure} with the same limit, so up to {@link #getMaxPendingPages()} pages of each
+	 * follower can be pending as well. A single bound shared with followers could deadlock the parser, as the pages
+	 * holding all permits could be waiting for the followers they triggered.
+	 *
+	 * @return the bound between downloads and parsing, or {@code null} if {@link #getMaxPendingPages()} is
+	 * {@code -1}.
+	 */
+	public final synchronized DownloadBackpressure getDownloadBackpressure() {
+		if (maxPendingPages == -1) {
+			return null;
+		}
+		if (downloadBackpressure == null) {
+			downloadBackpressure = new DownloadBackpressure(maxPendingPages);
+			downloadBackpressure.setMetrics(getMetrics());
+		}
+		return downloadBackpressure;
+	}
+
+	/**
+	 * Indicates whether the parser starts a new virtual thread for each download and each remote follower request.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @return flag indicating whether virtual threads should be used for remote requests.
+	 */
+	public final boolean isVirtualThreadsEnabled() {
+		return virtualThreadsEnabled;
+	}
+
+	/**
+	 * Configures the parser to start a new virtual thread for each download and each request performed by a
+	 * {@link RemoteFollower}, instead of using a fixed number of platform threads. Virtual threads require Java 21 or
+	 * later. On older JVMs this setting has no effect.
+	 *
+	 * When enabled, {@link #getDownloadThreads()} no longer limits the number of downloads in flight. Concurrency is
+	 * governed by {@link #getMaxRequestsPerHost()} instead, which allows thousands of requests against different hosts
+	 * to wait on I/O without holding a platform thread each.
+	 *
+	 * <i>Defaults to {@code false}</i>
+	 *
+	 * @param virtualThreadsEnabled flag indicating whether virtual threads should be used for remote requests.
+	 */
+	@UI
+	public final void setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+		this.virtualThreadsEnabled = virtualThreadsEnabled;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent requests the parser can perform against the same host when
+	 * {@link #isVirtualThreadsEnabled()} evaluates to {@code true}.
+	 *
+	 * <i>Defaults to 4</i>
+	 *
+	 * @return the maximum number of requests in flight per host.
+	 */
+	public final int getMaxRequestsPerHost() {
+		return maxRequestsPerHost;
+	}
+
+	/**
+	 * Defines the maximum number of concurrent requests the parser can perform against the same host when
+	 * {@link #isVirtualThreadsEnabled()} evaluates to {@code true}. If downloads are already running, the limit
+	 * of the {@link HostConcurrencyLimiter} in use is adjusted in place.
+	 *
+	 * <i>Defaults to 4</i>
+	 *
+	 * @param maxRequestsPerHost the maximum number of requests in flight per host.
+	 */
+	@Range(min = 1, max = 256)
+	public final synchronized void setMaxRequestsPerHost(int maxRequestsPerHost) {
+		Args.positive(maxRequestsPerHost, "Maximum number of concurrent requests per host");
+		this.maxRequestsPerHost = maxRequestsPerHost;
+		if (hostConcurrencyLimiter != null) {
+			hostConcurrencyLimiter.setMaxRequestsPerHost(maxRequestsPerHost);
+		}
+	}
+
+	/**
+	 * Returns the {@link HostConcurrencyLimiter} shared by all remote requests performed by the parser, which
+	 * allows up to {@link #getMaxRequestsPerHost()} concurrent requests against each host. The same limiter is
+	 * shared with the settings of {@link RemoteFollower}s, which are cloned from these settings, so that the limit
+	 * applies to all requests made while parsing.
+	 *
+	 * @return the limiter of concurrent requests per host.
+	 */
+	public final synchronized HostConcurrencyLimiter getHostConcurrencyLimiter() {
+		if (hostConcurrencyLimiter == null) {
+			hostConcurrencyLimiter = new HostConcurrencyLimiter(maxRequestsPerHost);
+		}
+		return hostConcurrencyLimiter;
+	}
+
 	@Override
 	public final Nesting getNesting() {
 		return nesting;
@@ -587,12 +1200,22 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 	 * Returns the {@link ExecutorService} to be used by the parser for managing the multiple threads that can be
 	 * started. These threads are used to parse/download data from a given input and any remote resources associated with it.
 	 *
-	 * <em>Defaults to:</em> {@code Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());}
+	 * <em>Defaults to:</em> {@code Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());}, or
+	 * to an executor that starts a new virtual thread per task if {@link #isVirtualThreadsEnabled()} evaluates to
+	 * {@code true} and the JVM supports virtual threads.
 	 *
 	 * @return the executor service to be used by the parser for the creation of new threads.
 	 */
 	public final ExecutorService getExecutorService() {
 		if (executorService == null || executorService.isShutdown()) {
+			if (virtualThreadsEnabled && VirtualThreads.isAvailable()) {
+				synchronized (RemoteParserSettings.class) {
+					if (DEFAULT_VIRTUAL_THREAD_EXECUTOR == null || DEFAULT_VIRTUAL_THREAD_EXECUTOR.isShutdown()) {
+						DEFAULT_VIRTUAL_THREAD_EXECUTOR = VirtualThreads.newExecutor();
+					}
+					return DEFAULT_VIRTUAL_THREAD_EXECUTOR;
+				}
+			}
 			if (DEFAULT_THREAD_POOL == null || DEFAULT_THREAD_POOL.isShutdown()) {
 				synchronized (RemoteParserSettings.class) {
 					DEFAULT_THREAD_POOL = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DaemonThreadFactory());
@@ -618,13 +1241,68 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 		RemoteParserSettings<S, L, C> out = (RemoteParserSettings) super.clone();
 		out.paginator = null;
 		out.fileNamePattern = null;
+		out.fileNamePatternText = null;
+		out.downloadBackpressure = null;
+		out.skippedPagesOfClosedIndexes = 0;
 		return out;
 	}
 
+	/**
+	 * Holds a resource opened in a directory and shared by settings and their clones, so that a resource opened
+	 * through any of them is visible to all, and closed only by the settings that own it.
+	 *
+	 * @param <T> the type of resource held.
+	 */
+	private static final class SharedReference<T extends Closeable> {
+		private final RemoteParserSettings owner;
+		private final String description;
+		private T resource;
+		private File directory;
+
+		SharedReference(RemoteParserSettings owner, String description) {
+			this.owner = owner;
+			this.description = description;
+		}
+
+		synchronized T get(File directory, Function<File, T> opener) {
+			if (resource == null) {
+				resource = opener.apply(directory);
+				this.directory = directory;
+			} else if (!this.directory.getAbsoluteFile().equals(directory.getAbsoluteFile())) {
+				throw new IllegalStateException(description + " is already open in " + this.directory.getAbsolutePath() + ". Unable to open it in " + directory.getAbsolutePath());
+			}
+			return resource;
+		}
+
+		synchronized T get() {
+			return resource;
+		}
+
+		/**
+		 * Closes the resource held, if any.
+		 *
+		 * @return the resource closed, or {@code null} if none was open.
+		 */
+		synchronized T close() {
+			T out = resource;
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					throw new IllegalStateException("Error closing " + description.toLowerCase() + " in " + directory.getAbsolutePath(), e);
+				} finally {
+					resource = null;
+					directory = null;
+				}
+			}
+			return out;
+		}
+	}
+
 	/**
 	 * Returns the minimum interval of time to wait between remote requests. This is required to prevent submitting
 	 * multiple requests to the same server at the same time, which can easily happen when {@link RemoteFollower}s are
-	 * used.
+	 * used. Not used when a limit per host has been defined with {@link #setHostRateLimit(double, int)}.
 	 *
 	 * <em>Defaults to 15 ms</em>
 	 *
@@ -649,6 +1327,70 @@ public abstract class RemoteParserSettings<S extends CommonParserSettings, L ext
 		this.remoteInterval = remoteInterval;
 	}
 
+	/**
+	 * Limits the rate of remote requests against each host independently, replacing the single interval defined
+	 * by {@link #setRemoteInterval(long)}. Each host gets its own token bucket, which allows up to
+	 * {@code burstCapacity} requests to be sent at once and then refills at {@code requestsPerSecond}. Requests
+	 * against a host are slowed down when it responds with {@code 429 (Too Many Requests)} or
+	 * {@code 503 (Service Unavailable)}, without affecting requests against other hosts.
+	 *
+	 * <i>Defaults to {@code null}, i.e. the interval defined by {@link #getRemoteInterval()} is used for all requests</i>
+	 *
+	 * @param requestsPerSecond the number of requests per second allowed against each host.
+	 * @param burstCapacity     the maximum number of requests that can be sent at once to a host after a period of
+	 *                          inactivity.
+	 */
+	public final synchronized void setHostRateLimit(double requestsPerSecond, int burstCapacity) {
+		if (hostRateLimiter == null) {
+			hostRateLimiter = new HostRateLimiter(requestsPerSecond, burstCapacity);
+			hostRateLimiter.setMetrics(getMetrics());
+		} else {
+			hostRateLimiter.setDefaultLimit(requestsPerSecond, burstCapacity);
+		}
+	}
+
+	/**
+	 * Limits the rate of remote requests against a given host, overriding the limit defined by
+	 * {@link #setHostRateLimit(double, int)}. If no default limit per host has been defined, the limit of hosts not
+	 * configured with this method is derived from {@link #getRemoteInterval()}.
+	 *
+	 * @param host              the host name, or a pattern such as {@code "*.example.com"} to match all subdomains of
+	 *                          a domain.
+	 * @param requestsPerSecond the number of requests per second allowed against the host.
+	 * @param burstCapacity     the maximum number of requests that can be sent at once to the host after a period of
+	 *                          inactivity.
+	 */
+	public final synchronized void setHostRateLimit(String host, double requestsPerSecond, int burstCapacity) {
+		if (hostRateLimiter == null) {
+			double defaultRate = remoteInterval <= 0 ? 1000.0 : 1000.0 / remoteInterval;
+			hostRateLimiter = new HostRateLimiter(defaultRate, 1);
+			hostRateLimiter.setMetrics(getMetrics());
+		}
+		hostRateLimiter.setLimit(host, requestsPerSecond, burstCapacity);
+	}
+
+	/**
+	 * Returns the {@link HostRateLimiter} used to limit the rate of remote requests against each host, if any has
+	 * been configured with {@link #setHostRateLimit(double, int)} or {@link #setHostRateLimit(String, double, int)}.
+	 * The time threads wait for the limiter is reported to the {@link ParserMetrics} returned by {@link #getMetrics()}.
+	 *
+	 * @return the limiter of requests per host, or {@code null} if the interval defined by {@link #getRemoteInterval()}
+	 * applies to all requests.
+	 */
+	public final synchronized HostRateLimiter getHostRateLimiter() {
+		return hostRateLimiter;
+	}
+
+	@Override
+	protected synchronized void metricsChanged(ParserMetrics metrics) {
+		if (hostRateLimiter != null) {
+			hostRateLimiter.setMetrics(metrics);
+		}
+		if (downloadBackpressure != null) {
+			downloadBackpressure.setMetrics(metrics);
+		}
+	}
+
 	/**
 	 * Defines a parse date to process historical files. It's expected that the pattern returned by
 	 * {@link RemoteParserSettings#getFileNamePattern()} contains a date parameter,
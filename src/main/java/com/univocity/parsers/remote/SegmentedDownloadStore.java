@@ -0,0 +1,488 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.api.common.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.security.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Stores downloaded content in a small number of large, append-only segment files instead of one file per page.
+ *
+ * Each piece of content is compressed and addressed by the SHA-256 hash of its uncompressed bytes, so identical
+ * pages are stored only once. Content is compressed straight into the current segment file and read back from it
+ * as a stream, so pieces of content of any size can be stored without being held in memory.
+ *
+ * An index maps the logical name of each download (the file name produced by
+ * {@link RemoteParserSettings#getFileNamePattern()}, including any {@code {date}}, {@code {batch}},
+ * {@code {page}} or {@code {entry}} values) to its content. As the logical name of a download is the same when
+ * reprocessing historical data with {@link RemoteParserSettings#setParseDate(Date)} or
+ * {@link RemoteParserSettings#setBatchId(String)}, content is read back transparently.
+ *
+ * The index is itself an append-only log, loaded when the store is opened. Entries written after the last
+ * complete record (e.g. if the process was killed while writing) are ignored.
+ *
+ * A directory can only be used by one store at a time. Stores opened with
+ * {@link RemoteParserSettings#getDownloadStore()} are shared by all settings that use the same directory, including
+ * settings created independently from each other, and a lock file prevents other processes from opening the same
+ * directory.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see RemoteParserSettings#setSegmentedStorageEnabled(boolean)
+ */
+public final class SegmentedDownloadStore implements Closeable {
+
+	private static final String INDEX_FILE = "index.log";
+	private static final String LOCK_FILE = "store.lock";
+	private static final byte CONTENT_RECORD = 'C';
+	private static final byte NAME_RECORD = 'N';
+
+	private static final Map<File, SegmentedDownloadStore> openStores = new HashMap<File, SegmentedDownloadStore>();
+
+	private final File directory;
+	private final File canonicalDirectory;
+	private final long maxSegmentSize;
+	private final Map<String, String> names = new HashMap<String, String>();
+	private final Map<String, long[]> contents = new HashMap<String, long[]>();
+
+	private DataOutputStream index;
+	private RandomAccessFile segment;
+	private int segmentNumber;
+	private final Map<Integer, RandomAccessFile> readers = new HashMap<Integer, RandomAccessFile>();
+	private final List<RandomAccessFile> openFiles = new ArrayList<RandomAccessFile>();
+	private RandomAccessFile lockFile;
+	private int references = 1;
+
+	/**
+	 * Opens a {@code SegmentedDownloadStore} in the given directory, loading the index of any content stored
+	 * previously.
+	 *
+	 * @param directory      the directory of the segment files. Will be created if it doesn't exist.
+	 * @param maxSegmentSize the size (in bytes) after which a new segment file is started.
+	 *
+	 * @throws IllegalStateException if the directory is already in use by another store, in this or in another
+	 *                               process.
+	 */
+	public SegmentedDownloadStore(File directory, long maxSegmentSize) {
+		Args.notNull(directory, "Store directory");
+		Args.positive(maxSegmentSize, "Maximum segment size");
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalStateException("Unable to create download store directory " + directory.getAbsolutePath());
+		}
+		this.directory = directory;
+		this.canonicalDirectory = canonical(directory);
+		this.maxSegmentSize = maxSegmentSize;
+		synchronized (openStores) {
+			if (openStores.containsKey(canonicalDirectory)) {
+				throw new IllegalStateException("Download store in " + directory.getAbsolutePath() + " is already open");
+			}
+			try {
+				lock();
+				loadIndex();
+				index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(directory, INDEX_FILE), true)));
+			} catch (IOException e) {
+				unlock();
+				throw new IllegalStateException("Unable to open download store in " + directory.getAbsolutePath(), e);
+			}
+			openStores.put(canonicalDirectory, this);
+		}
+	}
+
+	/**
+	 * Returns the store open in the given directory, or opens a new one. Each call must be matched by a call to
+	 * {@link #close()}, and the files of the store are closed when the last reference to it is closed.
+	 *
+	 * @param directory      the directory of the segment files.
+	 * @param maxSegmentSize the size (in bytes) after which a new segment file is started, if the store is not open
+	 *                       yet.
+	 *
+	 * @return the store of the given directory.
+	 */
+	static SegmentedDownloadStore open(File directory, long maxSegmentSize) {
+		synchronized (openStores) {
+			SegmentedDownloadStore store = openStores.get(canonical(directory));
+			if (store == null) {
+				return new SegmentedDownloadStore(directory, maxSegmentSize);
+			}
+			store.references++;
+			return store;
+		}
+	}
+
+	private static File canonical(File directory) {
+		try {
+			return directory.getCanonicalFile();
+		} catch (IOException e) {
+			return directory.getAbsoluteFile();
+		}
+	}
+
+	private void lock() throws IOException {
+		lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+		if (lockFile.getChannel().tryLock() == null) {
+			unlock();
+			throw new IllegalStateException("Download store in " + directory.getAbsolutePath() + " is in use by another process");
+		}
+	}
+
+	private void unlock() {
+		if (lockFile != null) {
+			try {
+				lockFile.close();
+			} catch (IOException e) {
+				//lock is released when the process ends.
+			} finally {
+				lockFile = null;
+			}
+		}
+	}
+
+	private void loadIndex() throws IOException {
+		File file = new File(directory, INDEX_FILE);
+		if (!file.isFile()) {
+			return;
+		}
+		long validLength = 0L;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			while (true) {
+				int type = in.read();
+				if (type == -1) {
+					break;
+				}
+				if (type == CONTENT_RECORD) {
+					String hash = in.readUTF();
+					long[] location = new long[]{in.readInt(), in.readLong(), in.readLong(), in.readLong()};
+					contents.put(hash, location);
+					segmentNumber = Math.max(segmentNumber, (int) location[0]);
+					validLength += 1 + 2 + utfLength(hash) + 4 + 8 + 8 + 8;
+				} else if (type == NAME_RECORD) {
+					String name = in.readUTF();
+					String hash = in.readUTF();
+					names.put(name, hash);
+					validLength += 1 + 2 + utfLength(name) + 2 + utfLength(hash);
+				} else {
+					break;
+				}
+			}
+		} catch (EOFException e) {
+			//incomplete record at the end of the log, discarded below.
+		} finally {
+			in.close();
+		}
+		if (validLength < file.length()) {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(validLength);
+			} finally {
+				raf.close();
+			}
+		}
+	}
+
+	private static int utfLength(String s) {
+		int out = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			out += (c >= 0x0001 && c <= 0x007F) ? 1 : c > 0x07FF ? 3 : 2;
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the directory of the segment files.
+	 *
+	 * @return the store directory.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Stores the content of a download under a logical name, replacing any content previously associated with it.
+	 * The content is only written if no identical content is already stored.
+	 *
+	 * @param name    the logical name of the download
+	 * @param content the downloaded content. Will be fully consumed, but not closed.
+	 *
+	 * @return the hash that identifies the content.
+	 */
+	public synchronized String put(String name, InputStream content) {
+		Args.notBlank(name, "Download name");
+		Args.notNull(content, "Download content");
+		ensureOpen();
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Unable to compute hash of download '" + name + "'", e);
+		}
+		RandomAccessFile target = null;
+		long offset = 0L;
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			target = getSegment();
+			offset = target.length();
+			target.seek(offset);
+			DeflaterOutputStream out = new DeflaterOutputStream(new BufferedOutputStream(new RandomAccessFileOutput(target), 65536), deflater);
+			byte[] buffer = new byte[8192];
+			long length = 0L;
+			int read;
+			while ((read = content.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+				out.write(buffer, 0, read);
+				length += read;
+			}
+			out.finish();
+			out.flush();
+			String hash = toHex(digest.digest());
+
+			if (contents.containsKey(hash)) {
+				target.setLength(offset);
+			} else {
+				long[] location = new long[]{segmentNumber, offset, target.getFilePointer() - offset, length};
+				index.write(CONTENT_RECORD);
+				index.writeUTF(hash);
+				index.writeInt((int) location[0]);
+				index.writeLong(location[1]);
+				index.writeLong(location[2]);
+				index.writeLong(location[3]);
+				contents.put(hash, location);
+			}
+
+			if (!hash.equals(names.get(name))) {
+				index.write(NAME_RECORD);
+				index.writeUTF(name);
+				index.writeUTF(hash);
+				names.put(name, hash);
+			}
+			index.flush();
+			return hash;
+		} catch (IOException e) {
+			discard(target, offset);
+			throw new IllegalStateException("Unable to store download '" + name + "' in " + directory.getAbsolutePath(), e);
+		} catch (RuntimeException e) {
+			discard(target, offset);
+			throw e;
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Removes the partial content written to a segment by a failed {@link #put(String, InputStream)}.
+	 */
+	private static void discard(RandomAccessFile target, long offset) {
+		if (target != null) {
+			try {
+				if (target.length() > offset) {
+					target.setLength(offset);
+				}
+			} catch (IOException e) {
+				//content not referenced by the index, overwritten by the next download stored.
+			}
+		}
+	}
+
+	/**
+	 * Tests whether content has been stored under a given logical name.
+	 *
+	 * @param name the logical name of the download
+	 *
+	 * @return {@code true} if the download is available from this store, otherwise {@code false}
+	 */
+	public synchronized boolean contains(String name) {
+		ensureOpen();
+		return names.containsKey(name);
+	}
+
+	/**
+	 * Returns the logical names of all downloads available from this store.
+	 *
+	 * @return an unmodifiable copy of the names of all stored downloads.
+	 */
+	public synchronized Set<String> getNames() {
+		ensureOpen();
+		return Collections.unmodifiableSet(new TreeSet<String>(names.keySet()));
+	}
+
+	/**
+	 * Returns the uncompressed size of the content stored under a given logical name.
+	 *
+	 * @param name the logical name of the download
+	 *
+	 * @return the size of the content in bytes, or {@code -1} if no content is stored under the given name.
+	 */
+	public synchronized long getSize(String name) {
+		ensureOpen();
+		String hash = names.get(name);
+		return hash == null ? -1L : contents.get(hash)[3];
+	}
+
+	/**
+	 * Opens the content stored under a given logical name. The content is read from its segment file as the
+	 * stream is consumed, so the stream must be read before the store is closed.
+	 *
+	 * @param name the logical name of the download
+	 *
+	 * @return an input stream with the uncompressed content, or {@code null} if no content is stored under the
+	 * given name.
+	 */
+	public synchronized InputStream open(String name) {
+		ensureOpen();
+		String hash = names.get(name);
+		if (hash == null) {
+			return null;
+		}
+		long[] location = contents.get(hash);
+		try {
+			FileChannel channel = getReader((int) location[0]).getChannel();
+			return new InflaterInputStream(new BufferedInputStream(new SegmentInputStream(channel, location[1], location[2]), 8192));
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to read download '" + name + "' from " + directory.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Closes all segment files and the index of this store, and releases its directory. If the store was obtained
+	 * by more than one {@link RemoteParserSettings} (see {@link RemoteParserSettings#getDownloadStore()}), files
+	 * are only closed once all of them have closed it.
+	 */
+	@Override
+	public void close() {
+		synchronized (openStores) {
+			synchronized (this) {
+				if (index == null || --references > 0) {
+					return;
+				}
+				openStores.remove(canonicalDirectory);
+				try {
+					index.close();
+					for (RandomAccessFile file : openFiles) {
+						file.close();
+					}
+				} catch (IOException e) {
+					throw new IllegalStateException("Error closing download store in " + directory.getAbsolutePath(), e);
+				} finally {
+					index = null;
+					segment = null;
+					readers.clear();
+					openFiles.clear();
+					unlock();
+				}
+			}
+		}
+	}
+
+	private void ensureOpen() {
+		if (index == null) {
+			throw new IllegalStateException("Download store in " + directory.getAbsolutePath() + " has been closed");
+		}
+	}
+
+	/**
+	 * Returns the segment file where new content is written, starting a new segment when the current one is full.
+	 * Files are only closed with the store, as streams returned by {@link #open(String)} may still read from them.
+	 */
+	private RandomAccessFile getSegment() throws IOException {
+		if (segment == null || segment.length() >= maxSegmentSize) {
+			if (segment != null) {
+				readers.put(segmentNumber, segment);
+				segmentNumber++;
+			} else if (getSegmentFile(segmentNumber).length() >= maxSegmentSize) {
+				segmentNumber++;
+			}
+			segment = new RandomAccessFile(getSegmentFile(segmentNumber), "rw");
+			openFiles.add(segment);
+		}
+		return segment;
+	}
+
+	private RandomAccessFile getReader(int number) throws IOException {
+		if (segment != null && number == segmentNumber) {
+			return segment;
+		}
+		RandomAccessFile out = readers.get(number);
+		if (out == null) {
+			out = new RandomAccessFile(getSegmentFile(number), "r");
+			openFiles.add(out);
+			readers.put(number, out);
+		}
+		return out;
+	}
+
+	private File getSegmentFile(int number) {
+		return new File(directory, String.format("segment_%05d.dat", number));
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder out = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			out.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Reads a range of a segment file with positional reads, which don't interfere with other streams reading the
+	 * same file or with content being appended to it.
+	 */
+	private static final class SegmentInputStream extends InputStream {
+		private final FileChannel channel;
+		private long position;
+		private long remaining;
+
+		SegmentInputStream(FileChannel channel, long position, long length) {
+			this.channel = channel;
+			this.position = position;
+			this.remaining = length;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+			if (read == -1) {
+				throw new EOFException("Segment file ends before the end of the stored content");
+			}
+			position += read;
+			remaining -= read;
+			return read;
+		}
+	}
+
+	private static final class RandomAccessFileOutput extends OutputStream {
+		private final RandomAccessFile file;
+
+		RandomAccessFileOutput(RandomAccessFile file) {
+			this.file = file;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			file.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			file.write(b, off, len);
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.api.common.*;
+
+import java.net.*;
+import java.util.*;
+
+/**
+ * Tracks the URLs visited by all {@link RemoteFollower}s of a parsing process, so that pages linked from multiple
+ * parent rows are fetched and parsed only once, with their results shared among all parent rows that reference them.
+ *
+ * Each request is identified by its normalized URL (see {@link #normalize(String)}) and the values of the
+ * parameters assigned with {@link RemoteFollower#assigning(String, Object)}. Visited requests are tracked by a
+ * Bloom filter, which uses a fixed amount of memory regardless of the number of URLs visited, backed by an exact
+ * least-recently-used cache holding the results of the most recent requests. Requests that are definitely new are
+ * identified by the Bloom filter alone. A request that might have been visited before reuses the cached result, if
+ * it is still available, otherwise it must be fetched again.
+ *
+ * Instances are created per parsing process with {@link RemoteParserSettings#newUrlDeduplicator()}.
+ *
+ * @param <T> the type of result shared among requests for the same URL.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ * @see RemoteParserSettings#setUrlDeduplicationEnabled(boolean)
+ */
+public final class UrlDeduplicator<T> {
+
+	static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+
+	private final BloomFilter seen;
+	private final LinkedHashMap<String, T> results;
+	private long uniqueCount;
+	private long duplicateCount;
+
+	/**
+	 * Creates a new {@code UrlDeduplicator}
+	 *
+	 * @param expectedUrls    the number of distinct URLs expected to be visited, used to size the Bloom filter.
+	 *                        Must not exceed {@link #getMaxExpectedUrls()}.
+	 * @param resultCacheSize the maximum number of results to keep for reuse.
+	 */
+	public UrlDeduplicator(long expectedUrls, final int resultCacheSize) {
+		Args.positiveOrZero(resultCacheSize, "Result cache size");
+		this.seen = new BloomFilter(expectedUrls, FALSE_POSITIVE_PROBABILITY);
+		this.results = new LinkedHashMap<String, T>(Math.min(resultCacheSize, 1024), 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+				return size() > resultCacheSize;
+			}
+		};
+	}
+
+	/**
+	 * Returns the largest number of distinct URLs the Bloom filter of a {@code UrlDeduplicator} can be sized for.
+	 *
+	 * @return the maximum number of expected URLs.
+	 */
+	public static long getMaxExpectedUrls() {
+		return BloomFilter.getMaxElements(FALSE_POSITIVE_PROBABILITY);
+	}
+
+	/**
+	 * Normalizes a URL so that different representations of the same address produce the same value: the scheme and
+	 * host are converted to lower case, default ports and fragments are removed, an empty path becomes {@code "/"}
+	 * and query parameters are sorted.
+	 *
+	 * @param url the URL to normalize
+	 *
+	 * @return the normalized URL, or the URL itself if it can't be parsed.
+	 */
+	public static String normalize(String url) {
+		Args.notNull(url, "URL");
+		url = url.trim();
+		URI uri;
+		try {
+			uri = new URI(url);
+		} catch (URISyntaxException e) {
+			return url;
+		}
+		if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+			return url;
+		}
+		String scheme = uri.getScheme().toLowerCase();
+		StringBuilder out = new StringBuilder(url.length());
+		out.append(scheme).append("://");
+		if (uri.getRawUserInfo() != null) {
+			out.append(uri.getRawUserInfo()).append('@');
+		}
+		out.append(uri.getHost() == null ? uri.getRawAuthority().toLowerCase() : uri.getHost().toLowerCase());
+		int port = uri.getPort();
+		if (port != -1 && !(port == 80 && "http".equals(scheme)) && !(port == 443 && "https".equals(scheme))) {
+			out.append(':').append(port);
+		}
+		String path = uri.getRawPath();
+		out.append(path == null || path.isEmpty() ? "/" : path);
+		String query = uri.getRawQuery();
+		if (query != null && !query.isEmpty()) {
+			String[] params = query.split("&");
+			Arrays.sort(params);
+			out.append('?');
+			for (int i = 0; i < params.length; i++) {
+				if (i > 0) {
+					out.append('&');
+				}
+				out.append(params[i]);
+			}
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Returns the key that identifies a request.
+	 *
+	 * @param url        the URL of the request
+	 * @param parameters the values of the parameters assigned to the request, if any. Their order is irrelevant.
+	 *
+	 * @return the key of the request.
+	 */
+	public static String getKey(String url, Map<String, ?> parameters) {
+		String out = normalize(url);
+		if (parameters != null && !parameters.isEmpty()) {
+			StringBuilder tmp = new StringBuilder(out);
+			for (Map.Entry<String, ?> e : new TreeMap<String, Object>(parameters).entrySet()) {
+				tmp.append('\n').append(e.getKey()).append('=').append(e.getValue());
+			}
+			out = tmp.toString();
+		}
+		return out;
+	}
+
+	/**
+	 * Marks a request as visited.
+	 *
+	 * @param key the key of the request, obtained from {@link #getKey(String, Map)}
+	 *
+	 * @return {@code true} if the request has definitely not been visited before, {@code false} if it might have been.
+	 */
+	public synchronized boolean markVisited(String key) {
+		if (seen.add(key)) {
+			uniqueCount++;
+			return true;
+		}
+		duplicateCount++;
+		return false;
+	}
+
+	/**
+	 * Tests whether a request might have been visited before.
+	 *
+	 * @param key the key of the request, obtained from {@link #getKey(String, Map)}
+	 *
+	 * @return {@code false} if the request has definitely not been visited, {@code true} if it might have been.
+	 */
+	public synchronized boolean isVisited(String key) {
+		return seen.mightContain(key);
+	}
+
+	/**
+	 * Returns the result produced for a request visited before, if it's still cached.
+	 *
+	 * @param key the key of the request, obtained from {@link #getKey(String, Map)}
+	 *
+	 * @return the shared result of the request, or {@code null} if not available and the request must be fetched.
+	 */
+	public synchronized T getResult(String key) {
+		return results.get(key);
+	}
+
+	/**
+	 * Stores the result produced for a request, to be shared with other parent rows that reference it.
+	 *
+	 * @param key    the key of the request, obtained from {@link #getKey(String, Map)}
+	 * @param result the result to share
+	 */
+	public synchronized void putResult(String key, T result) {
+		results.put(key, result);
+	}
+
+	/**
+	 * Returns the number of distinct requests visited.
+	 *
+	 * @return the number of requests first seen by {@link #markVisited(String)}
+	 */
+	public synchronized long getUniqueCount() {
+		return uniqueCount;
+	}
+
+	/**
+	 * Returns the number of requests identified as possibly visited before.
+	 *
+	 * @return the number of duplicate requests seen by {@link #markVisited(String)}
+	 */
+	public synchronized long getDuplicateCount() {
+		return duplicateCount;
+	}
+}
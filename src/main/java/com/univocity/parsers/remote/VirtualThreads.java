@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+
+/**
+ * Creates executors that start a new virtual thread for each task, if the running JVM supports virtual threads
+ * (Java 21 or later). Accessed through reflection as this library targets older Java versions.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+final class VirtualThreads {
+
+	private static final Method NEW_EXECUTOR;
+
+	static {
+		Method method = null;
+		try {
+			method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (Exception e) {
+			//virtual threads not available in this JVM.
+		}
+		NEW_EXECUTOR = method;
+	}
+
+	private VirtualThreads() {
+	}
+
+	static boolean isAvailable() {
+		return NEW_EXECUTOR != null;
+	}
+
+	/**
+	 * Creates a new executor that starts a virtual thread for each task.
+	 *
+	 * @return the new executor, or {@code null} if virtual threads are not supported by the running JVM.
+	 */
+	static ExecutorService newExecutor() {
+		if (NEW_EXECUTOR == null) {
+			return null;
+		}
+		try {
+			return (ExecutorService) NEW_EXECUTOR.invoke(null);
+		} catch (Exception e) {
+			throw new IllegalStateException("Unable to create executor of virtual threads", e);
+		}
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.testng.Assert.*;
+
+public class BatchParserTest {
+
+	private final AtomicInteger parsersCreated = new AtomicInteger();
+	private final Set<Object> parsersInUse = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+	private final Map<Results, Object> parserOfResults = Collections.synchronizedMap(new IdentityHashMap<Results, Object>());
+
+	private final EntityParserProvider provider = new EntityParserProvider() {
+		@Override
+		public EntityParserInterface newParser() {
+			final int id = parsersCreated.incrementAndGet();
+			return (EntityParserInterface) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{EntityParserInterface.class}, new InvocationHandler() {
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					if (method.getName().equals("toString")) {
+						return "parser " + id;
+					}
+					if (method.getName().equals("hashCode")) {
+						return id;
+					}
+					if (method.getName().equals("equals")) {
+						return proxy == args[0];
+					}
+					throw new UnsupportedOperationException(method.getName());
+				}
+			});
+		}
+	};
+
+	private final BatchParser.InputParser<Integer, ?, ?, ?> inputParser = new BatchParser.InputParser() {
+		@Override
+		public Results parse(EntityParserInterface parser, Object input) {
+			assertTrue(parsersInUse.add(parser), parser + " reused before its results were delivered");
+			int value = (Integer) input;
+			try {
+				Thread.sleep(value % 5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (value % 10 == 3) {
+				parsersInUse.remove(parser);
+				throw new IllegalArgumentException("Invalid input " + value);
+			}
+			Results<Result> out = new Results<Result>();
+			out.put("input_" + value, ParallelResultsTest.result("input_" + value));
+			parserOfResults.put(out, parser);
+			return out;
+		}
+	};
+
+	private static List<Integer> inputs(int count) {
+		List<Integer> out = new ArrayList<Integer>();
+		for (int i = 0; i < count; i++) {
+			out.add(i);
+		}
+		return out;
+	}
+
+	private class RecordingListener implements BatchListener<Integer, Result> {
+		final List<Integer> delivered = new ArrayList<Integer>();
+		final List<Integer> failed = new ArrayList<Integer>();
+
+		@Override
+		public void inputParsed(Integer input, Results<Result> results) {
+			assertTrue(results.containsKey("input_" + input));
+			delivered.add(input);
+			assertTrue(parsersInUse.remove(parserOfResults.remove(results)));
+		}
+
+		@Override
+		public void inputFailed(Integer input, RuntimeException error) {
+			assertEquals(error.getMessage(), "Invalid input " + input);
+			delivered.add(input);
+			failed.add(input);
+		}
+	}
+
+	@Test
+	public void testResultsAreDeliveredInInputOrder() {
+		BatchParser batchParser = new BatchParser(provider, 4);
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		batchParser.setMetrics(metrics);
+		RecordingListener listener = new RecordingListener();
+
+		batchParser.parse(inputs(200), inputParser, listener);
+
+		assertEquals(listener.delivered, inputs(200));
+		assertEquals(listener.failed.size(), 20);
+		assertTrue(parsersInUse.isEmpty());
+		assertTrue(parsersCreated.get() <= 8, "Created " + parsersCreated.get() + " parsers");
+		assertTrue(metrics.getQueueDepths("batch").getMax() <= 8);
+	}
+
+	@Test
+	public void testParsersAreReusedAcrossBatches() {
+		BatchParser batchParser = new BatchParser(provider, 1);
+		batchParser.parse(inputs(5), inputParser, new RecordingListener());
+		batchParser.parse(inputs(5), inputParser, new RecordingListener());
+		assertTrue(parsersCreated.get() <= 2, "Created " + parsersCreated.get() + " parsers");
+	}
+
+	@Test
+	public void testExternalExecutorIsNotShutDown() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			BatchParser batchParser = new BatchParser(provider, 2, executor);
+			RecordingListener listener = new RecordingListener();
+			batchParser.parse(inputs(20), inputParser, listener);
+			assertEquals(listener.delivered, inputs(20));
+			assertFalse(executor.isShutdown());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testListenerCanAbortBatch() {
+		BatchParser batchParser = new BatchParser(provider, 2);
+		RecordingListener listener = new RecordingListener() {
+			@Override
+			public void inputFailed(Integer input, RuntimeException error) {
+				throw error;
+			}
+		};
+		try {
+			batchParser.parse(inputs(50), inputParser, listener);
+			fail("Expected batch to be aborted");
+		} catch (IllegalArgumentException e) {
+			assertEquals(e.getMessage(), "Invalid input 3");
+		}
+		assertEquals(listener.delivered, Arrays.asList(0, 1, 2));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testParserProviderIsRequired() {
+		new BatchParser(null, 2);
+	}
+
+	@AfterMethod
+	public void reset() {
+		parsersCreated.set(0);
+		parsersInUse.clear();
+		parserOfResults.clear();
+	}
+}
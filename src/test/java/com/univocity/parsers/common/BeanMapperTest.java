@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.parsers.annotations.*;
+import org.testng.annotations.*;
+
+import java.math.*;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class BeanMapperTest {
+
+	public enum Status {
+		OPEN, CLOSED
+	}
+
+	static class Item {
+		@Parsed
+		String sku;
+
+		@Parsed(field = "qty")
+		int quantity;
+
+		Item() {
+		}
+
+		Item(String sku) {
+			this.sku = sku;
+		}
+	}
+
+	static class Order {
+		@Parsed(field = "ID")
+		long id;
+
+		@Parsed
+		BigDecimal total;
+
+		@Parsed(defaultNullRead = "OPEN")
+		Status status;
+
+		@Parsed(index = 3)
+		Boolean paid;
+
+		@Linked(entity = "items", type = Item.class)
+		List<Item> itemList;
+
+		@Linked(entity = "items")
+		Set<Item> itemSet;
+
+		@Linked(entity = "items", container = LinkedList.class)
+		Collection<Item> itemCollection;
+
+		@Linked(entity = "items")
+		Item[] itemArray;
+
+		@Linked
+		Item mainItem;
+
+		@Linked(entity = "items")
+		@Group(key = Integer.class)
+		Map<Integer, List<Item>> itemsByQuantity;
+
+		@Linked(entity = "items")
+		@Group(container = TreeMap.class)
+		Map<String, Item> itemsBySku;
+
+		@Linked(entity = "items", container = ArrayDeque.class)
+		@Group(key = String.class, container = TreeMap.class)
+		SortedMap<String, Collection<Item>> sortedItems;
+
+		private List<Item> fromSetter;
+
+		@Linked(entity = "items")
+		void setFromSetter(List<Item> items) {
+			this.fromSetter = items;
+		}
+	}
+
+	public static class Customer {
+		private String name;
+		private int age;
+
+		@Parsed
+		@Linked(entity = "names")
+		String alias;
+
+		@Parsed
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		@Parsed
+		public void setAge(int age) {
+			this.age = age;
+		}
+	}
+
+	abstract static class GenericValue<V> {
+		abstract void setValue(V value);
+	}
+
+	static class StringValue extends GenericValue<String> {
+		String value;
+
+		@Parsed
+		@Override
+		void setValue(String value) {
+			this.value = value;
+		}
+	}
+
+	static class NestedWithoutParsed {
+		@Nested
+		Item item;
+	}
+
+	static class GroupWithoutLink {
+		@Group
+		Map<String, String> values;
+	}
+
+	static class AbstractContainer {
+		@Linked(type = String.class)
+		Queue<String> values;
+	}
+
+	static class IncompatibleType {
+		@Linked(type = Item.class)
+		String value;
+	}
+
+	@Test
+	public void testMapsParsedAttributes() {
+		BeanMapper<Order> mapper = BeanMapper.of(Order.class);
+		assertSame(BeanMapper.of(Order.class), mapper);
+		assertTrue(mapper.isSupported(), mapper.getUnsupportedReason());
+
+		BeanMapper.RowMapper<Order> rowMapper = mapper.bind(new String[]{" id ", "TOTAL", "status", "paid"});
+		Order order = rowMapper.map(new String[]{"10", "2.50", null, "true"});
+		assertEquals(order.id, 10L);
+		assertEquals(order.total, new BigDecimal("2.50"));
+		assertEquals(order.status, Status.OPEN);
+		assertEquals(order.paid, Boolean.TRUE);
+
+		List<Order> orders = rowMapper.mapAll(Arrays.asList(new String[]{"1", "", "CLOSED", "false"}, new String[]{"2"}));
+		assertEquals(orders.size(), 2);
+		assertNull(orders.get(0).total);
+		assertEquals(orders.get(0).status, Status.CLOSED);
+		assertEquals(orders.get(1).id, 2L);
+		assertNull(orders.get(1).paid);
+	}
+
+	@Test
+	public void testMapsPublicSettersAndParsedLinkedAttributes() {
+		BeanMapper<Customer> mapper = BeanMapper.of(Customer.class);
+		assertTrue(mapper.isSupported(), mapper.getUnsupportedReason());
+		assertNotNull(mapper.getLinkedAttribute("alias"));
+
+		Customer customer = mapper.bind(new String[]{"name", "age", "alias"}).map(new String[]{"Anne", "42", "A"});
+		assertEquals(customer.name, "Anne");
+		assertEquals(customer.age, 42);
+		assertEquals(customer.alias, "A");
+
+		mapper.set(customer, mapper.indexOfAttribute("name"), "Bob");
+		assertEquals(customer.name, "Bob");
+		mapper.setLinked(customer, mapper.getLinkedAttribute("alias"), Collections.singletonList("B"));
+		assertEquals(customer.alias, "B");
+	}
+
+	@Test
+	public void testBridgeSettersAreIgnored() {
+		BeanMapper<StringValue> mapper = BeanMapper.of(StringValue.class);
+		assertTrue(mapper.isSupported(), mapper.getUnsupportedReason());
+		assertEquals(mapper.getAttributeNames(), new String[]{"value"});
+		assertEquals(mapper.bind(new String[]{"value"}).map(new String[]{" 10 "}).value, " 10 ");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testConversionError() {
+		BeanMapper.of(Order.class).bind(new String[]{"id"}).map(new String[]{"abc"});
+	}
+
+	@Test
+	public void testResolvesLinkedAttributes() {
+		BeanMapper<Order> mapper = BeanMapper.of(Order.class);
+		List<BeanMapper.LinkedAttribute> linked = mapper.getLinkedAttributes();
+		assertEquals(linked.size(), 9);
+
+		BeanMapper.LinkedAttribute itemList = mapper.getLinkedAttribute("itemList");
+		assertEquals(itemList.getEntityName(), "items");
+		assertEquals(itemList.getElementType(), Item.class);
+		assertEquals(itemList.getContainerType(), ArrayList.class);
+		assertFalse(itemList.isGrouped());
+		assertEquals(itemList.getAttributeIndex(), mapper.indexOfAttribute("itemList"));
+
+		BeanMapper.LinkedAttribute itemSet = mapper.getLinkedAttribute("ITEMSET");
+		assertEquals(itemSet.getElementType(), Item.class);
+		assertEquals(itemSet.getContainerType(), HashSet.class);
+
+		assertEquals(mapper.getLinkedAttribute("itemCollection").getContainerType(), LinkedList.class);
+
+		BeanMapper.LinkedAttribute itemArray = mapper.getLinkedAttribute("itemArray");
+		assertEquals(itemArray.getElementType(), Item.class);
+		assertNull(itemArray.getContainerType());
+
+		BeanMapper.LinkedAttribute mainItem = mapper.getLinkedAttribute("mainItem");
+		assertEquals(mainItem.getEntityName(), "mainItem");
+		assertEquals(mainItem.getElementType(), Item.class);
+		assertNull(mainItem.getContainerType());
+
+		BeanMapper.LinkedAttribute byQuantity = mapper.getLinkedAttribute("itemsByQuantity");
+		assertTrue(byQuantity.isGrouped());
+		assertEquals(byQuantity.getKeyType(), Integer.class);
+		assertEquals(byQuantity.getMapType(), HashMap.class);
+		assertEquals(byQuantity.getContainerType(), ArrayList.class);
+		assertEquals(byQuantity.getElementType(), Item.class);
+
+		BeanMapper.LinkedAttribute bySku = mapper.getLinkedAttribute("itemsBySku");
+		assertEquals(bySku.getKeyType(), String.class);
+		assertEquals(bySku.getMapType(), TreeMap.class);
+		assertNull(bySku.getContainerType());
+
+		BeanMapper.LinkedAttribute sorted = mapper.getLinkedAttribute("sortedItems");
+		assertEquals(sorted.getMapType(), TreeMap.class);
+		assertEquals(sorted.getContainerType(), ArrayDeque.class);
+
+		assertEquals(mapper.getLinkedAttribute("fromSetter").getContainerType(), ArrayList.class);
+		assertNull(mapper.getLinkedAttribute("total"));
+		assertNull(mapper.getLinkedAttribute("unknown"));
+	}
+
+	@Test
+	public void testAssignsLinkedValues() {
+		BeanMapper<Order> mapper = BeanMapper.of(Order.class);
+		Order order = mapper.newInstance();
+		Item a = new Item("a");
+		Item b = new Item("b");
+		List<Item> items = Arrays.asList(a, b);
+
+		mapper.setLinked(order, mapper.getLinkedAttribute("itemList"), items);
+		assertEquals(order.itemList.getClass(), ArrayList.class);
+		assertEquals(order.itemList, items);
+
+		mapper.setLinked(order, mapper.getLinkedAttribute("itemSet"), items);
+		assertEquals(order.itemSet.getClass(), HashSet.class);
+		assertEquals(order.itemSet, new HashSet<Item>(items));
+
+		mapper.setLinked(order, mapper.getLinkedAttribute("itemCollection"), items);
+		assertEquals(order.itemCollection.getClass(), LinkedList.class);
+
+		mapper.setLinked(order, mapper.getLinkedAttribute("itemArray"), items);
+		assertEquals(order.itemArray, new Item[]{a, b});
+
+		mapper.setLinked(order, mapper.getLinkedAttribute("mainItem"), Collections.singletonList(b));
+		assertSame(order.mainItem, b);
+		mapper.setLinked(order, mapper.getLinkedAttribute("mainItem"), Collections.emptyList());
+		assertNull(order.mainItem);
+
+		mapper.setLinked(order, mapper.getLinkedAttribute("fromSetter"), items);
+		assertEquals(order.fromSetter, items);
+	}
+
+	@Test
+	public void testAssignsGroupedValues() {
+		BeanMapper<Order> mapper = BeanMapper.of(Order.class);
+		Order order = mapper.newInstance();
+		Item a = new Item("a");
+		Item b = new Item("b");
+		Item c = new Item("c");
+
+		Map<Object, Collection<Item>> byQuantity = new HashMap<Object, Collection<Item>>();
+		byQuantity.put(1, Arrays.asList(a, b));
+		byQuantity.put(2, Collections.singletonList(c));
+		mapper.setGrouped(order, mapper.getLinkedAttribute("itemsByQuantity"), byQuantity);
+		assertEquals(order.itemsByQuantity.getClass(), HashMap.class);
+		assertEquals(order.itemsByQuantity.get(1).getClass(), ArrayList.class);
+		assertEquals(order.itemsByQuantity.get(1), Arrays.asList(a, b));
+		assertEquals(order.itemsByQuantity.get(2), Collections.singletonList(c));
+
+		Map<Object, Collection<Item>> bySku = new HashMap<Object, Collection<Item>>();
+		bySku.put("b", Collections.singletonList(b));
+		bySku.put("a", Collections.singletonList(a));
+		mapper.setGrouped(order, mapper.getLinkedAttribute("itemsBySku"), bySku);
+		assertEquals(order.itemsBySku.getClass(), TreeMap.class);
+		assertEquals(new ArrayList<String>(order.itemsBySku.keySet()), Arrays.asList("a", "b"));
+		assertSame(order.itemsBySku.get("a"), a);
+
+		mapper.setGrouped(order, mapper.getLinkedAttribute("sortedItems"), bySku);
+		assertEquals(order.sortedItems.get("b").getClass(), ArrayDeque.class);
+	}
+
+	@Test
+	public void testRejectsInvalidLinkedValues() {
+		BeanMapper<Order> mapper = BeanMapper.of(Order.class);
+		Order order = mapper.newInstance();
+
+		try {
+			mapper.setLinked(order, mapper.getLinkedAttribute("itemList"), Arrays.asList("not an item"));
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		try {
+			mapper.setLinked(order, mapper.getLinkedAttribute("mainItem"), Arrays.asList(new Item("a"), new Item("b")));
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		try {
+			mapper.setLinked(order, mapper.getLinkedAttribute("itemsBySku"), Collections.emptyList());
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		try {
+			Map<Object, Collection<Item>> groups = new HashMap<Object, Collection<Item>>();
+			groups.put("one", Collections.singletonList(new Item("a")));
+			mapper.setGrouped(order, mapper.getLinkedAttribute("itemsByQuantity"), groups);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		try {
+			Map<Object, Collection<Item>> groups = new HashMap<Object, Collection<Item>>();
+			groups.put("a", Arrays.asList(new Item("a"), new Item("a")));
+			mapper.setGrouped(order, mapper.getLinkedAttribute("itemsBySku"), groups);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		try {
+			BeanMapper<Item> other = BeanMapper.of(Item.class);
+			other.setLinked(new Item(), mapper.getLinkedAttribute("itemList"), Collections.emptyList());
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	@DataProvider
+	public Object[][] unsupportedBeans() {
+		return new Object[][]{
+				{GroupWithoutLink.class, "@Group"},
+				{NestedWithoutParsed.class, "@Nested"},
+				{AbstractContainer.class, "concrete collection type"},
+				{IncompatibleType.class, "can't be assigned"},
+		};
+	}
+
+	@Test(dataProvider = "unsupportedBeans")
+	public void testUnsupportedLinkedAttributes(Class<?> beanType, String reason) {
+		BeanMapper<?> mapper = BeanMapper.of(beanType);
+		assertFalse(mapper.isSupported());
+		assertTrue(mapper.getUnsupportedReason().contains(reason), mapper.getUnsupportedReason());
+		try {
+			mapper.newInstance();
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class ColumnStoreTest {
+
+	@Test
+	public void testRowsAreRebuiltFromColumns() {
+		ColumnStore store = new ColumnStore(new String[]{"a", "b", "c"}, 10);
+		store.addRow(new String[]{"1", "x", "p"});
+		store.addRow(new String[]{"2", null});
+		store.addRow(new String[]{"3", "y", "q", "discarded"});
+
+		assertEquals(store.getRowCount(), 3);
+		assertEquals(store.getRow(0), new String[]{"1", "x", "p"});
+		assertEquals(store.getRow(1), new String[]{"2", null, null});
+		assertEquals(store.getRow(2), new String[]{"3", "y", "q"});
+		assertEquals(store.getValue(2, store.indexOf("B")), "y");
+
+		List<String[]> rows = new ArrayList<String[]>();
+		for (String[] row : store) {
+			rows.add(row);
+		}
+		assertEquals(rows.size(), 3);
+		assertEquals(rows.get(1), new String[]{"2", null, null});
+	}
+
+	@Test
+	public void testDictionaryEncodingFallsBackToPlainValues() {
+		ColumnStore store = new ColumnStore(new String[]{"low", "high"}, 3);
+		for (int i = 0; i < 100; i++) {
+			store.addRow(new String[]{i % 2 == 0 ? "even" : null, "v" + i});
+		}
+
+		assertTrue(store.isDictionaryEncoded(0));
+		assertEquals(store.getDistinctValueCount(0), 2);
+		assertFalse(store.isDictionaryEncoded(1));
+		assertEquals(store.getDistinctValueCount(1), -1);
+
+		for (int i = 0; i < 100; i++) {
+			assertEquals(store.getValue(i, 0), i % 2 == 0 ? "even" : null);
+			assertEquals(store.getValue(i, 1), "v" + i);
+		}
+	}
+
+	@Test
+	public void testDictionaryEncodingDisabled() {
+		ColumnStore store = new ColumnStore(new String[]{"a"}, 0);
+		store.addRow(new String[]{"x"});
+		store.addRow(new String[]{"x"});
+		assertFalse(store.isDictionaryEncoded(0));
+		assertEquals(store.getValue(1, 0), "x");
+	}
+
+	@Test
+	public void testRowsCanBeAddedAfterTrimming() {
+		ColumnStore store = new ColumnStore(new String[]{"a", "b"}, 4);
+		store.trimToSize();
+		for (int i = 0; i < 10; i++) {
+			store.addRow(new String[]{"k" + (i % 3), "v" + i});
+			store.trimToSize();
+		}
+		assertTrue(store.isDictionaryEncoded(0));
+		assertFalse(store.isDictionaryEncoded(1));
+		for (int i = 0; i < 10; i++) {
+			assertEquals(store.getRow(i), new String[]{"k" + (i % 3), "v" + i});
+		}
+	}
+
+	@Test
+	public void testIterateColumn() {
+		ColumnStore store = new ColumnStore(new String[]{"a", "b"}, 10);
+		store.addRow(new String[]{"1", "x"});
+		store.addRow(new String[]{"2", "y"});
+
+		List<String> values = new ArrayList<String>();
+		for (String value : store.iterateColumn("b")) {
+			values.add(value);
+		}
+		assertEquals(values, Arrays.asList("x", "y"));
+	}
+
+	@Test(expectedExceptions = IndexOutOfBoundsException.class)
+	public void testRowIndexOutOfBounds() {
+		ColumnStore store = new ColumnStore(new String[]{"a"}, 10);
+		store.addRow(new String[]{"1"});
+		store.getRow(1);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testUnknownField() {
+		new ColumnStore(new String[]{"a"}, 10).indexOf("b");
+	}
+}
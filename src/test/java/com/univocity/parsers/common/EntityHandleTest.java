@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+public class EntityHandleTest {
+
+	private TestParserSettings parserSettings;
+	private TestEntityList entityList;
+
+	@BeforeMethod
+	public void setup() {
+		parserSettings = new TestParserSettings();
+		entityList = new TestEntityList(parserSettings);
+	}
+
+	@Test
+	public void testHandlesAreScopedToTheirList() {
+		EntityHandle item = entityList.getHandle(" Item ");
+		assertSame(entityList.getHandle("ITEM"), item);
+		assertEquals(item.getName(), "Item");
+		assertEquals(item.getNormalizedName(), "item");
+		assertEquals(item.toString(), "Item");
+		assertSame(item.getScope(), entityList);
+		assertEquals(item.getId(), 0);
+		assertEquals(entityList.getHandle("order").getId(), 1);
+		assertEquals(entityList.getHandleCount(), 2);
+
+		TestEntityList other = new TestEntityList(parserSettings);
+		EntityHandle otherOrder = other.getHandle("order");
+		assertEquals(otherOrder.getId(), 0);
+		assertNotSame(otherOrder, entityList.getHandle("order"));
+		assertEquals(other.getHandleCount(), 1);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testBlankNamesRejected() {
+		entityList.getHandle(" ");
+	}
+
+	@Test
+	public void testEntityLookup() {
+		TestEntitySettings items = entityList.configureEntity("Items");
+		TestEntitySettings orders = entityList.configureEntity("orders");
+
+		assertSame(entityList.getEntity(entityList.getHandle("items")), items);
+		assertSame(entityList.getEntity(entityList.getHandle(" ORDERS")), orders);
+		assertNull(entityList.getEntity(entityList.getHandle("unknown")));
+
+		// handles of another list are resolved by name, even if their ids clash
+		TestEntityList other = new TestEntityList(parserSettings);
+		assertSame(entityList.getEntity(other.getHandle("orders")), orders);
+		assertNull(entityList.getEntity(other.getHandle("products")));
+
+		entityList.removeEntity("items");
+		assertNull(entityList.getEntity(entityList.getHandle("items")));
+		assertSame(entityList.getEntity(entityList.getHandle("orders")), orders);
+	}
+
+	@Test
+	public void testResultsLookup() {
+		Result items = ParallelResultsTest.result("items");
+		Result orders = ParallelResultsTest.result("orders");
+		Results<Result> results = new Results<Result>();
+		results.put("Items", items);
+		results.put("orders", orders);
+
+		EntityHandle itemsHandle = entityList.getHandle("items");
+		EntityHandle ordersHandle = entityList.getHandle("ORDERS");
+		assertSame(results.get(itemsHandle), items);
+		assertSame(results.get(itemsHandle), items);
+		assertSame(results.get(ordersHandle), orders);
+		assertTrue(results.containsKey(itemsHandle));
+
+		TestEntityList other = new TestEntityList(parserSettings);
+		EntityHandle otherOrders = other.getHandle("orders");
+		assertEquals(otherOrders.getId(), itemsHandle.getId());
+		assertSame(results.get(otherOrders), orders);
+		assertSame(results.get(itemsHandle), items);
+
+		Result replacement = ParallelResultsTest.result("items");
+		results.put("items", replacement);
+		assertSame(results.get(itemsHandle), replacement);
+
+		results.remove("ITEMS");
+		assertFalse(results.containsKey(itemsHandle));
+		try {
+			results.get(itemsHandle);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		assertSame(results.get(ordersHandle), orders);
+
+		results.clear();
+		assertFalse(results.containsKey(ordersHandle));
+	}
+
+	@DataProvider
+	public Object[][] selections() {
+		return new Object[][]{
+				{new String[0], new String[0]},
+				{new String[]{"items"}, new String[0]},
+				{new String[0], new String[]{"orders"}},
+				{new String[]{"items", "orders"}, new String[]{"orders"}},
+		};
+	}
+
+	@Test(dataProvider = "selections")
+	public void testSelectionByHandleAgreesWithSelectionByName(String[] toRead, String[] toSkip) {
+		parserSettings.setEntitiesToRead(toRead);
+		parserSettings.setEntitiesToSkip(toSkip);
+		TestEntityList other = new TestEntityList(parserSettings);
+
+		for (String name : new String[]{"items", "ITEMS", " Items ", "orders", "Orders", "products"}) {
+			EntityHandle handle = entityList.getHandle(name);
+			assertEquals(parserSettings.shouldSkip(handle), parserSettings.shouldSkip(name), "skip " + name);
+			assertEquals(parserSettings.shouldRead(handle), parserSettings.shouldRead(name), "read " + name);
+
+			EntityHandle otherHandle = other.getHandle(name);
+			assertEquals(parserSettings.shouldSkip(otherHandle), parserSettings.shouldSkip(name), "skip " + name);
+			assertEquals(parserSettings.shouldRead(otherHandle), parserSettings.shouldRead(name), "read " + name);
+		}
+	}
+
+	@Test
+	public void testSelectionByNameIgnoresCase() {
+		parserSettings.setEntitiesToRead("Items", "customers");
+		assertTrue(parserSettings.shouldRead("Items"));
+		assertFalse(parserSettings.shouldSkip("Items"));
+		assertTrue(parserSettings.shouldRead("items"));
+		assertFalse(parserSettings.shouldSkip(" ITEMS "));
+		assertTrue(parserSettings.shouldSkip("orders"));
+		assertEquals(parserSettings.getEntitiesToRead().iterator().next(), "Items");
+
+		parserSettings.setEntitiesToRead();
+		parserSettings.setEntitiesToSkip("Orders");
+		assertTrue(parserSettings.shouldSkip("Orders"));
+		assertTrue(parserSettings.shouldSkip("orders"));
+		assertFalse(parserSettings.shouldSkip("items"));
+	}
+
+	@Test
+	public void testSubclassesCanModifySelectionDirectly() {
+		EntityHandle orders = entityList.getHandle("orders");
+		assertFalse(parserSettings.shouldSkip(orders));
+
+		parserSettings.entitiesToSkip.add("Orders");
+		parserSettings.selectionChanged();
+		assertTrue(parserSettings.shouldSkip(orders));
+		assertTrue(parserSettings.shouldSkip("ORDERS"));
+	}
+
+	@Test
+	public void testSelectionByHandleIgnoresCase() {
+		parserSettings.setEntitiesToRead("Items");
+		assertTrue(parserSettings.shouldRead(entityList.getHandle("items")));
+		assertFalse(parserSettings.shouldSkip(entityList.getHandle(" ITEMS ")));
+
+		EntityHandle orders = entityList.getHandle("orders");
+		assertTrue(parserSettings.shouldSkip(orders));
+
+		parserSettings.addEntitiesToRead("ORDERS");
+		assertFalse(parserSettings.shouldSkip(orders));
+		assertTrue(parserSettings.shouldRead(orders));
+
+		parserSettings.setEntitiesToSkip(" Orders");
+		assertTrue(parserSettings.shouldSkip(orders));
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testSelectionCannotBeChangedThroughItsView() {
+		parserSettings.getEntitiesToRead().add("items");
+	}
+
+	@Test
+	public void testSubclassesCanModifyEntitiesDirectly() {
+		EntityHandle items = entityList.getHandle("items");
+		TestEntitySettings original = entityList.configureEntity("items");
+		assertSame(entityList.getEntity(items), original);
+
+		TestEntitySettings replacement = new TestEntitySettings("items", null);
+		entityList.entities.put("items", replacement);
+		entityList.entitiesChanged();
+		assertSame(entityList.getEntity(items), replacement);
+
+		entityList.entities.put("orders", original);
+		assertSame(entityList.getEntity(entityList.getHandle("orders")), original);
+
+		entityList.entities.clear();
+		entityList.entitiesChanged();
+		assertNull(entityList.getEntity(items));
+	}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+public class EntityParserSettingsTest {
+
+	@Test
+	public void testJoinMemoryLimit() {
+		TestParserSettings settings = new TestParserSettings();
+		assertEquals(settings.getJoinMemoryLimit(), -1);
+		settings.setJoinMemoryLimit(10);
+		assertEquals(settings.getJoinMemoryLimit(), 10);
+		settings.setJoinMemoryLimit(-1);
+		assertEquals(settings.getJoinMemoryLimit(), -1);
+	}
+
+	@DataProvider
+	public Object[][] invalidJoinMemoryLimits() {
+		return new Object[][]{{0}, {-2}, {Integer.MIN_VALUE}};
+	}
+
+	@Test(dataProvider = "invalidJoinMemoryLimits", expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidJoinMemoryLimit(int limit) {
+		new TestParserSettings().setJoinMemoryLimit(limit);
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+public class EntitySettingsTest {
+
+	private TestParserSettings parserSettings;
+	private TestEntityList entityList;
+
+	@BeforeMethod
+	public void setup() {
+		parserSettings = new TestParserSettings();
+		entityList = new TestEntityList(parserSettings);
+	}
+
+	@Test
+	public void testStreamingBufferSizeDefaults() {
+		assertFalse(parserSettings.isStreamingEnabled());
+		assertEquals(parserSettings.getStreamingBufferSize(), 1000);
+		assertEquals(entityList.configureEntity("a").getStreamingBufferSize(), 1000);
+	}
+
+	@Test
+	public void testStreamingBufferSizeInheritance() {
+		TestEntitySettings parent = entityList.configureEntity("parent");
+		TestEntitySettings child = entityList.configureEntity("child", parent);
+
+		parserSettings.setStreamingBufferSize(50);
+		assertEquals(parent.getStreamingBufferSize(), 50);
+		assertEquals(child.getStreamingBufferSize(), 50);
+
+		parent.setStreamingBufferSize(10);
+		assertEquals(parent.getStreamingBufferSize(), 10);
+		assertEquals(child.getStreamingBufferSize(), 10);
+
+		child.setStreamingBufferSize(3);
+		assertEquals(child.getStreamingBufferSize(), 3);
+		assertEquals(parent.getStreamingBufferSize(), 10);
+		assertEquals(parserSettings.getStreamingBufferSize(), 50);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testStreamingBufferSizeMustBePositive() {
+		parserSettings.setStreamingBufferSize(0);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testEntityStreamingBufferSizeMustBePositive() {
+		entityList.configureEntity("a").setStreamingBufferSize(-1);
+	}
+}
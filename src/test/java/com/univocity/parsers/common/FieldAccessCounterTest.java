@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class FieldAccessCounterTest {
+
+	@Test
+	public void testIndexOf() {
+		FieldAccessCounter counter = new FieldAccessCounter("orders", new String[]{"ID", "customer", null, "id"});
+		assertEquals(counter.getEntityName(), "orders");
+		assertEquals(counter.indexOf("id"), 0);
+		assertEquals(counter.indexOf(" Customer "), 1);
+		assertEquals(counter.indexOf("total"), -1);
+		assertEquals(counter.indexOf(null), -1);
+		assertEquals(counter.getFieldNames(), new String[]{"ID", "customer", null, "id"});
+	}
+
+	@Test
+	public void testCounts() {
+		FieldAccessCounter counter = new FieldAccessCounter("orders", new String[]{"id", "customer", "total"});
+		counter.accessed(0);
+		counter.accessed(0);
+		counter.accessed(2);
+		counter.extracted(0);
+		counter.accessed(-1);
+		counter.accessed(3);
+		counter.extracted(5);
+
+		assertEquals(counter.getAccessCount("id"), 2);
+		assertEquals(counter.getAccessCount("customer"), 0);
+		assertEquals(counter.getAccessCount("total"), 1);
+		assertEquals(counter.getAccessCount("unknown"), 0);
+		assertEquals(counter.getExtractionCount("id"), 1);
+		assertEquals(counter.getExtractionCount("total"), 0);
+
+		Map<String, Long> expected = new LinkedHashMap<String, Long>();
+		expected.put("id", 2L);
+		expected.put("customer", 0L);
+		expected.put("total", 1L);
+		assertEquals(counter.getAccessCounts(), expected);
+		assertEquals(new ArrayList<String>(counter.getAccessCounts().keySet()), Arrays.asList("id", "customer", "total"));
+		assertEquals(counter.getUnusedFields(), Collections.singleton("customer"));
+		assertEquals(counter.toString(), "Field access of entity 'orders': {id=2, customer=0, total=1}");
+
+		counter.reset();
+		assertEquals(counter.getAccessCount("id"), 0);
+		assertEquals(counter.getExtractionCount("id"), 0);
+		assertEquals(counter.getUnusedFields().size(), 3);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testFieldNamesRequired() {
+		new FieldAccessCounter("orders", null);
+	}
+}
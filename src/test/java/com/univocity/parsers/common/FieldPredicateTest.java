@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class FieldPredicateTest {
+
+	@Test
+	public void testEqualTo() {
+		FieldPredicate predicate = FieldPredicate.equalTo("status", "open");
+		assertEquals(predicate.getFieldName(), "status");
+		assertTrue(predicate.accept("open"));
+		assertFalse(predicate.accept("OPEN"));
+		assertFalse(predicate.accept(null));
+
+		FieldPredicate nullValue = FieldPredicate.equalTo("status", null);
+		assertTrue(nullValue.accept(null));
+		assertFalse(nullValue.accept("open"));
+	}
+
+	@Test
+	public void testEqualToIgnoreCase() {
+		FieldPredicate predicate = FieldPredicate.equalToIgnoreCase("status", "open");
+		assertTrue(predicate.accept("OPEN"));
+		assertFalse(predicate.accept("closed"));
+		assertFalse(predicate.accept(null));
+	}
+
+	@Test
+	public void testIn() {
+		FieldPredicate predicate = FieldPredicate.in("code", "a", "b");
+		assertTrue(predicate.accept("a"));
+		assertTrue(predicate.accept("b"));
+		assertFalse(predicate.accept("c"));
+		assertFalse(predicate.accept(null));
+
+		assertTrue(FieldPredicate.in("code", Arrays.asList("x", null)).accept(null));
+	}
+
+	@Test
+	public void testMatches() {
+		FieldPredicate predicate = FieldPredicate.matches("id", "\\d+");
+		assertTrue(predicate.accept("123"));
+		assertFalse(predicate.accept("12a"));
+		assertFalse(predicate.accept(null));
+	}
+
+	@Test
+	public void testBetweenStrings() {
+		FieldPredicate predicate = FieldPredicate.between("date", "2020-01-01", "2020-12-31");
+		assertTrue(predicate.accept("2020-01-01"));
+		assertTrue(predicate.accept("2020-06-15"));
+		assertTrue(predicate.accept("2020-12-31"));
+		assertFalse(predicate.accept("2021-01-01"));
+		assertFalse(predicate.accept(null));
+
+		FieldPredicate unbounded = FieldPredicate.between("date", null, "2020-12-31");
+		assertTrue(unbounded.accept("1900-01-01"));
+		assertFalse(unbounded.accept("2021-01-01"));
+	}
+
+	@Test
+	public void testBetweenNumbers() {
+		FieldPredicate predicate = FieldPredicate.between("price", 1.5, 10.0);
+		assertTrue(predicate.accept("1.5"));
+		assertTrue(predicate.accept(" 10 "));
+		assertFalse(predicate.accept("10.01"));
+		assertFalse(predicate.accept("abc"));
+		assertFalse(predicate.accept(null));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testBetweenNumbersRejectsInvertedRange() {
+		FieldPredicate.between("price", 10.0, 1.0);
+	}
+
+	@Test
+	public void testNullChecks() {
+		assertTrue(FieldPredicate.isNull("a").accept(null));
+		assertFalse(FieldPredicate.isNull("a").accept(""));
+		assertTrue(FieldPredicate.notNull("a").accept(""));
+		assertFalse(FieldPredicate.notNull("a").accept(null));
+	}
+
+	@Test
+	public void testNegate() {
+		FieldPredicate predicate = FieldPredicate.equalTo("status", "open");
+		FieldPredicate negated = predicate.negate();
+		assertEquals(negated.getFieldName(), "status");
+		assertFalse(negated.accept("open"));
+		assertTrue(negated.accept("closed"));
+		assertSame(negated.negate(), predicate);
+		assertEquals(negated.toString(), "not(status = 'open')");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testFieldNameRequired() {
+		FieldPredicate.equalTo(" ", "x");
+	}
+
+	@Test
+	public void testEntitySettingsApplyPredicatesByFieldName() {
+		TestEntityList entityList = new TestEntityList(new TestParserSettings());
+		TestEntitySettings entity = entityList.configureEntity("orders");
+		assertTrue(entity.getFieldPredicates().isEmpty());
+
+		entity.addFieldPredicate(FieldPredicate.equalTo("Status", "open"));
+		entity.addFieldPredicate(FieldPredicate.between("total", 0, 100));
+		assertEquals(entity.getFieldPredicates().size(), 2);
+
+		assertTrue(entity.acceptsValue(" status ", "open"));
+		assertFalse(entity.acceptsValue("STATUS", "closed"));
+		assertTrue(entity.acceptsValue("total", "50"));
+		assertFalse(entity.acceptsValue("total", "500"));
+		assertTrue(entity.acceptsValue("other", "anything"));
+
+		entity.clearFieldPredicates();
+		assertTrue(entity.acceptsValue("status", "closed"));
+	}
+
+	@Test
+	public void testPredicatesAreInheritedFromParentEntity() {
+		TestEntitySettings parent = new TestEntitySettings("orders", null);
+		parent.addFieldPredicate(FieldPredicate.equalTo("status", "open"));
+		TestEntitySettings child = new TestEntitySettings("archived orders", parent);
+
+		assertEquals(child.getFieldPredicates(), parent.getFieldPredicates());
+		assertFalse(child.acceptsValue("status", "closed"));
+
+		parent.addFieldPredicate(FieldPredicate.between("total", 0, 100));
+		assertFalse(child.acceptsValue("total", "500"));
+
+		child.addFieldPredicate(FieldPredicate.equalTo("status", "closed"));
+		assertEquals(child.getFieldPredicates().size(), 1);
+		assertTrue(child.acceptsValue("status", "closed"));
+		assertTrue(child.acceptsValue("total", "500"));
+
+		TestEntitySettings cleared = new TestEntitySettings("all orders", parent);
+		cleared.clearFieldPredicates();
+		assertTrue(cleared.getFieldPredicates().isEmpty());
+		assertTrue(cleared.acceptsValue("status", "closed"));
+		assertEquals(parent.getFieldPredicates().size(), 2);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testEntitySettingsRequireFieldName() {
+		TestEntitySettings entity = new TestEntityList(new TestParserSettings()).configureEntity("orders");
+		entity.acceptsValue(null, "open");
+	}
+}
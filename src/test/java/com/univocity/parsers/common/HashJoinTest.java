@@ -0,0 +1,201 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.io.*;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class HashJoinTest {
+
+	static final String[] ORDER_HEADERS = {"id", "customer"};
+	static final String[] ITEM_HEADERS = {"ID", "product"};
+
+	static List<String[]> rows(String[]... rows) {
+		return new ArrayList<String[]>(Arrays.asList(rows));
+	}
+
+	static List<String[]> orders() {
+		return rows(new String[]{"1", "alice"}, new String[]{"2", "bob"}, new String[]{null, "nobody"}, new String[]{"3", "carol"});
+	}
+
+	static List<String[]> items() {
+		return rows(new String[]{"1", "apple"}, new String[]{"3", "pear"}, new String[]{"1", "banana"}, new String[]{null, "ghost"}, new String[]{"4", "orphan"}, new String[]{"3", "fig"});
+	}
+
+	@Test
+	public void testJoinUsesCommonFieldsAndFollowsMasterOrder() {
+		HashJoin join = new HashJoin("orders", ORDER_HEADERS, "items", ITEM_HEADERS);
+		assertEquals(join.getJoinFields(), new String[]{"id"});
+		assertEquals(join.getHeaders(), new String[]{"id", "customer", "product"});
+
+		List<String[]> out = join.join(orders(), items());
+		assertEquals(out.size(), 6);
+		assertEquals(out.get(0), new String[]{"1", "alice", "apple"});
+		assertEquals(out.get(1), new String[]{"1", "alice", "banana"});
+		assertEquals(out.get(2), new String[]{"2", "bob", null});
+		assertEquals(out.get(3), new String[]{null, "nobody", null});
+		assertEquals(out.get(4), new String[]{"3", "carol", "pear"});
+		assertEquals(out.get(5), new String[]{"3", "carol", "fig"});
+	}
+
+	@Test
+	public void testStatisticsReportSmallerSideAsBuildSide() {
+		HashJoin join = new HashJoin("orders", ORDER_HEADERS, "items", ITEM_HEADERS, "id");
+		join.join(orders(), items());
+		JoinStatistics stats = join.getStatistics();
+		assertEquals(stats.getBuildEntity(), "orders");
+		assertEquals(stats.getProbeEntity(), "items");
+		assertEquals(stats.getBuildSize(), 4);
+		assertEquals(stats.getProbeCount(), 6);
+		assertEquals(stats.getMatchCount(), 4);
+		assertEquals(stats.getSpilledPartitions(), 0);
+
+		List<String[]> fewItems = rows(new String[]{"2", "kiwi"});
+		List<String[]> out = join.join(orders(), fewItems);
+		assertEquals(join.getStatistics().getBuildEntity(), "items");
+		assertEquals(join.getStatistics().getMatchCount(), 1);
+		assertEquals(out.get(1), new String[]{"2", "bob", "kiwi"});
+		assertEquals(out.get(0), new String[]{"1", "alice", null});
+	}
+
+	@Test
+	public void testCompositeKeys() {
+		String[] master = {"a", "b", "x"};
+		String[] linked = {"b", "a", "y"};
+		HashJoin join = new HashJoin("m", master, "l", linked, "a", "b");
+		assertEquals(join.getHeaders(), new String[]{"a", "b", "x", "y"});
+
+		List<String[]> out = join.join(
+				rows(new String[]{"1", "1", "m1"}, new String[]{"1", "2", "m2"}),
+				rows(new String[]{"2", "1", "l1"}, new String[]{"1", "2", "l2"}, new String[]{"1", "1", "l3"}));
+
+		assertEquals(out.size(), 2);
+		assertEquals(out.get(0), new String[]{"1", "1", "m1", "l3"});
+		assertEquals(out.get(1), new String[]{"1", "2", "m2", "l1"});
+	}
+
+	private File spillDirectory;
+
+	@BeforeMethod
+	public void createSpillDirectory() throws IOException {
+		spillDirectory = File.createTempFile("hashjoin", "");
+		spillDirectory.delete();
+		spillDirectory.mkdirs();
+	}
+
+	@AfterMethod
+	public void deleteSpillDirectory() {
+		RowFile.delete(spillDirectory);
+	}
+
+	private static List<String[]> generate(String prefix, int count, int keys) {
+		List<String[]> out = new ArrayList<String[]>(count);
+		for (int i = 0; i < count; i++) {
+			out.add(new String[]{i % 7 == 0 ? null : String.valueOf(i % keys), prefix + i});
+		}
+		return out;
+	}
+
+	private static Set<String> toSet(Iterable<String[]> rows) {
+		Set<String> out = new TreeSet<String>();
+		for (String[] row : rows) {
+			assertTrue(out.add(Arrays.toString(row)), "Duplicate row " + Arrays.toString(row));
+		}
+		return out;
+	}
+
+	@Test
+	public void testSpilledJoinProducesSameRowsAsInMemoryJoin() {
+		List<String[]> master = generate("m", 500, 50);
+		List<String[]> linked = generate("l", 800, 60);
+
+		HashJoin join = new HashJoin("m", new String[]{"k", "a"}, "l", new String[]{"k", "b"});
+		Set<String> expected = toSet(join.join(master, linked));
+
+		HashJoin.Output spilled = join.join(master, linked, 100, spillDirectory);
+		assertNull(join.getStatistics());
+		assertEquals(spillDirectory.list().length, 1);
+
+		assertEquals(toSet(spilled), expected);
+		assertEquals(spillDirectory.list().length, 0);
+
+		JoinStatistics stats = join.getStatistics();
+		assertTrue(stats.getSpilledPartitions() > 0);
+		assertEquals(stats.getMatchCount(), expected.size() - countUnmatched(master, linked));
+	}
+
+	private static int countUnmatched(List<String[]> master, List<String[]> linked) {
+		Set<String> keys = new HashSet<String>();
+		for (String[] row : linked) {
+			keys.add(row[0]);
+		}
+		int out = 0;
+		for (String[] row : master) {
+			if (row[0] == null || !keys.contains(row[0])) {
+				out++;
+			}
+		}
+		return out;
+	}
+
+	@Test
+	public void testClosingSpilledJoinDeletesTemporaryFiles() {
+		HashJoin join = new HashJoin("m", new String[]{"k", "a"}, "l", new String[]{"k", "b"});
+		HashJoin.Output spilled = join.join(generate("m", 300, 30), generate("l", 300, 30), 50, spillDirectory);
+
+		Iterator<String[]> iterator = spilled.iterator();
+		assertTrue(iterator.hasNext());
+		iterator.next();
+		assertEquals(spillDirectory.list().length, 1);
+
+		spilled.close();
+		assertEquals(spillDirectory.list().length, 0);
+		assertFalse(iterator.hasNext());
+		assertNotNull(join.getStatistics());
+
+		spilled.close();
+	}
+
+	@Test
+	public void testJoinWithinMemoryLimitDoesNotSpill() {
+		HashJoin join = new HashJoin("orders", ORDER_HEADERS, "items", ITEM_HEADERS);
+		HashJoin.Output out = join.join(orders(), items(), 100, spillDirectory);
+		assertEquals(spillDirectory.list().length, 0);
+		assertEquals(toSet(out).size(), 6);
+		assertEquals(join.getStatistics().getSpilledPartitions(), 0);
+		out.close();
+	}
+
+	@Test
+	public void testRowFileRoundTrip() throws IOException {
+		File file = new File(spillDirectory, "rows.bin");
+		DataOutputStream out = RowFile.openOutput(file);
+		RowFile.writeRow(out, new String[]{"a", null, "", "\u00e7\u00e3o"});
+		RowFile.writeRow(out, new String[0]);
+		out.close();
+
+		DataInputStream in = RowFile.openInput(file);
+		assertEquals(RowFile.readRow(in), new String[]{"a", null, "", "\u00e7\u00e3o"});
+		assertEquals(RowFile.readRow(in), new String[0]);
+		assertNull(RowFile.readRow(in));
+		in.close();
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testNoCommonFields() {
+		new HashJoin("m", new String[]{"a"}, "l", new String[]{"b"});
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testUnknownJoinField() {
+		new HashJoin("m", ORDER_HEADERS, "l", ITEM_HEADERS, "customer");
+	}
+}
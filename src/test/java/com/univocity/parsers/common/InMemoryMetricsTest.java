@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+public class InMemoryMetricsTest {
+
+	@Test
+	public void testNamesAreNormalized() {
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		assertTrue(metrics.isEnabled());
+
+		metrics.rowsParsed("Orders", 10);
+		metrics.rowsParsed(" orders ", 5);
+		metrics.rowsParsed("ITEMS", 3);
+		assertEquals(metrics.getRowCount("ORDERS"), 15);
+		assertEquals(metrics.getRowCount("items"), 3);
+		assertEquals(metrics.getRowCount("unknown"), 0);
+
+		metrics.parseTime("Orders", 100);
+		metrics.parseTime("orders", 300);
+		assertEquals(metrics.getParseTimes(" ORDERS").getCount(), 2);
+		assertEquals(metrics.getParseTimes("orders").getMax(), 300);
+		assertNull(metrics.getParseTimes("items"));
+	}
+
+	@Test
+	public void testMeasurementsAreRecorded() {
+		InMemoryMetrics metrics = new InMemoryMetrics(3);
+
+		metrics.downloaded("http://example.com/a", 1000, 20);
+		metrics.downloaded("http://example.com/b", 3000, 40);
+		assertEquals(metrics.getBytesDownloaded(), 4000);
+		assertEquals(metrics.getDownloadSizes().getCount(), 2);
+		assertEquals(metrics.getDownloadSizes().getMax(), 3000);
+		assertEquals(metrics.getDownloadTimes().getMean(), 30.0);
+
+		metrics.joinTime("Orders", "Items", 7);
+		metrics.joinTime("Orders", "Customers", 3);
+		assertEquals(metrics.getJoinTimes("orders").getSum(), 10);
+		assertEquals(metrics.getJoinTimes("orders", " ITEMS ").getSum(), 7);
+		assertEquals(metrics.getJoinTimes("Orders", "customers").getSum(), 3);
+		assertNull(metrics.getJoinTimes("items"));
+		assertNull(metrics.getJoinTimes("items", "orders"));
+
+		metrics.pagesVisited("orders", 4);
+		assertEquals(metrics.getPagesVisited("orders").getMax(), 4);
+
+		metrics.followersTriggered("orders", "Details", 12);
+		assertEquals(metrics.getFollowerFanOut("details").getMax(), 12);
+		assertNull(metrics.getFollowerFanOut("orders"));
+
+		metrics.rateLimiterWait("example.com", 50);
+		assertEquals(metrics.getRateLimiterWaits("EXAMPLE.COM").getCount(), 1);
+
+		metrics.queueDepth("download", 2);
+		metrics.queueDepth("download", 8);
+		assertEquals(metrics.getQueueDepths("download").getMin(), 2);
+		assertEquals(metrics.getQueueDepths("download").getMax(), 8);
+		assertNull(metrics.getQueueDepths("parse"));
+	}
+
+	@Test
+	public void testReset() {
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		metrics.rowsParsed("orders", 10);
+		metrics.downloaded("http://example.com", 100, 5);
+		metrics.queueDepth("download", 3);
+		assertTrue(metrics.toString().contains("rows[orders]: 10"));
+
+		metrics.reset();
+		assertEquals(metrics.getRowCount("orders"), 0);
+		assertEquals(metrics.getBytesDownloaded(), 0);
+		assertEquals(metrics.getDownloadSizes().getCount(), 0);
+		assertNull(metrics.getQueueDepths("download"));
+		assertFalse(metrics.toString().contains("rows[orders]"));
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class IncrementalParsingIndexTest {
+
+	private File directory;
+
+	@BeforeMethod
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("incremental").toFile();
+	}
+
+	@AfterMethod
+	public void deleteDirectory() {
+		RowFile.delete(directory);
+	}
+
+	private static String fingerprint(String content) throws IOException {
+		return IncrementalParsingIndex.fingerprint(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static Map<String, List<String[]>> rows(String entity, String... values) {
+		Map<String, List<String[]>> out = new LinkedHashMap<String, List<String[]>>();
+		List<String[]> rows = new ArrayList<String[]>();
+		for (String value : values) {
+			rows.add(new String[]{value, null});
+		}
+		out.put(entity, rows);
+		return out;
+	}
+
+	private static void assertRows(Map<String, List<String[]>> rows, String entity, String... values) {
+		assertNotNull(rows);
+		List<String[]> entityRows = rows.get(entity);
+		assertEquals(entityRows.size(), values.length);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(entityRows.get(i), new String[]{values[i], null});
+		}
+	}
+
+	private static String longKey() {
+		StringBuilder out = new StringBuilder("http://example.com/search?q=");
+		while (out.length() < 70000) {
+			out.append("\u00E9long");
+		}
+		return out.toString();
+	}
+
+	private int countFiles(String extension) {
+		int count = 0;
+		for (File file : directory.listFiles()) {
+			if (file.getName().endsWith(extension)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testRecordedPagesPersistWithoutClose() throws IOException {
+		IncrementalParsingIndex index = new IncrementalParsingIndex(directory);
+		String fingerprint = fingerprint("<html>1</html>");
+		assertNull(index.getUnchangedRows("page1", fingerprint));
+		index.record("page1", fingerprint, rows("items", "a", "b"));
+		index.record(longKey(), fingerprint, rows("items", "a", "b"));
+
+		IncrementalParsingIndex reopened = new IncrementalParsingIndex(directory);
+		assertRows(reopened.getUnchangedRows("page1", fingerprint), "items", "a", "b");
+		assertRows(reopened.getUnchangedRows(longKey(), fingerprint), "items", "a", "b");
+		assertNull(reopened.getUnchangedRows("page1", fingerprint("<html>changed</html>")));
+		assertEquals(reopened.getSkippedPageCount(), 2);
+		reopened.close();
+		index.close();
+	}
+
+	@Test
+	public void testTornLogTailIsDiscarded() throws IOException {
+		IncrementalParsingIndex index = new IncrementalParsingIndex(directory);
+		index.record("page1", fingerprint("1"), rows("items", "a"));
+		File log = new File(directory, "fingerprints.log");
+		long validLength = log.length();
+		index.record("page2", fingerprint("2"), rows("items", "b"));
+
+		RandomAccessFile file = new RandomAccessFile(log, "rw");
+		try {
+			file.setLength(log.length() - 3);
+		} finally {
+			file.close();
+		}
+
+		IncrementalParsingIndex reopened = new IncrementalParsingIndex(directory);
+		assertEquals(log.length(), validLength);
+		assertRows(reopened.getUnchangedRows("page1", fingerprint("1")), "items", "a");
+		assertNull(reopened.getUnchangedRows("page2", fingerprint("2")));
+
+		reopened.record("page3", fingerprint("3"), rows("items", "c"));
+		IncrementalParsingIndex again = new IncrementalParsingIndex(directory);
+		assertRows(again.getUnchangedRows("page3", fingerprint("3")), "items", "c");
+		again.close();
+		reopened.close();
+		index.close();
+	}
+
+	@Test
+	public void testCloseCompactsLogAndDeletesUnreferencedRows() throws IOException {
+		IncrementalParsingIndex index = new IncrementalParsingIndex(directory);
+		index.record("page1", fingerprint("v1"), rows("items", "old"));
+		index.record("page1", fingerprint("v2"), rows("items", "new"));
+		index.record("page2", fingerprint("v2"), rows("items", "new"));
+		File log = new File(directory, "fingerprints.log");
+		long uncompacted = log.length();
+		assertEquals(countFiles(".rows"), 3);
+
+		index.close();
+		assertTrue(log.length() < uncompacted);
+		assertEquals(countFiles(".rows"), 2);
+
+		IncrementalParsingIndex reopened = new IncrementalParsingIndex(directory);
+		assertNull(reopened.getUnchangedRows("page1", fingerprint("v1")));
+		assertRows(reopened.getUnchangedRows("page1", fingerprint("v2")), "items", "new");
+		assertRows(reopened.getUnchangedRows("page2", fingerprint("v2")), "items", "new");
+		reopened.close();
+	}
+
+	@Test
+	public void testRowsAreNotSharedBetweenPages() throws IOException {
+		IncrementalParsingIndex index = new IncrementalParsingIndex(directory);
+		String fingerprint = fingerprint("<html>no results</html>");
+		index.record("http://example.com/search?q=a", fingerprint, rows("items", "a"));
+		index.record("http://example.com/search?q=b", fingerprint, rows("items", "b"));
+		assertEquals(countFiles(".rows"), 2);
+
+		assertRows(index.getUnchangedRows("http://example.com/search?q=a", fingerprint), "items", "a");
+		assertRows(index.getUnchangedRows("http://example.com/search?q=b", fingerprint), "items", "b");
+		assertNull(index.getUnchangedRows("http://example.com/search?q=c", fingerprint));
+		index.close();
+	}
+
+	@Test
+	public void testTemporaryFilesAreDeletedOnOpen() throws IOException {
+		new File(directory, "abc.rows.tmp").createNewFile();
+		new File(directory, "fingerprints.log.tmp").createNewFile();
+
+		IncrementalParsingIndex index = new IncrementalParsingIndex(directory);
+		assertEquals(countFiles(".tmp"), 0);
+		index.close();
+	}
+
+	@Test
+	public void testRecordingSameFingerprintDoesNotGrowLog() throws IOException {
+		IncrementalParsingIndex index = new IncrementalParsingIndex(directory);
+		index.record("page1", fingerprint("v1"), rows("items", "a"));
+		long length = new File(directory, "fingerprints.log").length();
+		index.record("page1", fingerprint("v1"), rows("items", "a"));
+		assertEquals(new File(directory, "fingerprints.log").length(), length);
+		assertEquals(index.getParsedPageCount(), 2);
+		index.close();
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testRecordAfterClose() throws IOException {
+		IncrementalParsingIndex index = new IncrementalParsingIndex(directory);
+		index.close();
+		index.record("page1", fingerprint("v1"), rows("items", "a"));
+	}
+}
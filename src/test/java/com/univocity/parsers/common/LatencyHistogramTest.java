@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+public class LatencyHistogramTest {
+
+	@DataProvider
+	public Object[][] significantDigits() {
+		return new Object[][]{{1}, {2}, {3}, {4}};
+	}
+
+	@Test(dataProvider = "significantDigits")
+	public void testReportedValuesKeepRelativePrecision(int significantDigits) {
+		double maxError = Math.pow(10, -significantDigits);
+		Random random = new Random(significantDigits);
+
+		List<Long> values = new ArrayList<Long>();
+		for (int shift = 0; shift < 62; shift++) {
+			long power = 1L << shift;
+			values.add(power - 1);
+			values.add(power);
+			values.add(power + 1);
+		}
+		for (int i = 0; i < 2000; i++) {
+			values.add((random.nextLong() & Long.MAX_VALUE) >>> random.nextInt(63));
+		}
+
+		for (long value : values) {
+			LatencyHistogram histogram = new LatencyHistogram(significantDigits);
+			histogram.record(value);
+			histogram.record(Long.MAX_VALUE);
+
+			long reported = histogram.getValueAtPercentile(50.0);
+			assertTrue(reported >= value, "value " + value + " reported as " + reported);
+			assertTrue(reported - value <= value * maxError, "value " + value + " reported as " + reported);
+		}
+	}
+
+	@Test
+	public void testLargestValue() {
+		LatencyHistogram histogram = new LatencyHistogram(4);
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(histogram.getValueAtPercentile(100.0), Long.MAX_VALUE);
+		assertEquals(histogram.getMax(), Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 200; i++) {
+			histogram.record(i);
+		}
+		for (int i = 0; i < 200; i++) {
+			assertEquals(histogram.getValueAtPercentile((i + 1) * 100.0 / 200), i);
+		}
+		assertEquals(histogram.getValueAtPercentile(0.0), 0);
+	}
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 10000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(histogram.getValueAtPercentile(50.0), 5000, 50);
+		assertEquals(histogram.getValueAtPercentile(90.0), 9000, 90);
+		assertEquals(histogram.getValueAtPercentile(99.0), 9900, 99);
+		assertEquals(histogram.getValueAtPercentile(100.0), 10000);
+	}
+
+	@Test
+	public void testStatistics() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(histogram.getCount(), 0);
+		assertEquals(histogram.getSum(), 0);
+		assertEquals(histogram.getMin(), 0);
+		assertEquals(histogram.getMax(), 0);
+		assertEquals(histogram.getMean(), 0.0);
+		assertEquals(histogram.getValueAtPercentile(50.0), 0);
+
+		histogram.record(30);
+		histogram.record(10);
+		histogram.record(20);
+		assertEquals(histogram.getCount(), 3);
+		assertEquals(histogram.getSum(), 60);
+		assertEquals(histogram.getMin(), 10);
+		assertEquals(histogram.getMax(), 30);
+		assertEquals(histogram.getMean(), 20.0);
+		assertEquals(histogram.toString(), "count=3, min=10, mean=20.0, p50=20, p90=30, p99=30, max=30");
+
+		histogram.reset();
+		assertEquals(histogram.getCount(), 0);
+		assertEquals(histogram.getSum(), 0);
+		assertEquals(histogram.getMin(), 0);
+		assertEquals(histogram.getMax(), 0);
+		assertEquals(histogram.getValueAtPercentile(100.0), 0);
+
+		histogram.record(5);
+		assertEquals(histogram.getMin(), 5);
+		assertEquals(histogram.getMax(), 5);
+	}
+
+	@Test
+	public void testConcurrentRecording() throws Exception {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final int threads = 4;
+		final int valuesPerThread = 10000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						for (int i = 1; i <= valuesPerThread; i++) {
+							histogram.record(i);
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(histogram.getCount(), threads * valuesPerThread);
+		assertEquals(histogram.getSum(), threads * (valuesPerThread * (valuesPerThread + 1L) / 2));
+		assertEquals(histogram.getMin(), 1);
+		assertEquals(histogram.getMax(), valuesPerThread);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testNegativeValueRejected() {
+		new LatencyHistogram().record(-1);
+	}
+
+	@Test
+	public void testInvalidPercentilesRejected() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		try {
+			histogram.getValueAtPercentile(-0.1);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		try {
+			histogram.getValueAtPercentile(100.1);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void testInvalidSignificantDigitsRejected() {
+		try {
+			new LatencyHistogram(0);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		try {
+			new LatencyHistogram(5);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class LazyLinkedListTest {
+
+	// parent 0 -> rows 4, 1, 3; parent 1 -> nothing
+	private static final LinkIndex INDEX = new LinkIndex(new int[]{0, 3, 3}, new int[]{4, 1, 3});
+
+	private static class CountingLoader implements LinkedElementLoader<String> {
+		final List<Integer> loaded = new ArrayList<Integer>();
+
+		@Override
+		public String load(int linkedRow) {
+			loaded.add(linkedRow);
+			return "row" + linkedRow;
+		}
+	}
+
+	private CountingLoader loader;
+	private LazyLinkedList<String> list;
+
+	@BeforeMethod
+	public void setup() {
+		loader = new CountingLoader();
+		list = new LazyLinkedList<String>(INDEX, 0, loader);
+	}
+
+	@Test
+	public void testElementsAreLoadedOnFirstAccess() {
+		assertFalse(list.isResolved());
+		assertEquals(list.size(), 3);
+		assertFalse(list.isEmpty());
+		assertTrue(loader.loaded.isEmpty());
+
+		assertEquals(list.get(1), "row1");
+		assertTrue(list.isResolved());
+		assertEquals(loader.loaded, Collections.singletonList(1));
+
+		assertEquals(list.get(1), "row1");
+		assertEquals(list.get(0), "row4");
+		assertEquals(loader.loaded, Arrays.asList(1, 4));
+
+		assertEquals(list, Arrays.asList("row4", "row1", "row3"));
+		assertEquals(loader.loaded, Arrays.asList(1, 4, 3));
+	}
+
+	@Test
+	public void testNullElementsAreLoadedOnce() {
+		final int[] loads = new int[1];
+		LazyLinkedList<String> nulls = new LazyLinkedList<String>(INDEX, 0, new LinkedElementLoader<String>() {
+			@Override
+			public String load(int linkedRow) {
+				loads[0]++;
+				return null;
+			}
+		});
+		assertNull(nulls.get(0));
+		assertNull(nulls.get(0));
+		assertEquals(loads[0], 1);
+	}
+
+	@Test
+	public void testEmptyList() {
+		LazyLinkedList<String> empty = new LazyLinkedList<String>(INDEX, 1, loader);
+		assertTrue(empty.isEmpty());
+		assertFalse(empty.iterator().hasNext());
+		try {
+			empty.get(0);
+			fail("Expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+		assertFalse(empty.isResolved());
+	}
+
+	@Test
+	public void testOutOfBounds() {
+		try {
+			list.get(3);
+			fail("Expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+		try {
+			list.get(-1);
+			fail("Expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+		try {
+			new LazyLinkedList<String>(INDEX, 2, loader);
+			fail("Expected IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+			//expected
+		}
+		assertTrue(loader.loaded.isEmpty());
+	}
+
+	@Test
+	public void testSetMaterializesRemainingElements() {
+		assertEquals(list.get(0), "row4");
+		assertEquals(list.set(1, "x"), "row1");
+		assertEquals(loader.loaded, Arrays.asList(4, 1, 3));
+
+		assertEquals(list, Arrays.asList("row4", "x", "row3"));
+		assertEquals(list.size(), 3);
+		assertEquals(loader.loaded.size(), 3);
+	}
+
+	@Test
+	public void testAddAndRemove() {
+		list.add("new");
+		assertEquals(list.size(), 4);
+		assertEquals(list.get(3), "new");
+
+		list.add(0, "first");
+		assertEquals(list.remove(1), "row4");
+		assertTrue(list.remove("row3"));
+		assertEquals(list, Arrays.asList("first", "row1", "new"));
+		assertEquals(loader.loaded, Arrays.asList(4, 1, 3));
+	}
+
+	@Test
+	public void testClearDoesNotLoadElements() {
+		list.clear();
+		assertTrue(list.isEmpty());
+		assertTrue(list.isResolved());
+		assertTrue(loader.loaded.isEmpty());
+
+		list.add("a");
+		assertEquals(list, Collections.singletonList("a"));
+	}
+
+	@Test
+	public void testIteratorModifications() {
+		ListIterator<String> it = list.listIterator();
+		while (it.hasNext()) {
+			String value = it.next();
+			if (value.equals("row1")) {
+				it.remove();
+			} else {
+				it.set(value.toUpperCase());
+			}
+		}
+		assertEquals(list, Arrays.asList("ROW4", "ROW3"));
+
+		for (int i = 0; i < list.size(); i++) {
+			list.set(i, list.get(i).toLowerCase());
+		}
+		for (String value : list) {
+			list.set(0, value);
+		}
+		assertEquals(list, Arrays.asList("row3", "row3"));
+	}
+
+	@Test(expectedExceptions = ConcurrentModificationException.class)
+	public void testStructuralModificationDuringIteration() {
+		for (String value : list) {
+			list.add(value);
+		}
+	}
+
+	@Test
+	public void testSubList() {
+		List<String> sub = list.subList(1, 3);
+		assertEquals(sub, Arrays.asList("row1", "row3"));
+		assertFalse(loader.loaded.contains(4));
+
+		sub.clear();
+		assertEquals(list, Collections.singletonList("row4"));
+	}
+}
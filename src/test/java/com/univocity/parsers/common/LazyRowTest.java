@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+public class LazyRowTest {
+
+	private static final String[] FIELDS = {"id", "Name", "price"};
+
+	private static class ArrayRow extends LazyRow {
+		private final String[] source;
+		private final int[] extractions;
+
+		ArrayRow(String[] source, FieldAccessCounter counter) {
+			super(source.length, counter);
+			this.source = source;
+			this.extractions = new int[source.length];
+		}
+
+		@Override
+		protected String extract(int fieldIndex) {
+			extractions[fieldIndex]++;
+			return source[fieldIndex];
+		}
+	}
+
+	@Test
+	public void testValuesAreExtractedOnce() {
+		FieldAccessCounter counter = new FieldAccessCounter("products", FIELDS);
+		ArrayRow row = new ArrayRow(new String[]{"1", "pen", null}, counter);
+		assertEquals(row.getFieldCount(), 3);
+		assertFalse(row.isExtracted(0));
+
+		assertEquals(row.getValue(0), "1");
+		assertEquals(row.getValue("id"), "1");
+		assertEquals(row.getValue(" NAME "), "pen");
+		assertNull(row.getValue(2));
+		assertNull(row.getValue(2));
+
+		assertTrue(row.isExtracted(0));
+		assertTrue(row.isExtracted(2));
+		assertEquals(row.extractions, new int[]{1, 1, 1});
+
+		assertEquals(counter.getAccessCount("id"), 2);
+		assertEquals(counter.getAccessCount("name"), 1);
+		assertEquals(counter.getAccessCount("price"), 2);
+		assertEquals(counter.getExtractionCount("id"), 1);
+		assertEquals(counter.getExtractionCount("price"), 1);
+	}
+
+	@Test
+	public void testToArrayDoesNotCountReads() {
+		FieldAccessCounter counter = new FieldAccessCounter("products", FIELDS);
+		ArrayRow row = new ArrayRow(new String[]{"1", "pen", "2.5"}, counter);
+		row.getValue(1);
+
+		assertEquals(row.toArray(), new String[]{"1", "pen", "2.5"});
+		assertEquals(row.extractions, new int[]{1, 1, 1});
+		assertEquals(counter.getAccessCount("id"), 0);
+		assertEquals(counter.getAccessCount("name"), 1);
+		assertEquals(counter.getExtractionCount("price"), 1);
+		assertEquals(counter.getUnusedFields(), new LinkedHashSet<String>(Arrays.asList("id", "price")));
+	}
+
+	@Test
+	public void testRowWithoutCounter() {
+		ArrayRow row = new ArrayRow(new String[]{"a", "b"}, null);
+		assertEquals(row.getValue(1), "b");
+		try {
+			row.getValue("id");
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testUnknownFieldName() {
+		new ArrayRow(new String[]{"1", "pen", "2.5"}, new FieldAccessCounter("products", FIELDS)).getValue("weight");
+	}
+
+	@Test
+	public void testConcurrentReadsAreCounted() throws Exception {
+		final FieldAccessCounter counter = new FieldAccessCounter("products", FIELDS);
+		final int threads = 4;
+		final int rowsPerThread = 5000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						for (int i = 0; i < rowsPerThread; i++) {
+							ArrayRow row = new ArrayRow(new String[]{String.valueOf(i), "pen", "1"}, counter);
+							row.getValue(0);
+							row.getValue(0);
+							row.getValue(1);
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(counter.getAccessCount("id"), 2L * threads * rowsPerThread);
+		assertEquals(counter.getExtractionCount("id"), (long) threads * rowsPerThread);
+		assertEquals(counter.getAccessCount("name"), (long) threads * rowsPerThread);
+		assertEquals(counter.getAccessCount("price"), 0);
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class LinkIndexTest {
+
+	@Test
+	public void testLinkGroupsLinkedRowsByParentRow() {
+		HashJoin join = new HashJoin("orders", HashJoinTest.ORDER_HEADERS, "items", HashJoinTest.ITEM_HEADERS);
+		LinkIndex index = join.link(HashJoinTest.orders(), HashJoinTest.items());
+
+		assertEquals(index.getParentRowCount(), 4);
+		assertEquals(index.getLinkCount(), 4);
+		assertLinks(index, 0, 0, 2);
+		assertLinks(index, 1);
+		assertLinks(index, 2);
+		assertLinks(index, 3, 1, 5);
+		assertEquals(join.getStatistics().getMatchCount(), 4);
+	}
+
+	@Test
+	public void testLinkBuildingEitherSideProducesSameIndex() {
+		Random random = new Random(1);
+		List<String[]> master = new ArrayList<String[]>();
+		List<String[]> linked = new ArrayList<String[]>();
+		for (int i = 0; i < 200; i++) {
+			master.add(new String[]{String.valueOf(random.nextInt(40)), "m" + i});
+		}
+		for (int i = 0; i < 50; i++) {
+			linked.add(new String[]{String.valueOf(random.nextInt(40)), "l" + i});
+		}
+
+		HashJoin join = new HashJoin("m", new String[]{"k", "a"}, "l", new String[]{"k", "b"});
+		LinkIndex buildLinked = join.link(master, linked);
+		assertEquals(join.getStatistics().getBuildEntity(), "l");
+
+		List<String[]> moreLinked = new ArrayList<String[]>(linked);
+		for (int i = 0; i < 400; i++) {
+			moreLinked.add(new String[]{"none", "x" + i});
+		}
+		LinkIndex buildMaster = join.link(master, moreLinked);
+		assertEquals(join.getStatistics().getBuildEntity(), "m");
+
+		for (int m = 0; m < master.size(); m++) {
+			int count = buildLinked.getLinkedRowCount(m);
+			assertEquals(buildMaster.getLinkedRowCount(m), count);
+			int[] expected = new int[count];
+			buildLinked.copyLinkedRows(m, expected, 0);
+			for (int i = 0; i < count; i++) {
+				assertEquals(buildMaster.getLinkedRow(m, i), expected[i]);
+				assertEquals(linked.get(expected[i])[0], master.get(m)[0]);
+				if (i > 0) {
+					assertTrue(expected[i] > expected[i - 1]);
+				}
+			}
+		}
+	}
+
+	@Test(expectedExceptions = IndexOutOfBoundsException.class)
+	public void testLinkedRowOutOfBounds() {
+		new LinkIndex(new int[]{0, 1, 1}, new int[]{5}).getLinkedRow(1, 0);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInconsistentOffsets() {
+		new LinkIndex(new int[]{0, 2}, new int[]{5});
+	}
+
+	private static void assertLinks(LinkIndex index, int parentRow, int... linkedRows) {
+		assertEquals(index.getLinkedRowCount(parentRow), linkedRows.length);
+		assertEquals(index.hasLinkedRows(parentRow), linkedRows.length > 0);
+		for (int i = 0; i < linkedRows.length; i++) {
+			assertEquals(index.getLinkedRow(parentRow, i), linkedRows[i]);
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import com.univocity.parsers.annotations.*;
+import org.testng.annotations.*;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class LinkedContainersTest {
+
+	static class Parent {
+		@Linked(entity = "children")
+		List<String> list;
+
+		@Linked(entity = "children", container = TreeSet.class)
+		Set<String> sorted;
+
+		@Linked(entity = "children")
+		String[] array;
+
+		@Linked(entity = "children")
+		String single;
+
+		@Linked(entity = "children")
+		@Group(key = Integer.class)
+		Map<Integer, List<String>> byNumber;
+
+		@Linked(entity = "children")
+		@Group(key = Integer.class, container = TreeMap.class)
+		Map<Integer, Set<String>> sortedByNumber;
+
+		@Linked(entity = "children")
+		@Group
+		HashMap<Integer, List<String>> hashByNumber;
+
+		@Linked(entity = "children")
+		@Group
+		Map<String, String> byName;
+	}
+
+	static class Flagged {
+		@Linked(entity = "children")
+		@Group
+		Map<Boolean, List<String>> byFlag;
+	}
+
+	// parent 0 -> rows 2, 0, 3; parent 1 -> nothing; parent 2 -> row 1
+	private static final LinkIndex INDEX = new LinkIndex(new int[]{0, 3, 3, 4}, new int[]{2, 0, 3, 1});
+	private static final List<String> CHILDREN = Arrays.asList("a", "b", "c", "d");
+	private static final String[] NUMBERS = {"1", "2", "1", " "};
+
+	private BeanMapper<Parent> mapper;
+
+	@BeforeMethod
+	public void setup() {
+		mapper = BeanMapper.of(Parent.class);
+		assertTrue(mapper.isSupported(), mapper.getUnsupportedReason());
+	}
+
+	@Test
+	public void testCollect() {
+		List<Object> lists = LinkedContainers.collect(INDEX, CHILDREN, mapper.getLinkedAttribute("list"));
+		assertEquals(lists, Arrays.asList(Arrays.asList("c", "a", "d"), Collections.emptyList(), Collections.singletonList("b")));
+		assertEquals(lists.get(0).getClass(), ArrayList.class);
+
+		List<Object> sorted = LinkedContainers.collect(INDEX, CHILDREN, mapper.getLinkedAttribute("sorted"));
+		assertEquals(sorted.get(0).getClass(), TreeSet.class);
+		assertEquals(new ArrayList<Object>((Set<?>) sorted.get(0)), Arrays.asList("a", "c", "d"));
+
+		List<Object> arrays = LinkedContainers.collect(INDEX, CHILDREN, mapper.getLinkedAttribute("array"));
+		assertEquals((String[]) arrays.get(0), new String[]{"c", "a", "d"});
+		assertEquals(((String[]) arrays.get(1)).length, 0);
+	}
+
+	@Test
+	public void testCollectSingleValues() {
+		LinkIndex index = new LinkIndex(new int[]{0, 1, 1, 2}, new int[]{3, 0});
+		List<Object> values = LinkedContainers.collect(index, CHILDREN, mapper.getLinkedAttribute("single"));
+		assertEquals(values, Arrays.asList("d", null, "a"));
+
+		List<Parent> parents = Arrays.asList(new Parent(), new Parent(), new Parent());
+		LinkedContainers.assign(parents, mapper, "single", values);
+		assertEquals(parents.get(0).single, "d");
+		assertNull(parents.get(1).single);
+		assertEquals(parents.get(2).single, "a");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testCollectRejectsMultipleValuesForSingleAttribute() {
+		LinkedContainers.collect(INDEX, CHILDREN, mapper.getLinkedAttribute("single"));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testCollectRejectsGroupedAttribute() {
+		LinkedContainers.collect(INDEX, CHILDREN, mapper.getLinkedAttribute("byNumber"));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testCollectChecksElementTypes() {
+		LinkedContainers.collect(INDEX, Arrays.asList(1, 2, 3, 4), mapper.getLinkedAttribute("list"));
+	}
+
+	@Test
+	public void testLazy() {
+		final List<Object> children = new ArrayList<Object>(CHILDREN);
+		LinkedElementLoader<Object> loader = new LinkedElementLoader<Object>() {
+			@Override
+			public Object load(int linkedRow) {
+				return children.get(linkedRow);
+			}
+		};
+		List<List<Object>> lists = LinkedContainers.lazy(INDEX, mapper.getLinkedAttribute("list"), loader);
+		List<Parent> parents = Arrays.asList(new Parent(), new Parent(), new Parent());
+		LinkedContainers.assign(parents, mapper, "list", lists);
+		assertEquals(parents.get(0).list.getClass(), LazyLinkedList.class);
+		assertEquals(parents.get(0).list, Arrays.asList("c", "a", "d"));
+		assertTrue(parents.get(1).list.isEmpty());
+
+		children.set(1, 2);
+		try {
+			parents.get(2).list.get(0);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+
+		for (String attribute : new String[]{"sorted", "array", "single", "byNumber"}) {
+			try {
+				LinkedContainers.lazy(INDEX, mapper.getLinkedAttribute(attribute), loader);
+				fail("Expected IllegalArgumentException for " + attribute);
+			} catch (IllegalArgumentException e) {
+				//expected
+			}
+		}
+	}
+
+	@Test
+	public void testGroupWithPrimitiveKeys() {
+		List<Map<Object, Object>> maps = LinkedContainers.group(INDEX, CHILDREN, NUMBERS, mapper.getLinkedAttribute("byNumber"));
+		assertEquals(maps.size(), 3);
+
+		Map<Object, Object> first = maps.get(0);
+		assertTrue(first instanceof LongKeyMap);
+		assertEquals(first.size(), 2);
+		assertEquals(first.get(1), Arrays.asList("c", "a"));
+		assertEquals(first.get(null), Collections.singletonList("d"));
+		assertEquals(first.get(1).getClass(), ArrayList.class);
+		for (Object key : first.keySet()) {
+			assertTrue(key == null || key instanceof Integer);
+		}
+		assertTrue(maps.get(1).isEmpty());
+		assertTrue(maps.get(1) instanceof LongKeyMap);
+		assertNotSame(maps.get(1), LinkedContainers.group(INDEX, CHILDREN, NUMBERS, mapper.getLinkedAttribute("byNumber")).get(1));
+		maps.get(1).put(5, Collections.singletonList("e"));
+		assertEquals(maps.get(1).size(), 1);
+		assertEquals(maps.get(2).get(2), Collections.singletonList("b"));
+	}
+
+	@Test
+	public void testGroupHonoursDeclaredMapType() {
+		List<Map<Object, Object>> sorted = LinkedContainers.group(INDEX, CHILDREN, new String[]{"1", "2", "1", "3"}, mapper.getLinkedAttribute("sortedByNumber"));
+		Map<Object, Object> first = sorted.get(0);
+		assertEquals(first.getClass(), TreeMap.class);
+		assertEquals(new ArrayList<Object>(first.keySet()), Arrays.asList(1, 3));
+		assertEquals(first.get(1).getClass(), HashSet.class);
+		assertEquals(first.get(1), new HashSet<String>(Arrays.asList("a", "c")));
+
+		List<Map<Object, Object>> hash = LinkedContainers.group(INDEX, CHILDREN, NUMBERS, mapper.getLinkedAttribute("hashByNumber"));
+		assertEquals(hash.get(0).getClass(), HashMap.class);
+		assertEquals(hash.get(0).get(1), Arrays.asList("c", "a"));
+		assertEquals(hash.get(0).get(null), Collections.singletonList("d"));
+		assertEquals(hash.get(1).getClass(), HashMap.class);
+		assertTrue(hash.get(1).isEmpty());
+
+		List<Parent> parents = Arrays.asList(new Parent(), new Parent(), new Parent());
+		LinkedContainers.assign(parents, mapper, "hashByNumber", hash);
+		assertEquals(parents.get(2).hashByNumber.get(2), Collections.singletonList("b"));
+		LinkedContainers.assign(parents, mapper, "sortedByNumber", sorted);
+		assertEquals(parents.get(0).sortedByNumber.getClass(), TreeMap.class);
+	}
+
+	@Test
+	public void testGroupSingleValues() {
+		List<Map<Object, Object>> maps = LinkedContainers.group(INDEX, CHILDREN, new String[]{"x", "y", "z", "w"}, mapper.getLinkedAttribute("byName"));
+		Map<Object, Object> expected = new HashMap<Object, Object>();
+		expected.put("z", "c");
+		expected.put("x", "a");
+		expected.put("w", "d");
+		assertEquals(maps.get(0), expected);
+		assertEquals(maps.get(0).getClass(), HashMap.class);
+
+		maps = LinkedContainers.group(INDEX, CHILDREN, new String[]{" x ", "y", "z", "  "}, mapper.getLinkedAttribute("byName"));
+		expected.clear();
+		expected.put("z", "c");
+		expected.put(" x ", "a");
+		expected.put(null, "d");
+		assertEquals(maps.get(0), expected);
+
+		try {
+			LinkedContainers.group(INDEX, CHILDREN, NUMBERS, mapper.getLinkedAttribute("byName"));
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void testBooleanKeysAreConvertedStrictly() {
+		BeanMapper<Flagged> flagged = BeanMapper.of(Flagged.class);
+		List<Map<Object, Object>> maps = LinkedContainers.group(INDEX, CHILDREN, new String[]{"TRUE", "x", " false", "true"}, flagged.getLinkedAttribute("byFlag"));
+		assertEquals(maps.get(0).get(true), Arrays.asList("a", "d"));
+		assertEquals(maps.get(0).get(false), Collections.singletonList("c"));
+
+		try {
+			LinkedContainers.group(INDEX, CHILDREN, new String[]{"true", "x", "no", "true"}, flagged.getLinkedAttribute("byFlag"));
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("'no'"), e.getMessage());
+		}
+	}
+
+	@Test
+	public void testGroupRejectsInvalidInput() {
+		try {
+			LinkedContainers.group(INDEX, CHILDREN, new String[]{"1", "x", "1", "2"}, mapper.getLinkedAttribute("byNumber"));
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		try {
+			LinkedContainers.group(INDEX, CHILDREN, new String[]{"1"}, mapper.getLinkedAttribute("byNumber"));
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		try {
+			LinkedContainers.group(INDEX, CHILDREN, NUMBERS, mapper.getLinkedAttribute("list"));
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+import java.util.function.*;
+
+import static org.testng.Assert.*;
+
+public class LongKeyMapTest {
+
+	@Test
+	public void testPutAndGet() {
+		LongKeyMap<String> map = new LongKeyMap<String>(Long.class, 2);
+		assertTrue(map.isEmpty());
+		assertNull(map.put(1L, "a"));
+		assertNull(map.put(-5L, "b"));
+		assertNull(map.put(Long.MIN_VALUE, "min"));
+		assertEquals(map.put(1L, "c"), "a");
+
+		assertEquals(map.size(), 3);
+		assertEquals(map.get(1L), "c");
+		assertEquals(map.get(Long.valueOf(-5)), "b");
+		assertEquals(map.get(Long.MIN_VALUE), "min");
+		assertNull(map.get(2L));
+		assertNull(map.get("1"));
+		assertTrue(map.containsKey(1L));
+		assertFalse(map.containsKey("1"));
+	}
+
+	@Test
+	public void testKeysOfOtherTypesAreNotFound() {
+		LongKeyMap<String> map = new LongKeyMap<String>(Integer.class, 4);
+		map.put(1, "a");
+		assertEquals(map.get(1), "a");
+		assertNull(map.get(1L));
+		assertNull(map.get((short) 1));
+		assertFalse(map.containsKey(1L));
+		assertNull(map.remove(1L));
+		assertEquals(map.size(), 1);
+		try {
+			map.put(1L, "b");
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		assertEquals(map, Collections.singletonMap(1, "a"));
+	}
+
+	@Test
+	public void testEntriesWriteThrough() {
+		LongKeyMap<Integer> map = new LongKeyMap<Integer>(Integer.class, 4);
+		for (int i = 0; i < 20; i++) {
+			map.put(i, i);
+		}
+		map.put(null, -1);
+		for (Map.Entry<Object, Integer> e : map.entrySet()) {
+			e.setValue(e.getValue() * 10);
+		}
+		assertEquals(map.get(7), Integer.valueOf(70));
+		assertEquals(map.get(null), Integer.valueOf(-10));
+
+		map.replaceAll(new BiFunction<Object, Integer, Integer>() {
+			@Override
+			public Integer apply(Object key, Integer value) {
+				return value + 1;
+			}
+		});
+		assertEquals(map.get(7), Integer.valueOf(71));
+
+		Map.Entry<Object, Integer> entry = map.entrySet().iterator().next();
+		assertEquals(entry, new AbstractMap.SimpleEntry<Object, Integer>(entry.getKey(), entry.getValue()));
+		assertEquals(entry.hashCode(), new AbstractMap.SimpleEntry<Object, Integer>(entry.getKey(), entry.getValue()).hashCode());
+	}
+
+	@Test
+	public void testRemovalThroughViews() {
+		LongKeyMap<Integer> map = new LongKeyMap<Integer>(Long.class, 4);
+		Map<Object, Integer> expected = new HashMap<Object, Integer>();
+		for (long i = 0; i < 500; i++) {
+			// multiples of 64 collide, so removing them shifts other keys while iterating
+			long key = i % 3 == 0 ? i * 64 : i;
+			map.put(key, (int) i);
+			expected.put(key, (int) i);
+		}
+		map.put(null, -1);
+		expected.put(null, -1);
+
+		Predicate<Object> odd = new Predicate<Object>() {
+			@Override
+			public boolean test(Object key) {
+				return key != null && ((Long) key) % 2 == 1;
+			}
+		};
+		assertTrue(map.keySet().removeIf(odd));
+		expected.keySet().removeIf(odd);
+		assertEquals(map, expected);
+
+		Predicate<Integer> small = new Predicate<Integer>() {
+			@Override
+			public boolean test(Integer value) {
+				return value < 100;
+			}
+		};
+		assertTrue(map.values().removeIf(small));
+		expected.values().removeIf(small);
+		assertEquals(map, expected);
+
+		Set<Object> keep = new HashSet<Object>(Arrays.<Object>asList(201L * 64, 200L, 202L, 5L));
+		map.keySet().retainAll(keep);
+		expected.keySet().retainAll(keep);
+		assertEquals(map, expected);
+		assertEquals(map.size(), 3);
+
+		Iterator<Object> keys = map.keySet().iterator();
+		try {
+			keys.remove();
+			fail("Expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void testNullKey() {
+		LongKeyMap<String> map = new LongKeyMap<String>(Integer.class, 4);
+		assertFalse(map.containsKey(null));
+		assertNull(map.put(null, "none"));
+		assertEquals(map.put(null, "null"), "none");
+		assertEquals(map.size(), 1);
+		assertTrue(map.containsKey(null));
+		assertEquals(map.get(null), "null");
+		assertEquals(map.remove(null), "null");
+		assertFalse(map.containsKey(null));
+		assertTrue(map.isEmpty());
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRejectsNonIntegralKeys() {
+		new LongKeyMap<String>(Long.class, 4).put(1.5, "x");
+	}
+
+	@Test
+	public void testKeysAreBoxedToDeclaredType() {
+		LongKeyMap<String> ints = new LongKeyMap<String>(int.class, 4);
+		ints.put(7, "a");
+		assertEquals(ints.keySet().iterator().next().getClass(), Integer.class);
+
+		LongKeyMap<String> shorts = new LongKeyMap<String>(Short.class, 4);
+		shorts.put((short) 7, "a");
+		assertEquals(shorts.keySet().iterator().next(), (short) 7);
+
+		LongKeyMap<String> bytes = new LongKeyMap<String>(Byte.class, 4);
+		bytes.put((byte) 7, "a");
+		assertEquals(bytes.keySet().iterator().next(), (byte) 7);
+
+		LongKeyMap<String> longs = new LongKeyMap<String>(Long.class, 4);
+		longs.put(7L, "a");
+		assertEquals(longs.keySet().iterator().next(), 7L);
+
+		Map<Object, String> expected = new HashMap<Object, String>();
+		expected.put(7, "a");
+		assertEquals(ints, expected);
+	}
+
+	@Test
+	public void testIteration() {
+		LongKeyMap<Integer> map = new LongKeyMap<Integer>(Long.class, 0);
+		Map<Object, Integer> expected = new HashMap<Object, Integer>();
+		for (long key = -50; key < 50; key++) {
+			map.put(key, Integer.valueOf((int) key * 2));
+			expected.put(key, (int) key * 2);
+		}
+		map.put(null, 0);
+		expected.put(null, 0);
+
+		Map<Object, Integer> iterated = new HashMap<Object, Integer>();
+		for (Map.Entry<Object, Integer> e : map.entrySet()) {
+			assertNull(iterated.put(e.getKey(), e.getValue()));
+		}
+		assertEquals(iterated, expected);
+		assertEquals(map.size(), 101);
+
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertFalse(map.entrySet().iterator().hasNext());
+		assertNull(map.get(1L));
+	}
+
+	@Test
+	public void testRemovalKeepsCollidingKeysReachable() {
+		// multiples of the table size collide on the same home slot when hashes are masked, forming long clusters
+		// that wrap around the end of the table. Removing keys in the middle of a cluster must shift the following
+		// keys back so that lookups don't stop at the emptied slot.
+		Random random = new Random(42);
+		for (int round = 0; round < 50; round++) {
+			LongKeyMap<Long> map = new LongKeyMap<Long>(Long.class, 16);
+			Map<Long, Long> expected = new HashMap<Long, Long>();
+			for (int i = 0; i < 2000; i++) {
+				long key = random.nextInt(64) * (random.nextBoolean() ? 1L : 32L);
+				if (random.nextInt(3) == 0) {
+					assertEquals(map.remove(key), expected.remove(key), "removing " + key);
+				} else {
+					assertEquals(map.put(key, Long.valueOf(i)), expected.put(key, (long) i), "adding " + key);
+				}
+				assertEquals(map.size(), expected.size());
+			}
+			for (long key = 0; key < 64 * 32; key++) {
+				assertEquals(map.get(key), expected.get(key), "key " + key);
+				assertEquals(map.containsKey(key), expected.containsKey(key), "key " + key);
+			}
+			assertEquals(new HashMap<Object, Long>(map), expected);
+		}
+	}
+
+	@Test
+	public void testRemoveEveryKey() {
+		LongKeyMap<String> map = new LongKeyMap<String>(Integer.class, 4);
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, String.valueOf(i));
+		}
+		for (int i = 0; i < 1000; i += 2) {
+			assertEquals(map.remove(i), String.valueOf(i));
+		}
+		assertNull(map.remove(0));
+		assertNull(map.remove("1"));
+		assertEquals(map.size(), 500);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(map.get(i), i % 2 == 0 ? null : String.valueOf(i));
+		}
+		for (int i = 1; i < 1000; i += 2) {
+			assertEquals(map.remove(i), String.valueOf(i));
+		}
+		assertTrue(map.isEmpty());
+	}
+
+	@Test
+	public void testSupportedKeyTypes() {
+		assertTrue(LongKeyMap.supports(Integer.class));
+		assertTrue(LongKeyMap.supports(long.class));
+		assertTrue(LongKeyMap.supports(Short.class));
+		assertTrue(LongKeyMap.supports(byte.class));
+		assertFalse(LongKeyMap.supports(Double.class));
+		assertFalse(LongKeyMap.supports(String.class));
+		assertFalse(LongKeyMap.supports(Object.class));
+	}
+}
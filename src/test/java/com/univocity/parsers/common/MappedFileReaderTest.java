@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+import static org.testng.Assert.*;
+
+public class MappedFileReaderTest {
+
+	private static final String TEXT = "id,name,city\n1,Jos\u00E9,S\u00E3o Paulo\n2,Zo\u00EB,K\u00F6ln\n3,\u738B\u5C0F\u660E,\u5317\u4EAC\n4,\uD83D\uDE00 emoji,\uD83C\uDF0D\n5,plain,ascii\n";
+
+	private File file;
+
+	@BeforeMethod
+	public void createFile() throws IOException {
+		file = File.createTempFile("mapped", ".csv");
+	}
+
+	@AfterMethod
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private void write(String content, Charset encoding) throws IOException {
+		Files.write(file.toPath(), content.getBytes(encoding));
+	}
+
+	private static String readAll(Reader reader, int chunk) throws IOException {
+		StringBuilder out = new StringBuilder();
+		char[] buffer = new char[chunk];
+		int read;
+		while ((read = reader.read(buffer, 0, chunk)) != -1) {
+			out.append(buffer, 0, read);
+		}
+		reader.close();
+		return out.toString();
+	}
+
+	@Test
+	public void testCharactersSplitAcrossRegions() throws IOException {
+		write(TEXT, StandardCharsets.UTF_8);
+		for (int regionSize = 16; regionSize <= 40; regionSize++) {
+			for (int chunk : new int[]{1, 2, 3, 7, 1024}) {
+				String read = readAll(new MappedFileReader(file, StandardCharsets.UTF_8, regionSize), chunk);
+				assertEquals(read, TEXT, "Region size " + regionSize + ", chunk " + chunk);
+			}
+		}
+	}
+
+	@Test
+	public void testUtf16AcrossRegions() throws IOException {
+		write(TEXT, StandardCharsets.UTF_16LE);
+		for (int regionSize = 16; regionSize <= 24; regionSize++) {
+			assertEquals(readAll(new MappedFileReader(file, StandardCharsets.UTF_16LE, regionSize), 5), TEXT);
+		}
+	}
+
+	@Test
+	public void testSingleCharacterReadsOfSurrogatePairs() throws IOException {
+		write("a\uD83D\uDE00b", StandardCharsets.UTF_8);
+		Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8);
+		assertEquals(reader.read(), 'a');
+		assertEquals(reader.read(), 0xD83D);
+		assertTrue(reader.ready());
+		assertEquals(reader.read(), 0xDE00);
+		assertEquals(reader.read(), 'b');
+		assertEquals(reader.read(), -1);
+		reader.close();
+	}
+
+	@Test
+	public void testMalformedInputIsReplaced() throws IOException {
+		Files.write(file.toPath(), new byte[]{'a', (byte) 0xC3, 'b'});
+		assertEquals(readAll(new MappedFileReader(file, "UTF-8"), 10), "a\uFFFDb");
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		assertEquals(readAll(new MappedFileReader(file, StandardCharsets.UTF_8), 10), "");
+	}
+
+	@Test
+	public void testReadAfterClose() throws IOException {
+		write(TEXT, StandardCharsets.UTF_8);
+		Reader reader = new MappedFileReader(file, StandardCharsets.UTF_8);
+		reader.close();
+		try {
+			reader.read(new char[10], 0, 10);
+			fail("Expected closed reader");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("closed"));
+		}
+	}
+
+	@Test
+	public void testMissingFile() {
+		try {
+			new MappedFileReader(new File(file.getParentFile(), file.getName() + ".missing"), StandardCharsets.UTF_8);
+			fail("Expected missing file");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().startsWith("Unable to map file"));
+		}
+	}
+}
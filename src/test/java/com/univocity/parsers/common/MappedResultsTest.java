@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class MappedResultsTest {
+
+	private File file;
+
+	@BeforeMethod
+	public void createFile() throws IOException {
+		file = File.createTempFile("results", ".bin");
+	}
+
+	@AfterMethod
+	public void deleteFile() {
+		file.delete();
+	}
+
+	static Result result(final String entityName, final String[] headers, final List<String[]> rows, final Map<String, LinkIndex> links) {
+		return (Result) Proxy.newProxyInstance(Result.class.getClassLoader(), new Class[]{Result.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getEntityName")) {
+					return entityName;
+				}
+				if (method.getName().equals("getHeaders")) {
+					return headers;
+				}
+				if (method.getName().equals("iterateRows")) {
+					return rows;
+				}
+				if (method.getName().equals("getLinkIndex")) {
+					return links.get(args[0]);
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private void writeResults() {
+		HashJoin join = new HashJoin("orders", HashJoinTest.ORDER_HEADERS, "items", HashJoinTest.ITEM_HEADERS);
+		LinkIndex index = join.link(HashJoinTest.orders(), HashJoinTest.items());
+
+		Results<Result> results = new Results<Result>();
+		results.put("orders", result("orders", HashJoinTest.ORDER_HEADERS, HashJoinTest.orders(), Collections.singletonMap("items", index)));
+		results.put("items", result("items", null, HashJoinTest.items(), Collections.<String, LinkIndex>emptyMap()));
+		results.put("empty", result("empty", new String[]{"a", null}, new ArrayList<String[]>(), Collections.<String, LinkIndex>emptyMap()));
+		ResultsWriter.write(results, file);
+	}
+
+	private void assertLoadFails(String message) {
+		try {
+			new MappedResults(file).close();
+			fail("Expected invalid results file to be rejected");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains(message), e.getMessage());
+		}
+	}
+
+	private void overwrite(long position, long value) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(position);
+			raf.writeLong(value);
+		} finally {
+			raf.close();
+		}
+	}
+
+	@Test
+	public void testRoundTrip() {
+		writeResults();
+		MappedResults results = new MappedResults(file);
+		try {
+			assertEquals(new ArrayList<String>(results.getEntityNames()), Arrays.asList("orders", "items", "empty"));
+
+			MappedResult orders = results.get(" ORDERS ");
+			assertEquals(orders.getHeaders(), HashJoinTest.ORDER_HEADERS);
+			assertEquals(orders.getRowCount(), 4);
+			assertEquals(orders.getRow(2), new String[]{null, "nobody"});
+			assertEquals(orders.getValue(3, 1), "carol");
+
+			LinkIndex index = orders.getLinkIndex("items");
+			assertEquals(index.getParentRowCount(), 4);
+			assertEquals(index.getLinkCount(), 4);
+			assertEquals(index.getLinkedRowCount(0), 2);
+			assertNull(orders.getLinkIndex("empty"));
+
+			MappedResult items = results.get("items");
+			assertNull(items.getHeaders());
+			List<String[]> rows = new ArrayList<String[]>();
+			for (String[] row : items) {
+				rows.add(row);
+			}
+			assertEquals(rows.size(), 6);
+			assertEquals(rows.get(3), new String[]{null, "ghost"});
+
+			MappedResult empty = results.get("empty");
+			assertEquals(empty.getHeaders(), new String[]{"a", null});
+			assertEquals(empty.getRowCount(), 0);
+		} finally {
+			results.close();
+		}
+	}
+
+	@Test
+	public void testRowsSpanningMappedWindows() {
+		List<String[]> written = new ArrayList<String[]>();
+		for (int i = 0; i < 50; i++) {
+			written.add(new String[]{"row " + i, i % 3 == 0 ? null : "a value longer than a window " + i, ""});
+		}
+		Results<Result> results = new Results<Result>();
+		results.put("rows", result("rows", new String[]{"a", "b", "c"}, written, Collections.<String, LinkIndex>emptyMap()));
+		ResultsWriter.write(results, file);
+
+		MappedResults mapped = new MappedResults(file, 8);
+		try {
+			MappedResult rows = mapped.get("rows");
+			assertEquals(rows.getRowCount(), 50);
+			for (int i = 0; i < 50; i++) {
+				assertEquals(rows.getRow(i), written.get(i));
+				assertEquals(rows.getValue(i, 2), "");
+			}
+		} finally {
+			mapped.close();
+		}
+
+		writeResults();
+		mapped = new MappedResults(file, 16);
+		try {
+			LinkIndex index = mapped.get("orders").getLinkIndex("items");
+			assertEquals(index.getLinkCount(), 4);
+			assertEquals(index.getLinkedRowCount(0), 2);
+		} finally {
+			mapped.close();
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testUnknownEntity() {
+		writeResults();
+		MappedResults results = new MappedResults(file);
+		try {
+			results.get("unknown");
+		} finally {
+			results.close();
+		}
+	}
+
+	@Test
+	public void testFooterStartOutsideFile() throws IOException {
+		writeResults();
+		long trailer = file.length() - 12;
+		overwrite(trailer, file.length() + 100);
+		assertLoadFails("does not contain results");
+		overwrite(trailer, -5L);
+		assertLoadFails("does not contain results");
+		overwrite(trailer, Long.MIN_VALUE);
+		assertLoadFails("does not contain results");
+		overwrite(trailer, 0L);
+		assertLoadFails("does not contain results");
+	}
+
+	/**
+	 * Moves to the position of the data section of the first entity in the footer, and returns the start of the footer.
+	 */
+	private static long seekFirstEntitySections(RandomAccessFile raf) throws IOException {
+		raf.seek(raf.length() - 12);
+		long footerStart = raf.readLong();
+		raf.seek(footerStart + 4);
+		int nameLength = raf.readUnsignedShort();
+		raf.skipBytes(nameLength);
+		int headerCount = raf.readInt();
+		for (int i = 0; i < headerCount; i++) {
+			if (raf.readBoolean()) {
+				raf.skipBytes(raf.readUnsignedShort());
+			}
+		}
+		return footerStart;
+	}
+
+	@Test
+	public void testSectionOutsideFile() throws IOException {
+		writeResults();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			long footerStart = seekFirstEntitySections(raf);
+			raf.writeLong(footerStart - 2);
+		} finally {
+			raf.close();
+		}
+		assertLoadFails("are corrupted");
+	}
+
+	@Test
+	public void testNegativeRowCount() throws IOException {
+		writeResults();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			seekFirstEntitySections(raf);
+			raf.skipBytes(24);
+			raf.writeInt(-1);
+		} finally {
+			raf.close();
+		}
+		assertLoadFails("Negative row count: -1");
+	}
+
+	@Test
+	public void testNegativeParentRowCount() throws IOException {
+		writeResults();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			seekFirstEntitySections(raf);
+			raf.skipBytes(28);
+			assertEquals(raf.readInt(), 1);
+			raf.skipBytes(raf.readUnsignedShort());
+			raf.writeInt(-1);
+		} finally {
+			raf.close();
+		}
+		assertLoadFails("Negative parent row count of link to 'items': -1");
+	}
+
+	@Test
+	public void testNotAResultsFile() throws IOException {
+		Files.write(file.toPath(), "this is just some text, not results".getBytes("UTF-8"));
+		assertLoadFails("does not contain results");
+		Files.write(file.toPath(), new byte[3]);
+		assertLoadFails("does not contain results");
+	}
+
+	@Test
+	public void testTruncatedFile() throws IOException {
+		writeResults();
+		byte[] content = Files.readAllBytes(file.toPath());
+		Files.write(file.toPath(), Arrays.copyOf(content, content.length - 20));
+		assertLoadFails("does not contain results");
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+public class OrderedBatchExecutorTest {
+
+	private static List<Integer> inputs(int count) {
+		List<Integer> out = new ArrayList<Integer>();
+		for (int i = 0; i < count; i++) {
+			out.add(i);
+		}
+		return out;
+	}
+
+	private final OrderedBatchExecutor.Task<Integer, String> task = new OrderedBatchExecutor.Task<Integer, String>() {
+		@Override
+		public String run(Integer input) {
+			try {
+				Thread.sleep((input * 7) % 5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (input % 10 == 3) {
+				throw new IllegalArgumentException("Invalid input " + input);
+			}
+			return "output " + input;
+		}
+	};
+
+	private static class RecordingDelivery implements OrderedBatchExecutor.Delivery<Integer, String> {
+		final List<Integer> delivered = new ArrayList<Integer>();
+		final List<Integer> failed = new ArrayList<Integer>();
+
+		@Override
+		public void delivered(Integer input, String output) {
+			assertEquals(output, "output " + input);
+			delivered.add(input);
+		}
+
+		@Override
+		public void failed(Integer input, RuntimeException error) {
+			assertEquals(error.getMessage(), "Invalid input " + input);
+			delivered.add(input);
+			failed.add(input);
+		}
+	}
+
+	@Test
+	public void testOutputsAreDeliveredInInputOrder() {
+		OrderedBatchExecutor executor = new OrderedBatchExecutor(3, null);
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		executor.setMetrics(metrics, "test");
+		RecordingDelivery delivery = new RecordingDelivery();
+
+		executor.execute(inputs(100), task, delivery);
+
+		assertEquals(delivery.delivered, inputs(100));
+		assertEquals(delivery.failed.size(), 10);
+		assertTrue(metrics.getQueueDepths("test").getMax() <= 6);
+		assertEquals(metrics.getQueueDepths("test").getCount(), 200);
+		assertEquals(metrics.getQueueDepths("test").getMin(), 0);
+	}
+
+	@Test
+	public void testDeliveryCanAbortBatch() {
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			OrderedBatchExecutor executor = new OrderedBatchExecutor(2, pool);
+			RecordingDelivery delivery = new RecordingDelivery() {
+				@Override
+				public void failed(Integer input, RuntimeException error) {
+					throw error;
+				}
+			};
+			try {
+				executor.execute(inputs(50), task, delivery);
+				fail("Expected batch to be aborted");
+			} catch (IllegalArgumentException e) {
+				assertEquals(e.getMessage(), "Invalid input 3");
+			}
+			assertEquals(delivery.delivered, Arrays.asList(0, 1, 2));
+			assertFalse(pool.isShutdown());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testParallelismMustBePositive() {
+		new OrderedBatchExecutor(0, null);
+	}
+}
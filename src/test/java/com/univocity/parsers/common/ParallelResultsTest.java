@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+import org.testng.annotations.*;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+public class ParallelResultsTest {
+
+	private ExecutorService executor;
+
+	@BeforeClass
+	public void startExecutor() {
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@AfterClass
+	public void stopExecutor() {
+		executor.shutdownNow();
+	}
+
+	static Result result(final String entityName) {
+		return (Result) Proxy.newProxyInstance(Result.class.getClassLoader(), new Class[]{Result.class}, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if (method.getName().equals("getEntityName")) {
+					return entityName;
+				}
+				if (method.getName().equals("toString")) {
+					return "Result of " + entityName;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private static Map<String, Callable<Result>> tasks(String... names) {
+		Map<String, Callable<Result>> out = new LinkedHashMap<String, Callable<Result>>();
+		for (final String name : names) {
+			out.put(name, new Callable<Result>() {
+				@Override
+				public Result call() throws Exception {
+					Thread.sleep(name.length() * 5);
+					return result(name);
+				}
+			});
+		}
+		return out;
+	}
+
+	@Test
+	public void testResultsFollowTaskOrder() {
+		Results<Result> results = ParallelResults.collect(executor, tasks("customers", "a", "orders", "items"));
+		assertEquals(new ArrayList<String>(results.keySet()), Arrays.asList("customers", "a", "orders", "items"));
+		for (String name : results.keySet()) {
+			assertEquals(results.get(name).getEntityName(), name);
+		}
+	}
+
+	@Test
+	public void testWithoutExecutorRunsInCallingThread() {
+		final Thread caller = Thread.currentThread();
+		Map<String, Callable<Result>> tasks = new LinkedHashMap<String, Callable<Result>>();
+		for (final String name : new String[]{"a", "b"}) {
+			tasks.put(name, new Callable<Result>() {
+				@Override
+				public Result call() {
+					assertSame(Thread.currentThread(), caller);
+					return result(name);
+				}
+			});
+		}
+		assertEquals(ParallelResults.collect(null, tasks).size(), 2);
+	}
+
+	@Test
+	public void testFailureCancelsOtherTasks() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		Map<String, Callable<Result>> tasks = new LinkedHashMap<String, Callable<Result>>();
+		tasks.put("slow", new Callable<Result>() {
+			@Override
+			public Result call() {
+				started.countDown();
+				try {
+					Thread.sleep(10000);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+				}
+				return result("slow");
+			}
+		});
+		tasks.put("failing", new Callable<Result>() {
+			@Override
+			public Result call() throws Exception {
+				started.await();
+				throw new IllegalStateException("boom");
+			}
+		});
+
+		try {
+			ParallelResults.collect(executor, tasks);
+			fail("Expected failure to be rethrown");
+		} catch (IllegalStateException e) {
+			assertEquals(e.getMessage(), "boom");
+		}
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testCheckedExceptionsAreWrapped() {
+		Map<String, Callable<Result>> tasks = new LinkedHashMap<String, Callable<Result>>();
+		tasks.put("a", new Callable<Result>() {
+			@Override
+			public Result call() throws Exception {
+				throw new java.io.IOException("unreadable");
+			}
+		});
+		try {
+			ParallelResults.collect(null, tasks);
+			fail("Expected failure to be rethrown");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("'a'"));
+			assertTrue(e.getCause() instanceof java.io.IOException);
+		}
+	}
+}
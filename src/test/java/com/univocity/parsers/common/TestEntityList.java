@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+/**
+ * Minimal {@link EntityList} used to exercise the settings API in tests.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class TestEntityList extends EntityList<TestEntitySettings> {
+
+	TestEntityList(EntityParserSettings settings) {
+		super(settings);
+	}
+
+	@Override
+	protected TestEntitySettings newEntity(String entityName, TestEntitySettings parentEntity) {
+		return new TestEntitySettings(entityName, parentEntity);
+	}
+
+	@Override
+	protected TestEntitySettings configureEntity(String entityName, TestEntitySettings parentEntity) {
+		return super.configureEntity(entityName, parentEntity);
+	}
+
+	@Override
+	protected TestEntitySettings addEntitySettings(TestEntitySettings settings) {
+		return super.addEntitySettings(settings);
+	}
+
+	@Override
+	protected EntityList newInstance() {
+		return new TestEntityList(getParserSettings());
+	}
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+/**
+ * Minimal {@link EntitySettings} used to exercise the settings API in tests.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class TestEntitySettings extends EntitySettings<Context, CommonParserSettings, TestParserSettings> {
+
+	TestEntitySettings(String name, TestEntitySettings parentEntity) {
+		super(name, createEmptyParserSettings(), parentEntity);
+	}
+
+	@Override
+	protected TestEntitySettings clone() {
+		return (TestEntitySettings) super.clone();
+	}
+}
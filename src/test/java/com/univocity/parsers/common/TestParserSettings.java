@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.common;
+
+/**
+ * Minimal {@link EntityParserSettings} used to exercise the settings API in tests.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class TestParserSettings extends EntityParserSettings<CommonParserSettings, TestEntityList, Context> {
+
+	@Override
+	protected CommonParserSettings createGlobalSettings() {
+		return createEmptyGlobalSettings();
+	}
+
+	@Override
+	protected TestParserSettings clone() {
+		return (TestParserSettings) super.clone();
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import org.testng.annotations.*;
+
+import static org.testng.Assert.*;
+
+public class BloomFilterTest {
+
+	@Test
+	public void testNoFalseNegatives() {
+		BloomFilter filter = new BloomFilter(1000, 0.01);
+		int added = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (filter.add("http://example.com/" + i)) {
+				added++;
+			}
+		}
+		assertTrue(added > 970, "Added: " + added);
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(filter.mightContain("http://example.com/" + i));
+			assertFalse(filter.add("http://example.com/" + i));
+		}
+	}
+
+	@Test
+	public void testFalsePositiveRate() {
+		BloomFilter filter = new BloomFilter(10000, 0.01);
+		for (int i = 0; i < 10000; i++) {
+			filter.add("visited/" + i);
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			if (filter.mightContain("new/" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue(falsePositives < 300, "False positives: " + falsePositives);
+	}
+
+	@Test
+	public void testMaxElements() {
+		long max = BloomFilter.getMaxElements(0.01);
+		assertTrue(max > 10000000000L);
+		assertTrue(max * 9.585 <= BloomFilter.MAX_BITS);
+		assertTrue((max + max / 1000) * 9.585 > BloomFilter.MAX_BITS);
+	}
+
+	@Test
+	public void testRejectFilterLargerThanMaximumArray() {
+		try {
+			new BloomFilter(BloomFilter.getMaxElements(0.01) + 1000, 0.01);
+			fail("Expected filter to be rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("exceeds the maximum"), e.getMessage());
+		}
+		try {
+			new BloomFilter(Long.MAX_VALUE, 0.5);
+			fail("Expected filter to be rejected");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("exceeds the maximum"), e.getMessage());
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRejectNonPositiveElements() {
+		new BloomFilter(0, 0.01);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRejectInvalidProbability() {
+		new BloomFilter(10, 1.0);
+	}
+}
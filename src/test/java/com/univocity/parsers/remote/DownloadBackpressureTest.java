@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.parsers.common.*;
+import org.testng.annotations.*;
+
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+public class DownloadBackpressureTest {
+
+	@Test
+	public void testBoundsPendingPages() throws Exception {
+		DownloadBackpressure backpressure = new DownloadBackpressure(2);
+		backpressure.acquire();
+		assertTrue(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+		assertEquals(backpressure.getPendingPages(), 2);
+		assertFalse(backpressure.tryAcquire(10, TimeUnit.MILLISECONDS));
+		assertTrue(backpressure.getTotalWaitTime() > 0);
+
+		backpressure.release();
+		assertEquals(backpressure.getPendingPages(), 1);
+		assertTrue(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testBlockedDownloadResumesOnRelease() throws Exception {
+		final DownloadBackpressure backpressure = new DownloadBackpressure(1);
+		backpressure.acquire();
+
+		final CountDownLatch acquired = new CountDownLatch(1);
+		Thread download = new Thread() {
+			@Override
+			public void run() {
+				try {
+					backpressure.acquire();
+					acquired.countDown();
+				} catch (InterruptedException e) {
+					//ignore
+				}
+			}
+		};
+		download.start();
+		assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+
+		backpressure.release();
+		assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		download.join();
+	}
+
+	@Test
+	public void testReducingLimitKeepsPermitsHeld() throws Exception {
+		DownloadBackpressure backpressure = new DownloadBackpressure(4);
+		for (int i = 0; i < 4; i++) {
+			backpressure.acquire();
+		}
+
+		backpressure.setMaxPendingPages(2);
+		assertEquals(backpressure.getMaxPendingPages(), 2);
+		assertEquals(backpressure.getPendingPages(), 4);
+
+		backpressure.release();
+		backpressure.release();
+		assertEquals(backpressure.getPendingPages(), 2);
+		assertFalse(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+
+		backpressure.release();
+		assertTrue(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+		assertFalse(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testIncreasingLimitReleasesWaitingDownloads() throws Exception {
+		DownloadBackpressure backpressure = new DownloadBackpressure(1);
+		backpressure.acquire();
+		assertFalse(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+
+		backpressure.setMaxPendingPages(3);
+		assertTrue(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+		assertTrue(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+		assertFalse(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+		assertEquals(backpressure.getPendingPages(), 3);
+	}
+
+	@Test
+	public void testReportsPendingPages() throws Exception {
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		DownloadBackpressure backpressure = new DownloadBackpressure(5);
+		backpressure.setMetrics(metrics);
+		backpressure.acquire();
+		backpressure.acquire();
+		assertEquals(metrics.getQueueDepths("pending pages").getCount(), 2);
+		assertEquals(metrics.getQueueDepths("pending pages").getMax(), 2);
+
+		backpressure.setMetrics(null);
+		backpressure.acquire();
+		assertEquals(metrics.getQueueDepths("pending pages").getCount(), 2);
+	}
+
+	@Test
+	public void testReleaseWithoutAcquireIsRejected() throws Exception {
+		DownloadBackpressure backpressure = new DownloadBackpressure(1);
+		backpressure.acquire();
+		backpressure.release();
+		try {
+			backpressure.release();
+			fail("Expected unmatched release to be rejected");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		assertEquals(backpressure.getPendingPages(), 0);
+		assertTrue(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+		assertFalse(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testLimitMustBePositive() {
+		new DownloadBackpressure(0);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testNewLimitMustBePositive() {
+		new DownloadBackpressure(1).setMaxPendingPages(0);
+	}
+
+	@Test
+	public void testSettingsResizeBackpressureInPlace() throws Exception {
+		TestRemoteParserSettings settings = new TestRemoteParserSettings();
+		assertNull(settings.getDownloadBackpressure());
+
+		settings.setMaxPendingPages(2);
+		DownloadBackpressure backpressure = settings.getDownloadBackpressure();
+		backpressure.acquire();
+		backpressure.acquire();
+
+		settings.setMaxPendingPages(1);
+		assertSame(settings.getDownloadBackpressure(), backpressure);
+		assertEquals(backpressure.getMaxPendingPages(), 1);
+		assertEquals(backpressure.getPendingPages(), 2);
+
+		backpressure.release();
+		assertFalse(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+		backpressure.release();
+		assertTrue(backpressure.tryAcquire(1, TimeUnit.MILLISECONDS));
+
+		settings.setMaxPendingPages(3);
+		assertSame(settings.getDownloadBackpressure(), backpressure);
+		assertEquals(backpressure.getMaxPendingPages(), 3);
+		assertEquals(backpressure.getPendingPages(), 1);
+	}
+
+	@Test
+	public void testDisablingLimitReleasesWaitingDownloads() throws Exception {
+		final TestRemoteParserSettings settings = new TestRemoteParserSettings();
+		settings.setMaxPendingPages(1);
+		final DownloadBackpressure backpressure = settings.getDownloadBackpressure();
+		backpressure.acquire();
+
+		final CountDownLatch released = new CountDownLatch(1);
+		Thread download = new Thread() {
+			@Override
+			public void run() {
+				try {
+					backpressure.acquire();
+					released.countDown();
+				} catch (InterruptedException e) {
+					//test fails
+				}
+			}
+		};
+		download.setDaemon(true);
+		download.start();
+		assertFalse(released.await(20, TimeUnit.MILLISECONDS));
+
+		settings.setMaxPendingPages(-1);
+		assertTrue(released.await(5, TimeUnit.SECONDS));
+		assertTrue(backpressure.isDisabled());
+		assertEquals(backpressure.getPendingPages(), 0);
+		assertTrue(backpressure.tryAcquire(0, TimeUnit.MILLISECONDS));
+		assertNull(settings.getDownloadBackpressure());
+
+		settings.setMaxPendingPages(2);
+		DownloadBackpressure enabled = settings.getDownloadBackpressure();
+		assertNotSame(enabled, backpressure);
+		assertEquals(enabled.getMaxPendingPages(), 2);
+		assertEquals(enabled.getPendingPages(), 0);
+	}
+
+	@Test
+	public void testFollowersHaveTheirOwnBackpressure() {
+		TestRemoteParserSettings settings = new TestRemoteParserSettings();
+		settings.setMaxPendingPages(2);
+		DownloadBackpressure backpressure = settings.getDownloadBackpressure();
+
+		DownloadBackpressure followerBackpressure = settings.clone().getDownloadBackpressure();
+		assertNotSame(followerBackpressure, backpressure);
+		assertEquals(followerBackpressure.getMaxPendingPages(), 2);
+	}
+
+	@Test
+	public void testSettingsAttachMetricsToBackpressure() throws Exception {
+		TestRemoteParserSettings settings = new TestRemoteParserSettings();
+		InMemoryMetrics before = new InMemoryMetrics();
+		settings.setMetrics(before);
+		settings.setMaxPendingPages(2);
+		DownloadBackpressure backpressure = settings.getDownloadBackpressure();
+		backpressure.acquire();
+		assertEquals(before.getQueueDepths("pending pages").getCount(), 1);
+
+		InMemoryMetrics after = new InMemoryMetrics();
+		settings.setMetrics(after);
+		backpressure.acquire();
+		assertEquals(before.getQueueDepths("pending pages").getCount(), 1);
+		assertEquals(after.getQueueDepths("pending pages").getMax(), 2);
+	}
+
+	@DataProvider
+	public Object[][] invalidMaxPendingPages() {
+		return new Object[][]{{-2}, {0}, {Integer.MIN_VALUE}, {100001}};
+	}
+
+	@Test(dataProvider = "invalidMaxPendingPages", expectedExceptions = IllegalArgumentException.class)
+	public void testSettingsRejectInvalidMaxPendingPages(int maxPendingPages) {
+		new TestRemoteParserSettings().setMaxPendingPages(maxPendingPages);
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.parsers.common.*;
+import org.testng.annotations.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+public class HistoricalReplayTest {
+
+	private File directory;
+	private TestRemoteParserSettings settings;
+	private final List<String> parsed = Collections.synchronizedList(new ArrayList<String>());
+	private final Map<String, List<String>> filesParsed = new ConcurrentHashMap<String, List<String>>();
+
+	private final HistoricalParser<Result> parser = new HistoricalParser<Result>() {
+		@Override
+		public Results<Result> parse(Date parseDate, String batchId, List<String> files) {
+			String batch = parseDate == null ? batchId : new SimpleDateFormat("yyyy-MM-dd").format(parseDate);
+			parsed.add(batch);
+			filesParsed.put(batch, files);
+			if ("broken".equals(batch)) {
+				throw new IllegalArgumentException("Unable to parse " + batch);
+			}
+			return new Results<Result>();
+		}
+	};
+
+	private static class RecordingListener implements BatchListener<String, Result> {
+		final List<String> delivered = new ArrayList<String>();
+		final List<String> failed = new ArrayList<String>();
+
+		@Override
+		public void inputParsed(String input, Results<Result> results) {
+			assertNotNull(results);
+			delivered.add(input);
+		}
+
+		@Override
+		public void inputFailed(String input, RuntimeException error) {
+			failed.add(input);
+		}
+	}
+
+	@BeforeMethod
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("historical-replay").toFile();
+		settings = new TestRemoteParserSettings();
+		settings.setDownloadContentDirectory(directory);
+		parsed.clear();
+		filesParsed.clear();
+	}
+
+	@AfterMethod
+	public void deleteDirectory() {
+		settings.closeDownloadStore();
+		SegmentedDownloadStoreTest.delete(directory);
+	}
+
+	private void createFile(String path) throws IOException {
+		File file = new File(directory, path);
+		file.getParentFile().mkdirs();
+		assertTrue(file.createNewFile());
+	}
+
+	private static Date date(String date) throws ParseException {
+		return new SimpleDateFormat("yyyy-MM-dd").parse(date);
+	}
+
+	@Test
+	public void testReplayDates() throws Exception {
+		settings.setFileNamePattern("{date, yyyy-MM-dd}/page_{page}");
+		createFile("2024-01-30/page_1.html");
+		createFile("2024-01-30/page_2.html");
+		createFile("2024-01-31/page_1.html");
+		createFile("2024-02-01/page_1.html");
+
+		RecordingListener listener = new RecordingListener();
+		new HistoricalReplay<Result>(parser, settings, 2).replayDates(date("2024-01-30"), date("2024-02-01"), listener);
+
+		assertEquals(listener.delivered, Arrays.asList("2024-01-30", "2024-01-31", "2024-02-01"));
+		assertEquals(new TreeSet<String>(parsed), new TreeSet<String>(listener.delivered));
+		assertEquals(filesParsed.get("2024-01-30"), Arrays.asList("2024-01-30/page_1.html", "2024-01-30/page_2.html"));
+		assertEquals(filesParsed.get("2024-02-01"), Arrays.asList("2024-02-01/page_1.html"));
+	}
+
+	@DataProvider
+	public Object[][] patternsWithoutDateMask() {
+		return new Object[][]{
+				{"{date}/page_{page}"},
+				{"{batch}/page_{page}"},
+		};
+	}
+
+	@Test(dataProvider = "patternsWithoutDateMask")
+	public void testDatesRequireDateMask(String pattern) throws Exception {
+		settings.setFileNamePattern(pattern);
+		createFile(System.currentTimeMillis() + "/page_1.html");
+		try {
+			new HistoricalReplay<Result>(parser, settings, 1).replayDates(date("2024-01-30"), date("2024-02-01"), new RecordingListener());
+			fail("Expected pattern to be rejected");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains(pattern), e.getMessage());
+		}
+		assertTrue(parsed.isEmpty());
+	}
+
+	@Test
+	public void testDatesWithSameFileNamesAreReplayedOnce() throws Exception {
+		settings.setFileNamePattern("/monthly/{date, yyyy-MM}");
+		createFile("monthly/2024-01.html");
+		createFile("monthly/2024-02.html");
+
+		HistoricalReplay<Result> replay = new HistoricalReplay<Result>(parser, settings, 2);
+		assertEquals(new ArrayList<String>(replay.resolveDates(date("2024-01-15"), date("2024-02-20")).keySet()), Arrays.asList("2024-01", "2024-02"));
+
+		RecordingListener listener = new RecordingListener();
+		replay.replayDates(date("2024-01-15"), date("2024-02-20"), listener);
+		assertEquals(listener.delivered, Arrays.asList("2024-01", "2024-02"));
+		assertEquals(parsed.size(), 2);
+	}
+
+	@Test
+	public void testMissingDatesFailBeforeParsing() throws Exception {
+		settings.setFileNamePattern("{date, yyyy-MM-dd}/page_{page}");
+		createFile("2024-01-30/page_1.html");
+		createFile("2024-02-01/page_1.html");
+		createFile(".incremental/2024-01-31/page_1.html");
+
+		RecordingListener listener = new RecordingListener();
+		try {
+			new HistoricalReplay<Result>(parser, settings, 2).replayDates(date("2024-01-30"), date("2024-02-01"), listener);
+			fail("Expected missing batch to be reported");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("[2024-01-31]"), e.getMessage());
+		}
+		assertTrue(parsed.isEmpty());
+		assertTrue(listener.delivered.isEmpty());
+	}
+
+	@Test
+	public void testReplayBatches() throws Exception {
+		settings.setFileNamePattern("{batch}/{url}/page_{page}");
+		createFile("first/Property/1/page_1.html");
+		createFile("second/Search/page_1.html");
+		createFile("broken/x/y/page_1");
+
+		RecordingListener listener = new RecordingListener();
+		new HistoricalReplay<Result>(parser, settings, 3).replayBatches(Arrays.asList("first", "broken", "second", "first"), listener);
+
+		assertEquals(listener.delivered, Arrays.asList("first", "second"));
+		assertEquals(listener.failed, Arrays.asList("broken"));
+		assertEquals(parsed.size(), 3);
+		assertEquals(filesParsed.get("first"), Arrays.asList("first/Property/1/page_1.html"));
+		assertEquals(filesParsed.get("broken"), Arrays.asList("broken/x/y/page_1"));
+	}
+
+	@Test
+	public void testReplayBatchesFromSegmentedStore() throws Exception {
+		settings.setFileNamePattern("{batch}/page_{page}");
+		settings.setSegmentedStorageEnabled(true);
+		SegmentedDownloadStore store = settings.getDownloadStore();
+		store.put("a/page_1.html", SegmentedDownloadStoreTest.content("a"));
+		store.put("b/page_1.html", SegmentedDownloadStoreTest.content("b"));
+
+		InMemoryMetrics metrics = new InMemoryMetrics();
+		settings.setMetrics(metrics);
+		RecordingListener listener = new RecordingListener();
+		HistoricalReplay<Result> replay = new HistoricalReplay<Result>(parser, settings, 1);
+		replay.replayBatches(Arrays.asList("a", "b"), listener);
+		assertEquals(listener.delivered, Arrays.asList("a", "b"));
+		assertEquals(filesParsed.get("b"), Arrays.asList("b/page_1.html"));
+		assertTrue(metrics.getQueueDepths("historical replay").getMax() >= 1);
+		try {
+			store.put("c/page_1.html", SegmentedDownloadStoreTest.content("c"));
+			fail("Expected store to be closed after the replay");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+
+		try {
+			replay.replayBatches(Arrays.asList("a", "c"), listener);
+			fail("Expected missing batch to be reported");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("[c]"), e.getMessage());
+		}
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testReplayRequiresDownloadDirectory() {
+		TestRemoteParserSettings settings = new TestRemoteParserSettings();
+		settings.setFileNamePattern("{batch}");
+		new HistoricalReplay<Result>(parser, settings, 1).replayBatches(Arrays.asList("a"), new RecordingListener());
+	}
+}
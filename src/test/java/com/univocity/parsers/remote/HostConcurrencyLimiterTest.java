@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import org.testng.annotations.*;
+
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+public class HostConcurrencyLimiterTest {
+
+	@Test
+	public void testGetHost() {
+		assertEquals(HostConcurrencyLimiter.getHost("http://www.Example.com/path?q=1"), "www.example.com");
+		assertEquals(HostConcurrencyLimiter.getHost("https://user@example.com:8443/x"), "example.com");
+		assertEquals(HostConcurrencyLimiter.getHost("//example.com/x"), "example.com");
+		assertEquals(HostConcurrencyLimiter.getHost("www.example.com/path/page.html"), "www.example.com");
+		assertEquals(HostConcurrencyLimiter.getHost("Example.com:8080/x"), "example.com");
+		assertEquals(HostConcurrencyLimiter.getHost("example.com"), "example.com");
+		assertEquals(HostConcurrencyLimiter.getHost("http://example.com/a path with spaces"), "example.com");
+		assertEquals(HostConcurrencyLimiter.getHost("example.com/a path?with=spaces"), "example.com");
+		assertEquals(HostConcurrencyLimiter.getHost("/relative/page.html"), "");
+	}
+
+	@Test
+	public void testSchemeLessUrlsShareHostPermits() throws Exception {
+		HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(2);
+		assertTrue(limiter.tryAcquire("example.com/a", 0, TimeUnit.MILLISECONDS));
+		assertTrue(limiter.tryAcquire("http://example.com/b", 0, TimeUnit.MILLISECONDS));
+		assertFalse(limiter.tryAcquire("example.com/c", 0, TimeUnit.MILLISECONDS));
+		assertTrue(limiter.tryAcquire("other.com/c", 0, TimeUnit.MILLISECONDS));
+		assertEquals(limiter.getActiveRequests("example.com"), 2);
+	}
+
+	@Test
+	public void testIncreaseLimitWhileRequestsInFlight() throws Exception {
+		HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(1);
+		limiter.acquire("http://example.com/1");
+		assertFalse(limiter.tryAcquire("http://example.com/2", 0, TimeUnit.MILLISECONDS));
+
+		limiter.setMaxRequestsPerHost(3);
+		assertTrue(limiter.tryAcquire("http://example.com/2", 0, TimeUnit.MILLISECONDS));
+		assertTrue(limiter.tryAcquire("http://example.com/3", 0, TimeUnit.MILLISECONDS));
+		assertFalse(limiter.tryAcquire("http://example.com/4", 0, TimeUnit.MILLISECONDS));
+		assertEquals(limiter.getActiveRequests("http://example.com"), 3);
+	}
+
+	@Test
+	public void testReduceLimitWhileRequestsInFlight() throws Exception {
+		HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(3);
+		limiter.acquire("http://example.com/1");
+		limiter.acquire("http://example.com/2");
+		limiter.acquire("http://example.com/3");
+
+		limiter.setMaxRequestsPerHost(1);
+		assertEquals(limiter.getActiveRequests("http://example.com"), 3);
+
+		limiter.release("http://example.com/1");
+		limiter.release("http://example.com/2");
+		assertFalse(limiter.tryAcquire("http://example.com/4", 0, TimeUnit.MILLISECONDS));
+
+		limiter.release("http://example.com/3");
+		assertTrue(limiter.tryAcquire("http://example.com/4", 0, TimeUnit.MILLISECONDS));
+		assertFalse(limiter.tryAcquire("http://example.com/5", 0, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testNewHostsUseCurrentLimit() throws Exception {
+		HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(1);
+		limiter.setMaxRequestsPerHost(2);
+		assertTrue(limiter.tryAcquire("http://example.com/1", 0, TimeUnit.MILLISECONDS));
+		assertTrue(limiter.tryAcquire("http://example.com/2", 0, TimeUnit.MILLISECONDS));
+		assertFalse(limiter.tryAcquire("http://example.com/3", 0, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testReleaseWithoutAcquireIsRejected() throws Exception {
+		HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(1);
+		try {
+			limiter.release("http://example.com/1");
+			fail("Expected unmatched release to be rejected");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+
+		limiter.acquire("http://example.com/1");
+		limiter.release("http://example.com/1");
+		try {
+			limiter.release("http://example.com/1");
+			fail("Expected unmatched release to be rejected");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		assertEquals(limiter.getActiveRequests("http://example.com"), 0);
+		assertTrue(limiter.tryAcquire("http://example.com/2", 0, TimeUnit.MILLISECONDS));
+		assertFalse(limiter.tryAcquire("http://example.com/3", 0, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void testUnusedHostsAreEvicted() throws Exception {
+		HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(1);
+		limiter.acquire("http://busy.com");
+		for (int i = 0; i < 63; i++) {
+			limiter.acquire("http://host" + i + ".com");
+			limiter.release("http://host" + i + ".com");
+		}
+		assertEquals(limiter.getHostCount(), 64);
+
+		limiter.acquire("http://new.com");
+		assertEquals(limiter.getHostCount(), 2);
+		assertFalse(limiter.tryAcquire("http://busy.com", 0, TimeUnit.MILLISECONDS));
+		limiter.release("http://busy.com");
+		assertTrue(limiter.tryAcquire("http://busy.com", 0, TimeUnit.MILLISECONDS));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRejectNonPositiveLimit() {
+		new HostConcurrencyLimiter(2).setMaxRequestsPerHost(0);
+	}
+}
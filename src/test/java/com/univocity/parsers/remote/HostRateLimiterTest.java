@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import org.testng.annotations.*;
+
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import static org.testng.Assert.*;
+
+public class HostRateLimiterTest {
+
+	private final long[] now = new long[1];
+
+	private final LongSupplier clock = new LongSupplier() {
+		@Override
+		public long getAsLong() {
+			return now[0];
+		}
+	};
+
+	@BeforeMethod
+	public void resetClock() {
+		now[0] = 0L;
+	}
+
+	@Test
+	public void testHostLimits() {
+		HostRateLimiter limiter = new HostRateLimiter(2.0, 1);
+		limiter.setLimit("api.example.com", 10.0, 5);
+		limiter.setLimit("*.example.org", 4.0, 2);
+
+		assertEquals(limiter.getCurrentRate("http://other.com/x"), 2.0);
+		assertEquals(limiter.getCurrentRate("https://API.example.com/x"), 10.0);
+		assertEquals(limiter.getCurrentRate("api.example.com/x"), 10.0);
+		assertEquals(limiter.getCurrentRate("http://www.example.com/x"), 2.0);
+		assertEquals(limiter.getCurrentRate("http://a.b.example.org/x"), 4.0);
+		assertEquals(limiter.getCurrentRate("http://www.example.org/x"), 4.0);
+	}
+
+	@Test
+	public void testBurstCapacity() throws Exception {
+		HostRateLimiter limiter = new HostRateLimiter(128.0, 3, clock);
+		limiter.acquire("http://example.com/1");
+		limiter.acquire("http://example.com/2");
+		limiter.acquire("http://example.com/3");
+		assertEquals(limiter.getTotalWaitTime(), 0L);
+
+		limiter.acquire("http://example.com/4");
+		assertEquals(limiter.getTotalWaitTime(), 7812500L);
+
+		now[0] += TimeUnit.SECONDS.toNanos(1);
+		limiter.acquire("http://example.com/5");
+		limiter.acquire("http://example.com/6");
+		limiter.acquire("http://example.com/7");
+		assertEquals(limiter.getTotalWaitTime(), 7812500L);
+	}
+
+	@Test
+	public void testSlowDownAndRecover() {
+		HostRateLimiter limiter = new HostRateLimiter(16.0, 1);
+		String url = "http://example.com/page";
+
+		limiter.onResponse(url, 429);
+		assertEquals(limiter.getCurrentRate(url), 8.0);
+		limiter.onResponse(url, 503);
+		assertEquals(limiter.getCurrentRate(url), 4.0);
+		assertEquals(limiter.getCurrentRate("http://other.com/page"), 16.0);
+
+		for (int i = 0; i < 10; i++) {
+			limiter.onResponse(url, 429);
+		}
+		assertEquals(limiter.getCurrentRate(url), 1.0);
+
+		limiter.onResponse(url, 404);
+		assertEquals(limiter.getCurrentRate(url), 1.0);
+		limiter.onResponse(url, 200);
+		assertEquals(limiter.getCurrentRate(url), 2.6, 0.0001);
+		for (int i = 0; i < 20; i++) {
+			limiter.onResponse(url, 200);
+		}
+		assertEquals(limiter.getCurrentRate(url), 16.0);
+	}
+
+	@Test
+	public void testChangingLimitsKeepsBucketState() throws Exception {
+		HostRateLimiter limiter = new HostRateLimiter(16.0, 1, clock);
+		limiter.onResponse("http://example.com", 429);
+		assertEquals(limiter.getCurrentRate("http://example.com"), 8.0);
+
+		limiter.setDefaultLimit(32.0, 2);
+		assertEquals(limiter.getCurrentRate("http://example.com"), 16.0);
+		assertEquals(limiter.getCurrentRate("http://other.com"), 32.0);
+
+		limiter.acquire("http://other.com/1");
+		limiter.acquire("http://other.com/2");
+		limiter.acquire("http://other.com/3");
+		assertEquals(limiter.getTotalWaitTime(), 31250000L);
+
+		limiter.setLimit("other.com", 64.0, 4);
+		assertEquals(limiter.getCurrentRate("http://other.com"), 64.0);
+		limiter.acquire("http://other.com/4");
+		assertEquals(limiter.getTotalWaitTime(), 62500000L);
+	}
+
+	@Test
+	public void testIdleBucketsAreEvicted() throws Exception {
+		HostRateLimiter limiter = new HostRateLimiter(10.0, 1, clock);
+		limiter.onResponse("http://slow.com", 429);
+		for (int i = 0; i < 63; i++) {
+			limiter.acquire("http://host" + i + ".com");
+		}
+		assertEquals(limiter.getBucketCount(), 64);
+
+		now[0] += TimeUnit.SECONDS.toNanos(1);
+		limiter.acquire("http://new.com");
+		assertEquals(limiter.getBucketCount(), 2);
+		assertEquals(limiter.getCurrentRate("http://slow.com"), 5.0);
+
+		limiter.acquire("http://host1.com");
+		assertEquals(limiter.getTotalWaitTime(), 0L);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRejectNonPositiveRate() {
+		new HostRateLimiter(0.0, 1);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRejectNonPositiveBurst() {
+		new HostRateLimiter(1.0, 0);
+	}
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import org.testng.annotations.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class HttpCacheTest {
+
+	private File directory;
+
+	@BeforeMethod
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("http-cache").toFile();
+	}
+
+	@AfterMethod
+	public void deleteDirectory() {
+		delete(directory);
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private static InputStream content(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private int countFiles(File dir) {
+		int count = 0;
+		File[] children = dir.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				count += child.isDirectory() ? countFiles(child) : 1;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testKeyIgnoresParameterOrder() {
+		Map<String, Object> a = new LinkedHashMap<String, Object>();
+		a.put("page", 1);
+		a.put("q", "x");
+		Map<String, Object> b = new LinkedHashMap<String, Object>();
+		b.put("q", "x");
+		b.put("page", 1);
+
+		assertEquals(HttpCache.getKey("http://example.com", a), HttpCache.getKey("http://example.com", b));
+		assertNotEquals(HttpCache.getKey("http://example.com", a), HttpCache.getKey("http://example.com", null));
+		assertEquals(HttpCache.getKey("http://example.com", null).length(), 40);
+	}
+
+	@Test
+	public void testStoreAndRevalidate() throws IOException {
+		HttpCache cache = new HttpCache(directory);
+		String key = HttpCache.getKey("http://example.com/page", null);
+		assertTrue(cache.getConditionalHeaders(key).isEmpty());
+
+		File body = cache.store(key, "http://example.com/page", "\"v1\"", "Mon, 01 Jan 2024 00:00:00 GMT", content("first"));
+		assertEquals(read(body), "first");
+
+		Map<String, String> headers = cache.getConditionalHeaders(key);
+		assertEquals(headers.get("If-None-Match"), "\"v1\"");
+		assertEquals(headers.get("If-Modified-Since"), "Mon, 01 Jan 2024 00:00:00 GMT");
+
+		assertEquals(read(cache.notModified(key, "http://example.com/page")), "first");
+		assertEquals(cache.getHitCount(), 1L);
+		assertEquals(cache.getMissCount(), 1L);
+
+		HttpCache reopened = new HttpCache(directory);
+		assertEquals(reopened.getConditionalHeaders(key).get("If-None-Match"), "\"v1\"");
+	}
+
+	@Test
+	public void testReplaceLeavesNoTemporaryFiles() throws IOException {
+		HttpCache cache = new HttpCache(directory);
+		String key = HttpCache.getKey("http://example.com/page", null);
+		cache.store(key, "http://example.com/page", "\"v1\"", null, content("first"));
+		File body = cache.store(key, "http://example.com/page", "\"v2\"", null, content("second version"));
+
+		assertEquals(read(body), "second version");
+		Map<String, String> headers = cache.getConditionalHeaders(key);
+		assertEquals(headers.get("If-None-Match"), "\"v2\"");
+		assertFalse(headers.containsKey("If-Modified-Since"));
+		assertEquals(countFiles(directory), 2);
+	}
+
+	@Test
+	public void testFailedDownloadKeepsPreviousResponse() throws IOException {
+		HttpCache cache = new HttpCache(directory);
+		String key = HttpCache.getKey("http://example.com/page", null);
+		cache.store(key, "http://example.com/page", "\"v1\"", null, content("first"));
+
+		InputStream broken = new InputStream() {
+			int count;
+
+			@Override
+			public int read() throws IOException {
+				if (count++ < 3) {
+					return 'x';
+				}
+				throw new IOException("connection reset");
+			}
+		};
+		try {
+			cache.store(key, "http://example.com/page", "\"v2\"", null, broken);
+			fail("Expected failure to store content");
+		} catch (IllegalStateException e) {
+			assertEquals(e.getCause().getMessage(), "connection reset");
+		}
+
+		assertEquals(cache.getConditionalHeaders(key).get("If-None-Match"), "\"v1\"");
+		assertEquals(read(cache.notModified(key, "http://example.com/page")), "first");
+		assertEquals(countFiles(directory), 2);
+	}
+
+	@Test
+	public void testMetadataOfDifferentContentIsIgnored() throws IOException {
+		HttpCache cache = new HttpCache(directory);
+		String key = HttpCache.getKey("http://example.com/page", null);
+		File body = cache.store(key, "http://example.com/page", "\"v1\"", null, content("first"));
+
+		Files.write(body.toPath(), "a newer and longer body".getBytes(StandardCharsets.UTF_8));
+		assertTrue(cache.getConditionalHeaders(key).isEmpty());
+	}
+
+	@Test
+	public void testInvalidate() {
+		HttpCache cache = new HttpCache(directory);
+		String key = HttpCache.getKey("http://example.com/page", null);
+		cache.store(key, "http://example.com/page", "\"v1\"", null, content("first"));
+		cache.invalidate(key);
+
+		assertTrue(cache.getConditionalHeaders(key).isEmpty());
+		try {
+			cache.notModified(key, "http://example.com/page");
+			fail("Expected missing content");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("http://example.com/page"));
+		}
+	}
+
+	@Test
+	public void testListenerNotified() {
+		HttpCache cache = new HttpCache(directory);
+		final List<String> events = new ArrayList<String>();
+		cache.setListener(new HttpCacheListener() {
+			@Override
+			public void cacheHit(String url, long hitCount, long missCount) {
+				events.add("hit " + url + " " + hitCount + "/" + missCount);
+			}
+
+			@Override
+			public void cacheMiss(String url, long hitCount, long missCount) {
+				events.add("miss " + url + " " + hitCount + "/" + missCount);
+			}
+		});
+		String key = HttpCache.getKey("u", null);
+		cache.store(key, "u", "e", null, content("x"));
+		cache.notModified(key, "u");
+
+		assertEquals(events, Arrays.asList("miss u 0/1", "hit u 1/1"));
+	}
+
+	@Test
+	public void testSettingsAssignListenerOnce() {
+		HttpCacheListener listener = new HttpCacheListener() {
+			@Override
+			public void cacheHit(String url, long hitCount, long missCount) {
+			}
+
+			@Override
+			public void cacheMiss(String url, long hitCount, long missCount) {
+			}
+		};
+		TestRemoteParserSettings settings = new TestRemoteParserSettings();
+		settings.setDownloadListener(listener);
+		settings.setHttpCacheDirectory(directory);
+
+		HttpCache cache = settings.getHttpCache();
+		assertSame(cache.getListener(), listener);
+
+		TestRemoteParserSettings clone = settings.clone();
+		assertSame(clone.getHttpCache(), cache);
+		cache.setListener(null);
+		assertNull(settings.getHttpCache().getListener());
+
+		settings.setDownloadListener(listener);
+		assertSame(cache.getListener(), listener);
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import org.testng.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import static org.testng.Assert.*;
+
+public class PagePrefetcherTest {
+
+	private ExecutorService executor;
+
+	@BeforeMethod
+	public void createExecutor() {
+		executor = Executors.newCachedThreadPool();
+	}
+
+	@AfterMethod
+	public void shutdownExecutor() {
+		executor.shutdownNow();
+	}
+
+	private static Callable<String> page(final String content) {
+		return new Callable<String>() {
+			@Override
+			public String call() {
+				return content;
+			}
+		};
+	}
+
+	private static Callable<String> blocked(final CountDownLatch started, final CountDownLatch interrupted) {
+		return new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				started.countDown();
+				try {
+					new CountDownLatch(1).await();
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+					throw e;
+				}
+				return null;
+			}
+		};
+	}
+
+	@Test
+	public void testPrefetchDepth() {
+		PagePrefetcher<String> prefetcher = new PagePrefetcher<String>(executor, 2, -1);
+		assertTrue(prefetcher.schedule("p1", page("1")));
+		assertTrue(prefetcher.schedule("p1", page("1")));
+		assertTrue(prefetcher.canSchedule());
+		assertTrue(prefetcher.schedule("p2", page("2")));
+		assertFalse(prefetcher.canSchedule());
+		assertFalse(prefetcher.schedule("p3", page("3")));
+
+		assertEquals(prefetcher.take("p1"), "1");
+		assertTrue(prefetcher.schedule("p3", page("3")));
+		assertEquals(prefetcher.take("p2"), "2");
+		assertEquals(prefetcher.take("p3"), "3");
+		assertEquals(prefetcher.getHitCount(), 3L);
+		assertEquals(prefetcher.getMissCount(), 0L);
+	}
+
+	@Test
+	public void testFollowCount() {
+		PagePrefetcher<String> prefetcher = new PagePrefetcher<String>(executor, 5, 2);
+		assertTrue(prefetcher.schedule("p1", page("1")));
+		assertTrue(prefetcher.schedule("p2", page("2")));
+		assertFalse(prefetcher.canSchedule());
+		assertFalse(prefetcher.schedule("p3", page("3")));
+
+		assertEquals(prefetcher.take("p1"), "1");
+		assertFalse(prefetcher.schedule("p3", page("3")));
+	}
+
+	@Test
+	public void testMissCancelsPendingDownloads() throws Exception {
+		PagePrefetcher<String> prefetcher = new PagePrefetcher<String>(executor, 2, -1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		prefetcher.schedule("p2", blocked(started, interrupted));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		assertNull(prefetcher.take("other"));
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		assertEquals(prefetcher.getMissCount(), 1L);
+		assertTrue(prefetcher.canSchedule());
+	}
+
+	@Test
+	public void testSkippedPagesAreCancelled() throws Exception {
+		PagePrefetcher<String> prefetcher = new PagePrefetcher<String>(executor, 3, -1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		prefetcher.schedule("p1", blocked(started, interrupted));
+		prefetcher.schedule("p2", page("2"));
+		prefetcher.schedule("p3", page("3"));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		assertEquals(prefetcher.take("p2"), "2");
+		assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+		assertEquals(prefetcher.take("p3"), "3");
+		assertNull(prefetcher.take("p1"));
+	}
+
+	@Test
+	public void testDownloadErrorsPropagate() {
+		PagePrefetcher<String> prefetcher = new PagePrefetcher<String>(executor, 1, -1);
+		prefetcher.schedule("p1", new Callable<String>() {
+			@Override
+			public String call() {
+				throw new IllegalArgumentException("broken page");
+			}
+		});
+		try {
+			prefetcher.take("p1");
+			fail("Expected download error");
+		} catch (IllegalArgumentException e) {
+			assertEquals(e.getMessage(), "broken page");
+		}
+	}
+
+	@Test
+	public void testCheckedDownloadErrorsAreWrapped() {
+		PagePrefetcher<String> prefetcher = new PagePrefetcher<String>(executor, 1, -1);
+		prefetcher.schedule("p1", new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				throw new IOException("connection reset");
+			}
+		});
+		try {
+			prefetcher.take("p1");
+			fail("Expected download error");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage().contains("p1"));
+			assertEquals(e.getCause().getMessage(), "connection reset");
+		}
+	}
+
+	@Test
+	public void testZeroDepthNeverPrefetches() {
+		PagePrefetcher<String> prefetcher = new PagePrefetcher<String>(executor, 0, -1);
+		assertFalse(prefetcher.canSchedule());
+		assertFalse(prefetcher.schedule("p1", page("1")));
+		assertNull(prefetcher.take("p1"));
+	}
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.parsers.common.*;
+import org.testng.annotations.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class SegmentedDownloadStoreTest {
+
+	private File directory;
+
+	@BeforeMethod
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("download-store").toFile();
+	}
+
+	@AfterMethod
+	public void deleteDirectory() {
+		delete(directory);
+	}
+
+	static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	static InputStream content(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	static String read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		in.close();
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testStoreAndReopen() throws IOException {
+		SegmentedDownloadStore store = new SegmentedDownloadStore(directory, 1024);
+		String hash = store.put("2024/page1.html", content("<html>one</html>"));
+		store.put("2024/page2.html", content("<html>two</html>"));
+		assertEquals(hash.length(), 64);
+		assertEquals(read(store.open("2024/page1.html")), "<html>one</html>");
+		assertEquals(store.getSize("2024/page2.html"), 16L);
+		assertNull(store.open("missing"));
+		assertEquals(store.getSize("missing"), -1L);
+		store.close();
+
+		store = new SegmentedDownloadStore(directory, 1024);
+		assertTrue(store.contains("2024/page1.html"));
+		assertEquals(store.getNames().size(), 2);
+		assertEquals(read(store.open("2024/page2.html")), "<html>two</html>");
+		store.close();
+	}
+
+	@Test
+	public void testIdenticalContentStoredOnce() throws IOException {
+		SegmentedDownloadStore store = new SegmentedDownloadStore(directory, 1024 * 1024);
+		String a = store.put("a", content("same content"));
+		long size = new File(directory, "segment_00000.dat").length();
+		String b = store.put("b", content("same content"));
+		assertEquals(a, b);
+		assertEquals(new File(directory, "segment_00000.dat").length(), size);
+
+		store.put("a", content("changed"));
+		assertEquals(read(store.open("a")), "changed");
+		assertEquals(read(store.open("b")), "same content");
+		store.close();
+	}
+
+	@Test
+	public void testRollsOverSegments() throws IOException {
+		SegmentedDownloadStore store = new SegmentedDownloadStore(directory, 10);
+		for (int i = 0; i < 5; i++) {
+			store.put("page" + i, content("content of page number " + i));
+		}
+		store.close();
+		assertTrue(new File(directory, "segment_00004.dat").isFile());
+
+		store = new SegmentedDownloadStore(directory, 10);
+		store.put("page5", content("content of page number 5"));
+		assertTrue(new File(directory, "segment_00005.dat").isFile());
+		for (int i = 0; i < 6; i++) {
+			assertEquals(read(store.open("page" + i)), "content of page number " + i);
+		}
+		store.close();
+	}
+
+	@Test
+	public void testTornIndexTailIsDiscarded() throws IOException {
+		SegmentedDownloadStore store = new SegmentedDownloadStore(directory, 1024);
+		store.put("first", content("first page"));
+		store.close();
+		File index = new File(directory, "index.log");
+		long validLength = index.length();
+
+		store = new SegmentedDownloadStore(directory, 1024);
+		store.put("second", content("second page"));
+		store.close();
+
+		for (long tornLength = index.length() - 1; tornLength > validLength; tornLength -= 7) {
+			RandomAccessFile file = new RandomAccessFile(index, "rw");
+			try {
+				file.setLength(tornLength);
+			} finally {
+				file.close();
+			}
+
+			store = new SegmentedDownloadStore(directory, 1024);
+			assertEquals(read(store.open("first")), "first page");
+			assertTrue(index.length() <= tornLength);
+
+			store.put("third", content("third page"));
+			store.close();
+
+			store = new SegmentedDownloadStore(directory, 1024);
+			assertEquals(read(store.open("first")), "first page");
+			assertEquals(read(store.open("third")), "third page");
+			store.close();
+
+			RandomAccessFile reset = new RandomAccessFile(index, "rw");
+			try {
+				reset.setLength(validLength);
+			} finally {
+				reset.close();
+			}
+			store = new SegmentedDownloadStore(directory, 1024);
+			store.put("second", content("second page"));
+			store.close();
+		}
+	}
+
+	@Test
+	public void testGarbageAtIndexTailIsDiscarded() throws IOException {
+		SegmentedDownloadStore store = new SegmentedDownloadStore(directory, 1024);
+		store.put("first", content("first page"));
+		store.close();
+		File index = new File(directory, "index.log");
+		long validLength = index.length();
+
+		OutputStream out = new FileOutputStream(index, true);
+		out.write(new byte[]{'X', 1, 2, 3});
+		out.close();
+
+		store = new SegmentedDownloadStore(directory, 1024);
+		assertEquals(index.length(), validLength);
+		assertEquals(store.getNames().size(), 1);
+		store.close();
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testClosedStoreRejectsWrites() {
+		SegmentedDownloadStore store = new SegmentedDownloadStore(directory, 1024);
+		store.close();
+		store.put("a", content("a"));
+	}
+
+	@Test
+	public void testClosedStoreRejectsReads() {
+		SegmentedDownloadStore store = new SegmentedDownloadStore(directory, 1024);
+		store.put("a", content("a"));
+		store.close();
+		try {
+			store.contains("a");
+			fail("Expected store to be closed");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		try {
+			store.getNames();
+			fail("Expected store to be closed");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		try {
+			store.getSize("a");
+			fail("Expected store to be closed");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void testStreamsLargeContent() throws IOException {
+		StringBuilder page = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			page.append("<tr><td>").append(i).append("</td></tr>");
+		}
+		SegmentedDownloadStore store = new SegmentedDownloadStore(directory, 1024);
+		store.put("large", content(page.toString()));
+		assertEquals(store.getSize("large"), page.length());
+		assertTrue(new File(directory, "segment_00000.dat").length() < page.length());
+
+		InputStream in = store.open("large");
+		store.put("next", content("stored in the next segment"));
+		assertTrue(new File(directory, "segment_00001.dat").isFile());
+		assertEquals(read(in), page.toString());
+		assertEquals(read(store.open("next")), "stored in the next segment");
+		store.close();
+	}
+
+	@Test
+	public void testSettingsShareStoreWithClones() {
+		TestRemoteParserSettings settings = new TestRemoteParserSettings();
+		settings.setSegmentedStorageEnabled(true);
+		settings.setDownloadContentDirectory(directory);
+
+		SegmentedDownloadStore store = settings.getDownloadStore();
+		assertSame(settings.getDownloadStore(), store);
+
+		TestRemoteParserSettings clone = settings.clone();
+		assertSame(clone.getDownloadStore(), store);
+
+		clone.closeDownloadStore();
+		store.put("a", content("still open"));
+
+		settings.closeDownloadStore();
+		try {
+			store.put("b", content("closed"));
+			fail("Expected store to be closed");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		assertNotSame(settings.getDownloadStore(), store);
+		settings.closeDownloadStore();
+	}
+
+	@Test
+	public void testDirectoryIsOpenedOnce() {
+		TestRemoteParserSettings first = new TestRemoteParserSettings();
+		first.setSegmentedStorageEnabled(true);
+		first.setDownloadContentDirectory(directory);
+		TestRemoteParserSettings second = new TestRemoteParserSettings();
+		second.setSegmentedStorageEnabled(true);
+		second.setDownloadContentDirectory(new File(directory, "."));
+
+		SegmentedDownloadStore store = first.getDownloadStore();
+		assertSame(second.getDownloadStore(), store);
+		try {
+			new SegmentedDownloadStore(directory, 1024);
+			fail("Expected directory to be in use");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+
+		first.closeDownloadStore();
+		store.put("a", content("still open"));
+		second.closeDownloadStore();
+		try {
+			store.put("b", content("closed"));
+			fail("Expected store to be closed");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+
+		store = new SegmentedDownloadStore(directory, 1024);
+		assertEquals(store.getNames(), Collections.singleton("a"));
+		store.close();
+	}
+
+	@Test
+	public void testStoreOpenedByCloneIsShared() {
+		TestRemoteParserSettings settings = new TestRemoteParserSettings();
+		settings.setSegmentedStorageEnabled(true);
+		settings.setDownloadContentDirectory(directory);
+
+		TestRemoteParserSettings clone = settings.clone();
+		assertSame(settings.getDownloadStore(), clone.getDownloadStore());
+		settings.closeDownloadStore();
+	}
+
+	@Test
+	public void testChangingDirectoryClosesStore() throws IOException {
+		TestRemoteParserSettings settings = new TestRemoteParserSettings();
+		settings.setSegmentedStorageEnabled(true);
+		settings.setDownloadContentDirectory(new File(directory, "one"));
+		SegmentedDownloadStore first = settings.getDownloadStore();
+		TestRemoteParserSettings clone = settings.clone();
+
+		settings.setDownloadContentDirectory(new File(directory, "two"));
+		try {
+			first.put("a", content("a"));
+			fail("Expected store to be closed");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+		SegmentedDownloadStore second = settings.getDownloadStore();
+		assertEquals(second.getDirectory(), new File(directory, "two"));
+
+		clone.setDownloadContentDirectory(new File(directory, "three"));
+		SegmentedDownloadStore third = clone.getDownloadStore();
+		assertEquals(third.getDirectory(), new File(directory, "three"));
+		second.put("b", content("b"));
+
+		clone.closeDownloadStore();
+		settings.setSegmentedStorageEnabled(false);
+		assertNull(settings.getDownloadStore());
+		try {
+			second.put("c", content("c"));
+			fail("Expected store to be closed");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+	}
+
+	@Test
+	public void testSettingsShareIncrementalParsingIndexWithClones() {
+		TestRemoteParserSettings settings = new TestRemoteParserSettings();
+		settings.setIncrementalParsingEnabled(true);
+		settings.setDownloadContentDirectory(directory);
+
+		IncrementalParsingIndex index = settings.getIncrementalParsingIndex();
+		TestRemoteParserSettings clone = settings.clone();
+		assertSame(clone.getIncrementalParsingIndex(), index);
+
+		clone.closeIncrementalParsingIndex();
+		index.record("page", "fingerprint", Collections.<String, List<String[]>>emptyMap());
+		assertSame(clone.getIncrementalParsingIndex(), index);
+
+		settings.closeIncrementalParsingIndex();
+		try {
+			index.record("other page", "fingerprint", Collections.<String, List<String[]>>emptyMap());
+			fail("Expected index to be closed");
+		} catch (IllegalStateException e) {
+			//expected
+		}
+
+		IncrementalParsingIndex reopened = clone.getIncrementalParsingIndex();
+		assertNotSame(reopened, index);
+		assertSame(settings.getIncrementalParsingIndex(), reopened);
+		assertNotNull(reopened.getUnchangedRows("page", "fingerprint"));
+		assertEquals(settings.getSkippedPageCount(), 1);
+		assertEquals(settings.clone().getSkippedPageCount(), 1);
+		settings.closeIncrementalParsingIndex();
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import com.univocity.parsers.common.*;
+
+/**
+ * Minimal {@link RemoteParserSettings} used to exercise the settings API in tests.
+ *
+ * @author Univocity Software Pty Ltd - <a href="mailto:dev@univocity.com">dev@univocity.com</a>
+ */
+class TestRemoteParserSettings extends RemoteParserSettings<CommonParserSettings, RemoteEntityList, Context> {
+
+	@Override
+	protected Paginator newPaginator(RemoteParserSettings parserSettings) {
+		return null;
+	}
+
+	@Override
+	public String getDefaultFileExtension() {
+		return "html";
+	}
+
+	@Override
+	protected CommonParserSettings createGlobalSettings() {
+		return createEmptyGlobalSettings();
+	}
+
+	@Override
+	protected TestRemoteParserSettings clone() {
+		return (TestRemoteParserSettings) super.clone();
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2013 Univocity Software Pty Ltd. All rights reserved.
+ * This file is subject to the terms and conditions defined in file
+ * 'LICENSE.txt', which is part of this source code package.
+ */
+
+package com.univocity.parsers.remote;
+
+import org.testng.annotations.*;
+
+import java.util.*;
+
+import static org.testng.Assert.*;
+
+public class UrlDeduplicatorTest {
+
+	@Test
+	public void testNormalize() {
+		assertEquals(UrlDeduplicator.normalize("HTTP://Example.COM"), "http://example.com/");
+		assertEquals(UrlDeduplicator.normalize("http://example.com:80/a?b=2&a=1#top"), "http://example.com/a?a=1&b=2");
+		assertEquals(UrlDeduplicator.normalize("https://example.com:443/a"), "https://example.com/a");
+		assertEquals(UrlDeduplicator.normalize("https://example.com:8443/a"), "https://example.com:8443/a");
+		assertEquals(UrlDeduplicator.normalize(" /relative/path "), "/relative/path");
+	}
+
+	@Test
+	public void testKeyIncludesParameters() {
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("id", 10);
+		assertEquals(UrlDeduplicator.getKey("http://Example.com/a", null), "http://example.com/a");
+		assertEquals(UrlDeduplicator.getKey("http://example.com/a", parameters), "http://example.com/a\nid=10");
+	}
+
+	@Test
+	public void testMarkVisited() {
+		UrlDeduplicator<String> deduplicator = new UrlDeduplicator<String>(100, 10);
+		assertFalse(deduplicator.isVisited("a"));
+		assertTrue(deduplicator.markVisited("a"));
+		assertTrue(deduplicator.isVisited("a"));
+		assertFalse(deduplicator.markVisited("a"));
+		assertTrue(deduplicator.markVisited("b"));
+
+		assertEquals(deduplicator.getUniqueCount(), 2L);
+		assertEquals(deduplicator.getDuplicateCount(), 1L);
+	}
+
+	@Test
+	public void testResultCacheEvictsLeastRecentlyUsed() {
+		UrlDeduplicator<String> deduplicator = new UrlDeduplicator<String>(100, 2);
+		deduplicator.putResult("a", "A");
+		deduplicator.putResult("b", "B");
+		assertEquals(deduplicator.getResult("a"), "A");
+		deduplicator.putResult("c", "C");
+
+		assertEquals(deduplicator.getResult("a"), "A");
+		assertNull(deduplicator.getResult("b"));
+		assertEquals(deduplicator.getResult("c"), "C");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testRejectTooManyExpectedUrls() {
+		new UrlDeduplicator<String>(UrlDeduplicator.getMaxExpectedUrls() + 1000, 10);
+	}
+}